@@ -4,9 +4,12 @@ import android.app.Application;
 import android.content.Context;
 
 import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.scanner.LibrarySyncObserver;
+import com.musicplayer.data.scanner.MediaStoreScanner;
 import com.musicplayer.repository.PlaylistRepository;
 import com.musicplayer.repository.TrackRepository;
 import com.musicplayer.service.MusicPlayerService;
+import com.musicplayer.worker.LibraryWork;
 
 /**
  * Application class for the Music Player app.
@@ -16,6 +19,8 @@ public class MusicPlayerApplication extends Application {
     
     private static MusicPlayerApplication instance;
     
+    private LibrarySyncObserver librarySyncObserver;
+    
     @Override
     public void onCreate() {
         super.onCreate();
@@ -58,14 +63,21 @@ public class MusicPlayerApplication extends Application {
      * Initializes other global components.
      */
     private void initializeComponents() {
-        // Initialize any other application-wide components
-        // For example: crash reporting, analytics, etc.
+        // Keep the library in sync with MediaStore changes while the app runs
+        librarySyncObserver = new LibrarySyncObserver(this, new MediaStoreScanner(this));
+        librarySyncObserver.start();
+        
+        // Catch up on changes made while the app was not running; an interrupted scan resumes
+        LibraryWork.enqueueScan(this, false);
+        LibraryWork.enqueueFingerprinting(this);
+        LibraryWork.enqueueLoudnessAnalysis(this);
+        LibraryWork.enqueueWaveforms(this);
     }
     
     @Override
     public void onTerminate() {
         super.onTerminate();
-        // Clean up resources if needed
+        librarySyncObserver.stop();
     }
     
     @Override
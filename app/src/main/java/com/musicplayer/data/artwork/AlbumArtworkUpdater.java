@@ -0,0 +1,126 @@
+package com.musicplayer.data.artwork;
+
+import android.os.CancellationSignal;
+import android.util.Log;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.dao.AlbumDao;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fills in missing album artwork.
+ *
+ * Albums without artwork are walked in keyset pages, and one local file per
+ * album is passed to the artwork sources in order until one finds an image.
+ * Album paths are written in batches, each followed by a single statement
+ * that copies them to the tracks of those albums, so the number of writes
+ * does not grow with the number of tracks.
+ *
+ * Covers the cache has since evicted are cleared from albums and tracks
+ * first, so those albums are looked up again in the same run instead of
+ * pointing at a missing file.
+ */
+public class AlbumArtworkUpdater {
+
+    private static final String TAG = "AlbumArtworkUpdater";
+
+    private static final int PAGE_SIZE = 100;
+
+    private final AppDatabase database;
+    private final ArtworkCache cache;
+    private final List<ArtworkSource> sources;
+
+    public AlbumArtworkUpdater(AppDatabase database, ArtworkCache cache, List<ArtworkSource> sources) {
+        this.database = database;
+        this.cache = cache;
+        this.sources = sources;
+    }
+
+    /**
+     * Looks up artwork for every album that has none. When cancelled, the
+     * batches already written are kept.
+     *
+     * @return number of albums that got artwork
+     * @throws android.os.OperationCanceledException if the signal is cancelled
+     */
+    public int update(CancellationSignal cancellationSignal) {
+        AlbumDao albumDao = database.albumDao();
+        int found = 0;
+        int checked = 0;
+
+        int evicted = releaseEvictedArtwork();
+
+        List<AlbumDao.AlbumSourceFile> page = albumDao.getAlbumsWithoutArtAfter(0, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            List<AlbumDao.AlbumArtPath> artPaths = new ArrayList<>();
+            for (AlbumDao.AlbumSourceFile album : page) {
+                String artPath = findArtwork(album.filePath);
+                if (artPath != null) {
+                    artPaths.add(new AlbumDao.AlbumArtPath(album.albumId, artPath));
+                }
+            }
+            checked += page.size();
+
+            if (!artPaths.isEmpty()) {
+                database.runInTransaction(() -> {
+                    albumDao.updateArtPaths(artPaths);
+                    database.trackDao().fillAlbumArtPathsFromAlbums();
+                });
+                found += artPaths.size();
+            }
+            if (cancellationSignal != null) {
+                cancellationSignal.throwIfCanceled();
+            }
+            // Albums left without artwork stay behind the keyset cursor
+            page = albumDao.getAlbumsWithoutArtAfter(page.get(page.size() - 1).albumId, PAGE_SIZE);
+        }
+
+        // Tracks added to albums that already had artwork
+        database.trackDao().fillAlbumArtPathsFromAlbums();
+
+        Log.d(TAG, "Checked " + checked + " albums (" + evicted + " evicted), found artwork for " + found);
+        return found;
+    }
+
+    /**
+     * Clears album and track paths to covers the cache has deleted, which
+     * puts those albums back behind getAlbumsWithoutArtAfter().
+     *
+     * @return number of albums whose artwork was cleared
+     */
+    private int releaseEvictedArtwork() {
+        AlbumDao albumDao = database.albumDao();
+        int released = 0;
+
+        List<AlbumDao.AlbumArtPath> page = albumDao.getArtPathsAfter(0, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            List<String> evicted = new ArrayList<>();
+            for (AlbumDao.AlbumArtPath album : page) {
+                if (cache.isEvicted(album.artPath)) {
+                    evicted.add(album.artPath);
+                }
+            }
+            if (!evicted.isEmpty()) {
+                database.runInTransaction(() -> {
+                    albumDao.clearArtPaths(evicted);
+                    database.trackDao().clearAlbumArtPaths(evicted);
+                });
+                released += evicted.size();
+            }
+            page = albumDao.getArtPathsAfter(page.get(page.size() - 1).id, PAGE_SIZE);
+        }
+        return released;
+    }
+
+    private String findArtwork(String filePath) {
+        for (ArtworkSource source : sources) {
+            String artPath = source.findArtwork(filePath);
+            if (artPath != null) {
+                return artPath;
+            }
+        }
+        return null;
+    }
+}
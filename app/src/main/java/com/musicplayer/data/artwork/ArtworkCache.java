@@ -0,0 +1,248 @@
+package com.musicplayer.data.artwork;
+
+import android.content.Context;
+import android.graphics.Bitmap;
+import android.graphics.BitmapFactory;
+import android.util.Log;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+
+/**
+ * Content-addressed disk cache for album artwork.
+ *
+ * Images are named after the SHA-1 of their encoded bytes, so a cover shared
+ * by many tracks or albums is decoded and stored once. Each image is kept as
+ * downscaled JPEG variants only. When the cache grows past its size limit,
+ * the files stored or re-stored longest ago are deleted. Rows that still
+ * point at a deleted file are found with {@link #isEvicted(String)} and sent
+ * back through artwork lookup.
+ */
+public class ArtworkCache {
+
+    private static final String TAG = "ArtworkCache";
+
+    private static final String DIRECTORY = "artwork";
+
+    // Longest edge of the stored variants, in pixels
+    public static final int SIZE_LARGE = 512;
+    public static final int SIZE_THUMBNAIL = 128;
+
+    private static final long DEFAULT_MAX_BYTES = 64L * 1024 * 1024;
+
+    private static final int JPEG_QUALITY = 90;
+
+    private final File directory;
+    private final long maxBytes;
+
+    // Computed on first use; -1 until then
+    private long totalBytes = -1;
+
+    public ArtworkCache(Context context) {
+        this(new File(context.getCacheDir(), DIRECTORY), DEFAULT_MAX_BYTES);
+    }
+
+    public ArtworkCache(File directory, long maxBytes) {
+        this.directory = directory;
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * Stores an encoded image and returns the path of its large variant, or
+     * null if the image cannot be decoded. An image already in the cache is
+     * not decoded again.
+     */
+    public synchronized String put(byte[] image) {
+        String hash = sha1(image);
+        File large = getFile(hash, SIZE_LARGE);
+        File thumbnail = getFile(hash, SIZE_THUMBNAIL);
+        if (large.exists() && thumbnail.exists()) {
+            touch(large);
+            touch(thumbnail);
+            return large.getPath();
+        }
+
+        Bitmap bitmap = decode(image, SIZE_LARGE);
+        if (bitmap == null) {
+            Log.w(TAG, "Undecodable artwork " + hash);
+            return null;
+        }
+
+        try {
+            Bitmap largeBitmap = scaleToFit(bitmap, SIZE_LARGE);
+            write(largeBitmap, large);
+            Bitmap thumbnailBitmap = scaleToFit(largeBitmap, SIZE_THUMBNAIL);
+            write(thumbnailBitmap, thumbnail);
+            recycle(thumbnailBitmap, largeBitmap);
+            recycle(largeBitmap, bitmap);
+        } catch (IOException e) {
+            Log.e(TAG, "Error writing artwork " + hash, e);
+            large.delete();
+            thumbnail.delete();
+            return null;
+        } finally {
+            bitmap.recycle();
+        }
+
+        trim();
+        return large.getPath();
+    }
+
+    /**
+     * Returns the path of another variant of a cached image, given the path
+     * of any of its variants.
+     */
+    public static String getVariantPath(String artPath, int size) {
+        File file = new File(artPath);
+        String name = file.getName();
+        int separator = name.lastIndexOf('_');
+        if (separator < 0) {
+            return artPath;
+        }
+        return new File(file.getParentFile(), name.substring(0, separator) + "_" + size + ".jpg").getPath();
+    }
+
+    /**
+     * Returns whether a path belongs to this cache but one of its variants has
+     * been deleted by {@link #trim()}. Paths outside the cache are never
+     * reported, so artwork found elsewhere is left alone.
+     */
+    public boolean isEvicted(String artPath) {
+        if (artPath == null || artPath.isEmpty()) {
+            return false;
+        }
+        File file = new File(artPath);
+        if (!directory.equals(file.getParentFile())) {
+            return false;
+        }
+        return !file.exists()
+                || !new File(getVariantPath(artPath, SIZE_THUMBNAIL)).exists()
+                || !new File(getVariantPath(artPath, SIZE_LARGE)).exists();
+    }
+
+    public File getFile(String hash, int size) {
+        return new File(directory, hash + "_" + size + ".jpg");
+    }
+
+    /**
+     * Deletes least recently used files until the cache fits its size limit.
+     */
+    public synchronized void trim() {
+        File[] files = directory.listFiles();
+        if (files == null) {
+            return;
+        }
+        if (totalBytes < 0) {
+            totalBytes = 0;
+            for (File file : files) {
+                totalBytes += file.length();
+            }
+        }
+        if (totalBytes <= maxBytes) {
+            return;
+        }
+
+        // put() sets the modification time on every store or hit, so it is the last store
+        long[] lastUsed = new long[files.length];
+        for (int i = 0; i < files.length; i++) {
+            lastUsed[i] = files[i].lastModified();
+        }
+        Integer[] order = new Integer[files.length];
+        for (int i = 0; i < order.length; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, (a, b) -> Long.compare(lastUsed[a], lastUsed[b]));
+
+        for (int i = 0; i < order.length && totalBytes > maxBytes; i++) {
+            File file = files[order[i]];
+            long length = file.length();
+            if (file.delete()) {
+                totalBytes -= length;
+            }
+        }
+    }
+
+    private void write(Bitmap bitmap, File file) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        // Written under a temporary name so readers never see a partial file
+        File temp = new File(directory, file.getName() + ".tmp");
+        try (OutputStream out = new FileOutputStream(temp)) {
+            if (!bitmap.compress(Bitmap.CompressFormat.JPEG, JPEG_QUALITY, out)) {
+                throw new IOException("Cannot encode " + file.getName());
+            }
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot rename " + temp);
+        }
+        if (totalBytes >= 0) {
+            totalBytes += file.length();
+        }
+    }
+
+    /**
+     * Decodes with the largest power-of-two subsampling that keeps the image
+     * at least {@code size} pixels on its longest edge.
+     */
+    private static Bitmap decode(byte[] image, int size) {
+        BitmapFactory.Options options = new BitmapFactory.Options();
+        options.inJustDecodeBounds = true;
+        BitmapFactory.decodeByteArray(image, 0, image.length, options);
+        if (options.outWidth <= 0 || options.outHeight <= 0) {
+            return null;
+        }
+
+        int longest = Math.max(options.outWidth, options.outHeight);
+        int sampleSize = 1;
+        while (longest / (sampleSize * 2) >= size) {
+            sampleSize *= 2;
+        }
+        options.inJustDecodeBounds = false;
+        options.inSampleSize = sampleSize;
+        return BitmapFactory.decodeByteArray(image, 0, image.length, options);
+    }
+
+    private static Bitmap scaleToFit(Bitmap bitmap, int size) {
+        int longest = Math.max(bitmap.getWidth(), bitmap.getHeight());
+        if (longest <= size) {
+            return bitmap;
+        }
+        float scale = (float) size / longest;
+        return Bitmap.createScaledBitmap(bitmap,
+                Math.max(1, Math.round(bitmap.getWidth() * scale)),
+                Math.max(1, Math.round(bitmap.getHeight() * scale)), true);
+    }
+
+    // Recycles a scaled copy, but not when scaling returned the source itself
+    private static void recycle(Bitmap scaled, Bitmap source) {
+        if (scaled != source) {
+            scaled.recycle();
+        }
+    }
+
+    private static void touch(File file) {
+        file.setLastModified(System.currentTimeMillis());
+    }
+
+    static String sha1(byte[] data) {
+        try {
+            byte[] digest = MessageDigest.getInstance("SHA-1").digest(data);
+            StringBuilder hex = new StringBuilder(digest.length * 2);
+            for (byte b : digest) {
+                hex.append(Character.forDigit((b >> 4) & 0xF, 16))
+                        .append(Character.forDigit(b & 0xF, 16));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // Every Android runtime provides SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+}
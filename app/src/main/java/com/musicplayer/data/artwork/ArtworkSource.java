@@ -0,0 +1,13 @@
+package com.musicplayer.data.artwork;
+
+/**
+ * Finds the artwork for an album given one of its audio files.
+ */
+public interface ArtworkSource {
+
+    /**
+     * Returns the path of a cached image for the file's album, or null if
+     * this source has none.
+     */
+    String findArtwork(String filePath);
+}
@@ -0,0 +1,51 @@
+package com.musicplayer.data.artwork;
+
+import android.media.MediaMetadataRetriever;
+import android.util.Log;
+
+/**
+ * Reads the picture embedded in an audio file's tags and stores it in the
+ * artwork cache. Not thread-safe: the retriever is reused between files.
+ */
+public class EmbeddedArtworkSource implements ArtworkSource {
+
+    private static final String TAG = "EmbeddedArtworkSource";
+
+    private final ArtworkCache cache;
+    private MediaMetadataRetriever retriever;
+
+    public EmbeddedArtworkSource(ArtworkCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public String findArtwork(String filePath) {
+        byte[] picture;
+        try {
+            if (retriever == null) {
+                retriever = new MediaMetadataRetriever();
+            }
+            retriever.setDataSource(filePath);
+            picture = retriever.getEmbeddedPicture();
+        } catch (RuntimeException e) {
+            Log.w(TAG, "Cannot read embedded picture of " + filePath, e);
+            return null;
+        }
+        return picture != null ? cache.put(picture) : null;
+    }
+
+    /**
+     * Releases the retriever; the source can still be used afterwards.
+     */
+    public void release() {
+        if (retriever == null) {
+            return;
+        }
+        try {
+            retriever.release();
+        } catch (Exception e) {
+            Log.w(TAG, "Error releasing MediaMetadataRetriever", e);
+        }
+        retriever = null;
+    }
+}
@@ -0,0 +1,129 @@
+package com.musicplayer.data.artwork;
+
+import android.util.Log;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.HashMap;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Finds artwork kept as an image file next to the audio files, such as
+ * cover.jpg or folder.png.
+ *
+ * Each directory is listed at most once for the lifetime of the source,
+ * and each image is stored in the artwork cache at most once, no matter how
+ * many tracks or albums share it. Create one source per scan so that images
+ * added later are seen by the next one. Not thread-safe.
+ */
+public class FolderArtworkSource implements ArtworkSource {
+
+    private static final String TAG = "FolderArtworkSource";
+
+    // Base names in order of preference
+    private static final String[] NAMES = {"cover", "folder", "front", "albumart", "album"};
+
+    private static final String[] EXTENSIONS = {"jpg", "jpeg", "png"};
+
+    // Larger files are not cover art
+    private static final long MAX_IMAGE_BYTES = 20L * 1024 * 1024;
+
+    // Marks a directory or image that has been looked at and yielded nothing
+    private static final String NONE = "";
+
+    private final ArtworkCache cache;
+    private final Map<String, String> imageByDirectory = new HashMap<>();
+    private final Map<String, String> artPathByImage = new HashMap<>();
+
+    public FolderArtworkSource(ArtworkCache cache) {
+        this.cache = cache;
+    }
+
+    @Override
+    public String findArtwork(String filePath) {
+        File directory = new File(filePath).getParentFile();
+        if (directory == null) {
+            return null;
+        }
+
+        String image = imageByDirectory.get(directory.getPath());
+        if (image == null) {
+            image = findImage(directory);
+            imageByDirectory.put(directory.getPath(), image);
+        }
+        if (image.isEmpty()) {
+            return null;
+        }
+
+        String artPath = artPathByImage.get(image);
+        if (artPath == null) {
+            artPath = store(image);
+            artPathByImage.put(image, artPath);
+        }
+        return artPath.isEmpty() ? null : artPath;
+    }
+
+    /**
+     * Lists the directory once and returns the preferred image in it, or NONE.
+     */
+    private static String findImage(File directory) {
+        String[] names = directory.list();
+        if (names == null) {
+            return NONE;
+        }
+
+        int bestRank = Integer.MAX_VALUE;
+        String best = NONE;
+        for (String name : names) {
+            int rank = rank(name.toLowerCase(Locale.ROOT));
+            if (rank < bestRank) {
+                bestRank = rank;
+                best = new File(directory, name).getPath();
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Orders candidates by base name first, then by extension; MAX_VALUE if the name does not match.
+     */
+    private static int rank(String name) {
+        int dot = name.lastIndexOf('.');
+        if (dot < 0) {
+            return Integer.MAX_VALUE;
+        }
+        int nameIndex = indexOf(NAMES, name.substring(0, dot));
+        int extensionIndex = indexOf(EXTENSIONS, name.substring(dot + 1));
+        if (nameIndex < 0 || extensionIndex < 0) {
+            return Integer.MAX_VALUE;
+        }
+        return nameIndex * EXTENSIONS.length + extensionIndex;
+    }
+
+    private static int indexOf(String[] values, String value) {
+        for (int i = 0; i < values.length; i++) {
+            if (values[i].equals(value)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private String store(String image) {
+        try (RandomAccessFile file = new RandomAccessFile(image, "r")) {
+            long length = file.length();
+            if (length == 0 || length > MAX_IMAGE_BYTES) {
+                return NONE;
+            }
+            byte[] data = new byte[(int) length];
+            file.readFully(data);
+            String artPath = cache.put(data);
+            return artPath != null ? artPath : NONE;
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot read " + image, e);
+            return NONE;
+        }
+    }
+}
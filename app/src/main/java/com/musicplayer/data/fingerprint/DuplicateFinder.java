@@ -0,0 +1,126 @@
+package com.musicplayer.data.fingerprint;
+
+import android.util.Log;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.dao.FingerprintDao;
+import com.musicplayer.data.local.entities.TrackFingerprint;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Groups tracks that are the same recording, using stored fingerprints.
+ *
+ * Candidate pairs come from the fingerprint key index and a duration filter,
+ * computed by one SQL join, so tracks are never compared all against all.
+ * Each candidate pair is then confirmed by the bit error rate of the full
+ * fingerprints, and confirmed pairs are merged into groups with union-find.
+ */
+public class DuplicateFinder {
+
+    private static final String TAG = "DuplicateFinder";
+
+    // Re-encodings and rips of the same recording differ by well under this
+    private static final long DURATION_TOLERANCE_MS = 3000;
+
+    // Keys shared by more tracks than this are too generic to suggest duplicates
+    private static final int MAX_BUCKET_SIZE = 64;
+
+    // Fingerprints kept decoded while verifying; pairs arrive grouped by their first track
+    private static final int FINGERPRINT_CACHE_SIZE = 1024;
+
+    private final AppDatabase database;
+
+    public DuplicateFinder(AppDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Returns the ids of each group of two or more duplicate tracks.
+     */
+    public List<List<Long>> findDuplicates() {
+        FingerprintDao fingerprintDao = database.fingerprintDao();
+        List<FingerprintDao.CandidatePair> pairs =
+                fingerprintDao.getCandidatePairs(DURATION_TOLERANCE_MS, MAX_BUCKET_SIZE);
+
+        Map<Long, Long> parents = new HashMap<>();
+        Map<Long, int[]> fingerprints = new LinkedHashMap<Long, int[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Long, int[]> eldest) {
+                return size() > FINGERPRINT_CACHE_SIZE;
+            }
+        };
+
+        int verified = 0;
+        for (FingerprintDao.CandidatePair pair : pairs) {
+            long first = find(parents, pair.first);
+            long second = find(parents, pair.second);
+            if (first == second) {
+                continue; // already grouped through other pairs
+            }
+            int[] a = load(fingerprintDao, fingerprints, pair.first);
+            int[] b = load(fingerprintDao, fingerprints, pair.second);
+            verified++;
+            if (a != null && b != null && FingerprintMatcher.isMatch(a, b)) {
+                parents.put(first, second);
+            }
+        }
+
+        Map<Long, List<Long>> groups = new LinkedHashMap<>();
+        for (Long trackId : parents.keySet()) {
+            long root = find(parents, trackId);
+            List<Long> group = groups.get(root);
+            if (group == null) {
+                group = new ArrayList<>();
+                groups.put(root, group);
+            }
+            group.add(trackId);
+        }
+
+        List<List<Long>> duplicates = new ArrayList<>();
+        for (List<Long> group : groups.values()) {
+            if (group.size() > 1) {
+                duplicates.add(group);
+            }
+        }
+        Log.d(TAG, pairs.size() + " candidate pairs, " + verified + " verified, "
+                + duplicates.size() + " duplicate groups");
+        return duplicates;
+    }
+
+    private static int[] load(FingerprintDao fingerprintDao, Map<Long, int[]> cache, long trackId) {
+        int[] fingerprint = cache.get(trackId);
+        if (fingerprint == null) {
+            TrackFingerprint row = fingerprintDao.getByTrackId(trackId);
+            if (row == null) {
+                return null;
+            }
+            fingerprint = FingerprintMatcher.fromBytes(row.getFingerprint());
+            cache.put(trackId, fingerprint);
+        }
+        return fingerprint;
+    }
+
+    /**
+     * Union-find lookup with path halving; ids not seen before become their own root.
+     */
+    private static long find(Map<Long, Long> parents, long trackId) {
+        Long parent = parents.get(trackId);
+        if (parent == null) {
+            parents.put(trackId, trackId);
+            return trackId;
+        }
+        long current = trackId;
+        while (parent != current) {
+            long grandparent = parents.get(parent);
+            parents.put(current, grandparent);
+            current = grandparent;
+            parent = parents.get(current);
+        }
+        return current;
+    }
+}
@@ -0,0 +1,87 @@
+package com.musicplayer.data.fingerprint;
+
+import android.os.CancellationSignal;
+import android.util.Log;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.dao.FingerprintDao;
+import com.musicplayer.data.local.entities.FingerprintKey;
+import com.musicplayer.data.local.entities.TrackFingerprint;
+import com.musicplayer.utils.audio.PcmDecoder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Fingerprints local tracks that have no fingerprint yet.
+ *
+ * Tracks are walked in keyset pages. Only the first seconds of each file are
+ * decoded, and the fingerprints and index keys of a page are written in one
+ * transaction, so a stopped run loses at most one page of work.
+ */
+public class FingerprintIndexer {
+
+    private static final String TAG = "FingerprintIndexer";
+
+    private static final int PAGE_SIZE = 50;
+
+    private final AppDatabase database;
+
+    public FingerprintIndexer(AppDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Fingerprints every local track without a fingerprint. Files that cannot
+     * be decoded are skipped and tried again next time.
+     *
+     * @return number of tracks fingerprinted
+     * @throws android.os.OperationCanceledException if the signal is cancelled
+     */
+    public int indexMissing(CancellationSignal cancellationSignal) {
+        FingerprintDao fingerprintDao = database.fingerprintDao();
+        int indexed = 0;
+
+        List<FingerprintDao.PendingTrack> page = fingerprintDao.getTracksWithoutFingerprintAfter(0, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            List<TrackFingerprint> fingerprints = new ArrayList<>(page.size());
+            List<FingerprintKey> keys = new ArrayList<>(page.size() * FingerprintMatcher.KEY_COUNT);
+            for (FingerprintDao.PendingTrack track : page) {
+                int[] fingerprint = compute(track.filePath, cancellationSignal);
+                if (fingerprint == null) {
+                    continue;
+                }
+                fingerprints.add(new TrackFingerprint(track.id, track.duration,
+                        FingerprintMatcher.toBytes(fingerprint)));
+                for (int key : FingerprintMatcher.keys(fingerprint)) {
+                    keys.add(new FingerprintKey(key, track.id));
+                }
+            }
+            if (!fingerprints.isEmpty()) {
+                fingerprintDao.insertAll(fingerprints, keys);
+                indexed += fingerprints.size();
+            }
+            page = fingerprintDao.getTracksWithoutFingerprintAfter(page.get(page.size() - 1).id, PAGE_SIZE);
+        }
+
+        Log.d(TAG, "Fingerprinted " + indexed + " tracks");
+        return indexed;
+    }
+
+    /**
+     * Returns the fingerprint of a file, or null if it cannot be decoded or is
+     * too short to compare.
+     */
+    private static int[] compute(String filePath, CancellationSignal cancellationSignal) {
+        Fingerprinter fingerprinter = new Fingerprinter();
+        try {
+            PcmDecoder.decode(filePath, fingerprinter, cancellationSignal);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot decode " + filePath, e);
+            return null;
+        }
+        int[] fingerprint = fingerprinter.getFingerprint();
+        return fingerprint.length >= FingerprintMatcher.MIN_OVERLAP ? fingerprint : null;
+    }
+}
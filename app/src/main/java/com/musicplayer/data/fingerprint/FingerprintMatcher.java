@@ -0,0 +1,101 @@
+package com.musicplayer.data.fingerprint;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Compares fingerprints and derives the index keys used to find candidates.
+ */
+public final class FingerprintMatcher {
+
+    // Fingerprints closer than this are the same recording; unrelated audio is near 0.5
+    public static final double MAX_BIT_ERROR_RATE = 0.35;
+
+    // Frames of shift tried in each direction, to absorb encoder delay
+    static final int MAX_SHIFT = 4;
+
+    // Fewer overlapping frames than this are not enough evidence
+    static final int MIN_OVERLAP = 64;
+
+    // Index keys per fingerprint
+    public static final int KEY_COUNT = 16;
+
+    private FingerprintMatcher() {}
+
+    public static boolean isMatch(int[] first, int[] second) {
+        return bitErrorRate(first, second) <= MAX_BIT_ERROR_RATE;
+    }
+
+    /**
+     * Fraction of differing bits at the best alignment within
+     * {@link #MAX_SHIFT} frames; 1 when the overlap is too short to compare.
+     */
+    public static double bitErrorRate(int[] first, int[] second) {
+        double best = 1;
+        for (int shift = -MAX_SHIFT; shift <= MAX_SHIFT; shift++) {
+            int start = Math.max(0, -shift);
+            int end = Math.min(first.length, second.length - shift);
+            int overlap = end - start;
+            if (overlap < MIN_OVERLAP) {
+                continue;
+            }
+            long errors = 0;
+            for (int i = start; i < end; i++) {
+                errors += Integer.bitCount(first[i] ^ second[i + shift]);
+            }
+            best = Math.min(best, (double) errors / (overlap * 32L));
+        }
+        return best;
+    }
+
+    /**
+     * Returns up to {@link #KEY_COUNT} index keys: the smallest hashed values
+     * among the sub-fingerprints. Two recordings share many exact
+     * sub-fingerprints, so they very likely share at least one of these keys,
+     * while unrelated tracks almost never do. Sub-fingerprints with all or no
+     * bits set come from silence or steady tones and are not used.
+     */
+    public static int[] keys(int[] fingerprint) {
+        int[] hashes = new int[fingerprint.length];
+        int count = 0;
+        for (int value : fingerprint) {
+            if (value != 0 && value != -1) {
+                hashes[count++] = mix(value);
+            }
+        }
+        Arrays.sort(hashes, 0, count);
+
+        int[] keys = new int[KEY_COUNT];
+        int keyCount = 0;
+        for (int i = 0; i < count && keyCount < KEY_COUNT; i++) {
+            if (keyCount == 0 || hashes[i] != keys[keyCount - 1]) {
+                keys[keyCount++] = hashes[i];
+            }
+        }
+        return Arrays.copyOf(keys, keyCount);
+    }
+
+    public static byte[] toBytes(int[] fingerprint) {
+        ByteBuffer buffer = ByteBuffer.allocate(fingerprint.length * 4);
+        buffer.asIntBuffer().put(fingerprint);
+        return buffer.array();
+    }
+
+    public static int[] fromBytes(byte[] bytes) {
+        IntBuffer buffer = ByteBuffer.wrap(bytes).asIntBuffer();
+        int[] fingerprint = new int[buffer.remaining()];
+        buffer.get(fingerprint);
+        return fingerprint;
+    }
+
+    // Murmur3 finalizer: spreads similar sub-fingerprints over the whole key space
+    private static int mix(int value) {
+        value ^= value >>> 16;
+        value *= 0x85ebca6b;
+        value ^= value >>> 13;
+        value *= 0xc2b2ae35;
+        value ^= value >>> 16;
+        return value;
+    }
+}
@@ -0,0 +1,174 @@
+package com.musicplayer.data.fingerprint;
+
+import com.musicplayer.utils.audio.Fft;
+import com.musicplayer.utils.audio.PcmSink;
+
+import java.util.Arrays;
+
+/**
+ * Computes an acoustic fingerprint in the style of Haitsma and Kalker from
+ * decoded PCM.
+ *
+ * Audio is mixed to mono and reduced to about 5.5 kHz, and leading silence is
+ * skipped. Overlapping 0.37 s frames are then split into 33 logarithmic bands
+ * between 300 and 2000 Hz. Each frame yields a 32-bit sub-fingerprint: bit m
+ * is set when the energy difference between bands m and m+1 grew since the
+ * previous frame. The bits depend on the shape of the spectrum rather than on
+ * levels, so re-encodings of the same recording at other bitrates or sample
+ * rates give nearly the same bits.
+ */
+public class Fingerprinter implements PcmSink {
+
+    static final int SAMPLE_RATE = 5512;
+    static final int FRAME_SIZE = 2048;
+    static final int HOP_SIZE = 256;
+
+    private static final int BANDS = 33;
+    private static final double MIN_FREQUENCY = 300;
+    private static final double MAX_FREQUENCY = 2000;
+
+    // About 30 seconds of audio
+    public static final int DEFAULT_MAX_FRAMES = 30 * SAMPLE_RATE / HOP_SIZE;
+
+    // Leading samples quieter than this (about -54 dBFS) are skipped
+    private static final float SILENCE_LEVEL = 0.002f;
+
+    private static final int[] BAND_EDGES = bandEdges();
+
+    private final int maxFrames;
+    private final Fft fft = new Fft(FRAME_SIZE);
+    private final double[] window = new double[FRAME_SIZE];
+    private final double[] re = new double[FRAME_SIZE];
+    private final double[] im = new double[FRAME_SIZE];
+
+    // Last FRAME_SIZE resampled samples, oldest first once full
+    private final float[] ring = new float[FRAME_SIZE];
+    private int ringPosition;
+    private int buffered;
+    private int sinceLastFrame;
+
+    private double[] previousEnergy;
+    private int[] frames = new int[64];
+    private int frameCount;
+
+    private int channelCount = 1;
+    private double step = 1;
+    private double phase;
+    private float sum;
+    private int summed;
+    private boolean started;
+
+    public Fingerprinter() {
+        this(DEFAULT_MAX_FRAMES);
+    }
+
+    public Fingerprinter(int maxFrames) {
+        this.maxFrames = maxFrames;
+        for (int i = 0; i < FRAME_SIZE; i++) {
+            window[i] = 0.5 - 0.5 * Math.cos(2 * Math.PI * i / (FRAME_SIZE - 1));
+        }
+    }
+
+    @Override
+    public void onFormat(int sampleRate, int channelCount) {
+        this.channelCount = Math.max(1, channelCount);
+        this.step = (double) sampleRate / SAMPLE_RATE;
+    }
+
+    @Override
+    public boolean onSamples(short[] samples, int count) {
+        for (int i = 0; i + channelCount <= count; i += channelCount) {
+            float mono = 0;
+            for (int c = 0; c < channelCount; c++) {
+                mono += samples[i + c];
+            }
+            mono /= channelCount * 32768f;
+
+            if (!started) {
+                if (Math.abs(mono) < SILENCE_LEVEL) {
+                    continue;
+                }
+                started = true;
+            }
+
+            // Box-filter decimation: average the input samples that fall into each output sample
+            sum += mono;
+            summed++;
+            phase += 1;
+            if (phase >= step) {
+                phase -= step;
+                addSample(sum / summed);
+                sum = 0;
+                summed = 0;
+                if (frameCount >= maxFrames) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the sub-fingerprints computed so far, one per frame.
+     */
+    public int[] getFingerprint() {
+        return Arrays.copyOf(frames, frameCount);
+    }
+
+    private void addSample(float sample) {
+        ring[ringPosition] = sample;
+        ringPosition = (ringPosition + 1) % FRAME_SIZE;
+        if (buffered < FRAME_SIZE) {
+            buffered++;
+            if (buffered < FRAME_SIZE) {
+                return;
+            }
+        } else if (++sinceLastFrame < HOP_SIZE) {
+            return;
+        }
+        sinceLastFrame = 0;
+        processFrame();
+    }
+
+    private void processFrame() {
+        for (int i = 0; i < FRAME_SIZE; i++) {
+            re[i] = ring[(ringPosition + i) % FRAME_SIZE] * window[i];
+            im[i] = 0;
+        }
+        fft.transform(re, im);
+
+        double[] energy = new double[BANDS];
+        for (int band = 0; band < BANDS; band++) {
+            double total = 0;
+            for (int bin = BAND_EDGES[band]; bin < BAND_EDGES[band + 1]; bin++) {
+                total += re[bin] * re[bin] + im[bin] * im[bin];
+            }
+            energy[band] = total;
+        }
+
+        if (previousEnergy != null) {
+            int bits = 0;
+            for (int m = 0; m < BANDS - 1; m++) {
+                double difference = (energy[m] - energy[m + 1])
+                        - (previousEnergy[m] - previousEnergy[m + 1]);
+                if (difference > 0) {
+                    bits |= 1 << m;
+                }
+            }
+            if (frameCount == frames.length) {
+                frames = Arrays.copyOf(frames, frames.length * 2);
+            }
+            frames[frameCount++] = bits;
+        }
+        previousEnergy = energy;
+    }
+
+    private static int[] bandEdges() {
+        int[] edges = new int[BANDS + 1];
+        for (int i = 0; i <= BANDS; i++) {
+            double frequency = MIN_FREQUENCY * Math.pow(MAX_FREQUENCY / MIN_FREQUENCY, (double) i / BANDS);
+            edges[i] = (int) Math.round(frequency * FRAME_SIZE / SAMPLE_RATE);
+        }
+        return edges;
+    }
+}
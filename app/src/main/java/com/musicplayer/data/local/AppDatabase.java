@@ -13,11 +13,20 @@ import com.musicplayer.data.local.dao.TrackDao;
 import com.musicplayer.data.local.dao.AlbumDao;
 import com.musicplayer.data.local.dao.ArtistDao;
 import com.musicplayer.data.local.dao.PlaylistDao;
+import com.musicplayer.data.local.dao.MetadataCacheDao;
+import com.musicplayer.data.local.dao.FingerprintDao;
 import com.musicplayer.data.local.entities.Track;
 import com.musicplayer.data.local.entities.Album;
+import com.musicplayer.data.local.entities.AlbumStats;
 import com.musicplayer.data.local.entities.Artist;
+import com.musicplayer.data.local.entities.ArtistStats;
 import com.musicplayer.data.local.entities.Playlist;
 import com.musicplayer.data.local.entities.PlaylistItem;
+import com.musicplayer.data.local.entities.MetadataCacheEntry;
+import com.musicplayer.data.local.entities.TrackFingerprint;
+import com.musicplayer.data.local.entities.FingerprintKey;
+import com.musicplayer.data.local.entities.TrackFts;
+import com.musicplayer.data.local.entities.TrackSearchChange;
 import com.musicplayer.utils.Converters;
 
 /**
@@ -30,9 +39,16 @@ import com.musicplayer.utils.Converters;
         Album.class,
         Artist.class,
         Playlist.class,
-        PlaylistItem.class
+        PlaylistItem.class,
+        MetadataCacheEntry.class,
+        TrackFingerprint.class,
+        FingerprintKey.class,
+        TrackFts.class,
+        AlbumStats.class,
+        ArtistStats.class,
+        TrackSearchChange.class
     },
-    version = 1,
+    version = 14,
     exportSchema = true
 )
 @TypeConverters({Converters.class})
@@ -48,6 +64,8 @@ public abstract class AppDatabase extends RoomDatabase {
     public abstract AlbumDao albumDao();
     public abstract ArtistDao artistDao();
     public abstract PlaylistDao playlistDao();
+    public abstract MetadataCacheDao metadataCacheDao();
+    public abstract FingerprintDao fingerprintDao();
     
     /**
      * Gets the singleton instance of the database.
@@ -74,7 +92,10 @@ public abstract class AppDatabase extends RoomDatabase {
                     public void onCreate(SupportSQLiteDatabase db) {
                         super.onCreate(db);
                         // Database created for the first time
-                        // Initialize with default data if needed
+                        // Keep album_stats and artist_stats in step with tracks and albums
+                        LibraryStatsTriggers.create(db);
+                        // Record the tracks the search index has to reread
+                        TrackSearchTriggers.create(db);
                     }
                     
                     @Override
@@ -88,31 +109,234 @@ public abstract class AppDatabase extends RoomDatabase {
                         db.execSQL("PRAGMA temp_store=memory");
                     }
                 })
+                .addMigrations(MIGRATION_1_2, MIGRATION_2_3, MIGRATION_3_4, MIGRATION_4_5,
+                        MIGRATION_5_6, MIGRATION_6_7, MIGRATION_7_8, MIGRATION_8_9, MIGRATION_9_10,
+                        MIGRATION_10_11, MIGRATION_11_12, MIGRATION_12_13,
+                        MIGRATION_13_14)
                 .fallbackToDestructiveMigration()
                 .build();
     }
     
     /**
      * Database migration from version 1 to 2.
-     * Example migration - add new columns or tables.
+     * Adds the MediaStore row id used by incremental library sync.
      */
     static final Migration MIGRATION_1_2 = new Migration(1, 2) {
         @Override
         public void migrate(SupportSQLiteDatabase database) {
-            // Example migration operations:
-            // database.execSQL("ALTER TABLE tracks ADD COLUMN new_column TEXT DEFAULT NULL");
-            // database.execSQL("CREATE TABLE new_table (...)");
-            // database.execSQL("CREATE INDEX index_name ON table_name(column_name)");
+            database.execSQL("ALTER TABLE tracks ADD COLUMN mediaStoreId INTEGER NOT NULL DEFAULT 0");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_tracks_mediaStoreId ON tracks (mediaStoreId)");
         }
     };
     
     /**
      * Database migration from version 2 to 3.
+     * Adds the metadata extraction cache.
      */
     static final Migration MIGRATION_2_3 = new Migration(2, 3) {
         @Override
         public void migrate(SupportSQLiteDatabase database) {
-            // Add more migrations as needed
+            database.execSQL("CREATE TABLE IF NOT EXISTS metadata_cache ("
+                    + "filePath TEXT NOT NULL, fileSize INTEGER NOT NULL, lastModified INTEGER NOT NULL, "
+                    + "title TEXT, artist TEXT, album TEXT, genre TEXT, composer TEXT, mimeType TEXT, "
+                    + "duration INTEGER NOT NULL, trackNumber INTEGER NOT NULL, year INTEGER NOT NULL, "
+                    + "bitrate INTEGER NOT NULL, sampleRate INTEGER NOT NULL, channels INTEGER NOT NULL, "
+                    + "PRIMARY KEY(filePath))");
+        }
+    };
+    
+    /**
+     * Database migration from version 3 to 4.
+     * Adds the content hash used to recognise moved files.
+     */
+    static final Migration MIGRATION_3_4 = new Migration(3, 4) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE tracks ADD COLUMN contentHash TEXT");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_tracks_contentHash ON tracks (contentHash)");
+        }
+    };
+    
+    /**
+     * Database migration from version 4 to 5.
+     * Adds track fingerprints and their key index for duplicate detection.
+     */
+    static final Migration MIGRATION_4_5 = new Migration(4, 5) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS track_fingerprints ("
+                    + "trackId INTEGER NOT NULL, duration INTEGER NOT NULL, fingerprint BLOB NOT NULL, "
+                    + "PRIMARY KEY(trackId), "
+                    + "FOREIGN KEY(trackId) REFERENCES tracks(id) ON UPDATE NO ACTION ON DELETE CASCADE)");
+            database.execSQL("CREATE TABLE IF NOT EXISTS fingerprint_keys ("
+                    + "hashKey INTEGER NOT NULL, trackId INTEGER NOT NULL, "
+                    + "PRIMARY KEY(hashKey, trackId), "
+                    + "FOREIGN KEY(trackId) REFERENCES track_fingerprints(trackId) "
+                    + "ON UPDATE NO ACTION ON DELETE CASCADE)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_fingerprint_keys_trackId "
+                    + "ON fingerprint_keys (trackId)");
+        }
+    };
+    
+    /**
+     * Database migration from version 5 to 6.
+     * Adds loudness analysis results and ReplayGain values to tracks.
+     */
+    static final Migration MIGRATION_5_6 = new Migration(5, 6) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE tracks ADD COLUMN loudness REAL");
+            database.execSQL("ALTER TABLE tracks ADD COLUMN truePeak REAL");
+            database.execSQL("ALTER TABLE tracks ADD COLUMN trackGain REAL");
+            database.execSQL("ALTER TABLE tracks ADD COLUMN albumGain REAL");
+            database.execSQL("ALTER TABLE tracks ADD COLUMN albumPeak REAL");
+        }
+    };
+    
+    /**
+     * Database migration from version 6 to 7.
+     * Adds the full-text index of tracks with the sync triggers Room generates
+     * for it, and fills it from the existing rows.
+     */
+    static final Migration MIGRATION_6_7 = new Migration(6, 7) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE VIRTUAL TABLE IF NOT EXISTS `track_fts` USING FTS4("
+                    + "`title` TEXT, `artist` TEXT, `album` TEXT, tokenize=unicode61, content=`tracks`)");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_track_fts_BEFORE_UPDATE "
+                    + "BEFORE UPDATE ON `tracks` BEGIN DELETE FROM `track_fts` WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_track_fts_BEFORE_DELETE "
+                    + "BEFORE DELETE ON `tracks` BEGIN DELETE FROM `track_fts` WHERE `docid`=OLD.`rowid`; END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_track_fts_AFTER_UPDATE "
+                    + "AFTER UPDATE ON `tracks` BEGIN INSERT INTO `track_fts`(`docid`, `title`, `artist`, `album`) "
+                    + "VALUES (NEW.`rowid`, NEW.`title`, NEW.`artist`, NEW.`album`); END");
+            database.execSQL("CREATE TRIGGER IF NOT EXISTS room_fts_content_sync_track_fts_AFTER_INSERT "
+                    + "AFTER INSERT ON `tracks` BEGIN INSERT INTO `track_fts`(`docid`, `title`, `artist`, `album`) "
+                    + "VALUES (NEW.`rowid`, NEW.`title`, NEW.`artist`, NEW.`album`); END");
+            database.execSQL("INSERT INTO track_fts(track_fts) VALUES('rebuild')");
+        }
+    };
+    
+    /**
+     * Database migration from version 7 to 8.
+     * Adds indexes for the sorted and filtered library queries, found with
+     * EXPLAIN QUERY PLAN (see QueryPlanTest). The single-column albumId and
+     * artistId indexes are replaced by composites that also serve the sort.
+     */
+    static final Migration MIGRATION_7_8 = new Migration(7, 8) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("DROP INDEX IF EXISTS index_tracks_albumId");
+            database.execSQL("DROP INDEX IF EXISTS index_tracks_artistId");
+            database.execSQL("DROP INDEX IF EXISTS index_albums_artistId");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_tracks_albumId_trackNumber_title "
+                    + "ON tracks (albumId, trackNumber, title)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_tracks_artistId_album_trackNumber "
+                    + "ON tracks (artistId, album, trackNumber)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_tracks_dateAdded ON tracks (dateAdded)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_tracks_playCount ON tracks (playCount)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_tracks_lastPlayed ON tracks (lastPlayed)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_tracks_favorite_title ON tracks (favorite, title)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_tracks_genre_title ON tracks (genre, title)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_tracks_year_title ON tracks (year, title)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_albums_artistId_year_title "
+                    + "ON albums (artistId ASC, year DESC, title ASC)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_albums_genre_title ON albums (genre, title)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_albums_year_title ON albums (year DESC, title ASC)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_artists_genre_name ON artists (genre, name)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_artists_favorite_name ON artists (favorite, name)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_playlists_isSmart_name ON playlists (isSmart, name)");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_playlists_smartType ON playlists (smartType)");
+        }
+    };
+    
+    /**
+     * Database migration from version 8 to 9.
+     * Adds the album_stats and artist_stats tables, kept up to date by the
+     * triggers in LibraryStatsTriggers, and fills them from the library.
+     */
+    static final Migration MIGRATION_8_9 = new Migration(8, 9) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS album_stats (albumId INTEGER NOT NULL, "
+                    + "trackCount INTEGER NOT NULL DEFAULT 0, duration INTEGER NOT NULL DEFAULT 0, "
+                    + "playCount INTEGER NOT NULL DEFAULT 0, lastPlayed INTEGER, PRIMARY KEY(albumId))");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_album_stats_playCount ON album_stats (playCount)");
+            database.execSQL("CREATE TABLE IF NOT EXISTS artist_stats (artistId INTEGER NOT NULL, "
+                    + "albumCount INTEGER NOT NULL DEFAULT 0, trackCount INTEGER NOT NULL DEFAULT 0, "
+                    + "duration INTEGER NOT NULL DEFAULT 0, playCount INTEGER NOT NULL DEFAULT 0, "
+                    + "lastPlayed INTEGER, PRIMARY KEY(artistId))");
+            database.execSQL("CREATE INDEX IF NOT EXISTS index_artist_stats_playCount ON artist_stats (playCount)");
+            LibraryStatsTriggers.create(database);
+            LibraryStatsTriggers.rebuild(database);
+        }
+    };
+    
+    /**
+     * Database migration from version 9 to 10.
+     * Spreads playlist positions PlaylistDao.POSITION_GAP apart, so items can
+     * be moved and inserted without renumbering the items after them.
+     */
+    static final Migration MIGRATION_9_10 = new Migration(9, 10) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("UPDATE playlist_items SET position = (position + 1) * "
+                    + PlaylistDao.POSITION_GAP);
+        }
+    };
+    
+    /**
+     * Database migration from version 10 to 11.
+     * Adds track_search_changes and the triggers in TrackSearchTriggers that
+     * fill it. The search index loads every track on first use, so the table
+     * starts empty.
+     */
+    static final Migration MIGRATION_10_11 = new Migration(10, 11) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("CREATE TABLE IF NOT EXISTS track_search_changes ("
+                    + "trackId INTEGER NOT NULL, PRIMARY KEY(trackId))");
+            TrackSearchTriggers.create(database);
+        }
+    };
+    
+    /**
+     * Database migration from version 11 to 12.
+     * Metadata cache modification times are kept in seconds instead of
+     * milliseconds.
+     */
+    static final Migration MIGRATION_11_12 = new Migration(11, 12) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("UPDATE metadata_cache SET lastModified = lastModified / 1000");
+        }
+    };
+    
+    /**
+     * Database migration from version 12 to 13.
+     * Adds the album artist tag to tracks and the metadata cache. Cached
+     * entries cannot supply it, so they are dropped and files are read again
+     * on their next import.
+     */
+    static final Migration MIGRATION_12_13 = new Migration(12, 13) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE tracks ADD COLUMN albumArtist TEXT");
+            database.execSQL("ALTER TABLE metadata_cache ADD COLUMN albumArtist TEXT");
+            database.execSQL("DELETE FROM metadata_cache");
+        }
+    };
+    
+    /**
+     * Database migration from version 13 to 14.
+     * Marks metadata cache entries whose tags were read from the file. Which
+     * existing entries came from MediaStore is not known, so none are marked
+     * and files are read again on their next import.
+     */
+    static final Migration MIGRATION_13_14 = new Migration(13, 14) {
+        @Override
+        public void migrate(SupportSQLiteDatabase database) {
+            database.execSQL("ALTER TABLE metadata_cache ADD COLUMN fromFile INTEGER NOT NULL DEFAULT 0");
         }
     };
     
@@ -0,0 +1,126 @@
+package com.musicplayer.data.local;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SQLite triggers that keep album_stats and artist_stats in step with the
+ * tracks and albums tables, so per-album and per-artist totals are read from
+ * one row instead of aggregated on every query.
+ *
+ * A track is added to the row of its album and artist when inserted and
+ * removed when deleted; an update removes the old values and adds the new
+ * ones. Totals are adjusted by the difference, and the last played date is
+ * recomputed from the tracks only when the value removed may have been the
+ * latest. Rows with nothing left are deleted. Ids of 0 or less mean "none"
+ * and get no row.
+ */
+public final class LibraryStatsTriggers {
+
+    private LibraryStatsTriggers() {
+    }
+
+    /**
+     * Creates the triggers if they do not exist yet.
+     */
+    public static void create(SupportSQLiteDatabase db) {
+        for (String sql : statements()) {
+            db.execSQL(sql);
+        }
+    }
+
+    /**
+     * Recomputes both tables from scratch, e.g. after they were added by a migration.
+     */
+    public static void rebuild(SupportSQLiteDatabase db) {
+        db.execSQL("DELETE FROM album_stats");
+        db.execSQL("DELETE FROM artist_stats");
+        db.execSQL("INSERT INTO album_stats (albumId, trackCount, duration, playCount, lastPlayed) "
+                + "SELECT albumId, COUNT(*), SUM(duration), SUM(playCount), MAX(lastPlayed) "
+                + "FROM tracks WHERE albumId > 0 GROUP BY albumId");
+        db.execSQL("INSERT INTO artist_stats (artistId, trackCount, duration, playCount, lastPlayed) "
+                + "SELECT artistId, COUNT(*), SUM(duration), SUM(playCount), MAX(lastPlayed) "
+                + "FROM tracks WHERE artistId > 0 GROUP BY artistId");
+        db.execSQL("INSERT OR IGNORE INTO artist_stats (artistId) "
+                + "SELECT DISTINCT artistId FROM albums WHERE artistId > 0");
+        db.execSQL("UPDATE artist_stats SET albumCount = "
+                + "(SELECT COUNT(*) FROM albums WHERE albums.artistId = artist_stats.artistId)");
+    }
+
+    static List<String> statements() {
+        List<String> statements = new ArrayList<>();
+        statements.add("CREATE TRIGGER IF NOT EXISTS library_stats_track_insert AFTER INSERT ON tracks BEGIN "
+                + addTrack("album_stats", "albumId")
+                + addTrack("artist_stats", "artistId")
+                + "END");
+        statements.add("CREATE TRIGGER IF NOT EXISTS library_stats_track_delete AFTER DELETE ON tracks BEGIN "
+                + removeTrack("album_stats", "albumId", "1")
+                + removeTrack("artist_stats", "artistId", "1")
+                + deleteEmpty("album_stats", "albumId")
+                + deleteEmpty("artist_stats", "artistId")
+                + "END");
+        statements.add("CREATE TRIGGER IF NOT EXISTS library_stats_track_update "
+                + "AFTER UPDATE OF albumId, artistId, duration, playCount, lastPlayed ON tracks BEGIN "
+                + removeTrack("album_stats", "albumId", movedBack("albumId"))
+                + removeTrack("artist_stats", "artistId", movedBack("artistId"))
+                + addTrack("album_stats", "albumId")
+                + addTrack("artist_stats", "artistId")
+                + deleteEmpty("album_stats", "albumId")
+                + deleteEmpty("artist_stats", "artistId")
+                + "END");
+
+        statements.add("CREATE TRIGGER IF NOT EXISTS library_stats_album_insert AFTER INSERT ON albums BEGIN "
+                + addAlbum()
+                + "END");
+        statements.add("CREATE TRIGGER IF NOT EXISTS library_stats_album_delete AFTER DELETE ON albums BEGIN "
+                + removeAlbum()
+                + deleteEmpty("artist_stats", "artistId")
+                + "END");
+        statements.add("CREATE TRIGGER IF NOT EXISTS library_stats_album_update "
+                + "AFTER UPDATE OF artistId ON albums BEGIN "
+                + removeAlbum()
+                + addAlbum()
+                + deleteEmpty("artist_stats", "artistId")
+                + "END");
+        return statements;
+    }
+
+    private static String addTrack(String table, String key) {
+        return "INSERT OR IGNORE INTO " + table + " (" + key + ") SELECT NEW." + key + " WHERE NEW." + key + " > 0; "
+                + "UPDATE " + table + " SET trackCount = trackCount + 1, duration = duration + NEW.duration, "
+                + "playCount = playCount + NEW.playCount, "
+                + "lastPlayed = COALESCE(MAX(lastPlayed, NEW.lastPlayed), lastPlayed, NEW.lastPlayed) "
+                + "WHERE " + key + " = NEW." + key + "; ";
+    }
+
+    // Recomputes the last played date when the old one may have been the latest and is gone
+    private static String removeTrack(String table, String key, String dateGone) {
+        return "UPDATE " + table + " SET trackCount = trackCount - 1, duration = duration - OLD.duration, "
+                + "playCount = playCount - OLD.playCount, "
+                + "lastPlayed = CASE WHEN OLD.lastPlayed >= lastPlayed AND " + dateGone + " "
+                + "THEN (SELECT MAX(lastPlayed) FROM tracks WHERE tracks." + key + " = OLD." + key + ") "
+                + "ELSE lastPlayed END "
+                + "WHERE " + key + " = OLD." + key + "; ";
+    }
+
+    // The old play date leaves the row unless the track stays and was played again since
+    private static String movedBack(String key) {
+        return "(NEW." + key + " != OLD." + key + " OR NEW.lastPlayed IS NULL OR NEW.lastPlayed < OLD.lastPlayed)";
+    }
+
+    private static String deleteEmpty(String table, String key) {
+        String empty = "trackCount <= 0" + (table.equals("artist_stats") ? " AND albumCount <= 0" : "");
+        return "DELETE FROM " + table + " WHERE " + key + " = OLD." + key + " AND " + empty + "; ";
+    }
+
+    private static String addAlbum() {
+        return "INSERT OR IGNORE INTO artist_stats (artistId) SELECT NEW.artistId WHERE NEW.artistId > 0; "
+                + "UPDATE artist_stats SET albumCount = albumCount + 1 WHERE artistId = NEW.artistId; ";
+    }
+
+    private static String removeAlbum() {
+        return "UPDATE artist_stats SET albumCount = albumCount - 1 WHERE artistId = OLD.artistId; ";
+    }
+}
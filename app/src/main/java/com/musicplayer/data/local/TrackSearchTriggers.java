@@ -0,0 +1,48 @@
+package com.musicplayer.data.local;
+
+import androidx.sqlite.db.SupportSQLiteDatabase;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * SQLite triggers that record in track_search_changes the id of every track
+ * inserted, deleted, or updated in a column the search index reads, so the
+ * index applies those rows instead of rereading the tracks table.
+ *
+ * An id is recorded once however often the track changes before the index
+ * catches up; the index reads the current row, or finds it gone.
+ */
+public final class TrackSearchTriggers {
+
+    private TrackSearchTriggers() {
+    }
+
+    /**
+     * Creates the triggers if they do not exist yet.
+     */
+    public static void create(SupportSQLiteDatabase db) {
+        for (String sql : statements()) {
+            db.execSQL(sql);
+        }
+    }
+
+    static List<String> statements() {
+        List<String> statements = new ArrayList<>();
+        statements.add("CREATE TRIGGER IF NOT EXISTS track_search_insert AFTER INSERT ON tracks BEGIN "
+                + record("NEW")
+                + "END");
+        statements.add("CREATE TRIGGER IF NOT EXISTS track_search_delete AFTER DELETE ON tracks BEGIN "
+                + record("OLD")
+                + "END");
+        statements.add("CREATE TRIGGER IF NOT EXISTS track_search_update "
+                + "AFTER UPDATE OF title, artist, album, playCount ON tracks BEGIN "
+                + record("NEW")
+                + "END");
+        return statements;
+    }
+
+    private static String record(String row) {
+        return "INSERT OR IGNORE INTO track_search_changes (trackId) VALUES (" + row + ".id); ";
+    }
+}
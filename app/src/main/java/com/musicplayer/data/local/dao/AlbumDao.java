@@ -10,6 +10,7 @@ import androidx.room.Transaction;
 import com.musicplayer.data.local.entities.Album;
 import com.musicplayer.data.local.entities.Track;
 
+import java.util.Date;
 import java.util.List;
 
 import io.reactivex.Flowable;
@@ -65,6 +66,23 @@ public interface AlbumDao {
     @Query("SELECT * FROM albums ORDER BY title ASC")
     Single<List<Album>> getAllSingle();
     
+    // Keyset page in title order, NULL titles first as in ORDER BY title: rows after
+    // (afterTitle, afterId); null and 0 for the first page
+    @Query("SELECT * FROM (SELECT * FROM albums WHERE :afterTitle IS NULL AND title IS NULL AND id > :afterId " +
+           "ORDER BY id ASC LIMIT :limit) " +
+           "UNION ALL SELECT * FROM (SELECT * FROM albums WHERE title >= IFNULL(:afterTitle, '') " +
+           "AND (:afterTitle IS NULL OR title > :afterTitle OR id > :afterId) ORDER BY title ASC, id ASC LIMIT :limit) " +
+           "LIMIT :limit")
+    List<Album> getPageByTitle(String afterTitle, long afterId, int limit);
+    
+    // Keyset page before (beforeTitle, beforeId) in descending title order, for scrolling back up
+    @Query("SELECT * FROM (SELECT * FROM albums WHERE title <= :beforeTitle AND (title < :beforeTitle OR id < :beforeId) " +
+           "ORDER BY title DESC, id DESC LIMIT :limit) " +
+           "UNION ALL SELECT * FROM (SELECT * FROM albums WHERE title IS NULL " +
+           "AND (:beforeTitle IS NOT NULL OR id < :beforeId) ORDER BY id DESC LIMIT :limit) " +
+           "LIMIT :limit")
+    List<Album> getPageByTitleBefore(String beforeTitle, long beforeId, int limit);
+    
     // Search operations
     @Query("SELECT * FROM albums WHERE title LIKE :query OR artist LIKE :query ORDER BY title ASC")
     List<Album> search(String query);
@@ -75,6 +93,14 @@ public interface AlbumDao {
     @Query("SELECT * FROM albums WHERE title LIKE :query ORDER BY title ASC")
     List<Album> searchByTitle(String query);
     
+    // Searchable columns for the in-memory library search index
+    @Query("SELECT id, title, artist FROM albums WHERE id > :afterId ORDER BY id ASC LIMIT :limit")
+    List<AlbumSearchFields> getSearchFieldsAfter(long afterId, int limit);
+    
+    // At most TrackDao.LOOKUP_CHUNK_SIZE ids
+    @Query("SELECT * FROM albums WHERE id IN (:albumIds)")
+    List<Album> getByIds(List<Long> albumIds);
+    
     @Query("SELECT * FROM albums WHERE artist LIKE :query ORDER BY artist ASC, title ASC")
     List<Album> searchByArtist(String query);
     
@@ -116,15 +142,85 @@ public interface AlbumDao {
     @Query("UPDATE albums SET artPath = :artPath WHERE id = :albumId")
     int setArtPath(long albumId, String artPath);
     
+    @Update(entity = Album.class)
+    int updateArtPaths(List<AlbumArtPath> artPaths);
+    
+    // Sends albums back to artwork lookup; at most TrackDao.LOOKUP_CHUNK_SIZE paths
+    @Query("UPDATE albums SET artPath = NULL WHERE artPath IN (:artPaths)")
+    int clearArtPaths(List<String> artPaths);
+    
     @Query("UPDATE albums SET description = :description WHERE id = :albumId")
     int setDescription(long albumId, String description);
     
-    // Get album with tracks (custom query with JOIN)
-    @Query("SELECT albums.*, COUNT(tracks.id) as trackCount, SUM(tracks.duration) as totalDuration " +
-           "FROM albums LEFT JOIN tracks ON albums.id = tracks.albumId " +
-           "GROUP BY albums.id HAVING trackCount > 0 ORDER BY albums.title ASC")
+    // Batch operations
+    @Query("SELECT id, title, artist FROM albums WHERE title IN (:titles)")
+    List<AlbumIdKey> getIdKeysByTitles(List<String> titles);
+    
+    // One local file per album without artwork, used as the source of its embedded picture
+    @Query("SELECT albums.id AS albumId, MIN(tracks.filePath) AS filePath " +
+           "FROM albums JOIN tracks ON tracks.albumId = albums.id " +
+           "WHERE albums.id > :afterId AND (albums.artPath IS NULL OR albums.artPath = '') " +
+           "AND tracks.isLocal = 1 " +
+           "GROUP BY albums.id ORDER BY albums.id ASC LIMIT :limit")
+    List<AlbumSourceFile> getAlbumsWithoutArtAfter(long afterId, int limit);
+    
+    // Keyset page of albums that have artwork, checked for covers the cache has evicted
+    @Query("SELECT id, artPath FROM albums WHERE id > :afterId AND artPath IS NOT NULL AND artPath != '' " +
+           "ORDER BY id ASC LIMIT :limit")
+    List<AlbumArtPath> getArtPathsAfter(long afterId, int limit);
+    
+    // Albums with tracks and their totals, read from album_stats
+    @Query("SELECT albums.id, albums.title, albums.artist, albums.artistId, albums.year, albums.genre, " +
+           "albums.artPath, albums.description, albums.isCompilation, albums.albumArtist, albums.recordLabel, " +
+           "albums.dateAdded, albums.dateModified, album_stats.trackCount AS trackCount, " +
+           "album_stats.duration AS totalDuration, album_stats.playCount AS totalPlayCount, " +
+           "album_stats.lastPlayed AS albumLastPlayed " +
+           "FROM albums JOIN album_stats ON album_stats.albumId = albums.id " +
+           "ORDER BY albums.title ASC")
     List<AlbumWithStats> getAlbumsWithStats();
     
+    // Keyset page of albums with their totals in title order, NULL titles first; null and 0
+    // for the first page
+    @Query("SELECT * FROM (SELECT albums.id, albums.title, albums.artist, albums.artistId, albums.year, " +
+           "albums.genre, albums.artPath, albums.description, albums.isCompilation, albums.albumArtist, " +
+           "albums.recordLabel, albums.dateAdded, albums.dateModified, " +
+           "IFNULL(album_stats.trackCount, 0) AS trackCount, IFNULL(album_stats.duration, 0) AS totalDuration, " +
+           "IFNULL(album_stats.playCount, 0) AS totalPlayCount, album_stats.lastPlayed AS albumLastPlayed " +
+           "FROM albums LEFT JOIN album_stats ON album_stats.albumId = albums.id " +
+           "WHERE :afterTitle IS NULL AND albums.title IS NULL AND albums.id > :afterId " +
+           "ORDER BY albums.id ASC LIMIT :limit) " +
+           "UNION ALL SELECT * FROM (SELECT albums.id, albums.title, albums.artist, albums.artistId, albums.year, " +
+           "albums.genre, albums.artPath, albums.description, albums.isCompilation, albums.albumArtist, " +
+           "albums.recordLabel, albums.dateAdded, albums.dateModified, " +
+           "IFNULL(album_stats.trackCount, 0) AS trackCount, IFNULL(album_stats.duration, 0) AS totalDuration, " +
+           "IFNULL(album_stats.playCount, 0) AS totalPlayCount, album_stats.lastPlayed AS albumLastPlayed " +
+           "FROM albums LEFT JOIN album_stats ON album_stats.albumId = albums.id " +
+           "WHERE albums.title >= IFNULL(:afterTitle, '') " +
+           "AND (:afterTitle IS NULL OR albums.title > :afterTitle OR albums.id > :afterId) " +
+           "ORDER BY albums.title ASC, albums.id ASC LIMIT :limit) " +
+           "LIMIT :limit")
+    List<AlbumWithStats> getPageWithStatsByTitle(String afterTitle, long afterId, int limit);
+    
+    // Keyset page of albums with their totals before (beforeTitle, beforeId), descending
+    @Query("SELECT * FROM (SELECT albums.id, albums.title, albums.artist, albums.artistId, albums.year, " +
+           "albums.genre, albums.artPath, albums.description, albums.isCompilation, albums.albumArtist, " +
+           "albums.recordLabel, albums.dateAdded, albums.dateModified, " +
+           "IFNULL(album_stats.trackCount, 0) AS trackCount, IFNULL(album_stats.duration, 0) AS totalDuration, " +
+           "IFNULL(album_stats.playCount, 0) AS totalPlayCount, album_stats.lastPlayed AS albumLastPlayed " +
+           "FROM albums LEFT JOIN album_stats ON album_stats.albumId = albums.id " +
+           "WHERE albums.title <= :beforeTitle AND (albums.title < :beforeTitle OR albums.id < :beforeId) " +
+           "ORDER BY albums.title DESC, albums.id DESC LIMIT :limit) " +
+           "UNION ALL SELECT * FROM (SELECT albums.id, albums.title, albums.artist, albums.artistId, albums.year, " +
+           "albums.genre, albums.artPath, albums.description, albums.isCompilation, albums.albumArtist, " +
+           "albums.recordLabel, albums.dateAdded, albums.dateModified, " +
+           "IFNULL(album_stats.trackCount, 0) AS trackCount, IFNULL(album_stats.duration, 0) AS totalDuration, " +
+           "IFNULL(album_stats.playCount, 0) AS totalPlayCount, album_stats.lastPlayed AS albumLastPlayed " +
+           "FROM albums LEFT JOIN album_stats ON album_stats.albumId = albums.id " +
+           "WHERE albums.title IS NULL AND (:beforeTitle IS NOT NULL OR albums.id < :beforeId) " +
+           "ORDER BY albums.id DESC LIMIT :limit) " +
+           "LIMIT :limit")
+    List<AlbumWithStats> getPageWithStatsByTitleBefore(String beforeTitle, long beforeId, int limit);
+    
     // Get recent albums
     @Query("SELECT DISTINCT albums.* FROM albums " +
            "JOIN tracks ON albums.id = tracks.albumId " +
@@ -133,9 +229,8 @@ public interface AlbumDao {
     List<Album> getRecentAlbums(int limit);
     
     // Get most played albums
-    @Query("SELECT albums.*, SUM(tracks.playCount) as totalPlayCount FROM albums " +
-           "JOIN tracks ON albums.id = tracks.albumId " +
-           "GROUP BY albums.id ORDER BY totalPlayCount DESC LIMIT :limit")
+    @Query("SELECT albums.* FROM album_stats JOIN albums ON albums.id = album_stats.albumId " +
+           "ORDER BY album_stats.playCount DESC LIMIT :limit")
     List<Album> getMostPlayedAlbums(int limit);
     
     // Statistics
@@ -176,6 +271,37 @@ public interface AlbumDao {
         public Date dateModified;
         public int trackCount;
         public long totalDuration;
+        public int totalPlayCount;
+        public Date albumLastPlayed;
+    }
+    
+    // Album identity used when linking tracks to albums
+    class AlbumIdKey {
+        public long id;
+        public String title;
+        public String artist;
+    }
+    
+    // Partial row for batched artwork updates
+    class AlbumArtPath {
+        public long id;
+        public String artPath;
+        
+        public AlbumArtPath(long id, String artPath) {
+            this.id = id;
+            this.artPath = artPath;
+        }
+    }
+    
+    class AlbumSearchFields {
+        public long id;
+        public String title;
+        public String artist;
+    }
+    
+    class AlbumSourceFile {
+        public long albumId;
+        public String filePath;
     }
     
     class GenreCount {
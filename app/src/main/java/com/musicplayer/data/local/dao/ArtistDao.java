@@ -2,13 +2,14 @@ package com.musicplayer.data.local.dao;
 
 import androidx.room.Dao;
 import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
 import androidx.room.Update;
 import androidx.room.Delete;
 import androidx.room.Query;
-import androidx.room.Transaction;
 
 import com.musicplayer.data.local.entities.Artist;
 
+import java.util.Date;
 import java.util.List;
 
 import io.reactivex.Flowable;
@@ -28,6 +29,10 @@ public interface ArtistDao {
     @Insert
     List<Long> insertAll(List<Artist> artists);
     
+    // Returns -1 for artists whose name already exists
+    @Insert(onConflict = OnConflictStrategy.IGNORE)
+    List<Long> insertAllIgnoringExisting(List<Artist> artists);
+    
     // Update operations
     @Update
     int update(Artist artist);
@@ -67,6 +72,23 @@ public interface ArtistDao {
     @Query("SELECT * FROM artists ORDER BY name ASC")
     Single<List<Artist>> getAllSingle();
     
+    // Keyset page in name order, NULL names first as in ORDER BY name: rows after
+    // (afterName, afterId); null and 0 for the first page
+    @Query("SELECT * FROM (SELECT * FROM artists WHERE :afterName IS NULL AND name IS NULL AND id > :afterId " +
+           "ORDER BY id ASC LIMIT :limit) " +
+           "UNION ALL SELECT * FROM (SELECT * FROM artists WHERE name >= IFNULL(:afterName, '') " +
+           "AND (:afterName IS NULL OR name > :afterName OR id > :afterId) ORDER BY name ASC, id ASC LIMIT :limit) " +
+           "LIMIT :limit")
+    List<Artist> getPageByName(String afterName, long afterId, int limit);
+    
+    // Keyset page before (beforeName, beforeId) in descending name order, for scrolling back up
+    @Query("SELECT * FROM (SELECT * FROM artists WHERE name <= :beforeName AND (name < :beforeName OR id < :beforeId) " +
+           "ORDER BY name DESC, id DESC LIMIT :limit) " +
+           "UNION ALL SELECT * FROM (SELECT * FROM artists WHERE name IS NULL " +
+           "AND (:beforeName IS NOT NULL OR id < :beforeId) ORDER BY id DESC LIMIT :limit) " +
+           "LIMIT :limit")
+    List<Artist> getPageByNameBefore(String beforeName, long beforeId, int limit);
+    
     // Search operations
     @Query("SELECT * FROM artists WHERE name LIKE :query ORDER BY name ASC")
     List<Artist> search(String query);
@@ -74,6 +96,14 @@ public interface ArtistDao {
     @Query("SELECT * FROM artists WHERE name LIKE :query ORDER BY name ASC")
     Flowable<List<Artist>> searchFlowable(String query);
     
+    // Searchable columns for the in-memory library search index
+    @Query("SELECT id, name, playCount FROM artists WHERE id > :afterId ORDER BY id ASC LIMIT :limit")
+    List<ArtistSearchFields> getSearchFieldsAfter(long afterId, int limit);
+    
+    // At most TrackDao.LOOKUP_CHUNK_SIZE ids
+    @Query("SELECT * FROM artists WHERE id IN (:artistIds)")
+    List<Artist> getByIds(List<Long> artistIds);
+    
     @Query("SELECT * FROM artists WHERE genre = :genre ORDER BY name ASC")
     List<Artist> getByGenre(String genre);
     
@@ -83,18 +113,62 @@ public interface ArtistDao {
            "ORDER BY artists.name ASC")
     List<Artist> getArtistsWithTracks();
     
-    @Transaction
-    @Query("SELECT artists.*, COUNT(DISTINCT albums.id) as albumCount, " +
-           "COUNT(DISTINCT tracks.id) as trackCount, " +
-           "SUM(tracks.duration) as totalDuration, " +
-           "SUM(tracks.playCount) as totalPlayCount, " +
-           "MAX(tracks.lastPlayed) as lastPlayed " +
-           "FROM artists " +
-           "LEFT JOIN albums ON artists.id = albums.artistId " +
-           "LEFT JOIN tracks ON artists.id = tracks.artistId " +
-           "GROUP BY artists.id ORDER BY artists.name ASC")
+    // Artists with their totals, read from artist_stats; artists without tracks or albums have zeros
+    @Query("SELECT artists.id, artists.name, artists.bio, artists.artPath, artists.origin, artists.genre, " +
+           "artists.website, artists.birthDate, artists.deathDate, artists.dateAdded, artists.dateModified, " +
+           "artists.favorite, artists.playCount, artists.lastPlayed, IFNULL(artist_stats.albumCount, 0) AS albumCount, " +
+           "IFNULL(artist_stats.trackCount, 0) AS trackCount, IFNULL(artist_stats.duration, 0) AS totalDuration, " +
+           "IFNULL(artist_stats.playCount, 0) AS totalPlayCount, artist_stats.lastPlayed AS artistLastPlayed " +
+           "FROM artists LEFT JOIN artist_stats ON artist_stats.artistId = artists.id " +
+           "ORDER BY artists.name ASC")
     List<ArtistWithStats> getArtistsWithStats();
     
+    // Keyset page of artists with their totals in name order, NULL names first; null and 0
+    // for the first page
+    @Query("SELECT * FROM (SELECT artists.id, artists.name, artists.bio, artists.artPath, artists.origin, " +
+           "artists.genre, artists.website, artists.birthDate, artists.deathDate, artists.dateAdded, " +
+           "artists.dateModified, artists.favorite, artists.playCount, artists.lastPlayed, " +
+           "IFNULL(artist_stats.albumCount, 0) AS albumCount, IFNULL(artist_stats.trackCount, 0) AS trackCount, " +
+           "IFNULL(artist_stats.duration, 0) AS totalDuration, IFNULL(artist_stats.playCount, 0) AS totalPlayCount, " +
+           "artist_stats.lastPlayed AS artistLastPlayed " +
+           "FROM artists LEFT JOIN artist_stats ON artist_stats.artistId = artists.id " +
+           "WHERE :afterName IS NULL AND artists.name IS NULL AND artists.id > :afterId " +
+           "ORDER BY artists.id ASC LIMIT :limit) " +
+           "UNION ALL SELECT * FROM (SELECT artists.id, artists.name, artists.bio, artists.artPath, artists.origin, " +
+           "artists.genre, artists.website, artists.birthDate, artists.deathDate, artists.dateAdded, " +
+           "artists.dateModified, artists.favorite, artists.playCount, artists.lastPlayed, " +
+           "IFNULL(artist_stats.albumCount, 0) AS albumCount, IFNULL(artist_stats.trackCount, 0) AS trackCount, " +
+           "IFNULL(artist_stats.duration, 0) AS totalDuration, IFNULL(artist_stats.playCount, 0) AS totalPlayCount, " +
+           "artist_stats.lastPlayed AS artistLastPlayed " +
+           "FROM artists LEFT JOIN artist_stats ON artist_stats.artistId = artists.id " +
+           "WHERE artists.name >= IFNULL(:afterName, '') " +
+           "AND (:afterName IS NULL OR artists.name > :afterName OR artists.id > :afterId) " +
+           "ORDER BY artists.name ASC, artists.id ASC LIMIT :limit) " +
+           "LIMIT :limit")
+    List<ArtistWithStats> getPageWithStatsByName(String afterName, long afterId, int limit);
+    
+    // Keyset page of artists with their totals before (beforeName, beforeId), descending
+    @Query("SELECT * FROM (SELECT artists.id, artists.name, artists.bio, artists.artPath, artists.origin, " +
+           "artists.genre, artists.website, artists.birthDate, artists.deathDate, artists.dateAdded, " +
+           "artists.dateModified, artists.favorite, artists.playCount, artists.lastPlayed, " +
+           "IFNULL(artist_stats.albumCount, 0) AS albumCount, IFNULL(artist_stats.trackCount, 0) AS trackCount, " +
+           "IFNULL(artist_stats.duration, 0) AS totalDuration, IFNULL(artist_stats.playCount, 0) AS totalPlayCount, " +
+           "artist_stats.lastPlayed AS artistLastPlayed " +
+           "FROM artists LEFT JOIN artist_stats ON artist_stats.artistId = artists.id " +
+           "WHERE artists.name <= :beforeName AND (artists.name < :beforeName OR artists.id < :beforeId) " +
+           "ORDER BY artists.name DESC, artists.id DESC LIMIT :limit) " +
+           "UNION ALL SELECT * FROM (SELECT artists.id, artists.name, artists.bio, artists.artPath, artists.origin, " +
+           "artists.genre, artists.website, artists.birthDate, artists.deathDate, artists.dateAdded, " +
+           "artists.dateModified, artists.favorite, artists.playCount, artists.lastPlayed, " +
+           "IFNULL(artist_stats.albumCount, 0) AS albumCount, IFNULL(artist_stats.trackCount, 0) AS trackCount, " +
+           "IFNULL(artist_stats.duration, 0) AS totalDuration, IFNULL(artist_stats.playCount, 0) AS totalPlayCount, " +
+           "artist_stats.lastPlayed AS artistLastPlayed " +
+           "FROM artists LEFT JOIN artist_stats ON artist_stats.artistId = artists.id " +
+           "WHERE artists.name IS NULL AND (:beforeName IS NOT NULL OR artists.id < :beforeId) " +
+           "ORDER BY artists.id DESC LIMIT :limit) " +
+           "LIMIT :limit")
+    List<ArtistWithStats> getPageWithStatsByNameBefore(String beforeName, long beforeId, int limit);
+    
     // Count queries
     @Query("SELECT COUNT(*) FROM artists")
     int getCount();
@@ -128,9 +202,8 @@ public interface ArtistDao {
     Flowable<List<Artist>> getFavoritesFlowable();
     
     // Get most played artists
-    @Query("SELECT artists.*, SUM(tracks.playCount) as totalPlayCount FROM artists " +
-           "JOIN tracks ON artists.id = tracks.artistId " +
-           "GROUP BY artists.id ORDER BY totalPlayCount DESC LIMIT :limit")
+    @Query("SELECT artists.* FROM artist_stats JOIN artists ON artists.id = artist_stats.artistId " +
+           "ORDER BY artist_stats.playCount DESC LIMIT :limit")
     List<Artist> getMostPlayedArtists(int limit);
     
     // Get recently played artists
@@ -165,6 +238,9 @@ public interface ArtistDao {
     @Query("SELECT id FROM artists WHERE name IN (:names)")
     List<Long> getIdsByNames(List<String> names);
     
+    @Query("SELECT id, name FROM artists WHERE name IN (:names)")
+    List<ArtistIdName> getIdNamesByNames(List<String> names);
+    
     @Query("UPDATE artists SET favorite = 1 WHERE id IN (:artistIds)")
     int setFavorites(List<Long> artistIds);
     
@@ -194,6 +270,17 @@ public interface ArtistDao {
         public Date artistLastPlayed;
     }
     
+    class ArtistSearchFields {
+        public long id;
+        public String name;
+        public int playCount;
+    }
+    
+    class ArtistIdName {
+        public long id;
+        public String name;
+    }
+    
     class GenreCount {
         public String genre;
         public int count;
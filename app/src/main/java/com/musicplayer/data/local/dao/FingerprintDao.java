@@ -0,0 +1,90 @@
+package com.musicplayer.data.local.dao;
+
+import androidx.room.Dao;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+import androidx.room.Transaction;
+
+import com.musicplayer.data.local.entities.FingerprintKey;
+import com.musicplayer.data.local.entities.TrackFingerprint;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Data Access Object for track fingerprints and their key index.
+ */
+@Dao
+public interface FingerprintDao {
+
+    // Insert operations
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertFingerprints(List<TrackFingerprint> fingerprints);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertKeys(List<FingerprintKey> keys);
+
+    /**
+     * Stores fingerprints and their keys together, replacing the keys of
+     * tracks that were fingerprinted before.
+     */
+    @Transaction
+    default void insertAll(List<TrackFingerprint> fingerprints, List<FingerprintKey> keys) {
+        List<Long> trackIds = new ArrayList<>(fingerprints.size());
+        for (TrackFingerprint fingerprint : fingerprints) {
+            trackIds.add(fingerprint.getTrackId());
+        }
+        deleteKeysByTrackIds(trackIds);
+        insertFingerprints(fingerprints);
+        insertKeys(keys);
+    }
+
+    // Query operations
+    @Query("SELECT * FROM track_fingerprints WHERE trackId = :trackId")
+    TrackFingerprint getByTrackId(long trackId);
+
+    @Query("SELECT COUNT(*) FROM track_fingerprints")
+    int getCount();
+
+    // Local tracks not fingerprinted yet, in keyset pages
+    @Query("SELECT id, filePath, duration FROM tracks " +
+           "WHERE isLocal = 1 AND id > :afterId " +
+           "AND id NOT IN (SELECT trackId FROM track_fingerprints) " +
+           "ORDER BY id ASC LIMIT :limit")
+    List<PendingTrack> getTracksWithoutFingerprintAfter(long afterId, int limit);
+
+    /**
+     * Pairs of tracks that share a fingerprint key and have about the same
+     * duration. Keys shared by more than {@code maxBucketSize} tracks come
+     * from generic sounds and are left out, so the join stays near linear.
+     */
+    @Query("SELECT DISTINCT a.trackId AS first, b.trackId AS second " +
+           "FROM fingerprint_keys a " +
+           "JOIN fingerprint_keys b ON b.hashKey = a.hashKey AND b.trackId > a.trackId " +
+           "JOIN track_fingerprints fa ON fa.trackId = a.trackId " +
+           "JOIN track_fingerprints fb ON fb.trackId = b.trackId " +
+           "WHERE ABS(fa.duration - fb.duration) <= :durationTolerance " +
+           "AND a.hashKey IN (SELECT hashKey FROM fingerprint_keys GROUP BY hashKey " +
+           "HAVING COUNT(*) <= :maxBucketSize) " +
+           "ORDER BY first")
+    List<CandidatePair> getCandidatePairs(long durationTolerance, int maxBucketSize);
+
+    // Delete operations
+    @Query("DELETE FROM fingerprint_keys WHERE trackId IN (:trackIds)")
+    int deleteKeysByTrackIds(List<Long> trackIds);
+    
+    @Query("DELETE FROM track_fingerprints")
+    int deleteAll();
+
+    class PendingTrack {
+        public long id;
+        public String filePath;
+        public long duration;
+    }
+
+    class CandidatePair {
+        public long first;
+        public long second;
+    }
+}
@@ -0,0 +1,73 @@
+package com.musicplayer.data.local.dao;
+
+import androidx.room.Dao;
+import androidx.room.Embedded;
+import androidx.room.Insert;
+import androidx.room.OnConflictStrategy;
+import androidx.room.Query;
+
+import com.musicplayer.data.local.entities.MetadataCacheEntry;
+
+import java.util.List;
+
+/**
+ * Data Access Object for the metadata extraction cache.
+ */
+@Dao
+public interface MetadataCacheDao {
+
+    // Insert operations
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insert(MetadataCacheEntry entry);
+
+    @Insert(onConflict = OnConflictStrategy.REPLACE)
+    void insertAll(List<MetadataCacheEntry> entries);
+
+    // Delete operations
+    @Query("DELETE FROM metadata_cache WHERE filePath = :filePath")
+    int deleteByPath(String filePath);
+
+    @Query("DELETE FROM metadata_cache")
+    int deleteAll();
+
+    // Entries of library tracks about to be deleted; at most TrackDao.LOOKUP_CHUNK_SIZE ids
+    @Query("DELETE FROM metadata_cache WHERE filePath IN " +
+           "(SELECT filePath FROM tracks WHERE id IN (:trackIds))")
+    int deleteByTrackIds(List<Long> trackIds);
+
+    @Query("DELETE FROM metadata_cache WHERE filePath IN " +
+           "(SELECT filePath FROM tracks WHERE mediaStoreId IN (:mediaStoreIds))")
+    int deleteByMediaStoreIds(List<Long> mediaStoreIds);
+
+    // Query operations
+    @Query("SELECT * FROM metadata_cache WHERE filePath = :filePath")
+    MetadataCacheEntry getByPath(String filePath);
+
+    /**
+     * Looks up cache entries together with the MediaStore id of the library
+     * track at the same path, if there is one. Callers keep the list under
+     * SQLite's bound-variable limit.
+     */
+    @Query("SELECT metadata_cache.*, tracks.mediaStoreId AS libraryMediaStoreId " +
+           "FROM metadata_cache LEFT JOIN tracks ON tracks.filePath = metadata_cache.filePath " +
+           "WHERE metadata_cache.filePath IN (:filePaths)")
+    List<CachedMetadata> getByPaths(List<String> filePaths);
+
+    @Query("SELECT COUNT(*) FROM metadata_cache")
+    int getCount();
+
+    /**
+     * Cache entry joined with the library track for the same file.
+     */
+    class CachedMetadata {
+        @Embedded
+        public MetadataCacheEntry entry;
+
+        // Null when the file is not in the library
+        public Long libraryMediaStoreId;
+
+        public boolean isInLibrary() {
+            return libraryMediaStoreId != null;
+        }
+    }
+}
@@ -4,6 +4,7 @@ import androidx.room.Dao;
 import androidx.room.Insert;
 import androidx.room.Update;
 import androidx.room.Delete;
+import androidx.room.Embedded;
 import androidx.room.Query;
 import androidx.room.Transaction;
 
@@ -11,6 +12,8 @@ import com.musicplayer.data.local.entities.Playlist;
 import com.musicplayer.data.local.entities.PlaylistItem;
 import com.musicplayer.data.local.entities.Track;
 
+import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import io.reactivex.Flowable;
@@ -136,18 +139,49 @@ public interface PlaylistDao {
            "ORDER BY playlist_items.position ASC")
     Single<List<Track>> getTracksSingle(long playlistId);
     
-    // Position management
-    @Query("UPDATE playlist_items SET position = position + 1 WHERE playlistId = :playlistId AND position >= :position")
-    int shiftPositions(long playlistId, int position);
+    // Keyset page of a playlist's tracks: items after (afterPosition, afterItemId) in position order
+    @Query("SELECT tracks.*, playlist_items.id AS itemId, playlist_items.position AS itemPosition " +
+           "FROM playlist_items JOIN tracks ON tracks.id = playlist_items.trackId " +
+           "WHERE playlist_items.playlistId = :playlistId AND playlist_items.position >= :afterPosition " +
+           "AND (playlist_items.position > :afterPosition OR playlist_items.id > :afterItemId) " +
+           "ORDER BY playlist_items.position ASC, playlist_items.id ASC LIMIT :limit")
+    List<PlaylistTrack> getTrackPage(long playlistId, long afterPosition, long afterItemId, int limit);
+    
+    // Keyset page before (beforePosition, beforeItemId) in descending position order, for scrolling back up
+    @Query("SELECT tracks.*, playlist_items.id AS itemId, playlist_items.position AS itemPosition " +
+           "FROM playlist_items JOIN tracks ON tracks.id = playlist_items.trackId " +
+           "WHERE playlist_items.playlistId = :playlistId AND playlist_items.position <= :beforePosition " +
+           "AND (playlist_items.position < :beforePosition OR playlist_items.id < :beforeItemId) " +
+           "ORDER BY playlist_items.position DESC, playlist_items.id DESC LIMIT :limit")
+    List<PlaylistTrack> getTrackPageBefore(long playlistId, long beforePosition, long beforeItemId, int limit);
     
-    @Query("UPDATE playlist_items SET position = position - 1 WHERE playlistId = :playlistId AND position > :position")
-    int unshiftPositions(long playlistId, int position);
+    // Position management
+    // Positions are sparse: new and rebalanced items are this far apart, so an
+    // item can be placed between two others by writing only its own row
+    long POSITION_GAP = 1L << 20;
     
     @Query("UPDATE playlist_items SET position = :newPosition WHERE id = :itemId")
-    int updatePosition(long itemId, int newPosition);
+    int updatePosition(long itemId, long newPosition);
+    
+    @Update(entity = PlaylistItem.class)
+    int updatePositions(List<PlaylistItemPosition> positions);
     
     @Query("SELECT MAX(position) FROM playlist_items WHERE playlistId = :playlistId")
-    int getMaxPosition(long playlistId);
+    long getMaxPosition(long playlistId);
+    
+    // Position of the first item after the given one, not counting excludedItemId; null at the end
+    @Query("SELECT position FROM playlist_items " +
+           "WHERE playlistId = :playlistId AND position > :position AND id != :excludedItemId " +
+           "ORDER BY position ASC LIMIT 1")
+    Long getNextPosition(long playlistId, long position, long excludedItemId);
+    
+    // Item at a zero-based index in playlist order
+    @Query("SELECT * FROM playlist_items WHERE playlistId = :playlistId " +
+           "ORDER BY position ASC, id ASC LIMIT 1 OFFSET :index")
+    PlaylistItem getItemAt(long playlistId, int index);
+    
+    @Query("SELECT id FROM playlist_items WHERE playlistId = :playlistId ORDER BY position ASC, id ASC")
+    List<Long> getItemIds(long playlistId);
     
     // Batch operations
     @Query("SELECT trackId FROM playlist_items WHERE playlistId = :playlistId ORDER BY position ASC")
@@ -158,54 +192,127 @@ public interface PlaylistDao {
     
     @Transaction
     default void addTrackToPlaylist(long playlistId, long trackId) {
-        int maxPosition = getMaxPosition(playlistId);
-        PlaylistItem item = new PlaylistItem(playlistId, trackId, maxPosition + 1);
+        long maxPosition = getMaxPosition(playlistId);
+        PlaylistItem item = new PlaylistItem(playlistId, trackId, maxPosition + POSITION_GAP);
         insertItem(item);
         
         // Update playlist stats
         updatePlaylistStats(playlistId);
     }
     
+    /**
+     * Inserts a track right after the item {@code afterItemId}, or at the start
+     * of the playlist for 0.
+     *
+     * @return id of the new item, or 0 if the item to insert after is gone
+     * @throws IllegalArgumentException if the item to insert after is in another playlist
+     */
+    @Transaction
+    default long insertTrackAfter(long playlistId, long trackId, long afterItemId) {
+        if (afterItemId != 0 && !checkItemOf(playlistId, getItemById(afterItemId), afterItemId)) {
+            return 0;
+        }
+        long itemId = insertItem(new PlaylistItem(playlistId, trackId, positionAfter(playlistId, afterItemId, 0)));
+        updatePlaylistStats(playlistId);
+        return itemId;
+    }
+    
+    // Only the removed row changes; the positions of the other items keep their order
     @Transaction
     default void removeTrackFromPlaylist(long playlistId, long trackId) {
         PlaylistItem item = getItem(playlistId, trackId);
         if (item != null) {
             deleteItem(item);
-            unshiftPositions(playlistId, item.getPosition());
             updatePlaylistStats(playlistId);
         }
     }
     
+    /**
+     * Moves the item at index {@code fromPosition} so that it ends up at index
+     * {@code toPosition}. Finding the items walks the position index; only the
+     * moved row is written.
+     */
     @Transaction
     default void moveTrack(long playlistId, int fromPosition, int toPosition) {
         if (fromPosition == toPosition) return;
         
-        // Get the item being moved
-        @Query("SELECT * FROM playlist_items WHERE playlistId = :playlistId AND position = :position")
-        PlaylistItem item = getItemByPosition(playlistId, fromPosition);
-        
+        PlaylistItem item = getItemAt(playlistId, fromPosition);
         if (item == null) return;
         
-        if (fromPosition < toPosition) {
-            // Moving down - shift items up
-            shiftPositions(playlistId, fromPosition + 1, toPosition, -1);
-        } else {
-            // Moving up - shift items down
-            shiftPositions(playlistId, toPosition, fromPosition - 1, 1);
+        if (toPosition == 0) {
+            moveItemAfter(playlistId, item.getId(), 0);
+            return;
         }
+        // Once the item is taken out, the one it follows is at toPosition when
+        // moving down and at toPosition - 1 when moving up
+        PlaylistItem after = getItemAt(playlistId, fromPosition < toPosition ? toPosition : toPosition - 1);
+        if (after == null) return;
+        moveItemAfter(playlistId, item.getId(), after.getId());
+    }
+    
+    /**
+     * Moves an item right after the item {@code afterItemId}, or to the start of
+     * the playlist for 0, by giving it a position between its new neighbours.
+     * Nothing moves if either item is gone.
+     *
+     * @throws IllegalArgumentException if either item is in another playlist
+     */
+    @Transaction
+    default void moveItemAfter(long playlistId, long itemId, long afterItemId) {
+        if (itemId == afterItemId || !checkItemOf(playlistId, getItemById(itemId), itemId)) return;
+        if (afterItemId != 0 && !checkItemOf(playlistId, getItemById(afterItemId), afterItemId)) return;
         
-        // Update the moved item's position
-        updatePosition(item.getId(), toPosition);
+        updatePosition(itemId, positionAfter(playlistId, afterItemId, itemId));
     }
     
-    // Helper query for move operation
-    @Query("SELECT * FROM playlist_items WHERE playlistId = :playlistId AND position = :position")
-    PlaylistItem getItemByPosition(long playlistId, int position);
+    /**
+     * Whether the item still exists; an item of another playlist is rejected,
+     * since positions are only comparable within one playlist.
+     */
+    default boolean checkItemOf(long playlistId, PlaylistItem item, long itemId) {
+        if (item == null) {
+            return false;
+        }
+        if (item.getPlaylistId() != playlistId) {
+            throw new IllegalArgumentException("Item " + itemId + " is not in playlist " + playlistId);
+        }
+        return true;
+    }
     
-    // Helper for batch position update
-    @Query("UPDATE playlist_items SET position = position + :offset " +
-           "WHERE playlistId = :playlistId AND position >= :startPos AND position <= :endPos")
-    int shiftPositions(long playlistId, int startPos, int endPos, int offset);
+    /**
+     * Returns a free position between the item {@code afterItemId} (0 for the
+     * start of the playlist) and the item following it, not counting
+     * {@code movingItemId}. Runs {@link #rebalancePositions} first when the two
+     * positions are adjacent, which takes about log2({@link #POSITION_GAP})
+     * insertions into the same gap.
+     */
+    default long positionAfter(long playlistId, long afterItemId, long movingItemId) {
+        while (true) {
+            long previous = afterItemId == 0 ? 0 : getItemById(afterItemId).getPosition();
+            Long next = getNextPosition(playlistId, previous, movingItemId);
+            if (next == null) {
+                return previous + POSITION_GAP;
+            }
+            if (next - previous > 1) {
+                return previous + (next - previous) / 2;
+            }
+            rebalancePositions(playlistId);
+        }
+    }
+    
+    /**
+     * Spreads the positions of a playlist {@link #POSITION_GAP} apart again,
+     * keeping the order. Equal positions are ordered by item id.
+     */
+    @Transaction
+    default void rebalancePositions(long playlistId) {
+        List<Long> itemIds = getItemIds(playlistId);
+        List<PlaylistItemPosition> positions = new ArrayList<>(itemIds.size());
+        for (int i = 0; i < itemIds.size(); i++) {
+            positions.add(new PlaylistItemPosition(itemIds.get(i), (i + 1) * POSITION_GAP));
+        }
+        updatePositions(positions);
+    }
     
     // Playlist statistics update
     @Query("UPDATE playlists SET trackCount = (SELECT COUNT(*) FROM playlist_items WHERE playlistId = :playlistId), " +
@@ -237,6 +344,16 @@ public interface PlaylistDao {
            "WHERE playlists.name LIKE :query")
     List<Playlist> searchAllPlaylists(String query);
     
+    // Searchable columns of user playlists for the in-memory library search index;
+    // the unary + keeps the planner on the primary key rather than the isSmart index
+    @Query("SELECT id, name, playCount FROM playlists WHERE id > :afterId AND +isSmart = 0 " +
+           "ORDER BY id ASC LIMIT :limit")
+    List<PlaylistSearchFields> getSearchFieldsAfter(long afterId, int limit);
+    
+    // At most TrackDao.LOOKUP_CHUNK_SIZE ids
+    @Query("SELECT * FROM playlists WHERE id IN (:playlistIds)")
+    List<Playlist> getByIds(List<Long> playlistIds);
+    
     // Import/Export operations
     @Query("UPDATE playlists SET importUrl = :importUrl WHERE id = :playlistId")
     int setImportUrl(long playlistId, String importUrl);
@@ -266,4 +383,31 @@ public interface PlaylistDao {
            "JOIN playlist_items ON tracks.id = playlist_items.trackId " +
            "WHERE playlist_items.playlistId = :playlistId AND tracks.rating > 0")
     float getPlaylistAverageRating(long playlistId);
+    
+    // Utility classes
+    
+    // Track of a playlist with the item that places it
+    class PlaylistTrack {
+        @Embedded
+        public Track track;
+        public long itemId;
+        public long itemPosition;
+    }
+    
+    // Partial row for rewriting positions when a playlist is rebalanced
+    class PlaylistItemPosition {
+        public long id;
+        public long position;
+        
+        public PlaylistItemPosition(long id, long position) {
+            this.id = id;
+            this.position = position;
+        }
+    }
+    
+    class PlaylistSearchFields {
+        public long id;
+        public String name;
+        public int playCount;
+    }
 }
\ No newline at end of file
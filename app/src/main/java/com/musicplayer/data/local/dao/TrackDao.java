@@ -1,6 +1,7 @@
 package com.musicplayer.data.local.dao;
 
 import androidx.room.Dao;
+import androidx.room.Ignore;
 import androidx.room.Insert;
 import androidx.room.Update;
 import androidx.room.Delete;
@@ -10,9 +11,17 @@ import androidx.room.Transaction;
 import com.musicplayer.data.local.entities.Track;
 import com.musicplayer.data.local.entities.Album;
 import com.musicplayer.data.local.entities.Artist;
+import com.musicplayer.data.search.FtsQuery;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import io.reactivex.Flowable;
 import io.reactivex.Single;
@@ -31,6 +40,80 @@ public interface TrackDao {
     @Insert
     List<Long> insertAll(List<Track> tracks);
     
+    /**
+     * Inserts new tracks and refreshes the tag columns of tracks whose file is
+     * already in the library, keeping play counts, ratings, favorites, bookmarks
+     * and other user data. Existing ids are resolved with one query per
+     * {@link #LOOKUP_CHUNK_SIZE} paths; the ids of all tracks are set on the
+     * given objects. Tracks whose tags did not come from the file itself, such
+     * as MediaStore rows, keep the bitrate, sample rate and channels already stored.
+     * A file whose size or modification time changed loses its stored content
+     * hash unless the track carries a new one, so it is hashed again.
+     *
+     * @return number of tracks inserted; the rest were updated
+     */
+    @Transaction
+    default int upsertAll(List<Track> tracks) {
+        Map<String, TrackFileVersion> existing = new HashMap<>();
+        List<String> filePaths = new ArrayList<>(Math.min(tracks.size(), LOOKUP_CHUNK_SIZE));
+        for (int i = 0; i < tracks.size(); i++) {
+            filePaths.add(tracks.get(i).getFilePath());
+            if (filePaths.size() == LOOKUP_CHUNK_SIZE || i == tracks.size() - 1) {
+                for (TrackFileVersion row : getFileVersionsByFilePaths(filePaths)) {
+                    existing.put(row.filePath, row);
+                }
+                filePaths.clear();
+            }
+        }
+        
+        // Keyed by path so a file listed twice is inserted once, with its last tags
+        Map<String, Track> inserts = new LinkedHashMap<>();
+        List<TrackTagUpdate> updates = new ArrayList<>();
+        List<TrackMediaStoreUpdate> mediaStoreUpdates = new ArrayList<>();
+        for (Track track : tracks) {
+            TrackFileVersion row = existing.get(track.getFilePath());
+            if (row == null) {
+                inserts.put(track.getFilePath(), track);
+                continue;
+            }
+            track.setId(row.id);
+            // Files imported by path do not know their MediaStore id; keep the scanned one
+            if (track.getMediaStoreId() == 0) {
+                track.setMediaStoreId(row.mediaStoreId);
+            }
+            // The stored hash belongs to the old content once the file was edited in place
+            if (track.getContentHash() == null && row.isSameFile(track)) {
+                track.setContentHash(row.contentHash);
+            }
+            if (track.isTagsFromFile()) {
+                updates.add(new TrackTagUpdate(track));
+            } else {
+                mediaStoreUpdates.add(new TrackMediaStoreUpdate(track));
+            }
+        }
+        
+        if (!updates.isEmpty()) {
+            updateTags(updates);
+        }
+        if (!mediaStoreUpdates.isEmpty()) {
+            updateMediaStoreTags(mediaStoreUpdates);
+        }
+        if (!inserts.isEmpty()) {
+            List<Track> newTracks = new ArrayList<>(inserts.values());
+            List<Long> ids = insertAll(newTracks);
+            for (int i = 0; i < ids.size(); i++) {
+                newTracks.get(i).setId(ids.get(i));
+            }
+            // Earlier copies of a path listed twice share the row of the copy that was inserted
+            for (Track track : tracks) {
+                if (!existing.containsKey(track.getFilePath())) {
+                    track.setId(inserts.get(track.getFilePath()).getId());
+                }
+            }
+        }
+        return inserts.size();
+    }
+    
     // Update operations
     @Update
     int update(Track track);
@@ -51,6 +134,9 @@ public interface TrackDao {
     @Query("DELETE FROM tracks")
     int deleteAll();
     
+    @Query("DELETE FROM tracks WHERE id IN (:trackIds)")
+    int deleteByIds(List<Long> trackIds);
+    
     // Query operations
     @Query("SELECT * FROM tracks WHERE id = :trackId")
     Track getById(long trackId);
@@ -86,6 +172,91 @@ public interface TrackDao {
     @Query("SELECT * FROM tracks WHERE album LIKE :query ORDER BY album ASC, trackNumber ASC")
     List<Track> searchByAlbum(String query);
     
+    // Keyset page in title order, NULL titles first as in ORDER BY title: rows after
+    // (afterTitle, afterId); null and 0 for the first page
+    @Query("SELECT * FROM (SELECT * FROM tracks WHERE :afterTitle IS NULL AND title IS NULL AND id > :afterId " +
+           "ORDER BY id ASC LIMIT :limit) " +
+           "UNION ALL SELECT * FROM (SELECT * FROM tracks WHERE title >= IFNULL(:afterTitle, '') " +
+           "AND (:afterTitle IS NULL OR title > :afterTitle OR id > :afterId) ORDER BY title ASC, id ASC LIMIT :limit) " +
+           "LIMIT :limit")
+    List<Track> getPageByTitle(String afterTitle, long afterId, int limit);
+    
+    // Keyset page before (beforeTitle, beforeId) in descending title order, for scrolling back up
+    @Query("SELECT * FROM (SELECT * FROM tracks WHERE title <= :beforeTitle AND (title < :beforeTitle OR id < :beforeId) " +
+           "ORDER BY title DESC, id DESC LIMIT :limit) " +
+           "UNION ALL SELECT * FROM (SELECT * FROM tracks WHERE title IS NULL " +
+           "AND (:beforeTitle IS NOT NULL OR id < :beforeId) ORDER BY id DESC LIMIT :limit) " +
+           "LIMIT :limit")
+    List<Track> getPageByTitleBefore(String beforeTitle, long beforeId, int limit);
+    
+    // Searchable columns for the in-memory search index
+    @Query("SELECT id, title, artist, album, playCount FROM tracks WHERE id > :afterId ORDER BY id ASC LIMIT :limit")
+    List<TrackSearchFields> getSearchFieldsAfter(long afterId, int limit);
+    
+    // At most LOOKUP_CHUNK_SIZE ids; deleted tracks are missing from the result
+    @Query("SELECT id, title, artist, album, playCount FROM tracks WHERE id IN (:trackIds)")
+    List<TrackSearchFields> getSearchFieldsByIds(List<Long> trackIds);
+    
+    // Tracks changed since the search index last caught up, see TrackSearchTriggers
+    @Query("SELECT trackId FROM track_search_changes WHERE trackId > :afterId ORDER BY trackId ASC LIMIT :limit")
+    List<Long> getSearchChangesAfter(long afterId, int limit);
+    
+    // At most LOOKUP_CHUNK_SIZE ids
+    @Query("DELETE FROM track_search_changes WHERE trackId IN (:trackIds)")
+    int deleteSearchChanges(List<Long> trackIds);
+    
+    @Query("DELETE FROM track_search_changes")
+    int clearSearchChanges();
+    
+    // Full-text search; MATCH returns rows in docid order, and rows beyond this many per query are not scored
+    int FTS_CANDIDATE_LIMIT = 2000;
+    
+    @Query("SELECT docid AS id, matchinfo(track_fts, 'pcx') AS matchInfo FROM track_fts " +
+           "WHERE track_fts MATCH :match LIMIT :limit")
+    List<FtsMatch> matchFts(String match, int limit);
+    
+    /**
+     * Searches title, artist and album through the full-text index, treating
+     * every word as a prefix, and returns the best matches first. Hits in the
+     * title rank above hits in the artist, and those above the album.
+     * Only the first {@link #FTS_CANDIDATE_LIMIT} matching rows are scored.
+     * When a query matches more, the rows with every word in the title are
+     * looked up on their own and scored by their title hits, so the best
+     * matches are not lost to rows that merely come first in the index.
+     *
+     * @param limit maximum number of tracks, at most {@link #LOOKUP_CHUNK_SIZE}
+     */
+    @Transaction
+    default List<Track> searchRanked(String query, int limit) {
+        String match = FtsQuery.prefixQuery(query);
+        if (match == null) {
+            return new ArrayList<>();
+        }
+        
+        List<FtsMatch> matches = matchFts(match, FTS_CANDIDATE_LIMIT);
+        if (matches.size() == FTS_CANDIDATE_LIMIT) {
+            Set<Long> seen = new HashSet<>();
+            for (FtsMatch row : matches) {
+                seen.add(row.id);
+            }
+            for (FtsMatch row : matchFts(FtsQuery.columnQuery(match, "title"), FTS_CANDIDATE_LIMIT)) {
+                if (seen.add(row.id)) {
+                    matches.add(row);
+                }
+            }
+        }
+        for (FtsMatch row : matches) {
+            row.score = FtsQuery.scoreTrack(row.matchInfo);
+        }
+        Collections.sort(matches, (a, b) -> Float.compare(b.score, a.score));
+        
+        List<Long> ids = new ArrayList<>();
+        for (int i = 0; i < matches.size() && i < Math.min(limit, LOOKUP_CHUNK_SIZE); i++) {
+            ids.add(matches.get(i).id);
+        }
+        return getByIdsInOrder(ids);
+    }
+    
     // Filter operations
     @Query("SELECT * FROM tracks WHERE genre = :genre ORDER BY title ASC")
     List<Track> getByGenre(String genre);
@@ -151,6 +322,18 @@ public interface TrackDao {
     @Query("UPDATE tracks SET albumArtPath = :artPath WHERE id = :trackId")
     int setAlbumArtPath(long trackId, String artPath);
     
+    // Drops paths to evicted artwork so fillAlbumArtPathsFromAlbums() can replace them;
+    // at most LOOKUP_CHUNK_SIZE paths
+    @Query("UPDATE tracks SET albumArtPath = NULL WHERE albumArtPath IN (:artPaths)")
+    int clearAlbumArtPaths(List<String> artPaths);
+    
+    // Gives tracks without artwork the artwork of their album, in one statement
+    @Query("UPDATE tracks SET albumArtPath = " +
+           "(SELECT artPath FROM albums WHERE albums.id = tracks.albumId) " +
+           "WHERE (albumArtPath IS NULL OR albumArtPath = '') AND albumId IN " +
+           "(SELECT id FROM albums WHERE artPath IS NOT NULL AND artPath != '')")
+    int fillAlbumArtPathsFromAlbums();
+    
     // Metadata update
     @Query("UPDATE tracks SET title = :title, artist = :artist, album = :album, genre = :genre, " +
            "year = :year, trackNumber = :trackNumber, lyrics = :lyrics, composer = :composer " +
@@ -158,10 +341,108 @@ public interface TrackDao {
     int updateMetadata(long trackId, String title, String artist, String album, String genre,
                        int year, int trackNumber, String lyrics, String composer);
     
+    // Updates only the tag columns of existing rows; user data is not part of TrackTagUpdate
+    @Update(entity = Track.class)
+    int updateTags(List<TrackTagUpdate> updates);
+    
+    // Same, without the audio properties MediaStore does not report
+    @Update(entity = Track.class)
+    int updateMediaStoreTags(List<TrackMediaStoreUpdate> updates);
+    
+    // MediaStore sync
+    @Query("SELECT COUNT(*) FROM tracks WHERE mediaStoreId > 0")
+    int getMediaStoreTrackCount();
+    
+    @Query("SELECT mediaStoreId FROM tracks WHERE mediaStoreId > :afterId " +
+           "ORDER BY mediaStoreId ASC LIMIT :limit")
+    List<Long> getMediaStoreIdsAfter(long afterId, int limit);
+    
+    @Query("DELETE FROM tracks WHERE mediaStoreId IN (:mediaStoreIds)")
+    int deleteByMediaStoreIds(List<Long> mediaStoreIds);
+    
+    // Move detection
+    @Query("SELECT id, filePath, contentHash FROM tracks WHERE contentHash IN (:contentHashes)")
+    List<TrackPathHash> getPathsByContentHashes(List<String> contentHashes);
+    
+    @Query("SELECT * FROM tracks WHERE id IN (:trackIds)")
+    List<Track> getByIds(List<Long> trackIds);
+    
+    // At most LOOKUP_CHUNK_SIZE ids; deleted tracks are missing from the result
+    @Query("SELECT id FROM tracks WHERE id IN (:trackIds)")
+    List<Long> getExistingIds(List<Long> trackIds);
+    
+    /**
+     * Loads tracks in the order of the given ids, skipping ids that no longer
+     * exist; at most {@link #LOOKUP_CHUNK_SIZE} ids.
+     */
+    default List<Track> getByIdsInOrder(List<Long> trackIds) {
+        if (trackIds.isEmpty()) {
+            return new ArrayList<>();
+        }
+        Map<Long, Track> tracks = new HashMap<>();
+        for (Track track : getByIds(trackIds)) {
+            tracks.put(track.getId(), track);
+        }
+        List<Track> ordered = new ArrayList<>(trackIds.size());
+        for (Long id : trackIds) {
+            Track track = tracks.get(id);
+            if (track != null) {
+                ordered.add(track);
+            }
+        }
+        return ordered;
+    }
+    
+    @Query("SELECT * FROM tracks WHERE contentHash = :contentHash")
+    List<Track> getByContentHash(String contentHash);
+    
+    @Update(entity = Track.class)
+    int updateFilePaths(List<TrackFilePath> filePaths);
+    
+    @Query("SELECT id, filePath, mediaStoreId FROM tracks " +
+           "WHERE contentHash IS NULL AND isLocal = 1 AND id > :afterId " +
+           "ORDER BY id ASC LIMIT :limit")
+    List<TrackPathId> getLocalPathsWithoutHashAfter(long afterId, int limit);
+    
+    @Update(entity = Track.class)
+    int updateContentHashes(List<TrackContentHash> contentHashes);
+    
+    // Loudness analysis
+    @Query("SELECT id, filePath, mediaStoreId FROM tracks " +
+           "WHERE loudness IS NULL AND isLocal = 1 AND filePath IS NOT NULL AND id > :afterId " +
+           "ORDER BY id ASC LIMIT :limit")
+    List<TrackPathId> getLocalPathsWithoutLoudnessAfter(long afterId, int limit);
+    
+    @Update(entity = Track.class)
+    int updateLoudness(List<TrackLoudness> loudness);
+    
+    // Albums with an analysed track whose album gain is missing or out of date
+    @Query("SELECT DISTINCT albumId FROM tracks " +
+           "WHERE albumId > :afterId AND loudness IS NOT NULL AND albumGain IS NULL " +
+           "ORDER BY albumId ASC LIMIT :limit")
+    List<Long> getAlbumIdsWithoutGainAfter(long afterId, int limit);
+    
+    @Query("SELECT albumId, duration, loudness, truePeak FROM tracks " +
+           "WHERE albumId IN (:albumIds) AND loudness IS NOT NULL")
+    List<TrackAlbumLoudness> getLoudnessByAlbumIds(List<Long> albumIds);
+    
+    @Query("UPDATE tracks SET albumGain = :albumGain, albumPeak = :albumPeak WHERE albumId = :albumId")
+    int setAlbumGain(long albumId, double albumGain, double albumPeak);
+    
     // Batch operations
+    // Keeps the bound-variable count of IN (:filePaths) lookups under SQLite's limit of 999
+    int LOOKUP_CHUNK_SIZE = 900;
+    
     @Query("SELECT id FROM tracks WHERE filePath IN (:filePaths)")
     List<Long> getIdsByFilePaths(List<String> filePaths);
     
+    @Query("SELECT id, filePath, mediaStoreId FROM tracks WHERE filePath IN (:filePaths)")
+    List<TrackPathId> getIdsAndPathsByFilePaths(List<String> filePaths);
+    
+    @Query("SELECT id, filePath, mediaStoreId, fileSize, dateModified, contentHash FROM tracks " +
+           "WHERE filePath IN (:filePaths)")
+    List<TrackFileVersion> getFileVersionsByFilePaths(List<String> filePaths);
+    
     @Query("UPDATE tracks SET favorite = 1 WHERE id IN (:trackIds)")
     int setFavorites(List<Long> trackIds);
     
@@ -192,9 +473,184 @@ public interface TrackDao {
     @Query("DELETE FROM tracks WHERE isLocal = 1 AND filePath NOT IN (:validPaths)")
     int deleteMissingTracks(List<String> validPaths);
     
+    // Keyset page of local files, for walking the library without loading whole tracks
+    @Query("SELECT id, filePath, mediaStoreId FROM tracks " +
+           "WHERE isLocal = 1 AND filePath IS NOT NULL AND id > :afterId " +
+           "ORDER BY id ASC LIMIT :limit")
+    List<TrackPathId> getLocalPathsAfter(long afterId, int limit);
+    
+    @Query("SELECT id, filePath, fileSize FROM tracks " +
+           "WHERE isLocal = 1 AND filePath IS NOT NULL AND id > :afterId " +
+           "ORDER BY id ASC LIMIT :limit")
+    List<TrackFileSize> getLocalFileSizesAfter(long afterId, int limit);
+    
     // Utility class for genre distribution
     class GenreCount {
         public String genre;
         public int count;
     }
+    
+    class TrackSearchFields {
+        public long id;
+        public String title;
+        public String artist;
+        public String album;
+        public int playCount;
+    }
+    
+    // Full-text hit with its match statistics
+    class FtsMatch {
+        public long id;
+        public byte[] matchInfo;
+        @Ignore
+        public float score;
+    }
+    
+    // Utility class for resolving existing rows by file path
+    class TrackPathId {
+        public long id;
+        public String filePath;
+        public long mediaStoreId;
+    }
+    
+    // Existing row of a path being upserted, with what identifies the file's content
+    class TrackFileVersion {
+        public long id;
+        public String filePath;
+        public long mediaStoreId;
+        public long fileSize;
+        public Date dateModified;
+        public String contentHash;
+        
+        // Compared in whole seconds, the precision MediaStore reports
+        boolean isSameFile(Track track) {
+            return track.getFileSize() == fileSize && track.getDateModified() != null && dateModified != null
+                    && track.getDateModified().getTime() / 1000 == dateModified.getTime() / 1000;
+        }
+    }
+    
+    class TrackFileSize {
+        public long id;
+        public String filePath;
+        public long fileSize;
+    }
+    
+    class TrackPathHash {
+        public long id;
+        public String filePath;
+        public String contentHash;
+    }
+    
+    // Partial row for moving a track to a new path
+    class TrackFilePath {
+        public long id;
+        public String filePath;
+        
+        public TrackFilePath(long id, String filePath) {
+            this.id = id;
+            this.filePath = filePath;
+        }
+    }
+    
+    // Partial row for storing content hashes computed after the fact
+    class TrackContentHash {
+        public long id;
+        public String contentHash;
+        
+        public TrackContentHash(long id, String contentHash) {
+            this.id = id;
+            this.contentHash = contentHash;
+        }
+    }
+    
+    // Partial row for storing loudness analysis results; clears the album gain so it is recomputed
+    class TrackLoudness {
+        public long id;
+        public Double loudness;
+        public Double truePeak;
+        public Double trackGain;
+        public Double albumGain;
+    
+        public TrackLoudness(long id, Double loudness, Double truePeak, Double trackGain) {
+            this.id = id;
+            this.loudness = loudness;
+            this.truePeak = truePeak;
+            this.trackGain = trackGain;
+        }
+    }
+    
+    class TrackAlbumLoudness {
+        public long albumId;
+        public long duration;
+        public double loudness;
+        public double truePeak;
+    }
+    
+    /**
+     * Tag columns and content hash refreshed when a file is scanned from MediaStore again.
+     */
+    class TrackMediaStoreUpdate {
+        public long id;
+        public long mediaStoreId;
+        public long albumId;
+        public long artistId;
+        public String title;
+        public String artist;
+        public String album;
+        public String albumArtist;
+        public long duration;
+        public int trackNumber;
+        public int year;
+        public String genre;
+        public String composer;
+        public String mimeType;
+        public long fileSize;
+        public Date dateModified;
+        public String contentHash;
+        
+        public TrackMediaStoreUpdate() {
+        }
+        
+        @Ignore
+        public TrackMediaStoreUpdate(Track track) {
+            this.id = track.getId();
+            this.mediaStoreId = track.getMediaStoreId();
+            this.albumId = track.getAlbumId();
+            this.artistId = track.getArtistId();
+            this.title = track.getTitle();
+            this.artist = track.getArtist();
+            this.album = track.getAlbum();
+            this.albumArtist = track.getAlbumArtist();
+            this.duration = track.getDuration();
+            this.trackNumber = track.getTrackNumber();
+            this.year = track.getYear();
+            this.genre = track.getGenre();
+            this.composer = track.getComposer();
+            this.mimeType = track.getMimeType();
+            this.fileSize = track.getFileSize();
+            this.dateModified = track.getDateModified();
+            this.contentHash = track.getContentHash();
+        }
+    }
+    
+    /**
+     * Tag columns refreshed when a file is read again, including the audio
+     * properties only the file itself reports.
+     */
+    class TrackTagUpdate extends TrackMediaStoreUpdate {
+        public int bitrate;
+        public int sampleRate;
+        public int channels;
+        
+        public TrackTagUpdate() {
+        }
+        
+        @Ignore
+        public TrackTagUpdate(Track track) {
+            super(track);
+            this.bitrate = track.getBitrate();
+            this.sampleRate = track.getSampleRate();
+            this.channels = track.getChannels();
+        }
+    }
 }
\ No newline at end of file
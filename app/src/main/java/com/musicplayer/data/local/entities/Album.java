@@ -16,7 +16,10 @@ import java.util.Date;
     indices = {
         @Index(value = "title"),
         @Index(value = "artist"),
-        @Index(value = "artistId")
+        @Index(value = {"artistId", "year", "title"},
+               orders = {Index.Order.ASC, Index.Order.DESC, Index.Order.ASC}),
+        @Index(value = {"genre", "title"}),
+        @Index(value = {"year", "title"}, orders = {Index.Order.DESC, Index.Order.ASC})
     }
 )
 public class Album {
@@ -0,0 +1,54 @@
+package com.musicplayer.data.local.entities;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.util.Date;
+
+/**
+ * Totals over the tracks of an album, kept current by the triggers in
+ * {@link com.musicplayer.data.local.LibraryStatsTriggers} so album screens
+ * read one row instead of aggregating the tracks table.
+ */
+@Entity(
+    tableName = "album_stats",
+    indices = {
+        @Index(value = "playCount")
+    }
+)
+public class AlbumStats {
+
+    @PrimaryKey
+    @ColumnInfo(name = "albumId")
+    private long albumId;
+
+    @ColumnInfo(name = "trackCount", defaultValue = "0")
+    private int trackCount;
+
+    @ColumnInfo(name = "duration", defaultValue = "0")
+    private long duration; // milliseconds
+
+    @ColumnInfo(name = "playCount", defaultValue = "0")
+    private int playCount;
+
+    @ColumnInfo(name = "lastPlayed")
+    private Date lastPlayed;
+
+    // Getters and Setters
+    public long getAlbumId() { return albumId; }
+    public void setAlbumId(long albumId) { this.albumId = albumId; }
+
+    public int getTrackCount() { return trackCount; }
+    public void setTrackCount(int trackCount) { this.trackCount = trackCount; }
+
+    public long getDuration() { return duration; }
+    public void setDuration(long duration) { this.duration = duration; }
+
+    public int getPlayCount() { return playCount; }
+    public void setPlayCount(int playCount) { this.playCount = playCount; }
+
+    public Date getLastPlayed() { return lastPlayed; }
+    public void setLastPlayed(Date lastPlayed) { this.lastPlayed = lastPlayed; }
+}
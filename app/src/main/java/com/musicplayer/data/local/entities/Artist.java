@@ -14,7 +14,9 @@ import java.util.Date;
 @Entity(
     tableName = "artists",
     indices = {
-        @Index(value = "name", unique = true)
+        @Index(value = "name", unique = true),
+        @Index(value = {"genre", "name"}),
+        @Index(value = {"favorite", "name"})
     }
 )
 public class Artist {
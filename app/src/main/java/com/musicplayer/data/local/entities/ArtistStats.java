@@ -0,0 +1,59 @@
+package com.musicplayer.data.local.entities;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Index;
+import androidx.room.PrimaryKey;
+
+import java.util.Date;
+
+/**
+ * Totals over the albums and tracks of an artist, kept current by the
+ * triggers in {@link com.musicplayer.data.local.LibraryStatsTriggers}.
+ */
+@Entity(
+    tableName = "artist_stats",
+    indices = {
+        @Index(value = "playCount")
+    }
+)
+public class ArtistStats {
+
+    @PrimaryKey
+    @ColumnInfo(name = "artistId")
+    private long artistId;
+
+    @ColumnInfo(name = "albumCount", defaultValue = "0")
+    private int albumCount;
+
+    @ColumnInfo(name = "trackCount", defaultValue = "0")
+    private int trackCount;
+
+    @ColumnInfo(name = "duration", defaultValue = "0")
+    private long duration; // milliseconds
+
+    @ColumnInfo(name = "playCount", defaultValue = "0")
+    private int playCount;
+
+    @ColumnInfo(name = "lastPlayed")
+    private Date lastPlayed;
+
+    // Getters and Setters
+    public long getArtistId() { return artistId; }
+    public void setArtistId(long artistId) { this.artistId = artistId; }
+
+    public int getAlbumCount() { return albumCount; }
+    public void setAlbumCount(int albumCount) { this.albumCount = albumCount; }
+
+    public int getTrackCount() { return trackCount; }
+    public void setTrackCount(int trackCount) { this.trackCount = trackCount; }
+
+    public long getDuration() { return duration; }
+    public void setDuration(long duration) { this.duration = duration; }
+
+    public int getPlayCount() { return playCount; }
+    public void setPlayCount(int playCount) { this.playCount = playCount; }
+
+    public Date getLastPlayed() { return lastPlayed; }
+    public void setLastPlayed(Date lastPlayed) { this.lastPlayed = lastPlayed; }
+}
@@ -0,0 +1,49 @@
+package com.musicplayer.data.local.entities;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.Index;
+
+/**
+ * Index entry mapping one key of a track's fingerprint to the track.
+ * Tracks sharing a key are candidates for being the same recording.
+ */
+@Entity(
+    tableName = "fingerprint_keys",
+    primaryKeys = {"hashKey", "trackId"},
+    foreignKeys = {
+        @ForeignKey(
+            entity = TrackFingerprint.class,
+            parentColumns = "trackId",
+            childColumns = "trackId",
+            onDelete = ForeignKey.CASCADE
+        )
+    },
+    indices = {
+        @Index(value = "trackId")
+    }
+)
+public class FingerprintKey {
+
+    @ColumnInfo(name = "hashKey")
+    private int hashKey;
+
+    @ColumnInfo(name = "trackId")
+    private long trackId;
+
+    public FingerprintKey() {
+    }
+
+    public FingerprintKey(int hashKey, long trackId) {
+        this.hashKey = hashKey;
+        this.trackId = trackId;
+    }
+
+    // Getters and Setters
+    public int getHashKey() { return hashKey; }
+    public void setHashKey(int hashKey) { this.hashKey = hashKey; }
+
+    public long getTrackId() { return trackId; }
+    public void setTrackId(long trackId) { this.trackId = trackId; }
+}
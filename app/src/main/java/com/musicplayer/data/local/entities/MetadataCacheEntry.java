@@ -0,0 +1,198 @@
+package com.musicplayer.data.local.entities;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Ignore;
+import androidx.room.PrimaryKey;
+
+import java.util.Date;
+
+/**
+ * Tags last extracted from a file, keyed by its path and fingerprinted by
+ * size and modification time. While the fingerprint still matches the file,
+ * the cached values are used instead of reading the file again.
+ *
+ * Modification times come in milliseconds from the file system and in whole
+ * seconds from MediaStore, so they are stored and compared in seconds.
+ *
+ * Entries written from MediaStore rows only tell whether the file changed;
+ * their tags lack bitrate, sample rate and channels, so only entries read
+ * from the file itself can stand in for reading it.
+ */
+@Entity(tableName = "metadata_cache")
+public class MetadataCacheEntry {
+
+    @PrimaryKey
+    @NonNull
+    @ColumnInfo(name = "filePath")
+    private String filePath = "";
+
+    @ColumnInfo(name = "fileSize")
+    private long fileSize;
+
+    @ColumnInfo(name = "lastModified")
+    private long lastModified; // seconds since epoch
+
+    @ColumnInfo(name = "title")
+    private String title;
+
+    @ColumnInfo(name = "artist")
+    private String artist;
+
+    @ColumnInfo(name = "album")
+    private String album;
+
+    @ColumnInfo(name = "albumArtist")
+    private String albumArtist;
+
+    @ColumnInfo(name = "genre")
+    private String genre;
+
+    @ColumnInfo(name = "composer")
+    private String composer;
+
+    @ColumnInfo(name = "mimeType")
+    private String mimeType;
+
+    @ColumnInfo(name = "duration")
+    private long duration;
+
+    @ColumnInfo(name = "trackNumber")
+    private int trackNumber;
+
+    @ColumnInfo(name = "year")
+    private int year;
+
+    @ColumnInfo(name = "bitrate")
+    private int bitrate;
+
+    @ColumnInfo(name = "sampleRate")
+    private int sampleRate;
+
+    @ColumnInfo(name = "channels")
+    private int channels;
+
+    @ColumnInfo(name = "fromFile", defaultValue = "0")
+    private boolean fromFile; // tags read from the file, not taken from MediaStore
+
+    public MetadataCacheEntry() {
+    }
+
+    /**
+     * Captures the tags of a freshly extracted track, fingerprinted by the
+     * track's file size and modification date.
+     */
+    @Ignore
+    public MetadataCacheEntry(Track track) {
+        this.filePath = track.getFilePath();
+        this.fileSize = track.getFileSize();
+        this.lastModified = track.getDateModified() != null ? toSeconds(track.getDateModified().getTime()) : 0;
+        this.title = track.getTitle();
+        this.artist = track.getArtist();
+        this.album = track.getAlbum();
+        this.albumArtist = track.getAlbumArtist();
+        this.genre = track.getGenre();
+        this.composer = track.getComposer();
+        this.mimeType = track.getMimeType();
+        this.duration = track.getDuration();
+        this.trackNumber = track.getTrackNumber();
+        this.year = track.getYear();
+        this.bitrate = track.getBitrate();
+        this.sampleRate = track.getSampleRate();
+        this.channels = track.getChannels();
+        this.fromFile = track.isTagsFromFile();
+    }
+
+    /**
+     * Whether the file still has the size and modification time this entry was made from.
+     *
+     * @param lastModifiedMillis modification time in milliseconds, as from {@link java.io.File#lastModified()}
+     */
+    public boolean matches(long fileSize, long lastModifiedMillis) {
+        return this.fileSize == fileSize && this.lastModified == toSeconds(lastModifiedMillis);
+    }
+
+    private static long toSeconds(long millis) {
+        return millis / 1000L;
+    }
+
+    /**
+     * Creates a local track from the cached tags.
+     */
+    public Track toTrack() {
+        Track track = new Track();
+        track.setFilePath(filePath);
+        track.setTitle(title);
+        track.setArtist(artist);
+        track.setAlbum(album);
+        track.setAlbumArtist(albumArtist);
+        track.setGenre(genre);
+        track.setComposer(composer);
+        track.setMimeType(mimeType);
+        track.setDuration(duration);
+        track.setTrackNumber(trackNumber);
+        track.setYear(year);
+        track.setBitrate(bitrate);
+        track.setSampleRate(sampleRate);
+        track.setChannels(channels);
+        track.setFileSize(fileSize);
+        track.setDateModified(new Date(lastModified * 1000L));
+        track.setLocal(true);
+        track.setTagsFromFile(fromFile);
+        return track;
+    }
+
+    // Getters and Setters
+    @NonNull
+    public String getFilePath() { return filePath; }
+    public void setFilePath(@NonNull String filePath) { this.filePath = filePath; }
+
+    public long getFileSize() { return fileSize; }
+    public void setFileSize(long fileSize) { this.fileSize = fileSize; }
+
+    public long getLastModified() { return lastModified; }
+    public void setLastModified(long lastModified) { this.lastModified = lastModified; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getArtist() { return artist; }
+    public void setArtist(String artist) { this.artist = artist; }
+
+    public String getAlbum() { return album; }
+    public void setAlbum(String album) { this.album = album; }
+
+    public String getAlbumArtist() { return albumArtist; }
+    public void setAlbumArtist(String albumArtist) { this.albumArtist = albumArtist; }
+
+    public String getGenre() { return genre; }
+    public void setGenre(String genre) { this.genre = genre; }
+
+    public String getComposer() { return composer; }
+    public void setComposer(String composer) { this.composer = composer; }
+
+    public String getMimeType() { return mimeType; }
+    public void setMimeType(String mimeType) { this.mimeType = mimeType; }
+
+    public long getDuration() { return duration; }
+    public void setDuration(long duration) { this.duration = duration; }
+
+    public int getTrackNumber() { return trackNumber; }
+    public void setTrackNumber(int trackNumber) { this.trackNumber = trackNumber; }
+
+    public int getYear() { return year; }
+    public void setYear(int year) { this.year = year; }
+
+    public int getBitrate() { return bitrate; }
+    public void setBitrate(int bitrate) { this.bitrate = bitrate; }
+
+    public int getSampleRate() { return sampleRate; }
+    public void setSampleRate(int sampleRate) { this.sampleRate = sampleRate; }
+
+    public int getChannels() { return channels; }
+    public void setChannels(int channels) { this.channels = channels; }
+
+    public boolean isFromFile() { return fromFile; }
+    public void setFromFile(boolean fromFile) { this.fromFile = fromFile; }
+}
@@ -14,7 +14,9 @@ import java.util.Date;
 @Entity(
     tableName = "playlists",
     indices = {
-        @Index(value = "name", unique = true)
+        @Index(value = "name", unique = true),
+        @Index(value = {"isSmart", "name"}),
+        @Index(value = "smartType")
     }
 )
 public class Playlist {
@@ -46,7 +46,7 @@ public class PlaylistItem {
     private long trackId;
     
     @ColumnInfo(name = "position")
-    private int position;
+    private long position; // sparse sort key, see PlaylistDao.POSITION_GAP
     
     @ColumnInfo(name = "dateAdded")
     private Date dateAdded;
@@ -97,7 +97,7 @@ public class PlaylistItem {
         this.isDownloaded = false;
     }
     
-    public PlaylistItem(long playlistId, long trackId, int position) {
+    public PlaylistItem(long playlistId, long trackId, long position) {
         this();
         this.playlistId = playlistId;
         this.trackId = trackId;
@@ -114,8 +114,8 @@ public class PlaylistItem {
     public long getTrackId() { return trackId; }
     public void setTrackId(long trackId) { this.trackId = trackId; }
     
-    public int getPosition() { return position; }
-    public void setPosition(int position) { this.position = position; }
+    public long getPosition() { return position; }
+    public void setPosition(long position) { this.position = position; }
     
     public Date getDateAdded() { return dateAdded; }
     public void setDateAdded(Date dateAdded) { this.dateAdded = dateAdded; }
@@ -180,10 +180,6 @@ public class PlaylistItem {
         return bookmark > 0;
     }
     
-    public String getFormattedPosition() {
-        return String.format("%02d", position + 1);
-    }
-    
     public boolean hasNotes() {
         return notes != null && !notes.isEmpty();
     }
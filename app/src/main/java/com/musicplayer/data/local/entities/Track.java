@@ -4,6 +4,7 @@ import androidx.room.Entity;
 import androidx.room.PrimaryKey;
 import androidx.room.ForeignKey;
 import androidx.room.ColumnInfo;
+import androidx.room.Ignore;
 import androidx.room.Index;
 
 import java.util.Date;
@@ -15,10 +16,18 @@ import java.util.Date;
 @Entity(
     tableName = "tracks",
     indices = {
-        @Index(value = "albumId"),
-        @Index(value = "artistId"),
+        @Index(value = {"albumId", "trackNumber", "title"}),
+        @Index(value = {"artistId", "album", "trackNumber"}),
         @Index(value = "title"),
-        @Index(value = "filePath", unique = true)
+        @Index(value = "filePath", unique = true),
+        @Index(value = "mediaStoreId"),
+        @Index(value = "contentHash"),
+        @Index(value = "dateAdded"),
+        @Index(value = "playCount"),
+        @Index(value = "lastPlayed"),
+        @Index(value = {"favorite", "title"}),
+        @Index(value = {"genre", "title"}),
+        @Index(value = {"year", "title"})
     }
 )
 public class Track {
@@ -35,6 +44,9 @@ public class Track {
     @ColumnInfo(name = "album")
     private String album;
     
+    @ColumnInfo(name = "albumArtist")
+    private String albumArtist; // album artist tag, null when the file has none
+    
     @ColumnInfo(name = "albumId")
     private long albumId;
     
@@ -116,6 +128,32 @@ public class Track {
     @ColumnInfo(name = "fileSize")
     private long fileSize;
     
+    @ColumnInfo(name = "mediaStoreId", defaultValue = "0")
+    private long mediaStoreId; // MediaStore.Audio.Media._ID, 0 if not indexed by MediaStore
+    
+    @ColumnInfo(name = "contentHash")
+    private String contentHash; // Hash of sampled audio data, follows the file across moves
+    
+    // Loudness analysis, null until the track has been analysed
+    @ColumnInfo(name = "loudness")
+    private Double loudness; // integrated loudness in LUFS
+    
+    @ColumnInfo(name = "truePeak")
+    private Double truePeak; // in dBTP
+    
+    @ColumnInfo(name = "trackGain")
+    private Double trackGain; // ReplayGain in dB
+    
+    @ColumnInfo(name = "albumGain")
+    private Double albumGain; // ReplayGain of the whole album in dB
+    
+    @ColumnInfo(name = "albumPeak")
+    private Double albumPeak; // highest true peak on the album in dBTP
+    
+    // Whether the tags were read from the file itself rather than taken from MediaStore; not stored
+    @Ignore
+    private boolean tagsFromFile;
+    
     // Constructors
     public Track() {
         this.dateAdded = new Date();
@@ -148,6 +186,9 @@ public class Track {
     public String getAlbum() { return album; }
     public void setAlbum(String album) { this.album = album; }
     
+    public String getAlbumArtist() { return albumArtist; }
+    public void setAlbumArtist(String albumArtist) { this.albumArtist = albumArtist; }
+    
     public long getAlbumId() { return albumId; }
     public void setAlbumId(long albumId) { this.albumId = albumId; }
     
@@ -229,6 +270,30 @@ public class Track {
     public long getFileSize() { return fileSize; }
     public void setFileSize(long fileSize) { this.fileSize = fileSize; }
     
+    public long getMediaStoreId() { return mediaStoreId; }
+    public void setMediaStoreId(long mediaStoreId) { this.mediaStoreId = mediaStoreId; }
+    
+    public String getContentHash() { return contentHash; }
+    public void setContentHash(String contentHash) { this.contentHash = contentHash; }
+    
+    public Double getLoudness() { return loudness; }
+    public void setLoudness(Double loudness) { this.loudness = loudness; }
+    
+    public Double getTruePeak() { return truePeak; }
+    public void setTruePeak(Double truePeak) { this.truePeak = truePeak; }
+    
+    public Double getTrackGain() { return trackGain; }
+    public void setTrackGain(Double trackGain) { this.trackGain = trackGain; }
+    
+    public Double getAlbumGain() { return albumGain; }
+    public void setAlbumGain(Double albumGain) { this.albumGain = albumGain; }
+    
+    public Double getAlbumPeak() { return albumPeak; }
+    public void setAlbumPeak(Double albumPeak) { this.albumPeak = albumPeak; }
+    
+    public boolean isTagsFromFile() { return tagsFromFile; }
+    public void setTagsFromFile(boolean tagsFromFile) { this.tagsFromFile = tagsFromFile; }
+    
     // Utility methods
     public void incrementPlayCount() {
         this.playCount++;
@@ -0,0 +1,56 @@
+package com.musicplayer.data.local.entities;
+
+import androidx.annotation.NonNull;
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.ForeignKey;
+import androidx.room.PrimaryKey;
+
+/**
+ * Acoustic fingerprint of a track, stored beside the track so that the
+ * tracks table stays narrow.
+ */
+@Entity(
+    tableName = "track_fingerprints",
+    foreignKeys = {
+        @ForeignKey(
+            entity = Track.class,
+            parentColumns = "id",
+            childColumns = "trackId",
+            onDelete = ForeignKey.CASCADE
+        )
+    }
+)
+public class TrackFingerprint {
+
+    @PrimaryKey
+    @ColumnInfo(name = "trackId")
+    private long trackId;
+
+    @ColumnInfo(name = "duration")
+    private long duration; // milliseconds, copied from the track for candidate filtering
+
+    @NonNull
+    @ColumnInfo(name = "fingerprint", typeAffinity = ColumnInfo.BLOB)
+    private byte[] fingerprint = new byte[0]; // big-endian 32-bit sub-fingerprints
+
+    public TrackFingerprint() {
+    }
+
+    public TrackFingerprint(long trackId, long duration, @NonNull byte[] fingerprint) {
+        this.trackId = trackId;
+        this.duration = duration;
+        this.fingerprint = fingerprint;
+    }
+
+    // Getters and Setters
+    public long getTrackId() { return trackId; }
+    public void setTrackId(long trackId) { this.trackId = trackId; }
+
+    public long getDuration() { return duration; }
+    public void setDuration(long duration) { this.duration = duration; }
+
+    @NonNull
+    public byte[] getFingerprint() { return fingerprint; }
+    public void setFingerprint(@NonNull byte[] fingerprint) { this.fingerprint = fingerprint; }
+}
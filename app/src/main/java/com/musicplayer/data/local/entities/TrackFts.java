@@ -0,0 +1,44 @@
+package com.musicplayer.data.local.entities;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.Fts4;
+import androidx.room.FtsOptions;
+import androidx.room.PrimaryKey;
+
+/**
+ * Full-text index over the searchable columns of tracks.
+ *
+ * The table has no content of its own: it reads rows from the tracks table,
+ * and Room keeps its index in sync with triggers. The unicode61 tokenizer
+ * folds case and strips diacritics beyond ASCII.
+ */
+@Fts4(contentEntity = Track.class, tokenizer = FtsOptions.TOKENIZER_UNICODE61)
+@Entity(tableName = "track_fts")
+public class TrackFts {
+
+    @PrimaryKey
+    @ColumnInfo(name = "rowid")
+    private long rowId;
+
+    @ColumnInfo(name = "title")
+    private String title;
+
+    @ColumnInfo(name = "artist")
+    private String artist;
+
+    @ColumnInfo(name = "album")
+    private String album;
+
+    public long getRowId() { return rowId; }
+    public void setRowId(long rowId) { this.rowId = rowId; }
+
+    public String getTitle() { return title; }
+    public void setTitle(String title) { this.title = title; }
+
+    public String getArtist() { return artist; }
+    public void setArtist(String artist) { this.artist = artist; }
+
+    public String getAlbum() { return album; }
+    public void setAlbum(String album) { this.album = album; }
+}
@@ -0,0 +1,22 @@
+package com.musicplayer.data.local.entities;
+
+import androidx.room.ColumnInfo;
+import androidx.room.Entity;
+import androidx.room.PrimaryKey;
+
+/**
+ * Id of a track inserted, deleted or changed in a searchable column since
+ * the in-memory search index last caught up. Rows are written by the
+ * triggers in {@link com.musicplayer.data.local.TrackSearchTriggers} and
+ * removed once the index has applied them.
+ */
+@Entity(tableName = "track_search_changes")
+public class TrackSearchChange {
+
+    @PrimaryKey
+    @ColumnInfo(name = "trackId")
+    private long trackId;
+
+    public long getTrackId() { return trackId; }
+    public void setTrackId(long trackId) { this.trackId = trackId; }
+}
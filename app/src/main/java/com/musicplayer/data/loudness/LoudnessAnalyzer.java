@@ -0,0 +1,159 @@
+package com.musicplayer.data.loudness;
+
+import android.os.CancellationSignal;
+import android.util.Log;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.dao.TrackDao;
+import com.musicplayer.utils.audio.LoudnessMeter;
+import com.musicplayer.utils.audio.PcmDecoder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Measures the loudness of local tracks and stores ReplayGain values for
+ * tracks and albums.
+ *
+ * Tracks without a loudness value are walked in keyset pages and decoded in
+ * full through a {@link LoudnessMeter}; the results of a page are written in
+ * one batched update, so a stopped run resumes with the first track it had
+ * not written. Album gain is derived afterwards for every album with an
+ * analysed track and no album gain, which also picks up albums left over
+ * from a run stopped between the two passes.
+ */
+public class LoudnessAnalyzer {
+
+    private static final String TAG = "LoudnessAnalyzer";
+
+    // ReplayGain 2.0 reference level
+    public static final double REFERENCE_LOUDNESS = -18.0;
+
+    private static final int PAGE_SIZE = 20;
+    private static final int ALBUM_PAGE_SIZE = 200;
+
+    private final AppDatabase database;
+
+    public LoudnessAnalyzer(AppDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Analyses every local track without a loudness value, then updates the
+     * gain of the albums they belong to. Files that cannot be decoded are
+     * skipped and tried again next time.
+     *
+     * @return number of tracks analysed
+     * @throws android.os.OperationCanceledException if the signal is cancelled
+     */
+    public int analyzeMissing(CancellationSignal cancellationSignal) {
+        TrackDao trackDao = database.trackDao();
+        int analyzed = 0;
+
+        List<TrackDao.TrackPathId> page = trackDao.getLocalPathsWithoutLoudnessAfter(0, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            List<TrackDao.TrackLoudness> results = new ArrayList<>(page.size());
+            for (TrackDao.TrackPathId track : page) {
+                LoudnessMeter meter = measure(track.filePath, cancellationSignal);
+                if (meter == null) {
+                    continue;
+                }
+                double loudness = meter.getIntegratedLoudness();
+                results.add(new TrackDao.TrackLoudness(track.id, loudness,
+                        meter.getTruePeak(), gain(loudness)));
+            }
+            if (!results.isEmpty()) {
+                trackDao.updateLoudness(results);
+                analyzed += results.size();
+            }
+            page = trackDao.getLocalPathsWithoutLoudnessAfter(page.get(page.size() - 1).id, PAGE_SIZE);
+        }
+
+        int albums = updateAlbumGains(cancellationSignal);
+        Log.d(TAG, "Analysed " + analyzed + " tracks, updated " + albums + " albums");
+        return analyzed;
+    }
+
+    /**
+     * Sets album gain and peak on all tracks of albums that need it, one
+     * transaction per page of albums.
+     */
+    private int updateAlbumGains(CancellationSignal cancellationSignal) {
+        TrackDao trackDao = database.trackDao();
+        int updated = 0;
+
+        List<Long> albumIds = trackDao.getAlbumIdsWithoutGainAfter(0, ALBUM_PAGE_SIZE);
+        while (!albumIds.isEmpty()) {
+            cancellationSignal.throwIfCanceled();
+
+            Map<Long, AlbumLoudness> albums = new HashMap<>();
+            for (TrackDao.TrackAlbumLoudness row : trackDao.getLoudnessByAlbumIds(albumIds)) {
+                AlbumLoudness album = albums.get(row.albumId);
+                if (album == null) {
+                    album = new AlbumLoudness();
+                    albums.put(row.albumId, album);
+                }
+                album.add(row);
+            }
+
+            database.runInTransaction(() -> {
+                for (Map.Entry<Long, AlbumLoudness> entry : albums.entrySet()) {
+                    AlbumLoudness album = entry.getValue();
+                    trackDao.setAlbumGain(entry.getKey(), gain(album.getLoudness()), album.peak);
+                }
+            });
+            updated += albums.size();
+            albumIds = trackDao.getAlbumIdsWithoutGainAfter(albumIds.get(albumIds.size() - 1), ALBUM_PAGE_SIZE);
+        }
+        return updated;
+    }
+
+    /**
+     * Decodes a whole file through a loudness meter, or returns null if it
+     * cannot be decoded.
+     */
+    private static LoudnessMeter measure(String filePath, CancellationSignal cancellationSignal) {
+        LoudnessMeter meter = new LoudnessMeter();
+        try {
+            PcmDecoder.decode(filePath, meter, cancellationSignal);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot decode " + filePath, e);
+            return null;
+        }
+        return meter;
+    }
+
+    /**
+     * ReplayGain for the given loudness; silent audio gets no gain.
+     */
+    static double gain(double loudness) {
+        return loudness > LoudnessMeter.SILENCE ? REFERENCE_LOUDNESS - loudness : 0;
+    }
+
+    /**
+     * Album loudness as the duration-weighted energy mean of its tracks. This
+     * stays within a fraction of a LU of gating the whole album at once for
+     * typical albums, without keeping block data per track.
+     */
+    private static class AlbumLoudness {
+        private double energy;
+        private double duration;
+        private double peak = LoudnessMeter.SILENCE;
+
+        void add(TrackDao.TrackAlbumLoudness track) {
+            if (track.loudness > LoudnessMeter.SILENCE) {
+                double weight = Math.max(1, track.duration);
+                energy += weight * Math.pow(10, track.loudness / 10);
+                duration += weight;
+            }
+            peak = Math.max(peak, track.truePeak);
+        }
+
+        double getLoudness() {
+            return duration > 0 ? 10 * Math.log10(energy / duration) : LoudnessMeter.SILENCE;
+        }
+    }
+}
@@ -0,0 +1,157 @@
+package com.musicplayer.data.paging;
+
+import androidx.annotation.NonNull;
+import androidx.annotation.Nullable;
+import androidx.paging.Pager;
+import androidx.paging.PagingConfig;
+import androidx.paging.PagingData;
+import androidx.paging.PagingState;
+import androidx.paging.rxjava2.PagingRx;
+import androidx.paging.rxjava2.RxPagingSource;
+import androidx.room.InvalidationTracker;
+
+import com.musicplayer.data.local.AppDatabase;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
+
+import io.reactivex.Flowable;
+import io.reactivex.Single;
+import io.reactivex.schedulers.Schedulers;
+import kotlin.Unit;
+
+/**
+ * Paging source that reads a table in (sort key, id) order by seeking past
+ * the last row of the previous page instead of skipping an offset, so every
+ * page costs the same index lookup however far the list is scrolled.
+ *
+ * The source invalidates itself when one of its tables changes. The new
+ * source resumes a little above the rows last shown and loads backwards from
+ * there as the list is scrolled up, so a write does not send the list back
+ * to the top.
+ */
+public class KeysetPagingSource<S, T> extends RxPagingSource<KeysetPagingSource.Key<S>, T> {
+
+    /**
+     * Loads up to {@code limit} rows after the given sort key and id, in
+     * (sort key, id) order, or, for a query passed as {@code before}, rows
+     * before them in the reverse order.
+     */
+    public interface PageQuery<S, T> {
+        List<T> load(S sortKey, long id, int limit);
+    }
+
+    /**
+     * Position of a row in (sort key, id) order.
+     */
+    public static final class Key<S> {
+        public final S sortKey;
+        public final long id;
+
+        public Key(S sortKey, long id) {
+            this.sortKey = sortKey;
+            this.id = id;
+        }
+    }
+
+    private final InvalidationTracker invalidationTracker;
+    private final Key<S> start;
+    private final PageQuery<S, T> after;
+    private final PageQuery<S, T> before;
+    private final Function<T, Key<S>> keyOf;
+
+    private final InvalidationTracker.Observer observer;
+
+    /**
+     * @param tables tables whose changes invalidate the loaded pages
+     * @param start  key before the first row, e.g. a null sort key and id 0
+     * @param after  rows after a key, ascending
+     * @param before rows before a key, descending
+     */
+    public KeysetPagingSource(AppDatabase database, String[] tables, Key<S> start,
+                              PageQuery<S, T> after, PageQuery<S, T> before, Function<T, Key<S>> keyOf) {
+        this.invalidationTracker = database.getInvalidationTracker();
+        this.start = start;
+        this.after = after;
+        this.before = before;
+        this.keyOf = keyOf;
+        this.observer = new InvalidationTracker.Observer(tables) {
+            @Override
+            public void onInvalidated(@NonNull Set<String> changedTables) {
+                invalidate();
+            }
+        };
+        invalidationTracker.addObserver(observer);
+        registerInvalidatedCallback(() -> {
+            invalidationTracker.removeObserver(observer);
+            return Unit.INSTANCE;
+        });
+    }
+
+    /**
+     * Stream of pages for the UI, each of {@code pageSize} rows.
+     */
+    public static <S, T> Flowable<PagingData<T>> stream(int pageSize, AppDatabase database, String[] tables,
+                                                        Key<S> start, PageQuery<S, T> after,
+                                                        PageQuery<S, T> before, Function<T, Key<S>> keyOf) {
+        // No placeholders: counting the rows would cost the scan paging avoids
+        PagingConfig config = new PagingConfig(pageSize, pageSize, false, pageSize);
+        Pager<Key<S>, T> pager = new Pager<>(config,
+                () -> new KeysetPagingSource<>(database, tables, start, after, before, keyOf));
+        return PagingRx.getFlowable(pager);
+    }
+
+    @NonNull
+    @Override
+    public Single<LoadResult<Key<S>, T>> loadSingle(@NonNull LoadParams<Key<S>> params) {
+        Key<S> key = params.getKey();
+        int limit = params.getLoadSize();
+        return Single.fromCallable(() -> {
+            LoadResult<Key<S>, T> page;
+            if (params instanceof LoadParams.Prepend) {
+                List<T> rows = new ArrayList<>(before.load(key.sortKey, key.id, limit));
+                Collections.reverse(rows);
+                Key<S> prev = rows.size() < limit ? null : keyOf.apply(rows.get(0));
+                Key<S> next = rows.isEmpty() ? null : keyOf.apply(rows.get(rows.size() - 1));
+                page = new LoadResult.Page<>(rows, prev, next);
+            } else {
+                boolean fromTop = key == null;
+                Key<S> from = fromTop ? start : key;
+                List<T> rows = after.load(from.sortKey, from.id, limit);
+                if (rows.isEmpty() && !fromTop && params instanceof LoadParams.Refresh) {
+                    // The rows below the resume point are gone; start over from the top
+                    fromTop = true;
+                    rows = after.load(start.sortKey, start.id, limit);
+                }
+                // Only a page that starts at the top has nothing before it
+                Key<S> prev = fromTop || rows.isEmpty() ? null : keyOf.apply(rows.get(0));
+                Key<S> next = rows.size() < limit ? null : keyOf.apply(rows.get(rows.size() - 1));
+                page = new LoadResult.Page<>(rows, prev, next);
+            }
+            return page;
+        }).subscribeOn(Schedulers.io())
+                .onErrorReturn(LoadResult.Error::new);
+    }
+
+    /**
+     * Resumes after the row half an initial load above the anchor, so the
+     * rows on screen are in the first page loaded; rows above are prepended.
+     */
+    @Nullable
+    @Override
+    public Key<S> getRefreshKey(@NonNull PagingState<Key<S>, T> state) {
+        Integer anchor = state.getAnchorPosition();
+        if (anchor == null) {
+            return null;
+        }
+        int position = anchor - state.getConfig().initialLoadSize / 2 - 1;
+        if (position < 0) {
+            return null;
+        }
+        T row = state.closestItemToPosition(position);
+        return row != null ? keyOf.apply(row) : null;
+    }
+}
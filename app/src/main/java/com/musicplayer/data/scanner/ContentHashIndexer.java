@@ -0,0 +1,67 @@
+package com.musicplayer.data.scanner;
+
+import android.os.CancellationSignal;
+import android.util.Log;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.dao.TrackDao;
+import com.musicplayer.utils.tags.ContentHasher;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Computes content hashes for library tracks that were added before hashes
+ * existed, so their files can be recognised when they are moved later.
+ * Tracks are walked in keyset pages and hashes are stored in one batched
+ * update per page.
+ */
+public class ContentHashIndexer {
+
+    private static final String TAG = "ContentHashIndexer";
+
+    private static final int PAGE_SIZE = 200;
+
+    private final AppDatabase database;
+
+    public ContentHashIndexer(AppDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Hashes every local track without a content hash. Files that cannot be
+     * read are skipped and tried again next time.
+     *
+     * @return number of tracks hashed
+     * @throws android.os.OperationCanceledException if the signal is cancelled;
+     *         pages already stored are kept
+     */
+    public int hashMissing(CancellationSignal cancellationSignal) {
+        TrackDao trackDao = database.trackDao();
+        int hashed = 0;
+
+        List<TrackDao.TrackPathId> page = trackDao.getLocalPathsWithoutHashAfter(0, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            List<TrackDao.TrackContentHash> hashes = new ArrayList<>(page.size());
+            for (TrackDao.TrackPathId row : page) {
+                String contentHash = ContentHasher.hash(new File(row.filePath));
+                if (contentHash != null) {
+                    hashes.add(new TrackDao.TrackContentHash(row.id, contentHash));
+                }
+            }
+            if (!hashes.isEmpty()) {
+                hashed += trackDao.updateContentHashes(hashes);
+            }
+            if (cancellationSignal != null) {
+                cancellationSignal.throwIfCanceled();
+            }
+            page = trackDao.getLocalPathsWithoutHashAfter(page.get(page.size() - 1).id, PAGE_SIZE);
+        }
+
+        if (hashed > 0) {
+            Log.d(TAG, "Hashed " + hashed + " tracks");
+        }
+        return hashed;
+    }
+}
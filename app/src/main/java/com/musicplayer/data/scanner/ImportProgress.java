@@ -0,0 +1,23 @@
+package com.musicplayer.data.scanner;
+
+/**
+ * Progress snapshot of a running file import.
+ */
+public class ImportProgress {
+
+    public final int processed;
+    public final int total;
+
+    public ImportProgress(int processed, int total) {
+        this.processed = processed;
+        this.total = total;
+    }
+
+    public float getFraction() {
+        return total == 0 ? 1f : (float) processed / total;
+    }
+
+    public boolean isComplete() {
+        return processed >= total;
+    }
+}
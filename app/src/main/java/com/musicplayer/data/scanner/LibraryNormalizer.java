@@ -0,0 +1,178 @@
+package com.musicplayer.data.scanner;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.dao.AlbumDao;
+import com.musicplayer.data.local.dao.ArtistDao;
+import com.musicplayer.data.local.entities.Album;
+import com.musicplayer.data.local.entities.Artist;
+import com.musicplayer.data.local.entities.Track;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Links tracks to Artist and Album rows before they are written, creating
+ * the rows that do not exist yet.
+ *
+ * Ids are kept in hash maps for the lifetime of the normalizer, so each
+ * artist and album is looked up at most once per scan. Names not seen before
+ * are resolved with one IN query per chunk and missing rows are inserted in
+ * bulk, keeping the cost proportional to the number of distinct names rather
+ * than the number of tracks. Must be called inside the write transaction so
+ * that concurrent scans cannot create the same album twice.
+ *
+ * Albums are keyed by title and album artist, falling back to the track
+ * artist for files without an album artist tag, so a compilation whose
+ * tracks have different artists stays one album.
+ */
+class LibraryNormalizer {
+
+    // Keeps IN (...) lists under SQLite's bound-variable limit
+    private static final int LOOKUP_CHUNK_SIZE = 900;
+
+    private final AppDatabase database;
+    private final Map<String, Long> artistIds = new HashMap<>();
+    private final Map<String, Long> albumIds = new HashMap<>();
+
+    LibraryNormalizer(AppDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Sets artistId and albumId on every track that has an artist or album name.
+     */
+    void normalize(List<Track> tracks) {
+        resolveArtists(tracks);
+        resolveAlbums(tracks);
+
+        for (Track track : tracks) {
+            Long artistId = track.getArtist() != null ? artistIds.get(track.getArtist()) : null;
+            track.setArtistId(artistId != null ? artistId : 0);
+            Long albumId = track.getAlbum() != null ? albumIds.get(albumKey(track)) : null;
+            track.setAlbumId(albumId != null ? albumId : 0);
+        }
+    }
+
+    private void resolveArtists(List<Track> tracks) {
+        Set<String> unknown = new LinkedHashSet<>();
+        for (Track track : tracks) {
+            if (track.getArtist() != null && !artistIds.containsKey(track.getArtist())) {
+                unknown.add(track.getArtist());
+            }
+        }
+        if (unknown.isEmpty()) {
+            return;
+        }
+
+        ArtistDao artistDao = database.artistDao();
+        lookUpArtists(artistDao, new ArrayList<>(unknown));
+
+        List<Artist> missing = new ArrayList<>();
+        for (String name : unknown) {
+            if (!artistIds.containsKey(name)) {
+                missing.add(new Artist(name));
+            }
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = artistDao.insertAllIgnoringExisting(missing);
+        List<String> existing = new ArrayList<>();
+        for (int i = 0; i < ids.size(); i++) {
+            if (ids.get(i) > 0) {
+                artistIds.put(missing.get(i).getName(), ids.get(i));
+            } else {
+                existing.add(missing.get(i).getName());
+            }
+        }
+        // IGNORE returns -1 for a name that exists already; pick up its id
+        lookUpArtists(artistDao, existing);
+    }
+
+    private void lookUpArtists(ArtistDao artistDao, List<String> names) {
+        for (int start = 0; start < names.size(); start += LOOKUP_CHUNK_SIZE) {
+            List<String> chunk = names.subList(start, Math.min(start + LOOKUP_CHUNK_SIZE, names.size()));
+            for (ArtistDao.ArtistIdName row : artistDao.getIdNamesByNames(chunk)) {
+                artistIds.put(row.name, row.id);
+            }
+        }
+    }
+
+    private void resolveAlbums(List<Track> tracks) {
+        // First track of each unknown album supplies its year and genre
+        Map<String, Track> unknown = new LinkedHashMap<>();
+        Set<String> titles = new LinkedHashSet<>();
+        for (Track track : tracks) {
+            if (track.getAlbum() == null) {
+                continue;
+            }
+            String key = albumKey(track);
+            if (!albumIds.containsKey(key) && !unknown.containsKey(key)) {
+                unknown.put(key, track);
+                titles.add(track.getAlbum());
+            }
+        }
+        if (unknown.isEmpty()) {
+            return;
+        }
+
+        AlbumDao albumDao = database.albumDao();
+        List<String> titleList = new ArrayList<>(titles);
+        for (int start = 0; start < titleList.size(); start += LOOKUP_CHUNK_SIZE) {
+            List<String> chunk = titleList.subList(start, Math.min(start + LOOKUP_CHUNK_SIZE, titleList.size()));
+            for (AlbumDao.AlbumIdKey row : albumDao.getIdKeysByTitles(chunk)) {
+                String key = albumKey(row.title, row.artist);
+                if (!albumIds.containsKey(key)) {
+                    albumIds.put(key, row.id);
+                }
+            }
+        }
+
+        List<Album> missing = new ArrayList<>();
+        List<String> missingKeys = new ArrayList<>();
+        for (Map.Entry<String, Track> entry : unknown.entrySet()) {
+            if (albumIds.containsKey(entry.getKey())) {
+                continue;
+            }
+            Track track = entry.getValue();
+            String artist = albumArtist(track);
+            Album album = new Album(track.getAlbum(), artist);
+            album.setAlbumArtist(track.getAlbumArtist());
+            // An album artist without tracks of their own, such as Various Artists, has no Artist row
+            Long artistId = artist != null ? artistIds.get(artist) : null;
+            album.setArtistId(artistId != null ? artistId : 0);
+            album.setYear(track.getYear());
+            album.setGenre(track.getGenre());
+            missing.add(album);
+            missingKeys.add(entry.getKey());
+        }
+        if (missing.isEmpty()) {
+            return;
+        }
+
+        List<Long> ids = albumDao.insertAll(missing);
+        for (int i = 0; i < ids.size(); i++) {
+            albumIds.put(missingKeys.get(i), ids.get(i));
+        }
+    }
+
+    private static String albumKey(Track track) {
+        return albumKey(track.getAlbum(), albumArtist(track));
+    }
+
+    private static String albumArtist(Track track) {
+        String albumArtist = track.getAlbumArtist();
+        return albumArtist != null && !albumArtist.isEmpty() ? albumArtist : track.getArtist();
+    }
+
+    // Albums are identified by title and artist; NUL cannot occur in either tag
+    private static String albumKey(String title, String artist) {
+        return title + '\u0000' + (artist != null ? artist : "");
+    }
+}
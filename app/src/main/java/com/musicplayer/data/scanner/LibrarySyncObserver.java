@@ -0,0 +1,139 @@
+package com.musicplayer.data.scanner;
+
+import android.content.ContentResolver;
+import android.content.ContentUris;
+import android.content.Context;
+import android.database.ContentObserver;
+import android.net.Uri;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import io.reactivex.Completable;
+import io.reactivex.Observable;
+import io.reactivex.disposables.Disposable;
+import io.reactivex.schedulers.Schedulers;
+import io.reactivex.subjects.PublishSubject;
+import io.reactivex.subjects.Subject;
+
+/**
+ * Keeps the library in sync with MediaStore while the app is running.
+ *
+ * Change notifications are buffered until no new one has arrived for
+ * {@link #DEBOUNCE_MS}, or at most {@link #MAX_DELAY_MS} during a long burst,
+ * and each buffer is applied as one sync. Buffers that name specific rows
+ * re-read just those rows; anything else runs an incremental
+ * {@link MediaStoreScanner#sync()}. Syncs run one at a time.
+ */
+public class LibrarySyncObserver {
+
+    private static final String TAG = "LibrarySyncObserver";
+
+    private static final Uri AUDIO_URI = MediaStore.Audio.Media.EXTERNAL_CONTENT_URI;
+
+    // Quiet period that ends a burst of notifications
+    static final long DEBOUNCE_MS = 2000;
+
+    // Longest a change waits while notifications keep arriving
+    static final long MAX_DELAY_MS = 10000;
+
+    // Above this many changed rows an incremental sync is cheaper than id lookups
+    private static final int MAX_TARGETED_IDS = 2000;
+
+    private final ContentResolver contentResolver;
+    private final MediaStoreScanner scanner;
+    private final Subject<Uri> changes = PublishSubject.<Uri>create().toSerialized();
+
+    private ContentObserver observer;
+    private Disposable subscription;
+
+    public LibrarySyncObserver(Context context, MediaStoreScanner scanner) {
+        this.contentResolver = context.getApplicationContext().getContentResolver();
+        this.scanner = scanner;
+    }
+
+    /**
+     * Starts observing MediaStore. Calling it again while started has no effect.
+     */
+    public synchronized void start() {
+        if (observer != null) {
+            return;
+        }
+
+        Observable<Uri> shared = changes.share();
+        Observable<Uri> boundaries = Observable.merge(
+                shared.debounce(DEBOUNCE_MS, TimeUnit.MILLISECONDS),
+                shared.throttleLast(MAX_DELAY_MS, TimeUnit.MILLISECONDS));
+
+        subscription = shared.buffer(boundaries)
+                .filter(uris -> !uris.isEmpty())
+                .concatMapCompletable(this::applyChanges)
+                .subscribe(() -> { }, error -> Log.e(TAG, "Library sync stopped", error));
+
+        // Notifications arrive on a binder thread and are only queued there
+        observer = new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange) {
+                onChange(selfChange, null);
+            }
+
+            @Override
+            public void onChange(boolean selfChange, Uri uri) {
+                changes.onNext(uri != null ? uri : AUDIO_URI);
+            }
+        };
+        contentResolver.registerContentObserver(AUDIO_URI, true, observer);
+    }
+
+    /**
+     * Stops observing; changes still buffered are dropped.
+     */
+    public synchronized void stop() {
+        if (observer == null) {
+            return;
+        }
+        contentResolver.unregisterContentObserver(observer);
+        observer = null;
+        subscription.dispose();
+        subscription = null;
+    }
+
+    private Completable applyChanges(List<Uri> uris) {
+        return Completable.fromAction(() -> {
+            Set<Long> ids = changedIds(uris);
+            ScanResult result = ids != null ? scanner.syncIds(ids) : scanner.sync();
+            Log.d(TAG, uris.size() + " notifications applied: " + result);
+        })
+                .subscribeOn(Schedulers.io())
+                .doOnError(error -> Log.e(TAG, "Error applying MediaStore changes", error))
+                .onErrorComplete();
+    }
+
+    /**
+     * Returns the MediaStore ids named by the notifications, or null if any
+     * notification was for the whole collection or there are too many ids.
+     */
+    private static Set<Long> changedIds(List<Uri> uris) {
+        Set<Long> ids = new LinkedHashSet<>();
+        for (Uri uri : uris) {
+            long id = parseId(uri);
+            if (id < 0 || ids.size() >= MAX_TARGETED_IDS) {
+                return null;
+            }
+            ids.add(id);
+        }
+        return ids;
+    }
+
+    private static long parseId(Uri uri) {
+        try {
+            return ContentUris.parseId(uri);
+        } catch (NumberFormatException | UnsupportedOperationException e) {
+            return -1;
+        }
+    }
+}
@@ -0,0 +1,106 @@
+package com.musicplayer.data.scanner;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+/**
+ * Persists the MediaStore watermarks used by incremental library sync.
+ * On API 30+ a generation number and volume version are stored per volume;
+ * on older releases a single DATE_ADDED/DATE_MODIFIED watermark in seconds.
+ * Also holds the checkpoint of a resumable scan that has not finished yet.
+ */
+public class LibrarySyncState {
+
+    private static final String PREFS_NAME = "library_sync";
+
+    private static final String KEY_GENERATION_PREFIX = "generation_";
+    private static final String KEY_VERSION_PREFIX = "version_";
+    private static final String KEY_DATE_WATERMARK = "date_watermark";
+
+    private static final String KEY_CHECKPOINT_FULL = "checkpoint_full";
+    private static final String KEY_CHECKPOINT_VOLUME = "checkpoint_volume";
+    private static final String KEY_CHECKPOINT_LAST_ID = "checkpoint_last_id";
+    private static final String KEY_CHECKPOINT_WATERMARK = "checkpoint_watermark";
+
+    public static final long NO_WATERMARK = -1;
+
+    private final SharedPreferences preferences;
+
+    public LibrarySyncState(Context context) {
+        this.preferences = context.getApplicationContext()
+                .getSharedPreferences(PREFS_NAME, Context.MODE_PRIVATE);
+    }
+
+    /**
+     * Returns the last synced generation of a volume, or {@link #NO_WATERMARK} if the
+     * volume was never synced or its MediaStore version changed since.
+     */
+    public long getGeneration(String volumeName, String volumeVersion) {
+        String savedVersion = preferences.getString(KEY_VERSION_PREFIX + volumeName, null);
+        if (savedVersion == null || !savedVersion.equals(volumeVersion)) {
+            return NO_WATERMARK;
+        }
+        return preferences.getLong(KEY_GENERATION_PREFIX + volumeName, NO_WATERMARK);
+    }
+
+    public void setGeneration(String volumeName, String volumeVersion, long generation) {
+        preferences.edit()
+                .putString(KEY_VERSION_PREFIX + volumeName, volumeVersion)
+                .putLong(KEY_GENERATION_PREFIX + volumeName, generation)
+                .apply();
+    }
+
+    /**
+     * Returns the newest DATE_ADDED/DATE_MODIFIED value seen by the last sync, in seconds.
+     */
+    public long getDateWatermark() {
+        return preferences.getLong(KEY_DATE_WATERMARK, NO_WATERMARK);
+    }
+
+    public void setDateWatermark(long seconds) {
+        preferences.edit().putLong(KEY_DATE_WATERMARK, seconds).apply();
+    }
+
+    /**
+     * Returns the checkpoint of an interrupted resumable scan, or null if there is none.
+     */
+    public ScanCheckpoint getCheckpoint() {
+        String volume = preferences.getString(KEY_CHECKPOINT_VOLUME, null);
+        if (volume == null) {
+            return null;
+        }
+        return new ScanCheckpoint(
+                preferences.getBoolean(KEY_CHECKPOINT_FULL, false),
+                volume,
+                preferences.getLong(KEY_CHECKPOINT_LAST_ID, 0),
+                preferences.getLong(KEY_CHECKPOINT_WATERMARK, NO_WATERMARK));
+    }
+
+    /**
+     * Stores a checkpoint synchronously, so it survives the process being killed right after.
+     */
+    public void setCheckpoint(ScanCheckpoint checkpoint) {
+        preferences.edit()
+                .putBoolean(KEY_CHECKPOINT_FULL, checkpoint.full)
+                .putString(KEY_CHECKPOINT_VOLUME, checkpoint.volume)
+                .putLong(KEY_CHECKPOINT_LAST_ID, checkpoint.lastId)
+                .putLong(KEY_CHECKPOINT_WATERMARK, checkpoint.watermark)
+                .commit();
+    }
+
+    public void clearCheckpoint() {
+        preferences.edit()
+                .remove(KEY_CHECKPOINT_FULL)
+                .remove(KEY_CHECKPOINT_VOLUME)
+                .remove(KEY_CHECKPOINT_LAST_ID)
+                .remove(KEY_CHECKPOINT_WATERMARK)
+                .apply();
+    }
+
+    /**
+     * Forgets all watermarks so the next sync is a full pass.
+     */
+    public void clear() {
+        preferences.edit().clear().apply();
+    }
+}
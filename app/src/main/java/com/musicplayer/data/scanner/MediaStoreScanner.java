@@ -0,0 +1,585 @@
+package com.musicplayer.data.scanner;
+
+import android.content.ContentResolver;
+import android.content.Context;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.Build;
+import android.os.CancellationSignal;
+import android.provider.MediaStore;
+import android.util.Log;
+
+import androidx.annotation.RequiresApi;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.dao.MetadataCacheDao;
+import com.musicplayer.data.local.dao.TrackDao;
+import com.musicplayer.data.local.entities.Track;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * Imports the device audio library from MediaStore.
+ * Rows are streamed from the cursor and written in fixed-size batches, so the
+ * whole library is never held in memory as Track objects.
+ *
+ * Incremental syncs only read rows changed since the stored watermark: the
+ * MediaStore generation on API 30+, DATE_ADDED/DATE_MODIFIED before that.
+ * Deleted rows are found by comparing row counts and, only when they differ,
+ * merging the sorted MediaStore and library id lists.
+ *
+ * Rows whose size and modification time match the metadata cache, and whose
+ * library track still has the same MediaStore id, are not written again.
+ */
+public class MediaStoreScanner {
+
+    private static final String TAG = "MediaStoreScanner";
+
+    private static final Uri AUDIO_URI = MediaStore.Audio.Media.EXTERNAL_CONTENT_URI;
+
+    private static final String SELECTION = MediaStore.Audio.Media.IS_MUSIC + " != 0 AND "
+            + MediaStore.Audio.Media.DATA + " IS NOT NULL";
+
+    private static final String SORT_ORDER = MediaStore.Audio.Media._ID + " ASC";
+
+    private static final String UNKNOWN_TAG = MediaStore.UNKNOWN_STRING;
+
+    // Page and batch size used when reconciling deleted rows
+    private static final int ID_PAGE_SIZE = 900;
+
+    // Rows checked against the metadata cache together; also the checkpoint interval
+    private static final int CANDIDATE_BATCH_SIZE = TrackBatchWriter.DEFAULT_BATCH_SIZE;
+
+    // Checkpoint volume name for the DATE_ADDED/DATE_MODIFIED sync before API 30
+    private static final String DATE_SYNC_VOLUME = "external";
+
+    /**
+     * Receives the progress of a resumable scan after each committed batch.
+     */
+    public interface ProgressListener {
+        void onProgress(int processed, int total);
+    }
+
+    private final Context context;
+    private final ContentResolver contentResolver;
+    private final AppDatabase database;
+    private final LibrarySyncState syncState;
+
+    public MediaStoreScanner(Context context) {
+        this(context, AppDatabase.getInstance(context));
+    }
+
+    public MediaStoreScanner(Context context, AppDatabase database) {
+        this.context = context.getApplicationContext();
+        this.contentResolver = this.context.getContentResolver();
+        this.database = database;
+        this.syncState = new LibrarySyncState(this.context);
+    }
+
+    /**
+     * Scans all music in MediaStore, ignoring stored watermarks.
+     */
+    public ScanResult scan() {
+        return sync(true, null);
+    }
+
+    /**
+     * Applies only what was added, changed or deleted in MediaStore since the last sync.
+     * Falls back to a full pass when no watermark exists yet.
+     */
+    public ScanResult sync() {
+        return sync(false, null);
+    }
+
+    /**
+     * Runs a scan that stores a checkpoint after every committed batch and, when
+     * started again after being interrupted, continues from the last checkpoint
+     * of a scan of the same kind instead of starting over.
+     *
+     * @throws android.os.OperationCanceledException if the signal is cancelled; the
+     *         checkpoint is kept so the next call resumes
+     */
+    public ScanResult resumableSync(boolean full, ProgressListener listener,
+                                    CancellationSignal cancellationSignal) {
+        ScanCheckpoint checkpoint = syncState.getCheckpoint();
+        if (checkpoint != null && checkpoint.full != full) {
+            checkpoint = null;
+        }
+        if (checkpoint != null) {
+            Log.d(TAG, "Resuming " + checkpoint);
+        }
+
+        ScanResult result = sync(full, new Run(full, checkpoint, listener, cancellationSignal));
+        syncState.clearCheckpoint();
+        return result;
+    }
+
+    /**
+     * Re-reads only the given MediaStore rows, e.g. those reported by a content
+     * observer. Rows that no longer exist or are no longer music are removed.
+     */
+    public ScanResult syncIds(Collection<Long> mediaStoreIds) {
+        TrackBatchWriter writer = new TrackBatchWriter(database);
+        ScanResult result = new ScanResult();
+        List<Long> ids = new ArrayList<>(mediaStoreIds);
+
+        for (int start = 0; start < ids.size(); start += ID_PAGE_SIZE) {
+            List<Long> page = ids.subList(start, Math.min(start + ID_PAGE_SIZE, ids.size()));
+            StringBuilder selection = new StringBuilder(SELECTION)
+                    .append(" AND ").append(MediaStore.Audio.Media._ID).append(" IN (");
+            String[] selectionArgs = new String[page.size()];
+            for (int i = 0; i < page.size(); i++) {
+                selection.append(i == 0 ? "?" : ",?");
+                selectionArgs[i] = String.valueOf(page.get(i));
+            }
+            selection.append(')');
+
+            Set<Long> seenIds = new HashSet<>();
+            readTracks(AUDIO_URI, selection.toString(), selectionArgs, writer, result, seenIds, null);
+
+            List<Long> removed = new ArrayList<>();
+            for (long id : page) {
+                if (!seenIds.contains(id)) {
+                    removed.add(id);
+                }
+            }
+            if (!removed.isEmpty()) {
+                database.metadataCacheDao().deleteByMediaStoreIds(removed);
+                result.deleted += database.trackDao().deleteByMediaStoreIds(removed);
+            }
+        }
+        writer.flush();
+
+        result.added = writer.getInsertedCount();
+        result.updated = writer.getUpdatedCount();
+        result.moved = writer.getMovedCount();
+        Log.d(TAG, "Synced " + ids.size() + " changed rows: " + result);
+        return result;
+    }
+
+    private ScanResult sync(boolean full, Run run) {
+        TrackBatchWriter writer = new TrackBatchWriter(database);
+        ScanResult result = new ScanResult();
+
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            syncByGeneration(writer, result, full, run);
+        } else {
+            syncByDate(writer, result, full, run);
+        }
+
+        result.added = writer.getInsertedCount();
+        result.updated = writer.getUpdatedCount();
+        result.moved = writer.getMovedCount();
+        result.deleted = removeDeletedTracks();
+
+        Log.d(TAG, (full ? "Full scan: " : "Incremental sync: ") + result);
+        return result;
+    }
+
+    @RequiresApi(Build.VERSION_CODES.R)
+    private void syncByGeneration(TrackBatchWriter writer, ScanResult result, boolean full, Run run) {
+        // Sorted, so a resumed scan can skip the volumes it had already finished
+        Set<String> volumes = new TreeSet<>(MediaStore.getExternalVolumeNames(context));
+        ScanCheckpoint resumeFrom = run != null ? run.resumeFrom : null;
+
+        for (String volume : volumes) {
+            if (resumeFrom != null && volume.compareTo(resumeFrom.volume) < 0) {
+                continue;
+            }
+            String version = MediaStore.getVersion(context, volume);
+            // Read the generation before querying so changes made during the query are seen next time
+            long generation = MediaStore.getGeneration(context, volume);
+            long afterId = 0;
+            if (resumeFrom != null && volume.equals(resumeFrom.volume)) {
+                // Keep the original generation: rows before the checkpoint may have changed since
+                generation = resumeFrom.watermark;
+                afterId = resumeFrom.lastId;
+            }
+            long since = full ? LibrarySyncState.NO_WATERMARK : syncState.getGeneration(volume, version);
+
+            String selection = SELECTION;
+            String[] selectionArgs = null;
+            if (since != LibrarySyncState.NO_WATERMARK) {
+                selection += " AND " + MediaStore.MediaColumns.GENERATION_MODIFIED + " > ?";
+                selectionArgs = new String[] {String.valueOf(since)};
+            }
+
+            if (run != null) {
+                run.begin(volume, afterId, generation);
+            }
+            readTracks(MediaStore.Audio.Media.getContentUri(volume), selection, selectionArgs,
+                    writer, result, null, run);
+            writer.flush();
+            syncState.setGeneration(volume, version, generation);
+        }
+    }
+
+    private void syncByDate(TrackBatchWriter writer, ScanResult result, boolean full, Run run) {
+        long since = full ? LibrarySyncState.NO_WATERMARK : syncState.getDateWatermark();
+        long startedAt = System.currentTimeMillis() / 1000L;
+        long afterId = 0;
+        if (run != null && run.resumeFrom != null) {
+            startedAt = run.resumeFrom.watermark;
+            afterId = run.resumeFrom.lastId;
+        }
+
+        String selection = SELECTION;
+        String[] selectionArgs = null;
+        if (since != LibrarySyncState.NO_WATERMARK) {
+            // Copied files keep their old mtime, so DATE_ADDED is checked as well
+            selection += " AND (" + MediaStore.Audio.Media.DATE_ADDED + " >= ? OR "
+                    + MediaStore.Audio.Media.DATE_MODIFIED + " >= ?)";
+            selectionArgs = new String[] {String.valueOf(since), String.valueOf(since)};
+        }
+
+        if (run != null) {
+            run.begin(DATE_SYNC_VOLUME, afterId, startedAt);
+        }
+        long newest = readTracks(AUDIO_URI, selection, selectionArgs, writer, result, null, run);
+        writer.flush();
+        if (afterId > 0) {
+            // Rows before the checkpoint were not re-read; anything they gained since must be seen next time
+            newest = Math.min(newest, startedAt);
+        }
+        if (newest > since) {
+            syncState.setDateWatermark(newest);
+        }
+    }
+
+    /**
+     * Streams matching rows into the writer, leaving out unchanged ones.
+     * The MediaStore ids of all rows read are added to {@code seenIds} if it is not null.
+     * With a resumable run, only rows after its checkpoint are read and the
+     * checkpoint advances after every committed batch.
+     *
+     * @return newest DATE_ADDED/DATE_MODIFIED seen, in seconds
+     */
+    private long readTracks(Uri uri, String selection, String[] selectionArgs,
+                            TrackBatchWriter writer, ScanResult result, Set<Long> seenIds, Run run) {
+        long newest = LibrarySyncState.NO_WATERMARK;
+        List<Track> candidates = new ArrayList<>(CANDIDATE_BATCH_SIZE);
+
+        if (run != null && run.afterId > 0) {
+            selection += " AND " + MediaStore.Audio.Media._ID + " > ?";
+            selectionArgs = append(selectionArgs, String.valueOf(run.afterId));
+        }
+
+        try (Cursor cursor = contentResolver.query(uri, buildProjection(),
+                selection, selectionArgs, SORT_ORDER)) {
+            if (cursor == null) {
+                Log.w(TAG, "MediaStore query returned no cursor for " + uri);
+                return newest;
+            }
+            if (run != null) {
+                run.addTotal(cursor.getCount());
+            }
+
+            Columns columns = new Columns(cursor);
+            long lastId = 0;
+            int rows = 0;
+            while (cursor.moveToNext()) {
+                lastId = cursor.getLong(columns.id);
+                rows++;
+                newest = Math.max(newest, Math.max(cursor.getLong(columns.dateAdded),
+                        cursor.getLong(columns.dateModified)));
+                if (seenIds != null) {
+                    seenIds.add(lastId);
+                }
+                Track track = readTrack(cursor, columns);
+                if (track != null) {
+                    candidates.add(track);
+                }
+                if (rows == CANDIDATE_BATCH_SIZE) {
+                    result.unchanged += writeChanged(candidates, writer);
+                    candidates.clear();
+                    if (run != null) {
+                        writer.flush();
+                        run.commit(lastId, rows);
+                    }
+                    rows = 0;
+                }
+            }
+            result.unchanged += writeChanged(candidates, writer);
+            if (run != null) {
+                writer.flush();
+                run.commit(lastId, rows);
+            }
+        }
+        return newest;
+    }
+
+    private static String[] append(String[] args, String arg) {
+        if (args == null) {
+            return new String[] {arg};
+        }
+        String[] result = new String[args.length + 1];
+        System.arraycopy(args, 0, result, 0, args.length);
+        result[args.length] = arg;
+        return result;
+    }
+
+    /**
+     * Passes tracks that differ from their cache entry to the writer.
+     *
+     * @return number of unchanged tracks left out
+     */
+    private int writeChanged(List<Track> tracks, TrackBatchWriter writer) {
+        if (tracks.isEmpty()) {
+            return 0;
+        }
+
+        List<String> filePaths = new ArrayList<>(tracks.size());
+        for (Track track : tracks) {
+            filePaths.add(track.getFilePath());
+        }
+        Map<String, MetadataCacheDao.CachedMetadata> cached = new HashMap<>();
+        for (MetadataCacheDao.CachedMetadata item : database.metadataCacheDao().getByPaths(filePaths)) {
+            cached.put(item.entry.getFilePath(), item);
+        }
+
+        int unchanged = 0;
+        for (Track track : tracks) {
+            MetadataCacheDao.CachedMetadata item = cached.get(track.getFilePath());
+            // A changed MediaStore id must still be written, or the deletion pass would drop the track
+            if (item != null && item.isInLibrary()
+                    && item.libraryMediaStoreId == track.getMediaStoreId()
+                    && item.entry.matches(track.getFileSize(), track.getDateModified().getTime())) {
+                unchanged++;
+            } else {
+                writer.add(track);
+            }
+        }
+        return unchanged;
+    }
+
+    /**
+     * Deletes library tracks whose MediaStore row no longer exists, with their
+     * metadata cache entries.
+     * Costs a single count query unless the library and MediaStore disagree.
+     */
+    private int removeDeletedTracks() {
+        TrackDao trackDao = database.trackDao();
+        MetadataCacheDao cacheDao = database.metadataCacheDao();
+        int deleted = 0;
+
+        try (Cursor cursor = contentResolver.query(AUDIO_URI,
+                new String[] {MediaStore.Audio.Media._ID}, SELECTION, null, SORT_ORDER)) {
+            if (cursor == null || cursor.getCount() == trackDao.getMediaStoreTrackCount()) {
+                return 0;
+            }
+
+            List<Long> stale = new ArrayList<>();
+            long mediaStoreId = cursor.moveToNext() ? cursor.getLong(0) : Long.MAX_VALUE;
+            List<Long> page = trackDao.getMediaStoreIdsAfter(0, ID_PAGE_SIZE);
+
+            while (!page.isEmpty()) {
+                for (long libraryId : page) {
+                    while (mediaStoreId < libraryId) {
+                        mediaStoreId = cursor.moveToNext() ? cursor.getLong(0) : Long.MAX_VALUE;
+                    }
+                    if (mediaStoreId != libraryId) {
+                        stale.add(libraryId);
+                    }
+                }
+
+                if (stale.size() >= ID_PAGE_SIZE) {
+                    cacheDao.deleteByMediaStoreIds(stale);
+                    deleted += trackDao.deleteByMediaStoreIds(stale);
+                    stale.clear();
+                }
+                page = trackDao.getMediaStoreIdsAfter(page.get(page.size() - 1), ID_PAGE_SIZE);
+            }
+
+            if (!stale.isEmpty()) {
+                cacheDao.deleteByMediaStoreIds(stale);
+                deleted += trackDao.deleteByMediaStoreIds(stale);
+            }
+        }
+        return deleted;
+    }
+
+    private static String[] buildProjection() {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.R) {
+            return new String[] {
+                    MediaStore.Audio.Media._ID,
+                    MediaStore.Audio.Media.DATA,
+                    MediaStore.Audio.Media.TITLE,
+                    MediaStore.Audio.Media.ARTIST,
+                    MediaStore.Audio.Media.ALBUM,
+                    MediaStore.Audio.Media.DURATION,
+                    MediaStore.Audio.Media.TRACK,
+                    MediaStore.Audio.Media.YEAR,
+                    MediaStore.Audio.Media.COMPOSER,
+                    MediaStore.Audio.Media.MIME_TYPE,
+                    MediaStore.Audio.Media.SIZE,
+                    MediaStore.Audio.Media.DATE_ADDED,
+                    MediaStore.Audio.Media.DATE_MODIFIED,
+                    MediaStore.Audio.Media.GENRE,
+                    MediaStore.Audio.Media.ALBUM_ARTIST
+            };
+        }
+        return new String[] {
+                MediaStore.Audio.Media._ID,
+                MediaStore.Audio.Media.DATA,
+                MediaStore.Audio.Media.TITLE,
+                MediaStore.Audio.Media.ARTIST,
+                MediaStore.Audio.Media.ALBUM,
+                MediaStore.Audio.Media.DURATION,
+                MediaStore.Audio.Media.TRACK,
+                MediaStore.Audio.Media.YEAR,
+                MediaStore.Audio.Media.COMPOSER,
+                MediaStore.Audio.Media.MIME_TYPE,
+                MediaStore.Audio.Media.SIZE,
+                MediaStore.Audio.Media.DATE_ADDED,
+                MediaStore.Audio.Media.DATE_MODIFIED
+        };
+    }
+
+    /**
+     * Maps the current cursor row to a Track, or returns null for rows without a file path.
+     */
+    private static Track readTrack(Cursor cursor, Columns columns) {
+        String filePath = cursor.getString(columns.data);
+        if (filePath == null || filePath.isEmpty()) {
+            return null;
+        }
+
+        Track track = new Track();
+        track.setMediaStoreId(cursor.getLong(columns.id));
+        track.setFilePath(filePath);
+        track.setTitle(textOrDefault(cursor.getString(columns.title), fileName(filePath)));
+        track.setArtist(textOrDefault(cursor.getString(columns.artist), "Unknown Artist"));
+        track.setAlbum(textOrDefault(cursor.getString(columns.album), "Unknown Album"));
+        track.setDuration(cursor.getLong(columns.duration));
+        // MediaStore encodes the disc number in the thousands: 2005 is disc 2, track 5
+        track.setTrackNumber(cursor.getInt(columns.track) % 1000);
+        track.setYear(cursor.getInt(columns.year));
+        track.setComposer(textOrDefault(cursor.getString(columns.composer), ""));
+        track.setMimeType(cursor.getString(columns.mimeType));
+        track.setFileSize(cursor.getLong(columns.size));
+        track.setDateAdded(new Date(cursor.getLong(columns.dateAdded) * 1000L));
+        // DATE_MODIFIED doubles as the per-row version of the file
+        track.setDateModified(new Date(cursor.getLong(columns.dateModified) * 1000L));
+        track.setGenre(columns.genre >= 0 ? textOrDefault(cursor.getString(columns.genre), "") : "");
+        track.setAlbumArtist(columns.albumArtist >= 0
+                ? textOrDefault(cursor.getString(columns.albumArtist), null)
+                : null);
+        track.setLocal(true);
+        return track;
+    }
+
+    private static String textOrDefault(String value, String defaultValue) {
+        if (value == null || value.isEmpty() || UNKNOWN_TAG.equals(value)) {
+            return defaultValue;
+        }
+        return value;
+    }
+
+    private static String fileName(String filePath) {
+        int slash = filePath.lastIndexOf('/');
+        return slash >= 0 ? filePath.substring(slash + 1) : filePath;
+    }
+
+    /**
+     * State of a resumable scan: where it resumes, and where to store checkpoints.
+     */
+    private final class Run {
+        final boolean full;
+        final ScanCheckpoint resumeFrom;
+        final ProgressListener listener;
+        final CancellationSignal cancellationSignal;
+
+        String volume;
+        long afterId;
+        long watermark;
+        int processed;
+        int total;
+
+        Run(boolean full, ScanCheckpoint resumeFrom, ProgressListener listener,
+            CancellationSignal cancellationSignal) {
+            this.full = full;
+            this.resumeFrom = resumeFrom;
+            this.listener = listener;
+            this.cancellationSignal = cancellationSignal;
+        }
+
+        void begin(String volume, long afterId, long watermark) {
+            this.volume = volume;
+            this.afterId = afterId;
+            this.watermark = watermark;
+            syncState.setCheckpoint(new ScanCheckpoint(full, volume, afterId, watermark));
+        }
+
+        void addTotal(int rows) {
+            total += rows;
+        }
+
+        /**
+         * Records that all rows up to {@code lastId} are written, then stops if cancelled.
+         */
+        void commit(long lastId, int rows) {
+            if (rows > 0) {
+                afterId = lastId;
+                processed += rows;
+                syncState.setCheckpoint(new ScanCheckpoint(full, volume, afterId, watermark));
+                if (listener != null) {
+                    listener.onProgress(processed, total);
+                }
+            }
+            if (cancellationSignal != null) {
+                cancellationSignal.throwIfCanceled();
+            }
+        }
+    }
+
+    /**
+     * Column indices resolved once per cursor instead of once per row.
+     */
+    private static final class Columns {
+        final int id;
+        final int data;
+        final int title;
+        final int artist;
+        final int album;
+        final int duration;
+        final int track;
+        final int year;
+        final int composer;
+        final int mimeType;
+        final int size;
+        final int dateAdded;
+        final int dateModified;
+        final int genre;
+        final int albumArtist;
+
+        Columns(Cursor cursor) {
+            id = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media._ID);
+            data = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATA);
+            title = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.TITLE);
+            artist = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ARTIST);
+            album = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.ALBUM);
+            duration = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DURATION);
+            track = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.TRACK);
+            year = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.YEAR);
+            composer = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.COMPOSER);
+            mimeType = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.MIME_TYPE);
+            size = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.SIZE);
+            dateAdded = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATE_ADDED);
+            dateModified = cursor.getColumnIndexOrThrow(MediaStore.Audio.Media.DATE_MODIFIED);
+            genre = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                    ? cursor.getColumnIndex(MediaStore.Audio.Media.GENRE)
+                    : -1;
+            albumArtist = Build.VERSION.SDK_INT >= Build.VERSION_CODES.R
+                    ? cursor.getColumnIndex(MediaStore.Audio.Media.ALBUM_ARTIST)
+                    : -1;
+        }
+    }
+}
@@ -0,0 +1,146 @@
+package com.musicplayer.data.scanner;
+
+import android.os.CancellationSignal;
+import android.util.Log;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.dao.TrackDao;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Removes local tracks whose file no longer exists or cannot be read, along
+ * with their metadata cache entries.
+ * The library is walked in keyset pages of (id, path) only, the files of a
+ * page are checked on a small thread pool, and missing tracks are deleted in
+ * bounded id batches, each in its own short transaction.
+ */
+public class MissingTrackCleaner {
+
+    private static final String TAG = "MissingTrackCleaner";
+
+    // Rows per page and per delete; stays under SQLite's bound-variable limit
+    private static final int PAGE_SIZE = 900;
+
+    // File checks are I/O bound, so this does not follow the CPU count
+    private static final int DEFAULT_CHECK_THREADS = 4;
+
+    private final AppDatabase database;
+    private final int checkThreads;
+
+    public MissingTrackCleaner(AppDatabase database) {
+        this(database, DEFAULT_CHECK_THREADS);
+    }
+
+    public MissingTrackCleaner(AppDatabase database, int checkThreads) {
+        this.database = database;
+        this.checkThreads = Math.max(1, checkThreads);
+    }
+
+    /**
+     * Deletes tracks whose file is missing.
+     *
+     * @return number of tracks removed
+     */
+    public int removeMissingTracks() throws InterruptedException {
+        return removeMissingTracks(null);
+    }
+
+    /**
+     * Deletes tracks whose file is missing, checking the signal between pages.
+     * Missing tracks found before cancellation are still deleted.
+     *
+     * @return number of tracks removed
+     * @throws android.os.OperationCanceledException if the signal is cancelled
+     */
+    public int removeMissingTracks(CancellationSignal cancellationSignal) throws InterruptedException {
+        TrackDao trackDao = database.trackDao();
+        ExecutorService pool = Executors.newFixedThreadPool(checkThreads);
+        int checked = 0;
+        int removed = 0;
+
+        try {
+            List<Long> missing = new ArrayList<>();
+            List<TrackDao.TrackPathId> page = trackDao.getLocalPathsAfter(0, PAGE_SIZE);
+
+            while (!page.isEmpty()) {
+                if (cancellationSignal != null && cancellationSignal.isCanceled()) {
+                    break;
+                }
+                missing.addAll(findMissing(page, pool));
+                checked += page.size();
+
+                if (missing.size() >= PAGE_SIZE) {
+                    removed += deleteBatch(missing.subList(0, PAGE_SIZE));
+                }
+                // Deleting rows behind the keyset cursor does not shift later pages
+                page = trackDao.getLocalPathsAfter(page.get(page.size() - 1).id, PAGE_SIZE);
+            }
+
+            while (!missing.isEmpty()) {
+                removed += deleteBatch(missing.subList(0, Math.min(PAGE_SIZE, missing.size())));
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+
+        if (cancellationSignal != null) {
+            cancellationSignal.throwIfCanceled();
+        }
+
+        Log.d(TAG, "Checked " + checked + " files, removed " + removed + " missing tracks");
+        return removed;
+    }
+
+    /**
+     * Checks a page of files, split into one slice per thread.
+     */
+    private List<Long> findMissing(List<TrackDao.TrackPathId> page, ExecutorService pool)
+            throws InterruptedException {
+        int sliceSize = (page.size() + checkThreads - 1) / checkThreads;
+        List<Callable<List<Long>>> tasks = new ArrayList<>(checkThreads);
+        for (int start = 0; start < page.size(); start += sliceSize) {
+            List<TrackDao.TrackPathId> slice = page.subList(start, Math.min(start + sliceSize, page.size()));
+            tasks.add(() -> {
+                List<Long> missing = new ArrayList<>();
+                for (TrackDao.TrackPathId row : slice) {
+                    File file = new File(row.filePath);
+                    if (!file.exists() || !file.canRead()) {
+                        missing.add(row.id);
+                    }
+                }
+                return missing;
+            });
+        }
+
+        List<Long> missing = new ArrayList<>();
+        for (Future<List<Long>> future : pool.invokeAll(tasks)) {
+            try {
+                missing.addAll(future.get());
+            } catch (ExecutionException e) {
+                // A slice that could not be checked is kept rather than deleted
+                Log.w(TAG, "Error checking files", e.getCause());
+            }
+        }
+        return missing;
+    }
+
+    /**
+     * Deletes the tracks and their metadata cache entries, and then drops the
+     * given ids from the list they are a view of.
+     */
+    private int deleteBatch(List<Long> batch) {
+        List<Long> trackIds = new ArrayList<>(batch);
+        database.metadataCacheDao().deleteByTrackIds(trackIds);
+        int deleted = database.trackDao().deleteByIds(trackIds);
+        batch.clear();
+        return deleted;
+    }
+}
@@ -0,0 +1,120 @@
+package com.musicplayer.data.scanner;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.dao.TrackDao;
+import com.musicplayer.data.local.entities.Track;
+import com.musicplayer.utils.tags.ContentHasher;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Recognises tracks whose file was moved or renamed.
+ *
+ * A track at a path the library does not know yet is matched by content hash
+ * against library tracks whose file no longer exists. The old row is then
+ * pointed at the new path, so the following upsert refreshes it in place and
+ * play counts, ratings, favorites and playlist entries stay with it.
+ */
+class MoveDetector {
+
+    private final AppDatabase database;
+
+    MoveDetector(AppDatabase database) {
+        this.database = database;
+    }
+
+    /**
+     * Computes the content hash of tracks that are new to the library and do
+     * not carry one yet. Reads files, so it is called outside transactions.
+     */
+    void hashNewTracks(List<Track> tracks) {
+        Set<String> known = knownPaths(tracks);
+        for (Track track : tracks) {
+            if (track.getContentHash() == null && !known.contains(track.getFilePath())) {
+                track.setContentHash(ContentHasher.hash(new File(track.getFilePath())));
+            }
+        }
+    }
+
+    /**
+     * Moves the library rows of relocated files to their new path.
+     * Must run in the write transaction, before the tracks are upserted.
+     *
+     * @return number of tracks moved
+     */
+    int applyMoves(List<Track> tracks) {
+        Set<String> known = knownPaths(tracks);
+        Set<String> incomingPaths = new HashSet<>();
+        List<Track> newTracks = new ArrayList<>();
+        List<String> hashes = new ArrayList<>();
+        for (Track track : tracks) {
+            incomingPaths.add(track.getFilePath());
+            if (track.getContentHash() != null && !known.contains(track.getFilePath())) {
+                newTracks.add(track);
+                hashes.add(track.getContentHash());
+            }
+        }
+        if (newTracks.isEmpty()) {
+            return 0;
+        }
+
+        TrackDao trackDao = database.trackDao();
+        Map<String, List<TrackDao.TrackPathHash>> candidates = new HashMap<>();
+        for (int start = 0; start < hashes.size(); start += TrackDao.LOOKUP_CHUNK_SIZE) {
+            List<String> chunk = hashes.subList(start, Math.min(start + TrackDao.LOOKUP_CHUNK_SIZE, hashes.size()));
+            for (TrackDao.TrackPathHash row : trackDao.getPathsByContentHashes(chunk)) {
+                List<TrackDao.TrackPathHash> rows = candidates.get(row.contentHash);
+                if (rows == null) {
+                    rows = new ArrayList<>(1);
+                    candidates.put(row.contentHash, rows);
+                }
+                rows.add(row);
+            }
+        }
+
+        List<TrackDao.TrackFilePath> moves = new ArrayList<>();
+        Set<Long> movedIds = new HashSet<>();
+        for (Track track : newTracks) {
+            List<TrackDao.TrackPathHash> rows = candidates.get(track.getContentHash());
+            if (rows == null) {
+                continue;
+            }
+            for (TrackDao.TrackPathHash row : rows) {
+                // A copy is a new track: only rows whose file is gone have moved
+                if (!movedIds.contains(row.id) && !incomingPaths.contains(row.filePath)
+                        && !new File(row.filePath).exists()) {
+                    movedIds.add(row.id);
+                    moves.add(new TrackDao.TrackFilePath(row.id, track.getFilePath()));
+                    break;
+                }
+            }
+        }
+
+        if (!moves.isEmpty()) {
+            trackDao.updateFilePaths(moves);
+        }
+        return moves.size();
+    }
+
+    private Set<String> knownPaths(List<Track> tracks) {
+        TrackDao trackDao = database.trackDao();
+        Set<String> known = new HashSet<>();
+        List<String> filePaths = new ArrayList<>(Math.min(tracks.size(), TrackDao.LOOKUP_CHUNK_SIZE));
+        for (int i = 0; i < tracks.size(); i++) {
+            filePaths.add(tracks.get(i).getFilePath());
+            if (filePaths.size() == TrackDao.LOOKUP_CHUNK_SIZE || i == tracks.size() - 1) {
+                for (TrackDao.TrackPathId row : trackDao.getIdsAndPathsByFilePaths(filePaths)) {
+                    known.add(row.filePath);
+                }
+                filePaths.clear();
+            }
+        }
+        return known;
+    }
+}
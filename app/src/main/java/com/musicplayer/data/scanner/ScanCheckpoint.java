@@ -0,0 +1,26 @@
+package com.musicplayer.data.scanner;
+
+/**
+ * Where a resumable scan stopped: the volume being read, the MediaStore id of
+ * the last row whose batch was committed, and the watermark captured when the
+ * pass over that volume began (a generation on API 30+, seconds before that).
+ */
+public class ScanCheckpoint {
+
+    public final boolean full;
+    public final String volume;
+    public final long lastId;
+    public final long watermark;
+
+    public ScanCheckpoint(boolean full, String volume, long lastId, long watermark) {
+        this.full = full;
+        this.volume = volume;
+        this.lastId = lastId;
+        this.watermark = watermark;
+    }
+
+    @Override
+    public String toString() {
+        return (full ? "full" : "incremental") + " scan of " + volume + " after id " + lastId;
+    }
+}
@@ -0,0 +1,31 @@
+package com.musicplayer.data.scanner;
+
+/**
+ * Summary of the changes applied to the library by a scan.
+ */
+public class ScanResult {
+
+    public int added;
+    public int updated;
+    public int deleted;
+
+    // Tracks among the updated ones whose file was moved or renamed
+    public int moved;
+
+    // Files skipped because the metadata cache showed them unchanged; not a change
+    public int unchanged;
+
+    public int getTotalChanges() {
+        return added + updated + deleted;
+    }
+
+    public boolean hasChanges() {
+        return getTotalChanges() > 0;
+    }
+
+    @Override
+    public String toString() {
+        return "added=" + added + ", updated=" + updated + ", deleted=" + deleted + ", moved=" + moved
+                + ", unchanged=" + unchanged;
+    }
+}
@@ -0,0 +1,109 @@
+package com.musicplayer.data.scanner;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.entities.MetadataCacheEntry;
+import com.musicplayer.data.local.entities.Track;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Buffers tracks produced by a scan or import and writes them to the database
+ * in fixed-size transactions, so memory use is bounded by the batch size
+ * rather than by the size of the library.
+ * Tracks whose file is already in the library have their tag columns
+ * refreshed; play counts, ratings and other user data are left alone.
+ * Every written track also refreshes its metadata cache entry, so the next
+ * scan or import can skip the file while it stays unchanged; only entries
+ * for tags read from the file are later served in place of reading it.
+ * Tracks are linked to their Artist and Album rows, which are created as needed.
+ * A new path whose content hash matches a track with a missing file is
+ * treated as a move of that track rather than as a new one.
+ */
+public class TrackBatchWriter {
+
+    public static final int DEFAULT_BATCH_SIZE = 500;
+
+    private final AppDatabase database;
+    private final int batchSize;
+    private final List<Track> pending;
+    private final LibraryNormalizer normalizer;
+    private final MoveDetector moveDetector;
+
+    private int insertedCount;
+    private int updatedCount;
+    private int movedCount;
+
+    public TrackBatchWriter(AppDatabase database) {
+        this(database, DEFAULT_BATCH_SIZE);
+    }
+
+    public TrackBatchWriter(AppDatabase database, int batchSize) {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("batchSize must be positive: " + batchSize);
+        }
+        this.database = database;
+        this.batchSize = batchSize;
+        this.pending = new ArrayList<>(batchSize);
+        this.normalizer = new LibraryNormalizer(database);
+        this.moveDetector = new MoveDetector(database);
+    }
+
+    /**
+     * Queues a track, writing the current batch once it is full.
+     */
+    public void add(Track track) {
+        pending.add(track);
+        if (pending.size() >= batchSize) {
+            flush();
+        }
+    }
+
+    /**
+     * Writes all queued tracks in a single transaction.
+     */
+    public void flush() {
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        // File reads stay outside the transaction
+        moveDetector.hashNewTracks(pending);
+
+        database.runInTransaction(() -> {
+            movedCount += moveDetector.applyMoves(pending);
+            normalizer.normalize(pending);
+            int inserted = database.trackDao().upsertAll(pending);
+            insertedCount += inserted;
+            updatedCount += pending.size() - inserted;
+
+            List<MetadataCacheEntry> entries = new ArrayList<>(pending.size());
+            for (Track track : pending) {
+                entries.add(new MetadataCacheEntry(track));
+            }
+            database.metadataCacheDao().insertAll(entries);
+        });
+        pending.clear();
+    }
+
+    /**
+     * Number of new rows written so far.
+     */
+    public int getInsertedCount() {
+        return insertedCount;
+    }
+
+    /**
+     * Number of existing rows whose metadata was refreshed so far.
+     */
+    public int getUpdatedCount() {
+        return updatedCount;
+    }
+
+    /**
+     * Number of the updated rows that were moved to a new file path.
+     */
+    public int getMovedCount() {
+        return movedCount;
+    }
+}
@@ -0,0 +1,249 @@
+package com.musicplayer.data.scanner;
+
+import android.media.MediaMetadataRetriever;
+import android.os.CancellationSignal;
+import android.util.Log;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.dao.MetadataCacheDao;
+import com.musicplayer.data.local.entities.Track;
+import com.musicplayer.utils.MetadataExtractor;
+import com.musicplayer.utils.tags.ContentHasher;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Imports audio files with a bounded pool of extraction workers.
+ * Each worker owns one MediaMetadataRetriever for its whole lifetime and hands
+ * results to the calling thread, which is the only one writing to the database
+ * and does so through a {@link TrackBatchWriter}.
+ *
+ * Workers claim files in small chunks and look the whole chunk up in the
+ * metadata cache first. Files whose size and modification time still match
+ * are not opened at all: library tracks are skipped outright and tracks no
+ * longer in the library are rebuilt from the cached tags.
+ */
+public class TrackImporter {
+
+    private static final String TAG = "TrackImporter";
+
+    /**
+     * Receives progress updates on the writer thread.
+     */
+    public interface ProgressListener {
+        void onProgress(ImportProgress progress);
+    }
+
+    // Extracted tracks waiting for the writer; a full queue makes workers wait
+    private static final int QUEUE_CAPACITY = 2 * TrackBatchWriter.DEFAULT_BATCH_SIZE;
+
+    // Progress is reported every this many files, plus once at the end
+    private static final int PROGRESS_INTERVAL = 50;
+
+    // Files claimed by a worker at a time and looked up in the cache with one query
+    private static final int CHUNK_SIZE = 64;
+
+    // Queue markers; compared by identity
+    private static final Track SKIPPED = new Track();
+    private static final Track UNCHANGED = new Track();
+    private static final Track WORKER_DONE = new Track();
+
+    private final AppDatabase database;
+    private final MetadataExtractor metadataExtractor;
+    private final int workerCount;
+
+    public TrackImporter(AppDatabase database, MetadataExtractor metadataExtractor) {
+        this(database, metadataExtractor, Runtime.getRuntime().availableProcessors());
+    }
+
+    public TrackImporter(AppDatabase database, MetadataExtractor metadataExtractor, int workerCount) {
+        this.database = database;
+        this.metadataExtractor = metadataExtractor;
+        this.workerCount = Math.max(1, workerCount);
+    }
+
+    /**
+     * Extracts and writes the given files, blocking until all are processed, the
+     * signal is cancelled or the thread is interrupted. Tracks extracted before
+     * that are still written; an interrupt is passed on through the thread's
+     * interrupt status rather than thrown.
+     */
+    public ScanResult importFiles(List<String> filePaths, ProgressListener listener,
+                                  CancellationSignal cancellationSignal) {
+        int total = filePaths.size();
+        ScanResult result = new ScanResult();
+        if (total == 0) {
+            return result;
+        }
+
+        int workers = Math.min(workerCount, total);
+        BlockingQueue<Track> results = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+        AtomicInteger nextIndex = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(workers);
+
+        try {
+            for (int i = 0; i < workers; i++) {
+                pool.execute(() -> extractWorker(filePaths, nextIndex, results, cancellationSignal));
+            }
+
+            TrackBatchWriter writer = new TrackBatchWriter(database);
+            int processed = 0;
+            int unchanged = 0;
+            int finishedWorkers = 0;
+            boolean interrupted = false;
+
+            while (finishedWorkers < workers) {
+                Track track;
+                try {
+                    track = results.take();
+                } catch (InterruptedException e) {
+                    // Disposed by the caller; tracks already extracted are still written below
+                    interrupted = true;
+                    List<Track> queued = new ArrayList<>();
+                    results.drainTo(queued);
+                    for (Track queuedTrack : queued) {
+                        if (queuedTrack != WORKER_DONE && queuedTrack != UNCHANGED && queuedTrack != SKIPPED) {
+                            writer.add(queuedTrack);
+                        }
+                    }
+                    break;
+                }
+                if (track == WORKER_DONE) {
+                    finishedWorkers++;
+                    continue;
+                }
+
+                if (track == UNCHANGED) {
+                    unchanged++;
+                } else if (track != SKIPPED) {
+                    writer.add(track);
+                }
+                processed++;
+                if (listener != null && processed % PROGRESS_INTERVAL == 0) {
+                    listener.onProgress(new ImportProgress(processed, total));
+                }
+            }
+
+            writer.flush();
+            if (listener != null) {
+                listener.onProgress(new ImportProgress(processed, total));
+            }
+
+            result.added = writer.getInsertedCount();
+            result.updated = writer.getUpdatedCount();
+            result.moved = writer.getMovedCount();
+            result.unchanged = unchanged;
+            if (interrupted) {
+                Thread.currentThread().interrupt();
+            }
+        } finally {
+            // Stops workers still blocked on a full queue if the writer failed
+            pool.shutdownNow();
+        }
+
+        Log.d(TAG, "Imported " + total + " files with " + workers + " workers: " + result);
+        return result;
+    }
+
+    private void extractWorker(List<String> filePaths, AtomicInteger nextIndex,
+                               BlockingQueue<Track> results, CancellationSignal cancellationSignal) {
+        MetadataCacheDao cacheDao = database.metadataCacheDao();
+        MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            int start;
+            while ((start = nextIndex.getAndAdd(CHUNK_SIZE)) < filePaths.size()) {
+                List<String> chunk = filePaths.subList(start, Math.min(start + CHUNK_SIZE, filePaths.size()));
+                Map<String, MetadataCacheDao.CachedMetadata> cached = new HashMap<>();
+                for (MetadataCacheDao.CachedMetadata item : cacheDao.getByPaths(chunk)) {
+                    cached.put(item.entry.getFilePath(), item);
+                }
+
+                for (String filePath : chunk) {
+                    if (cancellationSignal != null && cancellationSignal.isCanceled()) {
+                        return;
+                    }
+
+                    Track track = null;
+                    try {
+                        track = importFile(filePath, cached.get(filePath), retriever);
+                    } catch (Exception e) {
+                        Log.e(TAG, "Error importing " + filePath, e);
+                    }
+                    results.put(track != null ? track : SKIPPED);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            try {
+                retriever.release();
+            } catch (Exception e) {
+                Log.w(TAG, "Error releasing MediaMetadataRetriever", e);
+            }
+            signalDone(results);
+        }
+    }
+
+    /**
+     * Returns the track to write for a file, {@link #UNCHANGED} if the library
+     * already has its current tags, or null if it cannot be read.
+     */
+    private Track importFile(String filePath, MetadataCacheDao.CachedMetadata cached,
+                             MediaMetadataRetriever retriever) {
+        File file = new File(filePath);
+        // Entries from a MediaStore scan only hold MediaStore's tags, so the file is read
+        if (cached != null && cached.entry.isFromFile()) {
+            if (cached.entry.matches(file.length(), file.lastModified())) {
+                return cached.isInLibrary() ? UNCHANGED : cached.entry.toTrack();
+            }
+            return metadataExtractor.extractMetadata(filePath, retriever);
+        }
+
+        // A path never seen before may be a moved library file; its tags are already known
+        String contentHash = ContentHasher.hash(file);
+        Track moved = contentHash != null ? findMovedTrack(file, contentHash) : null;
+        if (moved != null) {
+            return moved;
+        }
+        Track track = metadataExtractor.extractMetadata(filePath, retriever);
+        if (track != null) {
+            track.setContentHash(contentHash);
+        }
+        return track;
+    }
+
+    /**
+     * Returns a copy of the library track with the same content whose file is
+     * gone, placed at the new path, or null if there is none.
+     */
+    private Track findMovedTrack(File file, String contentHash) {
+        for (Track track : database.trackDao().getByContentHash(contentHash)) {
+            if (!new File(track.getFilePath()).exists()) {
+                track.setFilePath(file.getPath());
+                track.setFileSize(file.length());
+                track.setDateModified(new Date(file.lastModified()));
+                return track;
+            }
+        }
+        return null;
+    }
+
+    private static void signalDone(BlockingQueue<Track> results) {
+        try {
+            results.put(WORKER_DONE);
+        } catch (InterruptedException e) {
+            // Only interrupted when the writer has already given up
+            Thread.currentThread().interrupt();
+        }
+    }
+}
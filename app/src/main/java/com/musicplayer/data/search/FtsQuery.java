@@ -0,0 +1,102 @@
+package com.musicplayer.data.search;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Locale;
+
+/**
+ * Builds full-text MATCH expressions from what the user typed and scores the
+ * rows they return.
+ */
+public final class FtsQuery {
+
+    // Relative weight of a hit in each indexed column, in column order
+    private static final float[] TRACK_COLUMN_WEIGHTS = {3f, 2f, 1f}; // title, artist, album
+
+    private FtsQuery() {
+    }
+
+    /**
+     * Turns free text into a prefix query matching rows that contain every
+     * word, the last one possibly unfinished. Characters with a meaning in the
+     * query syntax are dropped. Returns null if nothing searchable is left.
+     * Combining marks are dropped rather than splitting words, since lower
+     * casing turns "İ" into "i" and a combining dot; the index tokenizer folds
+     * the remaining diacritics itself.
+     */
+    public static String prefixQuery(String input) {
+        if (input == null) {
+            return null;
+        }
+        StringBuilder query = new StringBuilder();
+        StringBuilder token = new StringBuilder();
+        String lower = input.toLowerCase(Locale.ROOT);
+        for (int i = 0; i <= lower.length(); i++) {
+            char c = i < lower.length() ? lower.charAt(i) : ' ';
+            if (Character.getType(c) == Character.NON_SPACING_MARK) {
+                continue;
+            }
+            if (Character.isLetterOrDigit(c)) {
+                token.append(c);
+            } else if (token.length() > 0) {
+                if (query.length() > 0) {
+                    query.append(' ');
+                }
+                query.append(token).append('*');
+                token.setLength(0);
+            }
+        }
+        return query.length() > 0 ? query.toString() : null;
+    }
+
+    /**
+     * Restricts every term of a query built by {@link #prefixQuery} to one
+     * indexed column.
+     */
+    public static String columnQuery(String match, String column) {
+        StringBuilder query = new StringBuilder();
+        for (String term : match.split(" ")) {
+            if (query.length() > 0) {
+                query.append(' ');
+            }
+            query.append(column).append(':').append(term);
+        }
+        return query.toString();
+    }
+
+    /**
+     * Scores a track row from its {@code matchinfo(..., 'pcx')} blob: hits in
+     * each column, weighted by column and by how rare the term is in that
+     * column across all rows.
+     */
+    public static float scoreTrack(byte[] matchInfo) {
+        return score(matchInfo, TRACK_COLUMN_WEIGHTS);
+    }
+
+    static float score(byte[] matchInfo, float[] columnWeights) {
+        if (matchInfo == null || matchInfo.length < 8) {
+            return 0;
+        }
+        // Native-endian 32-bit integers: phrase count, column count, then 3 per phrase and column
+        ByteBuffer buffer = ByteBuffer.wrap(matchInfo).order(ByteOrder.nativeOrder());
+        int phrases = buffer.getInt(0);
+        int columns = buffer.getInt(4);
+        float score = 0;
+        for (int phrase = 0; phrase < phrases; phrase++) {
+            for (int column = 0; column < columns && column < columnWeights.length; column++) {
+                int offset = 8 + 12 * (phrase * columns + column);
+                if (offset + 12 > matchInfo.length) {
+                    return score;
+                }
+                int hitsInRow = buffer.getInt(offset);
+                int hitsInAllRows = buffer.getInt(offset + 4);
+                if (hitsInRow > 0) {
+                    score += columnWeights[column] * hitsInRow / (float) Math.max(1, hitsInAllRows);
+                    // A hit at all counts more than its rarity, so common words still rank by column
+                    score += columnWeights[column];
+                }
+            }
+        }
+        return score;
+    }
+}
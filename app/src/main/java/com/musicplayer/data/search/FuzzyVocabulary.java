@@ -0,0 +1,186 @@
+package com.musicplayer.data.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Finds the words of a vocabulary within a small edit distance of a typed
+ * word, without comparing against every word.
+ *
+ * Each word is indexed by its trigrams, with the start of the word padded so
+ * that beginnings count. An edit is an inserted, deleted or replaced letter,
+ * or two neighbouring letters swapped. A word within k edits of the typed
+ * word shares at least n - 4k of the typed word's n distinct trigrams, so only
+ * words reaching that count are compared, with an edit distance computation
+ * that gives up once the bound is exceeded. The typed word is compared against prefixes of
+ * candidate words, since the last word of a query is usually unfinished.
+ */
+class FuzzyVocabulary {
+
+    // Words shorter than this are matched by prefix only; one edit changes them too much
+    static final int MIN_FUZZY_LENGTH = 4;
+
+    private static final char PAD = '\u0000';
+
+    private final Map<String, Integer> ids = new HashMap<>();
+    private final List<String> words = new ArrayList<>();
+    private final Map<String, IntList> trigrams = new HashMap<>();
+
+    // Scratch counts per word id, reset after each lookup
+    private int[] counts = new int[64];
+
+    /**
+     * Adds a word; words already known are ignored.
+     */
+    void add(String word) {
+        if (ids.containsKey(word)) {
+            return;
+        }
+        int id = words.size();
+        ids.put(word, id);
+        words.add(word);
+        for (String trigram : trigrams(word)) {
+            IntList list = trigrams.get(trigram);
+            if (list == null) {
+                list = new IntList();
+                trigrams.put(trigram, list);
+            }
+            // A trigram repeated in the word is listed once
+            if (list.size == 0 || list.values[list.size - 1] != id) {
+                list.add(id);
+            }
+        }
+    }
+
+    void clear() {
+        ids.clear();
+        words.clear();
+        trigrams.clear();
+    }
+
+    int size() {
+        return words.size();
+    }
+
+    /**
+     * Maximum number of edits tolerated for a typed word of this length.
+     */
+    static int maxDistance(int length) {
+        return length < MIN_FUZZY_LENGTH ? 0 : length < 8 ? 1 : 2;
+    }
+
+    /**
+     * Returns the known words whose beginning is within the allowed number of
+     * edits of the typed word, mapped to that number of edits.
+     */
+    Map<String, Integer> match(String typed) {
+        Map<String, Integer> matches = new LinkedHashMap<>();
+        int maxDistance = maxDistance(typed.length());
+        if (maxDistance == 0) {
+            return matches;
+        }
+        if (counts.length < words.size()) {
+            counts = new int[Math.max(words.size(), counts.length * 2)];
+        }
+
+        // Each edit removes at most four of the typed word's distinct trigrams
+        LinkedHashSet<String> typedTrigrams = new LinkedHashSet<>(trigrams(typed));
+        int required = typedTrigrams.size() - 4 * maxDistance;
+        IntList touched = new IntList();
+        for (String trigram : typedTrigrams) {
+            IntList list = trigrams.get(trigram);
+            if (list == null) {
+                continue;
+            }
+            for (int i = 0; i < list.size; i++) {
+                int id = list.values[i];
+                if (counts[id]++ == 0) {
+                    touched.add(id);
+                }
+            }
+        }
+
+        for (int i = 0; i < touched.size; i++) {
+            int id = touched.values[i];
+            if (counts[id] >= required) {
+                String word = words.get(id);
+                int distance = prefixDistance(typed, word, maxDistance);
+                if (distance <= maxDistance) {
+                    matches.put(word, distance);
+                }
+            }
+            counts[id] = 0;
+        }
+        return matches;
+    }
+
+    /**
+     * Fewest edits turning the typed word into some prefix of the word, or
+     * maxDistance + 1 if more are needed.
+     */
+    static int prefixDistance(String typed, String word, int maxDistance) {
+        int columns = word.length() + 1;
+        int[] beforePrevious = new int[columns];
+        int[] previous = new int[columns];
+        int[] current = new int[columns];
+        for (int j = 0; j < columns; j++) {
+            previous[j] = j;
+        }
+        int previousRowMin = 0;
+        for (int i = 1; i <= typed.length(); i++) {
+            current[0] = i;
+            int rowMin = current[0];
+            char c = typed.charAt(i - 1);
+            for (int j = 1; j < columns; j++) {
+                char w = word.charAt(j - 1);
+                int cost = c == w ? 0 : 1;
+                int value = Math.min(Math.min(current[j - 1] + 1, previous[j] + 1), previous[j - 1] + cost);
+                if (i > 1 && j > 1 && c == word.charAt(j - 2) && typed.charAt(i - 2) == w) {
+                    value = Math.min(value, beforePrevious[j - 2] + 1);
+                }
+                current[j] = value;
+                rowMin = Math.min(rowMin, value);
+            }
+            // Later rows cost at least this row's minimum, or the previous one's plus a swap
+            if (rowMin > maxDistance && previousRowMin >= maxDistance) {
+                return maxDistance + 1;
+            }
+            previousRowMin = rowMin;
+            int[] recycled = beforePrevious;
+            beforePrevious = previous;
+            previous = current;
+            current = recycled;
+        }
+        int best = maxDistance + 1;
+        for (int value : previous) {
+            best = Math.min(best, value);
+        }
+        return best;
+    }
+
+    private static List<String> trigrams(String word) {
+        String padded = "" + PAD + PAD + word;
+        List<String> result = new ArrayList<>(word.length());
+        for (int i = 0; i + 3 <= padded.length(); i++) {
+            result.add(padded.substring(i, i + 3));
+        }
+        return result;
+    }
+
+    private static final class IntList {
+        int[] values = new int[4];
+        int size;
+
+        void add(int value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+    }
+}
@@ -0,0 +1,265 @@
+package com.musicplayer.data.search;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.dao.AlbumDao;
+import com.musicplayer.data.local.dao.ArtistDao;
+import com.musicplayer.data.local.dao.PlaylistDao;
+import com.musicplayer.data.local.dao.TrackDao;
+import com.musicplayer.data.local.entities.Album;
+import com.musicplayer.data.local.entities.Artist;
+import com.musicplayer.data.local.entities.Playlist;
+import com.musicplayer.data.search.LibrarySearchResult.Group;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Search across tracks, albums, artists and user playlists from in-memory
+ * indexes, so a keystroke costs a lookup per index instead of a LIKE scan
+ * per table.
+ *
+ * Albums, artists and playlists are groups of one {@link SearchIndex};
+ * tracks come from the app's {@link TrackSearchIndex}, which uses the same
+ * field weights, so the scores of both rank together. Names and titles weigh
+ * most, then artists, then albums, so "adele" ranks the artist above her
+ * albums and those above her tracks. The index is loaded on the first search
+ * and brought up to date in the background after the tables change,
+ * rereading only the tables that did.
+ */
+public class LibrarySearchEngine {
+
+    private static final String TAG = "LibrarySearchEngine";
+
+    private static final int PAGE_SIZE = 900;
+
+    private static final long SYNC_DELAY_MILLIS = 2000;
+
+    private static final String[] TABLES = {"albums", "artists", "playlists"};
+
+    private final AppDatabase database;
+    private final TrackSearchIndex tracks;
+    private final SearchIndex index = new SearchIndex(3f, 2f, 1f); // name or title, artist, album
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean syncScheduled = new AtomicBoolean();
+    private final Object loadLock = new Object();
+    private volatile boolean loaded;
+
+    // Tables changed since the last sync, and the grouped ids indexed per group
+    private final Set<String> changedTables = new HashSet<>();
+    private final Map<Group, Set<Long>> indexedIds = new EnumMap<>(Group.class);
+
+    private final InvalidationTracker.Observer observer = new InvalidationTracker.Observer(TABLES) {
+        @Override
+        public void onInvalidated(@NonNull Set<String> tables) {
+            synchronized (changedTables) {
+                changedTables.addAll(tables);
+            }
+            scheduleSync();
+        }
+    };
+
+    /**
+     * @param tracks   index the tracks are searched in
+     * @param executor runs the background syncs; may be shared with other indexes
+     */
+    public LibrarySearchEngine(AppDatabase database, TrackSearchIndex tracks, ScheduledExecutorService executor) {
+        this.database = database;
+        this.tracks = tracks;
+        this.executor = executor;
+        for (Group group : Group.values()) {
+            indexedIds.put(group, new HashSet<>());
+        }
+    }
+
+    /**
+     * Returns up to {@code limitPerGroup} matches of each kind for every word
+     * of the query. The first call loads the index and must not run on the main thread.
+     */
+    public LibrarySearchResult search(String query, int limitPerGroup) {
+        ensureLoaded();
+        int limit = Math.min(limitPerGroup, TrackDao.LOOKUP_CHUNK_SIZE);
+        List<SearchIndex.Hit> hits = new ArrayList<>(index.searchGroupedHits(query, limit));
+        for (SearchIndex.Hit hit : tracks.searchHits(query, limit)) {
+            hits.add(new SearchIndex.Hit(SearchIndex.groupedId(Group.TRACKS.ordinal(), hit.id), hit.score));
+        }
+        Collections.sort(hits);
+
+        LibrarySearchResult result = new LibrarySearchResult();
+        Map<Group, List<Long>> ids = new EnumMap<>(Group.class);
+        for (SearchIndex.Hit hit : hits) {
+            long groupedId = hit.id;
+            Group group = Group.values()[SearchIndex.groupOf(groupedId)];
+            List<Long> groupIds = ids.get(group);
+            if (groupIds == null) {
+                groupIds = new ArrayList<>();
+                ids.put(group, groupIds);
+                result.groupOrder.add(group);
+            }
+            groupIds.add(SearchIndex.idOf(groupedId));
+        }
+
+        for (Map.Entry<Group, List<Long>> entry : ids.entrySet()) {
+            List<Long> groupIds = entry.getValue();
+            switch (entry.getKey()) {
+                case TRACKS:
+                    result.tracks.addAll(database.trackDao().getByIdsInOrder(groupIds));
+                    break;
+                case ALBUMS:
+                    Map<Long, Album> albums = new HashMap<>();
+                    for (Album album : database.albumDao().getByIds(groupIds)) {
+                        albums.put(album.getId(), album);
+                    }
+                    addInOrder(groupIds, albums, result.albums);
+                    break;
+                case ARTISTS:
+                    Map<Long, Artist> artists = new HashMap<>();
+                    for (Artist artist : database.artistDao().getByIds(groupIds)) {
+                        artists.put(artist.getId(), artist);
+                    }
+                    addInOrder(groupIds, artists, result.artists);
+                    break;
+                case PLAYLISTS:
+                    Map<Long, Playlist> playlists = new HashMap<>();
+                    for (Playlist playlist : database.playlistDao().getByIds(groupIds)) {
+                        playlists.put(playlist.getId(), playlist);
+                    }
+                    addInOrder(groupIds, playlists, result.playlists);
+                    break;
+            }
+        }
+        return result;
+    }
+
+    // Rows deleted since the index was last synced are skipped
+    private static <T> void addInOrder(List<Long> ids, Map<Long, T> rows, List<T> out) {
+        for (Long id : ids) {
+            T row = rows.get(id);
+            if (row != null) {
+                out.add(row);
+            }
+        }
+    }
+
+    /**
+     * Stops following changes to the tables; the track index is closed by its owner.
+     */
+    public void close() {
+        database.getInvalidationTracker().removeObserver(observer);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (!loaded) {
+                sync(new HashSet<>(Arrays.asList(TABLES)));
+                database.getInvalidationTracker().addObserver(observer);
+                index.compact();
+                loaded = true;
+            }
+        }
+    }
+
+    private void scheduleSync() {
+        if (syncScheduled.compareAndSet(false, true)) {
+            executor.schedule(() -> {
+                syncScheduled.set(false);
+                Set<String> tables;
+                synchronized (changedTables) {
+                    tables = new HashSet<>(changedTables);
+                    changedTables.clear();
+                }
+                try {
+                    sync(tables);
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Error updating library search index", e);
+                }
+            }, SYNC_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private void sync(Set<String> tables) {
+        if (tables.contains("albums")) {
+            syncAlbums();
+        }
+        if (tables.contains("artists")) {
+            syncArtists();
+        }
+        if (tables.contains("playlists")) {
+            syncPlaylists();
+        }
+        Log.d(TAG, "Library search index holds " + index.size() + " entries");
+    }
+
+    private void syncAlbums() {
+        AlbumDao dao = database.albumDao();
+        Set<Long> seen = new HashSet<>();
+        List<AlbumDao.AlbumSearchFields> page = dao.getSearchFieldsAfter(0, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            for (AlbumDao.AlbumSearchFields row : page) {
+                seen.add(put(Group.ALBUMS, row.id, 0, row.title, row.artist));
+            }
+            page = dao.getSearchFieldsAfter(page.get(page.size() - 1).id, PAGE_SIZE);
+        }
+        retain(Group.ALBUMS, seen);
+    }
+
+    private void syncArtists() {
+        ArtistDao dao = database.artistDao();
+        Set<Long> seen = new HashSet<>();
+        List<ArtistDao.ArtistSearchFields> page = dao.getSearchFieldsAfter(0, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            for (ArtistDao.ArtistSearchFields row : page) {
+                seen.add(put(Group.ARTISTS, row.id, row.playCount, row.name));
+            }
+            page = dao.getSearchFieldsAfter(page.get(page.size() - 1).id, PAGE_SIZE);
+        }
+        retain(Group.ARTISTS, seen);
+    }
+
+    private void syncPlaylists() {
+        PlaylistDao dao = database.playlistDao();
+        Set<Long> seen = new HashSet<>();
+        List<PlaylistDao.PlaylistSearchFields> page = dao.getSearchFieldsAfter(0, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            for (PlaylistDao.PlaylistSearchFields row : page) {
+                seen.add(put(Group.PLAYLISTS, row.id, row.playCount, row.name));
+            }
+            page = dao.getSearchFieldsAfter(page.get(page.size() - 1).id, PAGE_SIZE);
+        }
+        retain(Group.PLAYLISTS, seen);
+    }
+
+    private long put(Group group, long id, float popularity, String... fields) {
+        long groupedId = SearchIndex.groupedId(group.ordinal(), id);
+        index.put(groupedId, popularity, fields);
+        return groupedId;
+    }
+
+    // Drops entries of the group whose rows are gone
+    private void retain(Group group, Set<Long> seen) {
+        Set<Long> indexed = indexedIds.get(group);
+        for (Long groupedId : indexed) {
+            if (!seen.contains(groupedId)) {
+                index.remove(groupedId);
+            }
+        }
+        indexedIds.put(group, seen);
+    }
+}
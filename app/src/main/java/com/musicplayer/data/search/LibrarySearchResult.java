@@ -0,0 +1,38 @@
+package com.musicplayer.data.search;
+
+import com.musicplayer.data.local.entities.Album;
+import com.musicplayer.data.local.entities.Artist;
+import com.musicplayer.data.local.entities.Playlist;
+import com.musicplayer.data.local.entities.Track;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Result of a {@link LibrarySearchEngine} search: the best matches of each
+ * kind, best first, and the kinds ordered by their best match.
+ */
+public class LibrarySearchResult {
+
+    public enum Group {
+        ARTISTS, ALBUMS, PLAYLISTS, TRACKS
+    }
+
+    public final List<Track> tracks = new ArrayList<>();
+    public final List<Album> albums = new ArrayList<>();
+    public final List<Artist> artists = new ArrayList<>();
+    public final List<Playlist> playlists = new ArrayList<>();
+
+    // Groups with at least one match, the one holding the best match first
+    public final List<Group> groupOrder = new ArrayList<>();
+
+    public boolean isEmpty() {
+        return groupOrder.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "tracks=" + tracks.size() + ", albums=" + albums.size() + ", artists=" + artists.size()
+                + ", playlists=" + playlists.size() + ", order=" + groupOrder;
+    }
+}
@@ -0,0 +1,485 @@
+package com.musicplayer.data.search;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * In-memory prefix index of short documents such as track titles, artists
+ * and albums, for search-as-you-type.
+ *
+ * Words are folded with {@link SearchNormalizer} and kept in one sorted
+ * array with a parallel array of posting lists, so a prefix is found with two
+ * binary searches. Documents added or changed since the arrays were built go
+ * to a small sorted delta, and replaced postings are masked, so updates do
+ * not rebuild the arrays until enough changes have piled up. A query matches
+ * documents that contain every word as a prefix of one of their words; a
+ * fuzzy query also accepts words a few typing mistakes away, found through
+ * {@link FuzzyVocabulary}.
+ *
+ * Documents of different kinds, e.g. tracks and albums, can share an index
+ * by carrying their kind as a group in the top bits of the id (see
+ * {@link #groupedId}); {@link #searchGrouped} then ranks them together while
+ * keeping a separate limit per group, so a common prefix matching thousands
+ * of tracks does not crowd out the one artist.
+ *
+ * Every posting of the query word with the fewest postings is scored, and
+ * only the best {@code limit} hits are kept while scoring, so the best match
+ * is found however many documents share its prefix.
+ */
+public class SearchIndex {
+
+    // The delta is folded in after this many changes, or a quarter of the documents if more
+    private static final int REBUILD_THRESHOLD = 4096;
+
+    // Ids of grouped documents hold the group above this bit
+    private static final int GROUP_SHIFT = 56;
+    private static final long ID_MASK = (1L << GROUP_SHIFT) - 1;
+    public static final int MAX_GROUPS = 1 << (63 - GROUP_SHIFT);
+
+    private final float[] fieldWeights;
+    private final Map<Long, Document> documents = new HashMap<>();
+    private final FuzzyVocabulary vocabulary = new FuzzyVocabulary();
+
+    // Base arrays: postings of tokens[i] are postings[starts[i]] to postings[starts[i + 1]]
+    private String[] tokens = new String[0];
+    private int[] starts = {0};
+    private long[] postings = new long[0];
+
+    // Changes since the base arrays were built
+    private final TreeMap<String, Set<Long>> addedPostings = new TreeMap<>();
+    private final Set<Long> masked = new HashSet<>();
+    private int pendingChanges;
+
+    /**
+     * @param fieldWeights weight of a match in each field, in the order fields are passed to {@link #put}
+     */
+    public SearchIndex(float... fieldWeights) {
+        this.fieldWeights = fieldWeights;
+    }
+
+    /**
+     * Adds or replaces a document. Replacing a document with the same words is a no-op.
+     */
+    public synchronized void put(long id, String... fields) {
+        put(id, 0, fields);
+    }
+
+    /**
+     * Adds or replaces a document with a popularity, such as a play count,
+     * that raises its rank among equally good matches.
+     */
+    public synchronized void put(long id, float popularity, String... fields) {
+        Document document = new Document(fields);
+        document.popularity = popularity;
+        Document old = documents.get(id);
+        if (old != null) {
+            if (old.sameWords(document)) {
+                old.popularity = popularity;
+                return;
+            }
+            unlink(id, old);
+        }
+        documents.put(id, document);
+        for (String token : document.tokens) {
+            vocabulary.add(token);
+            Set<Long> ids = addedPostings.get(token);
+            if (ids == null) {
+                ids = new HashSet<>();
+                addedPostings.put(token, ids);
+            }
+            ids.add(id);
+        }
+        changed();
+    }
+
+    public synchronized void remove(long id) {
+        Document old = documents.remove(id);
+        if (old != null) {
+            unlink(id, old);
+            changed();
+        }
+    }
+
+    /**
+     * Removes every document whose id is not in the given set.
+     */
+    public synchronized void retainAll(Collection<Long> ids) {
+        List<Long> removed = new ArrayList<>();
+        for (Long id : documents.keySet()) {
+            if (!ids.contains(id)) {
+                removed.add(id);
+            }
+        }
+        for (Long id : removed) {
+            remove(id);
+        }
+    }
+
+    public synchronized int size() {
+        return documents.size();
+    }
+
+    /**
+     * Returns the ids of documents matching every word of the query, best
+     * first: exact words over prefixes, weighted by field and popularity.
+     */
+    public synchronized List<Long> search(String query, int limit) {
+        return ids(search(SearchNormalizer.tokenize(query), null, limit, false));
+    }
+
+    /**
+     * Like {@link #search}, with the score of each hit, for merging results
+     * of indexes that use the same field weights.
+     */
+    public synchronized List<Hit> searchHits(String query, int limit) {
+        return search(SearchNormalizer.tokenize(query), null, limit, false);
+    }
+
+    /**
+     * Like {@link #search} for an index of grouped ids: all groups are ranked
+     * together, but each gets at most {@code limitPerGroup} results.
+     */
+    public synchronized List<Long> searchGrouped(String query, int limitPerGroup) {
+        return ids(searchGroupedHits(query, limitPerGroup));
+    }
+
+    public synchronized List<Hit> searchGroupedHits(String query, int limitPerGroup) {
+        return search(SearchNormalizer.tokenize(query), null, limitPerGroup, true);
+    }
+
+    /**
+     * Like {@link #search}, but a word of four or more letters also matches
+     * words one edit away, and of eight or more two edits away. Closer
+     * matches rank higher.
+     */
+    public synchronized List<Long> searchFuzzy(String query, int limit) {
+        List<String> words = SearchNormalizer.tokenize(query);
+        List<Map<String, Integer>> similar = new ArrayList<>(words.size());
+        for (String word : words) {
+            similar.add(vocabulary.match(word));
+        }
+        return ids(search(words, similar, limit, false));
+    }
+
+    /**
+     * Id of a document of the given group, 0 to {@link #MAX_GROUPS} - 1.
+     */
+    public static long groupedId(int group, long id) {
+        return ((long) group << GROUP_SHIFT) | (id & ID_MASK);
+    }
+
+    public static int groupOf(long groupedId) {
+        return (int) (groupedId >>> GROUP_SHIFT);
+    }
+
+    public static long idOf(long groupedId) {
+        return groupedId & ID_MASK;
+    }
+
+    private static List<Long> ids(List<Hit> hits) {
+        List<Long> ids = new ArrayList<>(hits.size());
+        for (Hit hit : hits) {
+            ids.add(hit.id);
+        }
+        return ids;
+    }
+
+    private List<Hit> search(List<String> words, List<Map<String, Integer>> similar, int limit, boolean grouped) {
+        if (words.isEmpty() || limit <= 0) {
+            return Collections.emptyList();
+        }
+
+        // Start from the word with the fewest postings
+        int rarest = 0;
+        int rarestCount = Integer.MAX_VALUE;
+        for (int i = 0; i < words.size(); i++) {
+            int count = countPostings(words.get(i));
+            if (similar != null) {
+                for (String word : similar.get(i).keySet()) {
+                    count += countExactPostings(word);
+                }
+            }
+            if (count < rarestCount) {
+                rarest = i;
+                rarestCount = count;
+            }
+        }
+        if (rarestCount == 0) {
+            return Collections.emptyList();
+        }
+
+        Set<Long> candidates = new LinkedHashSet<>();
+        addPostings(words.get(rarest), candidates);
+        if (similar != null) {
+            for (String word : similar.get(rarest).keySet()) {
+                addExactPostings(word, candidates);
+            }
+        }
+
+        Ranking ranking = new Ranking(limit, grouped);
+        for (long id : candidates) {
+            float score = score(documents.get(id), words, similar);
+            if (score > 0) {
+                ranking.add(new Hit(id, score));
+            }
+        }
+        return ranking.hits();
+    }
+
+    /**
+     * Score of a document for the query words, or 0 if a word does not match.
+     * An exact word counts twice a prefix, and a fuzzy match a quarter less
+     * than a prefix per edit.
+     */
+    float score(Document document, List<String> words, List<Map<String, Integer>> similar) {
+        if (document == null) {
+            return 0;
+        }
+        float total = 0;
+        for (int w = 0; w < words.size(); w++) {
+            String word = words.get(w);
+            float best = 0;
+            for (int i = 0; i < document.tokens.length; i++) {
+                String token = document.tokens[i];
+                float weight = fieldWeights[document.fields[i]];
+                if (token.startsWith(word)) {
+                    best = Math.max(best, token.length() == word.length() ? 2 * weight : weight);
+                } else if (similar != null) {
+                    Integer distance = similar.get(w).get(token);
+                    if (distance != null) {
+                        best = Math.max(best, weight * (1 - 0.25f * distance));
+                    }
+                }
+            }
+            if (best == 0) {
+                return 0;
+            }
+            total += best;
+        }
+        return total * (1 + 0.1f * (float) Math.log1p(Math.max(0, document.popularity)));
+    }
+
+    private void addPostings(String prefix, Set<Long> candidates) {
+        int from = lowerBound(prefix);
+        int to = lowerBound(prefix + Character.MAX_VALUE);
+        for (int i = starts[from]; i < starts[to]; i++) {
+            if (!masked.contains(postings[i])) {
+                candidates.add(postings[i]);
+            }
+        }
+        for (Set<Long> added : addedPostings.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+            candidates.addAll(added);
+        }
+    }
+
+    private int countExactPostings(String token) {
+        int index = lowerBound(token);
+        int count = index < tokens.length && tokens[index].equals(token) ? starts[index + 1] - starts[index] : 0;
+        Set<Long> added = addedPostings.get(token);
+        return added != null ? count + added.size() : count;
+    }
+
+    private void addExactPostings(String token, Set<Long> candidates) {
+        int index = lowerBound(token);
+        if (index < tokens.length && tokens[index].equals(token)) {
+            for (int i = starts[index]; i < starts[index + 1]; i++) {
+                if (!masked.contains(postings[i])) {
+                    candidates.add(postings[i]);
+                }
+            }
+        }
+        Set<Long> added = addedPostings.get(token);
+        if (added != null) {
+            candidates.addAll(added);
+        }
+    }
+
+    private int countPostings(String prefix) {
+        int count = starts[lowerBound(prefix + Character.MAX_VALUE)] - starts[lowerBound(prefix)];
+        for (Set<Long> added : addedPostings.subMap(prefix, prefix + Character.MAX_VALUE).values()) {
+            count += added.size();
+        }
+        return count;
+    }
+
+    // Index of the first token not less than the key
+    private int lowerBound(String key) {
+        int low = 0;
+        int high = tokens.length;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (tokens[middle].compareTo(key) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private void unlink(long id, Document document) {
+        if (document.inBase) {
+            masked.add(id);
+        } else {
+            for (String token : document.tokens) {
+                Set<Long> ids = addedPostings.get(token);
+                if (ids != null && ids.remove(id) && ids.isEmpty()) {
+                    addedPostings.remove(token);
+                }
+            }
+        }
+    }
+
+    private void changed() {
+        if (++pendingChanges >= Math.max(REBUILD_THRESHOLD, documents.size() / 4)) {
+            compact();
+        }
+    }
+
+    /**
+     * Folds pending changes into the sorted arrays; call after loading many documents.
+     */
+    public synchronized void compact() {
+        TreeMap<String, List<Long>> all = new TreeMap<>();
+        int postingCount = 0;
+        for (Map.Entry<Long, Document> entry : documents.entrySet()) {
+            Document document = entry.getValue();
+            for (String token : new HashSet<>(Arrays.asList(document.tokens))) {
+                List<Long> ids = all.get(token);
+                if (ids == null) {
+                    ids = new ArrayList<>(1);
+                    all.put(token, ids);
+                }
+                ids.add(entry.getKey());
+                postingCount++;
+            }
+            document.inBase = true;
+        }
+
+        String[] newTokens = new String[all.size()];
+        int[] newStarts = new int[all.size() + 1];
+        long[] newPostings = new long[postingCount];
+        int token = 0;
+        int posting = 0;
+        for (Map.Entry<String, List<Long>> entry : all.entrySet()) {
+            newTokens[token] = entry.getKey();
+            newStarts[token] = posting;
+            for (Long id : entry.getValue()) {
+                newPostings[posting++] = id;
+            }
+            token++;
+        }
+        newStarts[token] = posting;
+
+        // Drops words no document uses any more
+        vocabulary.clear();
+        for (String word : newTokens) {
+            vocabulary.add(word);
+        }
+
+        tokens = newTokens;
+        starts = newStarts;
+        postings = newPostings;
+        addedPostings.clear();
+        masked.clear();
+        pendingChanges = 0;
+    }
+
+    /**
+     * Folded words of a document and the field each came from.
+     */
+    static final class Document {
+        final String[] tokens;
+        final byte[] fields;
+        float popularity;
+        boolean inBase;
+
+        Document(String[] values) {
+            List<String> tokenList = new ArrayList<>();
+            List<Integer> fieldList = new ArrayList<>();
+            for (int field = 0; field < values.length; field++) {
+                for (String token : SearchNormalizer.tokenize(values[field])) {
+                    tokenList.add(token);
+                    fieldList.add(field);
+                }
+            }
+            this.tokens = tokenList.toArray(new String[0]);
+            this.fields = new byte[fieldList.size()];
+            for (int i = 0; i < fields.length; i++) {
+                fields[i] = fieldList.get(i).byteValue();
+            }
+        }
+
+        boolean sameWords(Document other) {
+            return Arrays.equals(tokens, other.tokens) && Arrays.equals(fields, other.fields);
+        }
+    }
+
+    /**
+     * Best hits seen so far, at most {@code limit} in all or, when grouped,
+     * per group. Each heap holds its worst hit on top, to be replaced by a better one.
+     */
+    private static final class Ranking {
+        private final int limit;
+        private final boolean grouped;
+        private final Map<Integer, PriorityQueue<Hit>> best = new HashMap<>();
+
+        Ranking(int limit, boolean grouped) {
+            this.limit = limit;
+            this.grouped = grouped;
+        }
+
+        void add(Hit hit) {
+            int group = grouped ? groupOf(hit.id) : 0;
+            PriorityQueue<Hit> heap = best.get(group);
+            if (heap == null) {
+                heap = new PriorityQueue<>(Collections.reverseOrder());
+                best.put(group, heap);
+            }
+            if (heap.size() < limit) {
+                heap.add(hit);
+            } else if (hit.compareTo(heap.peek()) < 0) {
+                heap.poll();
+                heap.add(hit);
+            }
+        }
+
+        List<Hit> hits() {
+            List<Hit> hits = new ArrayList<>();
+            for (PriorityQueue<Hit> heap : best.values()) {
+                hits.addAll(heap);
+            }
+            Collections.sort(hits);
+            return hits;
+        }
+    }
+
+    /**
+     * A matching document and its score; sorts best first.
+     */
+    public static final class Hit implements Comparable<Hit> {
+        public final long id;
+        public final float score;
+
+        Hit(long id, float score) {
+            this.id = id;
+            this.score = score;
+        }
+
+        @Override
+        public int compareTo(Hit other) {
+            int byScore = Float.compare(other.score, score);
+            return byScore != 0 ? byScore : Long.compare(id, other.id);
+        }
+    }
+}
@@ -0,0 +1,115 @@
+package com.musicplayer.data.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Folds text into the form used for matching search queries.
+ *
+ * Case and diacritics are removed, and the Turkish letters that have no
+ * decomposition are mapped to their Latin base: dotted capital I, dotless i
+ * and capital I all become "i", so "İstanbul", "ISTANBUL" and "istanbul" are
+ * the same, and "şarkı" matches "sarki". Letters such as ß and ø that do not
+ * decompose are spelled out as well.
+ */
+public final class SearchNormalizer {
+
+    private SearchNormalizer() {
+    }
+
+    /**
+     * Returns the folded form of the text; empty for null.
+     */
+    public static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        if (isPlainAscii(text)) {
+            return text.toLowerCase(Locale.ROOT);
+        }
+
+        StringBuilder mapped = new StringBuilder(text.length());
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case 'I':
+                case '\u0130': // İ
+                case '\u0131': // ı
+                    mapped.append('i');
+                    break;
+                case '\u00DF': // ß
+                    mapped.append("ss");
+                    break;
+                case '\u00C6': // Æ
+                case '\u00E6': // æ
+                    mapped.append("ae");
+                    break;
+                case '\u0152': // Œ
+                case '\u0153': // œ
+                    mapped.append("oe");
+                    break;
+                case '\u00D8': // Ø
+                case '\u00F8': // ø
+                    mapped.append('o');
+                    break;
+                case '\u0110': // Đ
+                case '\u0111': // đ
+                case '\u00D0': // Ð
+                case '\u00F0': // ð
+                    mapped.append('d');
+                    break;
+                case '\u0141': // Ł
+                case '\u0142': // ł
+                    mapped.append('l');
+                    break;
+                case '\u00DE': // Þ
+                case '\u00FE': // þ
+                    mapped.append("th");
+                    break;
+                default:
+                    mapped.append(c);
+            }
+        }
+
+        String decomposed = Normalizer.normalize(mapped, Normalizer.Form.NFD);
+        StringBuilder folded = new StringBuilder(decomposed.length());
+        for (int i = 0; i < decomposed.length(); i++) {
+            char c = decomposed.charAt(i);
+            if (Character.getType(c) != Character.NON_SPACING_MARK) {
+                folded.append(c);
+            }
+        }
+        // Safe in the root locale: every letter I is already mapped
+        return folded.toString().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Splits text into folded words.
+     */
+    public static List<String> tokenize(String text) {
+        List<String> tokens = new ArrayList<>();
+        String normalized = normalize(text);
+        int start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            boolean wordChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (wordChar && start < 0) {
+                start = i;
+            } else if (!wordChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+
+    private static boolean isPlainAscii(String text) {
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x80) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,125 @@
+package com.musicplayer.data.search;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Small LRU cache of search results for one search session.
+ *
+ * Queries are keyed by their folded words. When a query is not cached but a
+ * shorter query it extends is, and the caller stored that result as
+ * complete, i.e. holding every match and not cut off by a limit, the answer
+ * is found by filtering the cached result instead of searching again: typing
+ * "lov" then "love" searches once.
+ */
+public class SearchResultCache<T> {
+
+    public static final int DEFAULT_CAPACITY = 32;
+
+    private final Function<T, String[]> fields;
+    private final LinkedHashMap<String, Entry<T>> results;
+
+    /**
+     * @param fields searchable text of an item, used when filtering a cached result
+     */
+    public SearchResultCache(int capacity, Function<T, String[]> fields) {
+        this.fields = fields;
+        this.results = new LinkedHashMap<String, Entry<T>>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry<T>> eldest) {
+                return size() > capacity;
+            }
+        };
+    }
+
+    /**
+     * Returns the cached or derived result for a query, or null if it has to be searched.
+     */
+    public synchronized List<T> get(String query) {
+        List<String> words = SearchNormalizer.tokenize(query);
+        String key = key(words);
+        Entry<T> cached = results.get(key);
+        if (cached != null) {
+            return cached.items;
+        }
+
+        // Longest cached query that this one extends; a truncated result may miss its matches
+        for (int length = key.length() - 1; length > 0; length--) {
+            Entry<T> shorter = results.get(key.substring(0, length));
+            if (shorter != null && shorter.complete) {
+                List<T> filtered = new ArrayList<>();
+                for (T item : shorter.items) {
+                    if (matches(item, words)) {
+                        filtered.add(item);
+                    }
+                }
+                // Every match of this query matches the shorter one, so the filtered result is complete too
+                Entry<T> entry = new Entry<>(Collections.unmodifiableList(filtered), true);
+                results.put(key, entry);
+                return entry.items;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @param complete whether the result holds every match of the query, e.g.
+     *                 the search returned fewer hits than it was allowed to
+     */
+    public synchronized void put(String query, List<T> result, boolean complete) {
+        results.put(key(SearchNormalizer.tokenize(query)),
+                new Entry<>(Collections.unmodifiableList(new ArrayList<>(result)), complete));
+    }
+
+    public synchronized void clear() {
+        results.clear();
+    }
+
+    /**
+     * Whether every word is the beginning of a word of the item, as the index matches.
+     */
+    private boolean matches(T item, List<String> words) {
+        List<String> tokens = new ArrayList<>();
+        for (String field : fields.apply(item)) {
+            tokens.addAll(SearchNormalizer.tokenize(field));
+        }
+        for (String word : words) {
+            boolean found = false;
+            for (String token : tokens) {
+                if (token.startsWith(word)) {
+                    found = true;
+                    break;
+                }
+            }
+            if (!found) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static final class Entry<T> {
+        final List<T> items;
+        final boolean complete;
+
+        Entry(List<T> items, boolean complete) {
+            this.items = items;
+            this.complete = complete;
+        }
+    }
+
+    private static String key(List<String> words) {
+        StringBuilder key = new StringBuilder();
+        for (String word : words) {
+            if (key.length() > 0) {
+                key.append(' ');
+            }
+            key.append(word);
+        }
+        return key.toString();
+    }
+}
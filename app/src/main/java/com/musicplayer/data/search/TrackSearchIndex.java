@@ -0,0 +1,193 @@
+package com.musicplayer.data.search;
+
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.room.InvalidationTracker;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.dao.TrackDao;
+
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * {@link SearchIndex} over the title, artist and album of every track.
+ *
+ * The index is loaded on the first search. After that, each change to the
+ * tracks table schedules a background pass that reads only the tracks
+ * recorded in track_search_changes (see
+ * {@link com.musicplayer.data.local.TrackSearchTriggers}), so a play count
+ * bump or a page written by a scan costs a lookup of those rows, and
+ * searches keep using the index while it is brought up to date. Applied
+ * changes are removed from that table, so there is one instance per database.
+ */
+public class TrackSearchIndex {
+
+    private static final String TAG = "TrackSearchIndex";
+
+    private static final int PAGE_SIZE = 900;
+
+    // Writes usually come in bursts, e.g. a scan or a play count update per track
+    private static final long SYNC_DELAY_MILLIS = 2000;
+
+    private final AppDatabase database;
+    private final SearchIndex index = new SearchIndex(3f, 2f, 1f); // title, artist, album
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean syncScheduled = new AtomicBoolean();
+    private final Object loadLock = new Object();
+    private volatile boolean loaded;
+
+    // Held here: the tracker keeps only what it is given
+    private final InvalidationTracker.Observer observer = new InvalidationTracker.Observer("tracks") {
+        @Override
+        public void onInvalidated(@NonNull Set<String> tables) {
+            scheduleSync();
+        }
+    };
+
+    /**
+     * @param executor runs the background syncs; may be shared with other indexes
+     */
+    public TrackSearchIndex(AppDatabase database, ScheduledExecutorService executor) {
+        this.database = database;
+        this.executor = executor;
+    }
+
+    /**
+     * Returns the ids of tracks matching every word of the query, best first.
+     * The first call loads the index and must not run on the main thread.
+     */
+    public List<Long> search(String query, int limit) {
+        ensureLoaded();
+        return index.search(query, limit);
+    }
+
+    /**
+     * Like {@link #search}, with the score of each hit, for ranking tracks
+     * among other kinds as {@link LibrarySearchEngine} does.
+     */
+    public List<SearchIndex.Hit> searchHits(String query, int limit) {
+        ensureLoaded();
+        return index.searchHits(query, limit);
+    }
+
+    /**
+     * Like {@link #search}, tolerating a typing mistake or two per word.
+     * Among equal matches, more played tracks come first.
+     */
+    public List<Long> searchFuzzy(String query, int limit) {
+        ensureLoaded();
+        return index.searchFuzzy(query, limit);
+    }
+
+    /**
+     * Stops following changes to the tracks table.
+     */
+    public void close() {
+        database.getInvalidationTracker().removeObserver(observer);
+    }
+
+    private void ensureLoaded() {
+        if (loaded) {
+            return;
+        }
+        synchronized (loadLock) {
+            if (!loaded) {
+                load();
+                database.getInvalidationTracker().addObserver(observer);
+                loaded = true;
+            }
+        }
+    }
+
+    private void scheduleSync() {
+        if (syncScheduled.compareAndSet(false, true)) {
+            executor.schedule(() -> {
+                syncScheduled.set(false);
+                try {
+                    sync();
+                } catch (RuntimeException e) {
+                    Log.e(TAG, "Error updating search index", e);
+                }
+            }, SYNC_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * Reads every track. Changes recorded before are dropped, as the full
+     * read covers them; changes made during it are applied by the next sync.
+     */
+    private void load() {
+        TrackDao trackDao = database.trackDao();
+        trackDao.clearSearchChanges();
+        Set<Long> seen = new HashSet<>();
+        List<TrackDao.TrackSearchFields> page = trackDao.getSearchFieldsAfter(0, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            for (TrackDao.TrackSearchFields row : page) {
+                index.put(row.id, row.playCount, row.title, row.artist, row.album);
+                seen.add(row.id);
+            }
+            page = trackDao.getSearchFieldsAfter(page.get(page.size() - 1).id, PAGE_SIZE);
+        }
+        index.retainAll(seen);
+        index.compact();
+        Log.d(TAG, "Search index holds " + index.size() + " tracks");
+    }
+
+    /**
+     * Applies the recorded changes. Each page of ids is read and removed from
+     * the log in one transaction, so a track changed again in between is
+     * recorded anew rather than lost.
+     */
+    private void sync() {
+        TrackDao trackDao = database.trackDao();
+        int applied = 0;
+        long afterId = 0;
+        while (true) {
+            long from = afterId;
+            Changes changes = database.runInTransaction((Callable<Changes>) () -> {
+                List<Long> ids = trackDao.getSearchChangesAfter(from, PAGE_SIZE);
+                if (ids.isEmpty()) {
+                    return null;
+                }
+                List<TrackDao.TrackSearchFields> rows = trackDao.getSearchFieldsByIds(ids);
+                trackDao.deleteSearchChanges(ids);
+                return new Changes(ids, rows);
+            });
+            if (changes == null) {
+                break;
+            }
+
+            Set<Long> present = new HashSet<>();
+            for (TrackDao.TrackSearchFields row : changes.rows) {
+                index.put(row.id, row.playCount, row.title, row.artist, row.album);
+                present.add(row.id);
+            }
+            for (Long id : changes.ids) {
+                if (!present.contains(id)) {
+                    index.remove(id);
+                }
+            }
+            applied += changes.ids.size();
+            afterId = changes.ids.get(changes.ids.size() - 1);
+        }
+        Log.d(TAG, "Applied " + applied + " track changes, search index holds " + index.size() + " tracks");
+    }
+
+    // Changed ids and the rows still present among them
+    private static final class Changes {
+        final List<Long> ids;
+        final List<TrackDao.TrackSearchFields> rows;
+
+        Changes(List<Long> ids, List<TrackDao.TrackSearchFields> rows) {
+            this.ids = ids;
+            this.rows = rows;
+        }
+    }
+}
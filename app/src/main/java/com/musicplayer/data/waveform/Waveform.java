@@ -0,0 +1,106 @@
+package com.musicplayer.data.waveform;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Min/max peaks of a track, one signed byte each, in evenly spaced buckets.
+ *
+ * Stored as a 20-byte header followed by the peaks, interleaved as min, max
+ * per bucket:
+ * <pre>
+ *   int   magic "WAVF"
+ *   short format version
+ *   short reserved, 0
+ *   int   bucket count
+ *   long  size of the audio file the peaks were computed from
+ * </pre>
+ * A waveform read from a memory-mapped file keeps the mapped buffer rather
+ * than copying the peaks.
+ */
+public class Waveform {
+
+    static final int MAGIC = 0x57415646; // "WAVF"
+    static final short VERSION = 1;
+    static final int HEADER_SIZE = 20;
+
+    private final ByteBuffer buffer;
+    private final int bucketCount;
+    private final long sourceSize;
+
+    Waveform(byte[] peaks, long sourceSize) {
+        this.bucketCount = peaks.length / 2;
+        this.sourceSize = sourceSize;
+        this.buffer = ByteBuffer.allocate(HEADER_SIZE + peaks.length);
+        buffer.putInt(MAGIC)
+                .putShort(VERSION)
+                .putShort((short) 0)
+                .putInt(bucketCount)
+                .putLong(sourceSize)
+                .put(peaks);
+        buffer.flip();
+    }
+
+    private Waveform(ByteBuffer buffer, int bucketCount, long sourceSize) {
+        this.buffer = buffer;
+        this.bucketCount = bucketCount;
+        this.sourceSize = sourceSize;
+    }
+
+    /**
+     * Reads a waveform in the stored format.
+     *
+     * @throws IOException if the data is not a waveform of a supported version
+     */
+    public static Waveform read(ByteBuffer buffer) throws IOException {
+        long sourceSize = readSourceSize(buffer);
+        int bucketCount = buffer.getInt(8);
+        if (bucketCount < 0 || buffer.remaining() < HEADER_SIZE + 2L * bucketCount) {
+            throw new IOException("Truncated waveform");
+        }
+        return new Waveform(buffer, bucketCount, sourceSize);
+    }
+
+    /**
+     * Checks the header and returns the source size stored in it, without
+     * needing the peaks.
+     */
+    static long readSourceSize(ByteBuffer header) throws IOException {
+        if (header.remaining() < HEADER_SIZE || header.getInt(0) != MAGIC) {
+            throw new IOException("Not a waveform");
+        }
+        if (header.getShort(4) != VERSION) {
+            throw new IOException("Unsupported waveform version " + header.getShort(4));
+        }
+        return header.getLong(12);
+    }
+
+    public int getBucketCount() {
+        return bucketCount;
+    }
+
+    public long getSourceSize() {
+        return sourceSize;
+    }
+
+    /**
+     * Lowest sample in a bucket, from -1 to 1.
+     */
+    public float getMin(int bucket) {
+        return buffer.get(HEADER_SIZE + 2 * bucket) / 128f;
+    }
+
+    /**
+     * Highest sample in a bucket, from -1 to 1.
+     */
+    public float getMax(int bucket) {
+        return buffer.get(HEADER_SIZE + 2 * bucket + 1) / 128f;
+    }
+
+    /**
+     * The stored format, for writing to a file.
+     */
+    ByteBuffer asByteBuffer() {
+        return buffer.duplicate();
+    }
+}
@@ -0,0 +1,138 @@
+package com.musicplayer.data.waveform;
+
+import android.os.CancellationSignal;
+import android.os.SystemClock;
+import android.util.Log;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.dao.TrackDao;
+import com.musicplayer.utils.audio.PcmDecoder;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Generates waveforms for local tracks that have none in the cache.
+ *
+ * Each run handles a bounded number of tracks and pauses between them, so
+ * the decoder never holds the CPU for long; the caller schedules the next
+ * run from the last track id of this one when there may be more left, so
+ * the library is walked once rather than from the start on every run.
+ */
+public class WaveformBatchGenerator {
+
+    private static final String TAG = "WaveformBatchGenerator";
+
+    private static final int PAGE_SIZE = 200;
+
+    private final AppDatabase database;
+    private final WaveformCache cache;
+
+    /**
+     * Outcome of one run.
+     */
+    public static class Batch {
+        public final int generated;
+        // Last track looked at; the next run starts after it
+        public final long lastTrackId;
+        public final boolean complete;
+
+        Batch(int generated, long lastTrackId, boolean complete) {
+            this.generated = generated;
+            this.lastTrackId = lastTrackId;
+            this.complete = complete;
+        }
+    }
+
+    public WaveformBatchGenerator(AppDatabase database, WaveformCache cache) {
+        this.database = database;
+        this.cache = cache;
+    }
+
+    /**
+     * Generates up to {@code maxTracks} missing waveforms for tracks after
+     * {@code afterId}. Files that cannot be decoded are recorded in the cache
+     * and skipped until their size changes.
+     *
+     * @param pauseMillis time to wait after each generated waveform
+     * @throws android.os.OperationCanceledException if the signal is cancelled
+     */
+    public Batch generateMissing(long afterId, int maxTracks, long pauseMillis,
+                                 CancellationSignal cancellationSignal) {
+        TrackDao trackDao = database.trackDao();
+        int generated = 0;
+
+        List<TrackDao.TrackFileSize> page = trackDao.getLocalFileSizesAfter(afterId, PAGE_SIZE);
+        while (!page.isEmpty()) {
+            for (TrackDao.TrackFileSize track : page) {
+                cancellationSignal.throwIfCanceled();
+                if (cache.contains(track.id, track.fileSize) || cache.hasFailed(track.id, track.fileSize)) {
+                    continue;
+                }
+                if (generate(track, cancellationSignal) && ++generated == maxTracks) {
+                    Log.d(TAG, "Generated " + generated + " waveforms, more pending after " + track.id);
+                    return new Batch(generated, track.id, false);
+                }
+                SystemClock.sleep(pauseMillis);
+            }
+            afterId = page.get(page.size() - 1).id;
+            page = trackDao.getLocalFileSizesAfter(afterId, PAGE_SIZE);
+        }
+
+        Log.d(TAG, "Generated " + generated + " waveforms");
+        return new Batch(generated, afterId, true);
+    }
+
+    /**
+     * Deletes cached waveforms and failure records of tracks that are no
+     * longer in the library.
+     *
+     * @return number of tracks whose files were removed
+     */
+    public int removeOrphans() {
+        TrackDao trackDao = database.trackDao();
+        List<Long> cached = new ArrayList<>(cache.getTrackIds());
+        int removed = 0;
+
+        for (int start = 0; start < cached.size(); start += TrackDao.LOOKUP_CHUNK_SIZE) {
+            List<Long> chunk = cached.subList(start, Math.min(start + TrackDao.LOOKUP_CHUNK_SIZE, cached.size()));
+            Set<Long> existing = new HashSet<>(trackDao.getExistingIds(chunk));
+            for (long trackId : chunk) {
+                if (!existing.contains(trackId)) {
+                    cache.remove(trackId);
+                    removed++;
+                }
+            }
+        }
+
+        Log.d(TAG, "Removed waveforms of " + removed + " deleted tracks");
+        return removed;
+    }
+
+    private boolean generate(TrackDao.TrackFileSize track, CancellationSignal cancellationSignal) {
+        WaveformGenerator generator = new WaveformGenerator();
+        Waveform waveform;
+        try {
+            PcmDecoder.decode(track.filePath, generator, cancellationSignal);
+            waveform = generator.getWaveform(track.fileSize);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot decode " + track.filePath, e);
+            waveform = null;
+        }
+        if (waveform == null) {
+            cache.markFailed(track.id, track.fileSize);
+            return false;
+        }
+        try {
+            cache.put(track.id, waveform);
+            return true;
+        } catch (IOException e) {
+            // The file is fine, so it is tried again next time
+            Log.w(TAG, "Cannot store waveform for " + track.filePath, e);
+            return false;
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package com.musicplayer.data.waveform;
+
+import android.content.Context;
+import android.util.Log;
+import android.util.LruCache;
+
+import com.musicplayer.data.local.entities.Track;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Disk cache of track waveforms, one small file per track under the app
+ * cache, with the most recently used waveforms also kept in memory.
+ *
+ * A file is read with a single memory mapping, and waveforms in memory are
+ * returned without any I/O, so the player can show the waveform of the
+ * current track without waiting. A waveform computed from a file of another
+ * size is treated as missing. Files that could not be decoded are recorded
+ * with their size, so they are not decoded again until they change.
+ */
+public class WaveformCache {
+
+    private static final String TAG = "WaveformCache";
+
+    private static final String DIRECTORY = "waveforms";
+    private static final String EXTENSION = ".wf";
+    private static final String FAILED_EXTENSION = ".failed";
+
+    private static final int MEMORY_ENTRIES = 16;
+
+    private static volatile WaveformCache INSTANCE;
+
+    private final File directory;
+    private final LruCache<Long, Waveform> memory = new LruCache<>(MEMORY_ENTRIES);
+
+    public WaveformCache(File directory) {
+        this.directory = directory;
+    }
+
+    public static WaveformCache getInstance(Context context) {
+        if (INSTANCE == null) {
+            synchronized (WaveformCache.class) {
+                if (INSTANCE == null) {
+                    INSTANCE = new WaveformCache(new File(context.getApplicationContext().getCacheDir(), DIRECTORY));
+                }
+            }
+        }
+        return INSTANCE;
+    }
+
+    /**
+     * Returns the waveform of a track if it is in memory; never touches the disk.
+     */
+    public Waveform peek(Track track) {
+        Waveform waveform = memory.get(track.getId());
+        return waveform != null && isCurrent(waveform.getSourceSize(), track.getFileSize()) ? waveform : null;
+    }
+
+    /**
+     * Returns the waveform of a track from memory or its file, or null if it
+     * has not been generated or the file has changed since.
+     */
+    public Waveform get(Track track) {
+        Waveform waveform = peek(track);
+        if (waveform != null) {
+            return waveform;
+        }
+        waveform = read(track.getId());
+        if (waveform == null || !isCurrent(waveform.getSourceSize(), track.getFileSize())) {
+            return null;
+        }
+        memory.put(track.getId(), waveform);
+        return waveform;
+    }
+
+    /**
+     * Whether an up-to-date waveform is stored for the track. Reads only the header.
+     */
+    public boolean contains(long trackId, long fileSize) {
+        File file = getFile(trackId);
+        if (!file.exists()) {
+            return false;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            byte[] header = new byte[Waveform.HEADER_SIZE];
+            in.readFully(header);
+            long sourceSize = Waveform.readSourceSize(ByteBuffer.wrap(header));
+            return isCurrent(sourceSize, fileSize);
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Stores a waveform. The file is written under a temporary name and then
+     * renamed, so readers never see a partial file.
+     */
+    public void put(long trackId, Waveform waveform) throws IOException {
+        if (!directory.exists() && !directory.mkdirs()) {
+            throw new IOException("Cannot create " + directory);
+        }
+        File file = getFile(trackId);
+        File temp = new File(directory, trackId + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            ByteBuffer buffer = waveform.asByteBuffer();
+            FileChannel channel = out.getChannel();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+        if (!temp.renameTo(file)) {
+            temp.delete();
+            throw new IOException("Cannot rename " + temp);
+        }
+        getFailedFile(trackId).delete();
+        memory.put(trackId, waveform);
+    }
+
+    /**
+     * Records that the track file of the given size could not be decoded.
+     */
+    public void markFailed(long trackId, long fileSize) {
+        if (!directory.exists() && !directory.mkdirs()) {
+            return;
+        }
+        try (DataOutputStream out = new DataOutputStream(new FileOutputStream(getFailedFile(trackId)))) {
+            out.writeLong(fileSize);
+        } catch (IOException e) {
+            Log.w(TAG, "Cannot record failed waveform of track " + trackId, e);
+        }
+    }
+
+    /**
+     * Whether decoding failed for the track file at its current size.
+     */
+    public boolean hasFailed(long trackId, long fileSize) {
+        File file = getFailedFile(trackId);
+        if (!file.exists()) {
+            return false;
+        }
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readLong() == fileSize;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Ids of the tracks that have a waveform or a recorded failure on disk.
+     */
+    public Set<Long> getTrackIds() {
+        Set<Long> trackIds = new HashSet<>();
+        String[] names = directory.list();
+        if (names == null) {
+            return trackIds;
+        }
+        for (String name : names) {
+            int dot = name.lastIndexOf('.');
+            try {
+                trackIds.add(Long.parseLong(name.substring(0, dot < 0 ? name.length() : dot)));
+            } catch (NumberFormatException e) {
+                // Not a cache file
+            }
+        }
+        return trackIds;
+    }
+
+    /**
+     * Removes everything stored for a track.
+     */
+    public void remove(long trackId) {
+        memory.remove(trackId);
+        getFile(trackId).delete();
+        getFailedFile(trackId).delete();
+        new File(directory, trackId + ".tmp").delete();
+    }
+
+    public File getFile(long trackId) {
+        return new File(directory, trackId + EXTENSION);
+    }
+
+    private File getFailedFile(long trackId) {
+        return new File(directory, trackId + FAILED_EXTENSION);
+    }
+
+    private Waveform read(long trackId) {
+        File file = getFile(trackId);
+        if (!file.exists()) {
+            return null;
+        }
+        try (RandomAccessFile in = new RandomAccessFile(file, "r")) {
+            FileChannel channel = in.getChannel();
+            // The mapping stays valid after the channel is closed
+            return Waveform.read(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        } catch (IOException e) {
+            Log.w(TAG, "Unreadable waveform " + file, e);
+            file.delete();
+            return null;
+        }
+    }
+
+    // Size is unknown for some imported tracks; trust the file then
+    private static boolean isCurrent(long sourceSize, long fileSize) {
+        return fileSize <= 0 || sourceSize == fileSize;
+    }
+}
@@ -0,0 +1,110 @@
+package com.musicplayer.data.waveform;
+
+import com.musicplayer.utils.audio.PcmSink;
+
+/**
+ * Reduces decoded PCM to a fixed number of min/max peak buckets.
+ *
+ * The length of the audio is not needed up front: samples are collected into
+ * twice the requested number of buckets, and whenever those are full each
+ * pair is merged and buckets start covering twice as many frames. All buckets
+ * therefore cover the same span, memory stays fixed, and at the end the
+ * collected buckets are reduced to the requested count.
+ */
+public class WaveformGenerator implements PcmSink {
+
+    public static final int DEFAULT_BUCKET_COUNT = 1000;
+
+    private final int bucketCount;
+    private final short[] mins;
+    private final short[] maxs;
+    private int used;
+
+    private int channelCount = 1;
+    private long framesPerBucket = 1;
+    private long framesInBucket;
+    private short currentMin = Short.MAX_VALUE;
+    private short currentMax = Short.MIN_VALUE;
+
+    public WaveformGenerator() {
+        this(DEFAULT_BUCKET_COUNT);
+    }
+
+    public WaveformGenerator(int bucketCount) {
+        this.bucketCount = bucketCount;
+        this.mins = new short[bucketCount * 2];
+        this.maxs = new short[bucketCount * 2];
+    }
+
+    @Override
+    public void onFormat(int sampleRate, int channelCount) {
+        this.channelCount = Math.max(1, channelCount);
+    }
+
+    @Override
+    public boolean onSamples(short[] samples, int count) {
+        for (int i = 0; i + channelCount <= count; i += channelCount) {
+            for (int c = 0; c < channelCount; c++) {
+                short sample = samples[i + c];
+                if (sample < currentMin) {
+                    currentMin = sample;
+                }
+                if (sample > currentMax) {
+                    currentMax = sample;
+                }
+            }
+            if (++framesInBucket == framesPerBucket) {
+                endBucket();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the waveform of everything received so far, or null if no
+     * samples were received.
+     *
+     * @param sourceSize size of the audio file, stored to detect a changed file
+     */
+    public Waveform getWaveform(long sourceSize) {
+        if (framesInBucket > 0) {
+            endBucket();
+        }
+        if (used == 0) {
+            return null;
+        }
+
+        byte[] peaks = new byte[bucketCount * 2];
+        for (int i = 0; i < bucketCount; i++) {
+            int start = (int) ((long) i * used / bucketCount);
+            int end = Math.max(start + 1, (int) ((long) (i + 1) * used / bucketCount));
+            short min = Short.MAX_VALUE;
+            short max = Short.MIN_VALUE;
+            for (int j = start; j < end; j++) {
+                min = (short) Math.min(min, mins[j]);
+                max = (short) Math.max(max, maxs[j]);
+            }
+            peaks[2 * i] = (byte) (min >> 8);
+            peaks[2 * i + 1] = (byte) (max >> 8);
+        }
+        return new Waveform(peaks, sourceSize);
+    }
+
+    private void endBucket() {
+        mins[used] = currentMin;
+        maxs[used] = currentMax;
+        used++;
+        currentMin = Short.MAX_VALUE;
+        currentMax = Short.MIN_VALUE;
+        framesInBucket = 0;
+
+        if (used == mins.length) {
+            for (int i = 0; i < bucketCount; i++) {
+                mins[i] = (short) Math.min(mins[2 * i], mins[2 * i + 1]);
+                maxs[i] = (short) Math.max(maxs[2 * i], maxs[2 * i + 1]);
+            }
+            used = bucketCount;
+            framesPerBucket *= 2;
+        }
+    }
+}
@@ -5,11 +5,14 @@ import android.util.Log;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.paging.PagingData;
 
 import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.dao.PlaylistDao;
 import com.musicplayer.data.local.entities.Playlist;
 import com.musicplayer.data.local.entities.PlaylistItem;
 import com.musicplayer.data.local.entities.Track;
+import com.musicplayer.data.paging.KeysetPagingSource;
 
 import java.util.ArrayList;
 import java.util.Date;
@@ -156,6 +159,20 @@ public class PlaylistRepository {
                 .subscribeOn(Schedulers.io());
     }
     
+    /**
+     * Gets tracks in a playlist in order, one page of
+     * {@link AppDatabase.Config#PLAYLIST_ITEM_PAGE_SIZE} at a time.
+     */
+    public Flowable<PagingData<PlaylistDao.PlaylistTrack>> getTracksPaged(long playlistId) {
+        return KeysetPagingSource.stream(AppDatabase.Config.PLAYLIST_ITEM_PAGE_SIZE, database,
+                new String[] {"playlist_items", "tracks"}, new KeysetPagingSource.Key<>(Long.MIN_VALUE, 0),
+                (afterPosition, afterItemId, limit) ->
+                        database.playlistDao().getTrackPage(playlistId, afterPosition, afterItemId, limit),
+                (beforePosition, beforeItemId, limit) ->
+                        database.playlistDao().getTrackPageBefore(playlistId, beforePosition, beforeItemId, limit),
+                item -> new KeysetPagingSource.Key<>(item.itemPosition, item.itemId));
+    }
+    
     /**
      * Adds a track to a playlist.
      */
@@ -183,6 +200,15 @@ public class PlaylistRepository {
                 .subscribeOn(Schedulers.io());
     }
     
+    /**
+     * Moves a playlist item right after another one, or to the start for 0.
+     */
+    public Completable moveItemAfter(long playlistId, long itemId, long afterItemId) {
+        return Completable.fromAction(() -> 
+                database.playlistDao().moveItemAfter(playlistId, itemId, afterItemId))
+                .subscribeOn(Schedulers.io());
+    }
+    
     /**
      * Creates a smart playlist.
      */
@@ -359,9 +385,10 @@ public class PlaylistRepository {
             }
             
             // Add tracks to playlist
-            int position = 0;
+            long position = 0;
             for (Track track : tracks) {
-                PlaylistItem item = new PlaylistItem(playlist.getId(), track.getId(), position++);
+                position += PlaylistDao.POSITION_GAP;
+                PlaylistItem item = new PlaylistItem(playlist.getId(), track.getId(), position);
                 database.playlistDao().insertItem(item);
             }
             
@@ -2,27 +2,50 @@ package com.musicplayer.repository;
 
 import android.content.Context;
 import android.net.Uri;
+import android.os.CancellationSignal;
 import android.provider.MediaStore;
 import android.util.Log;
 
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
+import androidx.paging.PagingData;
+import androidx.work.WorkInfo;
 
+import com.musicplayer.data.fingerprint.DuplicateFinder;
 import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.dao.AlbumDao;
+import com.musicplayer.data.local.dao.ArtistDao;
+import com.musicplayer.data.local.dao.TrackDao;
 import com.musicplayer.data.local.entities.Track;
 import com.musicplayer.data.local.entities.Album;
 import com.musicplayer.data.local.entities.Artist;
+import com.musicplayer.data.paging.KeysetPagingSource;
+import com.musicplayer.data.scanner.ImportProgress;
+import com.musicplayer.data.scanner.MediaStoreScanner;
+import com.musicplayer.data.scanner.MissingTrackCleaner;
+import com.musicplayer.data.scanner.ScanResult;
+import com.musicplayer.data.scanner.TrackBatchWriter;
+import com.musicplayer.data.scanner.TrackImporter;
+import com.musicplayer.data.search.LibrarySearchEngine;
+import com.musicplayer.data.search.LibrarySearchResult;
+import com.musicplayer.data.search.SearchResultCache;
+import com.musicplayer.data.search.TrackSearchIndex;
 import com.musicplayer.utils.MetadataExtractor;
+import com.musicplayer.worker.LibraryWork;
 
-import java.io.File;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
 import java.util.List;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 import io.reactivex.Completable;
 import io.reactivex.Flowable;
+import io.reactivex.Observable;
+import io.reactivex.Scheduler;
 import io.reactivex.Single;
 import io.reactivex.schedulers.Schedulers;
 
@@ -33,11 +56,23 @@ import io.reactivex.schedulers.Schedulers;
 public class TrackRepository {
     
     private static final String TAG = "TrackRepository";
+    
+    // Pause in typing after which a search session runs the query
+    public static final long SEARCH_DEBOUNCE_MS = 150;
     private static TrackRepository INSTANCE;
     
+    private final Context context;
     private final AppDatabase database;
     private final ExecutorService executor;
     private final MetadataExtractor metadataExtractor;
+    private final MediaStoreScanner mediaStoreScanner;
+    private final TrackImporter trackImporter;
+    private final MissingTrackCleaner missingTrackCleaner;
+    private final DuplicateFinder duplicateFinder;
+    // Background syncs of both search indexes, one at a time
+    private final ScheduledExecutorService searchExecutor;
+    private final TrackSearchIndex searchIndex;
+    private final LibrarySearchEngine librarySearch;
     
     // LiveData for observing changes
     private final MutableLiveData<List<Track>> allTracks = new MutableLiveData<>();
@@ -45,9 +80,17 @@ public class TrackRepository {
     private final MutableLiveData<List<Track>> recentTracks = new MutableLiveData<>();
     
     private TrackRepository(Context context) {
+        this.context = context;
         this.database = AppDatabase.getInstance(context);
         this.executor = Executors.newSingleThreadExecutor();
-        this.metadataExtractor = new MetadataExtractor(context);
+        this.metadataExtractor = new MetadataExtractor(context, database.metadataCacheDao());
+        this.mediaStoreScanner = new MediaStoreScanner(context, database);
+        this.trackImporter = new TrackImporter(database, metadataExtractor);
+        this.missingTrackCleaner = new MissingTrackCleaner(database);
+        this.duplicateFinder = new DuplicateFinder(database);
+        this.searchExecutor = Executors.newSingleThreadScheduledExecutor();
+        this.searchIndex = new TrackSearchIndex(database, searchExecutor);
+        this.librarySearch = new LibrarySearchEngine(database, searchIndex, searchExecutor);
     }
     
     /**
@@ -80,6 +123,21 @@ public class TrackRepository {
                 .subscribeOn(Schedulers.io());
     }
     
+    /**
+     * Inserts new tracks and refreshes the tags of tracks already in the library,
+     * keeping their play counts, ratings, favorites and bookmarks.
+     * Written in batches of {@link TrackBatchWriter#DEFAULT_BATCH_SIZE} per transaction.
+     */
+    public Completable upsertAll(List<Track> tracks) {
+        return Completable.fromAction(() -> {
+            TrackBatchWriter writer = new TrackBatchWriter(database);
+            for (Track track : tracks) {
+                writer.add(track);
+            }
+            writer.flush();
+        }).subscribeOn(Schedulers.io());
+    }
+    
     /**
      * Updates a track in the database.
      */
@@ -120,6 +178,58 @@ public class TrackRepository {
         return allTracks;
     }
     
+    /**
+     * Gets all tracks by title, one page of {@link AppDatabase.Config#TRACK_PAGE_SIZE} at a time.
+     */
+    public Flowable<PagingData<Track>> getAllPaged() {
+        return KeysetPagingSource.stream(AppDatabase.Config.TRACK_PAGE_SIZE, database,
+                new String[] {"tracks"}, new KeysetPagingSource.Key<String>(null, 0),
+                database.trackDao()::getPageByTitle, database.trackDao()::getPageByTitleBefore,
+                track -> new KeysetPagingSource.Key<>(track.getTitle(), track.getId()));
+    }
+    
+    /**
+     * Gets all albums by title, one page of {@link AppDatabase.Config#ALBUM_PAGE_SIZE} at a time.
+     */
+    public Flowable<PagingData<Album>> getAlbumsPaged() {
+        return KeysetPagingSource.stream(AppDatabase.Config.ALBUM_PAGE_SIZE, database,
+                new String[] {"albums"}, new KeysetPagingSource.Key<String>(null, 0),
+                database.albumDao()::getPageByTitle, database.albumDao()::getPageByTitleBefore,
+                album -> new KeysetPagingSource.Key<>(album.getTitle(), album.getId()));
+    }
+    
+    /**
+     * Gets all artists by name, one page of {@link AppDatabase.Config#ARTIST_PAGE_SIZE} at a time.
+     */
+    public Flowable<PagingData<Artist>> getArtistsPaged() {
+        return KeysetPagingSource.stream(AppDatabase.Config.ARTIST_PAGE_SIZE, database,
+                new String[] {"artists"}, new KeysetPagingSource.Key<String>(null, 0),
+                database.artistDao()::getPageByName, database.artistDao()::getPageByNameBefore,
+                artist -> new KeysetPagingSource.Key<>(artist.getName(), artist.getId()));
+    }
+    
+    /**
+     * Gets all albums by title with their track count, duration and plays,
+     * one page of {@link AppDatabase.Config#ALBUM_PAGE_SIZE} at a time.
+     */
+    public Flowable<PagingData<AlbumDao.AlbumWithStats>> getAlbumsWithStatsPaged() {
+        return KeysetPagingSource.stream(AppDatabase.Config.ALBUM_PAGE_SIZE, database,
+                new String[] {"albums", "album_stats"}, new KeysetPagingSource.Key<String>(null, 0),
+                database.albumDao()::getPageWithStatsByTitle, database.albumDao()::getPageWithStatsByTitleBefore,
+                album -> new KeysetPagingSource.Key<>(album.title, album.id));
+    }
+    
+    /**
+     * Gets all artists by name with their album and track counts, duration and
+     * plays, one page of {@link AppDatabase.Config#ARTIST_PAGE_SIZE} at a time.
+     */
+    public Flowable<PagingData<ArtistDao.ArtistWithStats>> getArtistsWithStatsPaged() {
+        return KeysetPagingSource.stream(AppDatabase.Config.ARTIST_PAGE_SIZE, database,
+                new String[] {"artists", "artist_stats"}, new KeysetPagingSource.Key<String>(null, 0),
+                database.artistDao()::getPageWithStatsByName, database.artistDao()::getPageWithStatsByNameBefore,
+                artist -> new KeysetPagingSource.Key<>(artist.name, artist.id));
+    }
+    
     /**
      * Searches tracks by title, artist, or album.
      */
@@ -129,6 +239,90 @@ public class TrackRepository {
                 .subscribeOn(Schedulers.io());
     }
     
+    /**
+     * Search-as-you-type over title, artist and album through the full-text
+     * index: every word may be the start of a word, best matches first.
+     */
+    public Single<List<Track>> searchRanked(String query, int limit) {
+        return Single.fromCallable(() -> database.trackDao().searchRanked(query, limit))
+                .subscribeOn(Schedulers.io());
+    }
+    
+    /**
+     * Instant search over title, artist and album from an in-memory index that
+     * ignores case and accents and folds Turkish dotted and dotless i. Every
+     * word may be the start of a word; best matches first.
+     */
+    public Single<List<Track>> searchInstant(String query, int limit) {
+        return Single.fromCallable(() -> {
+            List<Long> ids = searchIndex.search(query, Math.min(limit, TrackDao.LOOKUP_CHUNK_SIZE));
+            return database.trackDao().getByIdsInOrder(ids);
+        }).subscribeOn(Schedulers.io());
+    }
+    
+    /**
+     * Typo-tolerant variant of {@link #searchInstant}: words of four or more
+     * letters also match with one mistake, and of eight or more with two.
+     * Ranked by match quality, then field (title over artist over album),
+     * then play count.
+     */
+    public Single<List<Track>> searchFuzzy(String query, int limit) {
+        return Single.fromCallable(() -> {
+            List<Long> ids = searchIndex.searchFuzzy(query, Math.min(limit, TrackDao.LOOKUP_CHUNK_SIZE));
+            return database.trackDao().getByIdsInOrder(ids);
+        }).subscribeOn(Schedulers.io());
+    }
+    
+    /**
+     * Searches tracks, albums, artists and user playlists at once from a
+     * shared in-memory index, returning up to {@code limitPerGroup} of each,
+     * best first, with the kinds ordered by their best match.
+     */
+    public Single<LibrarySearchResult> searchLibrary(String query, int limitPerGroup) {
+        return Single.fromCallable(() -> librarySearch.search(query, limitPerGroup))
+                .subscribeOn(Schedulers.io());
+    }
+    
+    /**
+     * Runs search-as-you-type for a stream of queries, such as the text of a
+     * search box. A query runs once typing pauses for {@link #SEARCH_DEBOUNCE_MS};
+     * a newer query cancels the one in flight, and queries seen before or
+     * extending a complete earlier result are answered from a small cache
+     * kept for the session.
+     */
+    public Observable<List<Track>> searchSession(Observable<String> queries, int limit) {
+        return searchSession(queries, limit, Schedulers.computation());
+    }
+    
+    /**
+     * {@link #searchSession(Observable, int)} with the scheduler used for debouncing (for testing).
+     */
+    public Observable<List<Track>> searchSession(Observable<String> queries, int limit, Scheduler debounceScheduler) {
+        SearchResultCache<Track> cache = new SearchResultCache<>(SearchResultCache.DEFAULT_CAPACITY,
+                track -> new String[] {track.getTitle(), track.getArtist(), track.getAlbum()});
+        int indexLimit = Math.min(limit, TrackDao.LOOKUP_CHUNK_SIZE);
+        return queries
+                .map(String::trim)
+                .debounce(SEARCH_DEBOUNCE_MS, TimeUnit.MILLISECONDS, debounceScheduler)
+                .distinctUntilChanged()
+                .switchMap(query -> {
+                    if (query.isEmpty()) {
+                        return Observable.just(Collections.<Track>emptyList());
+                    }
+                    List<Track> cached = cache.get(query);
+                    if (cached != null) {
+                        return Observable.just(cached);
+                    }
+                    return Single.fromCallable(() -> {
+                        List<Long> ids = searchIndex.search(query, indexLimit);
+                        List<Track> result = database.trackDao().getByIdsInOrder(ids);
+                        // Fewer hits than allowed means the index has no other match
+                        cache.put(query, result, ids.size() < indexLimit);
+                        return result;
+                    }).subscribeOn(Schedulers.io()).toObservable();
+                });
+    }
+    
     /**
      * Gets favorite tracks.
      */
@@ -236,14 +430,76 @@ public class TrackRepository {
     }
     
     /**
-     * Scans media store for music files and adds them to the database.
+     * Syncs the library with media store, applying only what changed since the last sync.
      */
     public Completable scanMediaStore() {
         return Completable.fromAction(() -> {
-            List<Track> tracks = scanMediaStoreForTracks();
-            if (!tracks.isEmpty()) {
-                database.trackDao().insertAll(tracks);
+            ScanResult result = mediaStoreScanner.sync();
+            Log.d(TAG, "Media store sync: " + result);
+        }).subscribeOn(Schedulers.io());
+    }
+    
+    /**
+     * Rescans the whole media store, ignoring the stored sync watermark.
+     */
+    public Completable rescanMediaStore() {
+        return Completable.fromAction(() -> {
+            ScanResult result = scanMediaStoreForTracks();
+            Log.d(TAG, "Media store rescan: " + result);
+        }).subscribeOn(Schedulers.io());
+    }
+    
+    /**
+     * Schedules a library scan as background work that survives process death
+     * and resumes from its last checkpoint.
+     */
+    public void scheduleLibraryScan(boolean full) {
+        LibraryWork.enqueueScan(context, full);
+    }
+    
+    /**
+     * Schedules the missing-file cleanup to run while the device is charging.
+     */
+    public void scheduleCleanup() {
+        LibraryWork.enqueueCleanup(context);
+    }
+    
+    /**
+     * Observes the state and progress of the scheduled library scan.
+     */
+    public LiveData<List<WorkInfo>> getLibraryScanWorkInfo() {
+        return LibraryWork.getScanWorkInfo(context);
+    }
+    
+    /**
+     * Schedules fingerprinting of tracks that have none, used by {@link #findDuplicates()}.
+     */
+    public void scheduleFingerprinting() {
+        LibraryWork.enqueueFingerprinting(context);
+    }
+    
+    /**
+     * Schedules loudness analysis of tracks without ReplayGain values.
+     */
+    public void scheduleLoudnessAnalysis() {
+        LibraryWork.enqueueLoudnessAnalysis(context);
+    }
+
+    /**
+     * Finds groups of tracks that are the same recording, e.g. the same song
+     * at different bitrates or the same album in two folders.
+     * Only tracks fingerprinted by {@link #scheduleFingerprinting()} are considered.
+     */
+    public Single<List<List<Track>>> findDuplicates() {
+        return Single.fromCallable(() -> {
+            List<List<Track>> groups = new ArrayList<>();
+            for (List<Long> trackIds : duplicateFinder.findDuplicates()) {
+                List<Track> tracks = database.trackDao().getByIds(trackIds);
+                if (tracks.size() > 1) {
+                    groups.add(tracks);
+                }
             }
+            return groups;
         }).subscribeOn(Schedulers.io());
     }
     
@@ -251,16 +507,29 @@ public class TrackRepository {
      * Imports tracks from file paths.
      */
     public Completable importTracks(List<String> filePaths) {
-        return Completable.fromAction(() -> {
-            List<Track> tracks = new ArrayList<>();
-            for (String filePath : filePaths) {
-                Track track = createTrackFromFile(filePath);
-                if (track != null) {
-                    tracks.add(track);
-                }
+        return importTracksWithProgress(filePaths).ignoreElements();
+    }
+    
+    /**
+     * Imports tracks from file paths using parallel metadata extraction.
+     * Emits progress while running; disposing the stream cancels the import,
+     * and tracks extracted until then are still written.
+     */
+    public Observable<ImportProgress> importTracksWithProgress(List<String> filePaths) {
+        return Observable.<ImportProgress>create(emitter -> {
+            CancellationSignal cancellationSignal = new CancellationSignal();
+            emitter.setCancellable(cancellationSignal::cancel);
+            
+            try {
+                ScanResult result = trackImporter.importFiles(filePaths, emitter::onNext, cancellationSignal);
+                Log.d(TAG, "Import finished: " + result);
+            } catch (Exception e) {
+                // Not delivered, and not reported as undeliverable, once disposed
+                emitter.tryOnError(e);
+                return;
             }
-            if (!tracks.isEmpty()) {
-                database.trackDao().insertAll(tracks);
+            if (!emitter.isDisposed()) {
+                emitter.onComplete();
             }
         }).subscribeOn(Schedulers.io());
     }
@@ -291,25 +560,11 @@ public class TrackRepository {
     
     /**
      * Cleans up invalid tracks (missing files).
+     * Emits the number of tracks removed.
      */
-    public Completable cleanupInvalidTracks() {
-        return Completable.fromAction(() -> {
-            List<Track> tracks = database.trackDao().getAll();
-            List<Track> invalidTracks = new ArrayList<>();
-            
-            for (Track track : tracks) {
-                if (track.isLocal() && track.getFilePath() != null) {
-                    File file = new File(track.getFilePath());
-                    if (!file.exists() || !file.canRead()) {
-                        invalidTracks.add(track);
-                    }
-                }
-            }
-            
-            if (!invalidTracks.isEmpty()) {
-                database.trackDao().deleteAll(invalidTracks);
-            }
-        }).subscribeOn(Schedulers.io());
+    public Single<Integer> cleanupInvalidTracks() {
+        return Single.fromCallable(missingTrackCleaner::removeMissingTracks)
+                .subscribeOn(Schedulers.io());
     }
     
     // Private helper methods
@@ -338,40 +593,20 @@ public class TrackRepository {
         });
     }
     
-    private List<Track> scanMediaStoreForTracks() {
-        List<Track> tracks = new ArrayList<>();
-        // This would typically query MediaStore.Audio.Media.EXTERNAL_CONTENT_URI
-        // For now, return empty list - implement based on your needs
-        return tracks;
-    }
-    
-    private Track createTrackFromFile(String filePath) {
-        try {
-            File file = new File(filePath);
-            if (!file.exists() || !file.canRead()) {
-                return null;
-            }
-            
-            // Extract metadata using MetadataExtractor
-            Track track = metadataExtractor.extractMetadata(filePath);
-            if (track != null) {
-                // Check if track already exists
-                Track existingTrack = database.trackDao().getByFilePath(filePath);
-                if (existingTrack != null) {
-                    track.setId(existingTrack.getId());
-                }
-                return track;
-            }
-        } catch (Exception e) {
-            Log.e(TAG, "Error creating track from file: " + filePath, e);
-        }
-        return null;
+    private ScanResult scanMediaStoreForTracks() {
+        // Streams MediaStore.Audio.Media and writes in chunked transactions
+        return mediaStoreScanner.scan();
     }
     
     /**
      * Destroys the repository instance (for testing).
      */
     public static void destroyInstance() {
+        if (INSTANCE != null) {
+            INSTANCE.librarySearch.close();
+            INSTANCE.searchIndex.close();
+            INSTANCE.searchExecutor.shutdownNow();
+        }
         INSTANCE = null;
     }
 }
\ No newline at end of file
@@ -1,19 +1,26 @@
 package com.musicplayer.ui.player;
 
+import android.app.Application;
+
+import androidx.annotation.NonNull;
+import androidx.lifecycle.AndroidViewModel;
 import androidx.lifecycle.LiveData;
 import androidx.lifecycle.MutableLiveData;
-import androidx.lifecycle.ViewModel;
 
 import com.musicplayer.data.local.entities.Track;
+import com.musicplayer.data.waveform.Waveform;
+import com.musicplayer.data.waveform.WaveformCache;
 import com.musicplayer.service.MusicPlayerService;
 
 import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 /**
  * ViewModel for the music player.
  * Manages UI state and communicates with the music player service.
  */
-public class PlayerViewModel extends ViewModel {
+public class PlayerViewModel extends AndroidViewModel {
     
     private MusicPlayerService musicPlayerService;
     
@@ -26,8 +33,14 @@ public class PlayerViewModel extends ViewModel {
     private final MutableLiveData<Float> playbackSpeed = new MutableLiveData<>(1.0f);
     private final MutableLiveData<Boolean> isShuffleMode = new MutableLiveData<>(false);
     private final MutableLiveData<Integer> repeatMode = new MutableLiveData<>(0);
+    private final MutableLiveData<Waveform> waveform = new MutableLiveData<>();
+    
+    private final WaveformCache waveformCache;
+    private final ExecutorService waveformExecutor = Executors.newSingleThreadExecutor();
     
-    public PlayerViewModel() {
+    public PlayerViewModel(@NonNull Application application) {
+        super(application);
+        this.waveformCache = WaveformCache.getInstance(application);
         // Initialize default values
         playbackState.setValue(MusicPlayerService.STATE_IDLE);
     }
@@ -73,6 +86,7 @@ public class PlayerViewModel extends ViewModel {
             if (track != null) {
                 duration.postValue(track.getDuration());
             }
+            loadWaveform(track);
         });
         
         // Observe playback speed
@@ -85,6 +99,30 @@ public class PlayerViewModel extends ViewModel {
         repeatMode.postValue(musicPlayerService.getRepeatMode());
     }
     
+    /**
+     * Publishes the waveform of a track: at once if it is in memory, otherwise
+     * after mapping its file off the main thread. Null if none is generated yet.
+     */
+    private void loadWaveform(Track track) {
+        if (track == null) {
+            waveform.setValue(null);
+            return;
+        }
+        Waveform cached = waveformCache.peek(track);
+        if (cached != null) {
+            waveform.setValue(cached);
+            return;
+        }
+        waveform.setValue(null);
+        waveformExecutor.execute(() -> {
+            Waveform loaded = waveformCache.get(track);
+            // Skip if the track changed while loading
+            if (track == currentTrack.getValue()) {
+                waveform.postValue(loaded);
+            }
+        });
+    }
+    
     // Playback control methods
     
     public void playTrack(Track track) {
@@ -196,6 +234,19 @@ public class PlayerViewModel extends ViewModel {
         return repeatMode;
     }
     
+    /**
+     * Waveform of the current track for the seek bar, or null while none is available.
+     */
+    public LiveData<Waveform> getWaveform() {
+        return waveform;
+    }
+    
+    @Override
+    protected void onCleared() {
+        super.onCleared();
+        waveformExecutor.shutdownNow();
+    }
+    
     // State checkers
     
     public boolean isPlaying() {
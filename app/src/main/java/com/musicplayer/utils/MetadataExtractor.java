@@ -5,9 +5,14 @@ import android.media.MediaMetadataRetriever;
 import android.net.Uri;
 import android.util.Log;
 
+import com.musicplayer.data.local.dao.MetadataCacheDao;
+import com.musicplayer.data.local.entities.MetadataCacheEntry;
 import com.musicplayer.data.local.entities.Track;
+import com.musicplayer.utils.tags.AudioTags;
+import com.musicplayer.utils.tags.TagReader;
 
 import java.io.File;
+import java.util.Date;
 
 /**
  * Utility class for extracting metadata from audio files.
@@ -16,20 +21,73 @@ public class MetadataExtractor {
     
     private static final String TAG = "MetadataExtractor";
     private final Context context;
+    private final MetadataCacheDao metadataCache;
     
     public MetadataExtractor(Context context) {
+        this(context, null);
+    }
+    
+    /**
+     * Creates an extractor that serves unchanged files from the metadata cache.
+     */
+    public MetadataExtractor(Context context, MetadataCacheDao metadataCache) {
         this.context = context.getApplicationContext();
+        this.metadataCache = metadataCache;
     }
     
     /**
      * Extracts metadata from an audio file and creates a Track object.
+     * Files whose size and modification time match the cache are not read.
      */
     public Track extractMetadata(String filePath) {
         if (filePath == null || filePath.isEmpty()) {
             return null;
         }
         
+        File file = new File(filePath);
+        if (metadataCache != null) {
+            MetadataCacheEntry entry = metadataCache.getByPath(filePath);
+            if (entry != null && entry.isFromFile() && entry.matches(file.length(), file.lastModified())) {
+                return entry.toTrack();
+            }
+        }
+        
+        Track track = extractUncached(file);
+        if (track != null && metadataCache != null) {
+            metadataCache.insert(new MetadataCacheEntry(track));
+        }
+        return track;
+    }
+    
+    private Track extractUncached(File file) {
+        // Most files are handled by the header reader, so the retriever is only created on fallback
+        Track tagged = extractFromTags(file);
+        if (tagged != null) {
+            return tagged;
+        }
+        
         MediaMetadataRetriever retriever = new MediaMetadataRetriever();
+        try {
+            return extractMetadata(file.getPath(), retriever);
+        } finally {
+            try {
+                retriever.release();
+            } catch (Exception e) {
+                Log.w(TAG, "Error releasing MediaMetadataRetriever", e);
+            }
+        }
+    }
+    
+    /**
+     * Extracts metadata using a caller-owned retriever, which is left open so
+     * that batch imports can reuse one retriever per worker thread.
+     * Always reads the file; batch callers check the cache for a whole chunk at once.
+     */
+    public Track extractMetadata(String filePath, MediaMetadataRetriever retriever) {
+        if (filePath == null || filePath.isEmpty()) {
+            return null;
+        }
+        
         Track track = new Track();
         
         try {
@@ -39,6 +97,12 @@ public class MetadataExtractor {
                 return null;
             }
             
+            // Read tags straight from the file header; the retriever handles everything else
+            Track tagged = extractFromTags(file);
+            if (tagged != null) {
+                return tagged;
+            }
+            
             // Set the data source
             retriever.setDataSource(filePath);
             
@@ -47,6 +111,7 @@ public class MetadataExtractor {
             track.setTitle(extractMetadata(retriever, MediaMetadataRetriever.METADATA_KEY_TITLE, file.getName()));
             track.setArtist(extractMetadata(retriever, MediaMetadataRetriever.METADATA_KEY_ARTIST, "Unknown Artist"));
             track.setAlbum(extractMetadata(retriever, MediaMetadataRetriever.METADATA_KEY_ALBUM, "Unknown Album"));
+            track.setAlbumArtist(extractMetadata(retriever, MediaMetadataRetriever.METADATA_KEY_ALBUMARTIST, null));
             
             // Extract duration
             String durationStr = retriever.extractMetadata(MediaMetadataRetriever.METADATA_KEY_DURATION);
@@ -102,25 +167,55 @@ public class MetadataExtractor {
             
             // Set file properties
             track.setFileSize(file.length());
-            track.setIsLocal(true);
+            track.setDateModified(new Date(file.lastModified()));
+            track.setLocal(true);
+            track.setTagsFromFile(true);
             
-            // Extract album art path (if available)
-            // Note: This would typically be handled by a separate album art extraction utility
+            // Artwork is extracted once per album by AlbumArtworkUpdater, not per track
             
         } catch (Exception e) {
             Log.e(TAG, "Error extracting metadata from: " + filePath, e);
             return null;
-        } finally {
-            try {
-                retriever.release();
-            } catch (Exception e) {
-                Log.w(TAG, "Error releasing MediaMetadataRetriever", e);
-            }
         }
         
         return track;
     }
     
+    /**
+     * Builds a Track from the file's own tag headers, or returns null if the
+     * format is not supported by {@link TagReader}.
+     */
+    private Track extractFromTags(File file) {
+        if (!file.canRead()) {
+            return null;
+        }
+        AudioTags tags = TagReader.read(file);
+        if (tags == null) {
+            return null;
+        }
+        
+        Track track = new Track();
+        track.setFilePath(file.getPath());
+        track.setTitle(tags.title != null ? tags.title : file.getName());
+        track.setArtist(tags.artist != null ? tags.artist : "Unknown Artist");
+        track.setAlbum(tags.album != null ? tags.album : "Unknown Album");
+        track.setAlbumArtist(tags.albumArtist);
+        track.setDuration(tags.durationMs);
+        track.setTrackNumber(tags.trackNumber);
+        track.setYear(tags.year);
+        track.setGenre(tags.genre != null ? tags.genre : "");
+        track.setComposer(tags.composer != null ? tags.composer : "");
+        track.setMimeType(tags.mimeType);
+        track.setBitrate(tags.bitrate);
+        track.setSampleRate(tags.sampleRate);
+        track.setChannels(tags.channels);
+        track.setFileSize(file.length());
+        track.setDateModified(new Date(file.lastModified()));
+        track.setLocal(true);
+        track.setTagsFromFile(true);
+        return track;
+    }
+    
     /**
      * Extracts metadata with fallback to default value.
      */
@@ -160,7 +255,7 @@ public class MetadataExtractor {
             
             // Set as streaming track
             track.setStreamUrl(uri.toString());
-            track.setIsLocal(false);
+            track.setLocal(false);
             
         } catch (Exception e) {
             Log.e(TAG, "Error extracting metadata from URI: " + uri, e);
@@ -0,0 +1,269 @@
+package com.musicplayer.utils.audio;
+
+/**
+ * Measures integrated loudness and true peak following ITU-R BS.1770-4 and
+ * EBU R128, in a single streaming pass.
+ *
+ * Samples are K-weighted, 400 ms blocks with 75% overlap are formed from
+ * 100 ms sub-blocks, and block loudness is collected in a histogram that also
+ * keeps the exact energy per bin. Gating then runs over the histogram, so
+ * memory does not grow with the length of the audio. True peak is measured on
+ * a 4x oversampled signal. All buffers are allocated in {@link #onFormat};
+ * processing samples allocates nothing.
+ */
+public class LoudnessMeter implements PcmSink {
+
+    // Result for audio that is silent or shorter than one block
+    public static final double SILENCE = -70.0;
+
+    private static final double ABSOLUTE_GATE = -70.0;
+    private static final double RELATIVE_GATE = -10.0;
+    private static final double OFFSET = -0.691;
+
+    // Histogram of block loudness from the absolute gate up to +5 LUFS
+    private static final double HISTOGRAM_TOP = 5.0;
+    private static final int HISTOGRAM_BINS = 1000;
+    private static final double BIN_WIDTH = (HISTOGRAM_TOP - ABSOLUTE_GATE) / HISTOGRAM_BINS;
+
+    private static final int OVERSAMPLING = 4;
+    private static final int TAPS_PER_PHASE = 12;
+
+    // Interpolation filter, one row per oversampling phase
+    private static final double[][] PHASES = interpolationFilter();
+
+    private final long[] blockCounts = new long[HISTOGRAM_BINS];
+    private final double[] blockEnergies = new double[HISTOGRAM_BINS];
+
+    private int channelCount;
+    private double[] channelWeights;
+
+    // K-weighting: high shelf then high-pass, direct form II transposed state per channel
+    private final double[] shelfB = new double[3];
+    private final double[] shelfA = new double[3];
+    private final double[] highPassB = new double[3];
+    private final double[] highPassA = new double[3];
+    private double[] shelfState1;
+    private double[] shelfState2;
+    private double[] highPassState1;
+    private double[] highPassState2;
+
+    private int subBlockSize;
+    private int subBlockPosition;
+    private double subBlockEnergy;
+    private final double[] recentSubBlocks = new double[4];
+    private int subBlockCount;
+
+    // Last TAPS_PER_PHASE input samples per channel, for the true-peak filter
+    private double[][] history;
+    private int historyPosition;
+    private double peak;
+    private boolean oversample;
+
+    @Override
+    public void onFormat(int sampleRate, int channelCount) {
+        this.channelCount = Math.max(1, channelCount);
+        this.channelWeights = new double[this.channelCount];
+        for (int c = 0; c < this.channelCount; c++) {
+            channelWeights[c] = channelWeight(c, this.channelCount);
+        }
+        setUpKWeighting(sampleRate);
+        this.shelfState1 = new double[this.channelCount];
+        this.shelfState2 = new double[this.channelCount];
+        this.highPassState1 = new double[this.channelCount];
+        this.highPassState2 = new double[this.channelCount];
+
+        this.subBlockSize = Math.max(1, sampleRate / 10);
+        this.subBlockPosition = 0;
+        this.subBlockEnergy = 0;
+        this.subBlockCount = 0;
+
+        this.history = new double[this.channelCount][TAPS_PER_PHASE];
+        this.historyPosition = 0;
+        // At 4x the common rates the signal is already dense enough
+        this.oversample = sampleRate < 176400;
+    }
+
+    @Override
+    public boolean onSamples(short[] samples, int count) {
+        for (int i = 0; i + channelCount <= count; i += channelCount) {
+            double frameEnergy = 0;
+            for (int c = 0; c < channelCount; c++) {
+                double x = samples[i + c] / 32768.0;
+                trackPeak(c, x);
+
+                // High shelf
+                double y = shelfB[0] * x + shelfState1[c];
+                shelfState1[c] = shelfB[1] * x - shelfA[1] * y + shelfState2[c];
+                shelfState2[c] = shelfB[2] * x - shelfA[2] * y;
+                // High-pass
+                double z = highPassB[0] * y + highPassState1[c];
+                highPassState1[c] = highPassB[1] * y - highPassA[1] * z + highPassState2[c];
+                highPassState2[c] = highPassB[2] * y - highPassA[2] * z;
+
+                frameEnergy += channelWeights[c] * z * z;
+            }
+            historyPosition = (historyPosition + 1) % TAPS_PER_PHASE;
+
+            subBlockEnergy += frameEnergy;
+            if (++subBlockPosition == subBlockSize) {
+                endSubBlock();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Integrated loudness in LUFS, or {@link #SILENCE} if no block passed the gates.
+     */
+    public double getIntegratedLoudness() {
+        long count = 0;
+        double energy = 0;
+        for (int bin = 0; bin < HISTOGRAM_BINS; bin++) {
+            count += blockCounts[bin];
+            energy += blockEnergies[bin];
+        }
+        if (count == 0) {
+            return SILENCE;
+        }
+
+        double threshold = loudness(energy / count) + RELATIVE_GATE;
+        count = 0;
+        energy = 0;
+        for (int bin = binOf(threshold); bin < HISTOGRAM_BINS; bin++) {
+            count += blockCounts[bin];
+            energy += blockEnergies[bin];
+        }
+        return count > 0 ? Math.max(SILENCE, loudness(energy / count)) : SILENCE;
+    }
+
+    /**
+     * True peak in dBTP; {@link #SILENCE} or lower for silent input.
+     */
+    public double getTruePeak() {
+        return peak > 0 ? Math.max(SILENCE, 20 * Math.log10(peak)) : SILENCE;
+    }
+
+    /**
+     * Linear true peak, where 1.0 is digital full scale.
+     */
+    public double getTruePeakLinear() {
+        return peak;
+    }
+
+    private void endSubBlock() {
+        recentSubBlocks[subBlockCount % 4] = subBlockEnergy;
+        subBlockCount++;
+        subBlockEnergy = 0;
+        subBlockPosition = 0;
+        if (subBlockCount < 4) {
+            return;
+        }
+
+        double blockEnergy = (recentSubBlocks[0] + recentSubBlocks[1]
+                + recentSubBlocks[2] + recentSubBlocks[3]) / (4.0 * subBlockSize);
+        double blockLoudness = loudness(blockEnergy);
+        if (blockLoudness >= ABSOLUTE_GATE) {
+            int bin = Math.min(HISTOGRAM_BINS - 1, binOf(blockLoudness));
+            blockCounts[bin]++;
+            blockEnergies[bin] += blockEnergy;
+        }
+    }
+
+    private void trackPeak(int channel, double x) {
+        double[] samples = history[channel];
+        samples[historyPosition] = x;
+        double magnitude = Math.abs(x);
+        if (oversample) {
+            for (double[] phase : PHASES) {
+                double y = 0;
+                int index = historyPosition;
+                for (int k = 0; k < TAPS_PER_PHASE; k++) {
+                    y += phase[k] * samples[index];
+                    index = index == 0 ? TAPS_PER_PHASE - 1 : index - 1;
+                }
+                magnitude = Math.max(magnitude, Math.abs(y));
+            }
+        }
+        if (magnitude > peak) {
+            peak = magnitude;
+        }
+    }
+
+    private void setUpKWeighting(int sampleRate) {
+        // Filter design from the BS.1770 reference, re-derived for any sample rate
+        double f0 = 1681.974450955533;
+        double gain = 3.999843853973347;
+        double q = 0.7071752369554196;
+        double k = Math.tan(Math.PI * f0 / sampleRate);
+        double vh = Math.pow(10, gain / 20);
+        double vb = Math.pow(vh, 0.4996667741545416);
+        double a0 = 1 + k / q + k * k;
+        shelfB[0] = (vh + vb * k / q + k * k) / a0;
+        shelfB[1] = 2 * (k * k - vh) / a0;
+        shelfB[2] = (vh - vb * k / q + k * k) / a0;
+        shelfA[0] = 1;
+        shelfA[1] = 2 * (k * k - 1) / a0;
+        shelfA[2] = (1 - k / q + k * k) / a0;
+
+        f0 = 38.13547087602444;
+        q = 0.5003270373238773;
+        k = Math.tan(Math.PI * f0 / sampleRate);
+        a0 = 1 + k / q + k * k;
+        highPassB[0] = 1;
+        highPassB[1] = -2;
+        highPassB[2] = 1;
+        highPassA[0] = 1;
+        highPassA[1] = 2 * (k * k - 1) / a0;
+        highPassA[2] = (1 - k / q + k * k) / a0;
+    }
+
+    /**
+     * Surround channels of 5.1 count 1.41 times and the LFE not at all; others count once.
+     */
+    private static double channelWeight(int channel, int channelCount) {
+        if (channelCount == 6) {
+            if (channel == 3) {
+                return 0;
+            }
+            if (channel >= 4) {
+                return 1.41;
+            }
+        }
+        return 1;
+    }
+
+    private static double loudness(double energy) {
+        return energy > 0 ? OFFSET + 10 * Math.log10(energy) : Double.NEGATIVE_INFINITY;
+    }
+
+    private static int binOf(double loudness) {
+        return Math.max(0, (int) ((loudness - ABSOLUTE_GATE) / BIN_WIDTH));
+    }
+
+    /**
+     * Windowed-sinc lowpass at the input Nyquist frequency, split into
+     * {@link #OVERSAMPLING} phases whose taps are normalised to unity gain.
+     */
+    private static double[][] interpolationFilter() {
+        int taps = OVERSAMPLING * TAPS_PER_PHASE;
+        double center = (taps - 1) / 2.0;
+        double[][] phases = new double[OVERSAMPLING][TAPS_PER_PHASE];
+        for (int n = 0; n < taps; n++) {
+            double t = (n - center) / OVERSAMPLING;
+            double sinc = t == 0 ? 1 : Math.sin(Math.PI * t) / (Math.PI * t);
+            double window = 0.42 - 0.5 * Math.cos(2 * Math.PI * (n + 0.5) / taps)
+                    + 0.08 * Math.cos(4 * Math.PI * (n + 0.5) / taps);
+            phases[n % OVERSAMPLING][n / OVERSAMPLING] = sinc * window;
+        }
+        for (double[] phase : phases) {
+            double sum = 0;
+            for (double tap : phase) {
+                sum += tap;
+            }
+            for (int k = 0; k < phase.length; k++) {
+                phase[k] /= sum;
+            }
+        }
+        return phases;
+    }
+}
@@ -0,0 +1,153 @@
+package com.musicplayer.utils.audio;
+
+import android.media.AudioFormat;
+import android.media.MediaCodec;
+import android.media.MediaExtractor;
+import android.media.MediaFormat;
+import android.os.CancellationSignal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Decodes the first audio track of a file to PCM with the platform codecs
+ * and streams it to a {@link PcmSink}, one codec buffer at a time, so memory
+ * use does not depend on the length of the file.
+ */
+public final class PcmDecoder {
+
+    private static final long TIMEOUT_US = 10000;
+
+    private PcmDecoder() {}
+
+    /**
+     * Decodes until the end of the stream or until the sink asks to stop.
+     *
+     * @throws IOException if the file has no decodable audio track
+     * @throws android.os.OperationCanceledException if the signal is cancelled
+     */
+    public static void decode(String filePath, PcmSink sink, CancellationSignal cancellationSignal)
+            throws IOException {
+        MediaExtractor extractor = new MediaExtractor();
+        MediaCodec codec = null;
+        try {
+            extractor.setDataSource(filePath);
+            int trackIndex = findAudioTrack(extractor);
+            if (trackIndex < 0) {
+                throw new IOException("No audio track in " + filePath);
+            }
+            MediaFormat format = extractor.getTrackFormat(trackIndex);
+            extractor.selectTrack(trackIndex);
+
+            codec = MediaCodec.createDecoderByType(format.getString(MediaFormat.KEY_MIME));
+            codec.configure(format, null, null, 0);
+            codec.start();
+            drain(extractor, codec, format, sink, cancellationSignal);
+        } catch (IllegalStateException | IllegalArgumentException e) {
+            // Codec failures on malformed streams surface as runtime exceptions
+            throw new IOException("Cannot decode " + filePath, e);
+        } finally {
+            if (codec != null) {
+                try {
+                    codec.stop();
+                } catch (IllegalStateException e) {
+                    // Not started
+                }
+                codec.release();
+            }
+            extractor.release();
+        }
+    }
+
+    private static void drain(MediaExtractor extractor, MediaCodec codec, MediaFormat format,
+                              PcmSink sink, CancellationSignal cancellationSignal) {
+        MediaCodec.BufferInfo info = new MediaCodec.BufferInfo();
+        int sampleRate = format.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+        int channelCount = format.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+        boolean floatOutput = false;
+        boolean formatReported = false;
+        boolean inputDone = false;
+        short[] samples = new short[0];
+
+        while (true) {
+            if (cancellationSignal != null) {
+                cancellationSignal.throwIfCanceled();
+            }
+
+            if (!inputDone) {
+                int inputIndex = codec.dequeueInputBuffer(TIMEOUT_US);
+                if (inputIndex >= 0) {
+                    ByteBuffer input = codec.getInputBuffer(inputIndex);
+                    int size = input != null ? extractor.readSampleData(input, 0) : -1;
+                    if (size < 0) {
+                        codec.queueInputBuffer(inputIndex, 0, 0, 0, MediaCodec.BUFFER_FLAG_END_OF_STREAM);
+                        inputDone = true;
+                    } else {
+                        codec.queueInputBuffer(inputIndex, 0, size, extractor.getSampleTime(), 0);
+                        extractor.advance();
+                    }
+                }
+            }
+
+            int outputIndex = codec.dequeueOutputBuffer(info, TIMEOUT_US);
+            if (outputIndex == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                MediaFormat outputFormat = codec.getOutputFormat();
+                sampleRate = outputFormat.getInteger(MediaFormat.KEY_SAMPLE_RATE);
+                channelCount = outputFormat.getInteger(MediaFormat.KEY_CHANNEL_COUNT);
+                floatOutput = outputFormat.containsKey(MediaFormat.KEY_PCM_ENCODING)
+                        && outputFormat.getInteger(MediaFormat.KEY_PCM_ENCODING) == AudioFormat.ENCODING_PCM_FLOAT;
+                formatReported = false;
+            } else if (outputIndex >= 0) {
+                boolean endOfStream = (info.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0;
+                int count = 0;
+                if (info.size > 0) {
+                    ByteBuffer output = codec.getOutputBuffer(outputIndex);
+                    if (output != null) {
+                        output.position(info.offset);
+                        output.limit(info.offset + info.size);
+                        output = output.slice().order(ByteOrder.nativeOrder());
+                        count = floatOutput ? info.size / 4 : info.size / 2;
+                        if (samples.length < count) {
+                            samples = new short[count];
+                        }
+                        if (floatOutput) {
+                            FloatBuffer floats = output.asFloatBuffer();
+                            for (int i = 0; i < count; i++) {
+                                float value = Math.max(-1f, Math.min(1f, floats.get(i)));
+                                samples[i] = (short) (value * Short.MAX_VALUE);
+                            }
+                        } else {
+                            output.asShortBuffer().get(samples, 0, count);
+                        }
+                    }
+                }
+                codec.releaseOutputBuffer(outputIndex, false);
+
+                if (count > 0) {
+                    if (!formatReported) {
+                        sink.onFormat(sampleRate, channelCount);
+                        formatReported = true;
+                    }
+                    if (!sink.onSamples(samples, count)) {
+                        return;
+                    }
+                }
+                if (endOfStream) {
+                    return;
+                }
+            }
+        }
+    }
+
+    private static int findAudioTrack(MediaExtractor extractor) {
+        for (int i = 0; i < extractor.getTrackCount(); i++) {
+            String mime = extractor.getTrackFormat(i).getString(MediaFormat.KEY_MIME);
+            if (mime != null && mime.startsWith("audio/")) {
+                return i;
+            }
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,20 @@
+package com.musicplayer.utils.audio;
+
+/**
+ * Receives decoded audio from {@link PcmDecoder}.
+ */
+public interface PcmSink {
+
+    /**
+     * Called before the first samples, and again if the output format changes.
+     */
+    void onFormat(int sampleRate, int channelCount);
+
+    /**
+     * Receives interleaved 16-bit samples; only the first {@code count} values
+     * are valid and the array is reused after the call returns.
+     *
+     * @return false to stop decoding
+     */
+    boolean onSamples(short[] samples, int count);
+}
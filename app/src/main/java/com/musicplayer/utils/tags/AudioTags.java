@@ -0,0 +1,102 @@
+package com.musicplayer.utils.tags;
+
+/**
+ * Tag values and stream properties read from an audio file header.
+ * Text fields are null and numeric fields 0 when the file does not carry them.
+ */
+public class AudioTags {
+
+    public String mimeType;
+
+    public String title;
+    public String artist;
+    public String album;
+    public String albumArtist;
+    public String genre;
+    public String composer;
+    public int trackNumber;
+    public int year;
+
+    public long durationMs;
+    public int bitrate; // bits per second
+    public int sampleRate;
+    public int channels;
+
+    // Byte range of the encoded audio, excluding tags; length 0 when not known
+    public long audioOffset;
+    public long audioLength;
+
+    /**
+     * Sets a text field only if it has no value yet, so that richer tags read
+     * first (ID3v2) take precedence over fallbacks read later (ID3v1).
+     */
+    void setIfAbsent(Field field, String value) {
+        if (value == null) {
+            return;
+        }
+        value = value.trim();
+        if (value.isEmpty()) {
+            return;
+        }
+
+        switch (field) {
+            case TITLE:
+                if (title == null) title = value;
+                break;
+            case ARTIST:
+                if (artist == null) artist = value;
+                break;
+            case ALBUM:
+                if (album == null) album = value;
+                break;
+            case ALBUM_ARTIST:
+                if (albumArtist == null) albumArtist = value;
+                break;
+            case GENRE:
+                if (genre == null) genre = Genres.resolve(value);
+                break;
+            case COMPOSER:
+                if (composer == null) composer = value;
+                break;
+            case TRACK_NUMBER:
+                if (trackNumber == 0) trackNumber = parseLeadingInt(value);
+                break;
+            case YEAR:
+                if (year == 0) year = parseYear(value);
+                break;
+        }
+    }
+
+    /**
+     * Parses values such as "7" or "7/12".
+     */
+    static int parseLeadingInt(String value) {
+        int result = 0;
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                break;
+            }
+            result = result * 10 + (c - '0');
+            if (result > 100000) {
+                return 0;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Parses values such as "1999" or "1999-04-01T00:00".
+     */
+    static int parseYear(String value) {
+        if (value.length() < 4) {
+            return 0;
+        }
+        int year = parseLeadingInt(value.substring(0, 4));
+        return year >= 1000 ? year : 0;
+    }
+
+    enum Field {
+        TITLE, ARTIST, ALBUM, ALBUM_ARTIST, GENRE, COMPOSER, TRACK_NUMBER, YEAR
+    }
+}
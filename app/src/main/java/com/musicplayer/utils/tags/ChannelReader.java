@@ -0,0 +1,86 @@
+package com.musicplayer.utils.tags;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+
+/**
+ * Positioned reads over a file channel, or over an in-memory copy of part of a file.
+ * Every read allocates only the bytes requested, so parsers can walk container
+ * headers without pulling audio data or embedded pictures into memory.
+ */
+final class ChannelReader implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer memory;
+    private final long size;
+
+    ChannelReader(File file) throws IOException {
+        this.channel = new FileInputStream(file).getChannel();
+        this.memory = null;
+        this.size = channel.size();
+    }
+
+    private ChannelReader(byte[] data) {
+        this.channel = null;
+        this.memory = ByteBuffer.wrap(data);
+        this.size = data.length;
+    }
+
+    /**
+     * Wraps bytes that were already read and transformed, e.g. de-unsynchronised ID3 data.
+     */
+    static ChannelReader wrap(byte[] data) {
+        return new ChannelReader(data);
+    }
+
+    long size() {
+        return size;
+    }
+
+    /**
+     * Reads up to {@code length} bytes at {@code position}; the result is shorter near the end.
+     */
+    ByteBuffer read(long position, int length) throws IOException {
+        if (position < 0 || position >= size || length <= 0) {
+            return ByteBuffer.allocate(0);
+        }
+        int count = (int) Math.min(length, size - position);
+
+        if (memory != null) {
+            ByteBuffer slice = memory.duplicate();
+            slice.position((int) position);
+            slice.limit((int) position + count);
+            return slice.slice().order(ByteOrder.BIG_ENDIAN);
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(count);
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                break;
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+    /**
+     * Reads exactly {@code length} bytes or returns null if the file is too short.
+     */
+    ByteBuffer readFully(long position, int length) throws IOException {
+        ByteBuffer buffer = read(position, length);
+        return buffer.remaining() == length ? buffer : null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (channel != null) {
+            channel.close();
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package com.musicplayer.utils.tags;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+/**
+ * Computes a cheap identity hash of an audio file from a few samples of its
+ * encoded audio, leaving out the tags, so the hash stays the same when the
+ * file is moved, renamed or retagged.
+ *
+ * The hash covers the payload length and fixed-size samples from its start,
+ * middle and end. Ogg pages are renumbered when comments grow, so for Ogg and
+ * for unknown formats the whole file is the payload; such files keep their
+ * hash across moves but not across tag edits.
+ */
+public final class ContentHasher {
+
+    // Bytes read at each sample point
+    static final int SAMPLE_SIZE = 8 * 1024;
+
+    private ContentHasher() {}
+
+    /**
+     * Returns the content hash of {@code file}, or null if it cannot be read.
+     */
+    public static String hash(File file) {
+        return hash(file, TagReader.read(file));
+    }
+
+    /**
+     * Returns the content hash of {@code file} using payload bounds already
+     * read by {@link TagReader}, or null if it cannot be read.
+     */
+    public static String hash(File file, AudioTags tags) {
+        try (ChannelReader reader = new ChannelReader(file)) {
+            long offset = 0;
+            long length = reader.size();
+            if (tags != null && tags.audioLength > 0 && tags.audioOffset + tags.audioLength <= length) {
+                offset = tags.audioOffset;
+                length = tags.audioLength;
+            }
+            if (length == 0) {
+                return null;
+            }
+
+            MessageDigest digest = MessageDigest.getInstance("SHA-1");
+            digest.update(ByteBuffer.allocate(8).putLong(0, length));
+            if (length <= 3L * SAMPLE_SIZE) {
+                digest.update(reader.read(offset, (int) length));
+            } else {
+                digest.update(reader.read(offset, SAMPLE_SIZE));
+                digest.update(reader.read(offset + length / 2 - SAMPLE_SIZE / 2, SAMPLE_SIZE));
+                digest.update(reader.read(offset + length - SAMPLE_SIZE, SAMPLE_SIZE));
+            }
+            return toHex(digest.digest());
+        } catch (IOException e) {
+            return null;
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java runtime provides SHA-1
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String toHex(byte[] bytes) {
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return hex.toString();
+    }
+}
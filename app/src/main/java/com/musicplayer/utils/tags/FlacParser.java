@@ -0,0 +1,80 @@
+package com.musicplayer.utils.tags;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads FLAC STREAMINFO and VORBIS_COMMENT metadata blocks.
+ */
+final class FlacParser {
+
+    private static final int BLOCK_STREAMINFO = 0;
+    private static final int BLOCK_VORBIS_COMMENT = 4;
+
+    // Comment blocks are read up to this size; larger ones are parsed as far as they go
+    private static final int MAX_COMMENT_BLOCK = 256 * 1024;
+
+    private FlacParser() {}
+
+    static boolean isFlac(ByteBuffer header, int offset) {
+        return header.limit() >= offset + 4
+                && header.get(offset) == 'f' && header.get(offset + 1) == 'L'
+                && header.get(offset + 2) == 'a' && header.get(offset + 3) == 'C';
+    }
+
+    /**
+     * Parses a FLAC stream whose "fLaC" marker is at {@code start}
+     * (non-zero when the file carries a leading ID3v2 tag).
+     */
+    static AudioTags parse(ChannelReader reader, long start) throws IOException {
+        AudioTags tags = new AudioTags();
+        tags.mimeType = "audio/flac";
+
+        long position = start + 4;
+        long totalSamples = 0;
+        boolean last = false;
+
+        while (!last) {
+            ByteBuffer blockHeader = reader.readFully(position, 4);
+            if (blockHeader == null) {
+                return null;
+            }
+            int type = blockHeader.get(0) & 0x7F;
+            last = (blockHeader.get(0) & 0x80) != 0;
+            int length = ((blockHeader.get(1) & 0xFF) << 16)
+                    | ((blockHeader.get(2) & 0xFF) << 8) | (blockHeader.get(3) & 0xFF);
+            long body = position + 4;
+
+            if (type == BLOCK_STREAMINFO) {
+                ByteBuffer info = reader.readFully(body, 18);
+                if (info == null) {
+                    return null;
+                }
+                // 20 bits sample rate, 3 bits channels - 1, 5 bits bits per sample - 1, 36 bits samples
+                long packed = info.getLong(10);
+                tags.sampleRate = (int) (packed >>> 44);
+                tags.channels = (int) ((packed >>> 41) & 0x07) + 1;
+                totalSamples = packed & 0xFFFFFFFFFL;
+            } else if (type == BLOCK_VORBIS_COMMENT) {
+                VorbisComments.parse(reader.read(body, Math.min(length, MAX_COMMENT_BLOCK)), tags);
+            }
+
+            position = body + length;
+            if (type == 127) {
+                return null; // invalid block type
+            }
+        }
+
+        tags.audioOffset = position;
+        tags.audioLength = Math.max(0, reader.size() - position);
+
+        if (tags.sampleRate > 0 && totalSamples > 0) {
+            tags.durationMs = totalSamples * 1000L / tags.sampleRate;
+            long audioBytes = reader.size() - position;
+            if (tags.durationMs > 0 && audioBytes > 0) {
+                tags.bitrate = (int) (audioBytes * 8000L / tags.durationMs);
+            }
+        }
+        return tags;
+    }
+}
@@ -0,0 +1,68 @@
+package com.musicplayer.utils.tags;
+
+/**
+ * ID3v1 genre table, used by ID3 "(17)"-style references and the MP4 gnre atom.
+ */
+final class Genres {
+
+    private static final String[] NAMES = {
+            "Blues", "Classic Rock", "Country", "Dance", "Disco", "Funk", "Grunge", "Hip-Hop",
+            "Jazz", "Metal", "New Age", "Oldies", "Other", "Pop", "R&B", "Rap", "Reggae", "Rock",
+            "Techno", "Industrial", "Alternative", "Ska", "Death Metal", "Pranks", "Soundtrack",
+            "Euro-Techno", "Ambient", "Trip-Hop", "Vocal", "Jazz+Funk", "Fusion", "Trance",
+            "Classical", "Instrumental", "Acid", "House", "Game", "Sound Clip", "Gospel", "Noise",
+            "Alternative Rock", "Bass", "Soul", "Punk", "Space", "Meditative", "Instrumental Pop",
+            "Instrumental Rock", "Ethnic", "Gothic", "Darkwave", "Techno-Industrial", "Electronic",
+            "Pop-Folk", "Eurodance", "Dream", "Southern Rock", "Comedy", "Cult", "Gangsta", "Top 40",
+            "Christian Rap", "Pop/Funk", "Jungle", "Native American", "Cabaret", "New Wave",
+            "Psychedelic", "Rave", "Showtunes", "Trailer", "Lo-Fi", "Tribal", "Acid Punk",
+            "Acid Jazz", "Polka", "Retro", "Musical", "Rock & Roll", "Hard Rock", "Folk",
+            "Folk-Rock", "National Folk", "Swing", "Fast Fusion", "Bebop", "Latin", "Revival",
+            "Celtic", "Bluegrass", "Avantgarde", "Gothic Rock", "Progressive Rock",
+            "Psychedelic Rock", "Symphonic Rock", "Slow Rock", "Big Band", "Chorus",
+            "Easy Listening", "Acoustic", "Humour", "Speech", "Chanson", "Opera", "Chamber Music",
+            "Sonata", "Symphony", "Booty Bass", "Primus", "Porn Groove", "Satire", "Slow Jam",
+            "Club", "Tango", "Samba", "Folklore", "Ballad", "Power Ballad", "Rhythmic Soul",
+            "Freestyle", "Duet", "Punk Rock", "Drum Solo", "A Cappella", "Euro-House", "Dance Hall"
+    };
+
+    private Genres() {}
+
+    /**
+     * Returns the genre name for an ID3v1 index, or null if out of range.
+     */
+    static String byIndex(int index) {
+        return index >= 0 && index < NAMES.length ? NAMES[index] : null;
+    }
+
+    /**
+     * Resolves "17", "(17)" and "(17)Rock Opera" references; other text is returned as is.
+     */
+    static String resolve(String value) {
+        if (value.startsWith("(")) {
+            int close = value.indexOf(')');
+            if (close > 1) {
+                String refined = value.substring(close + 1).trim();
+                if (!refined.isEmpty()) {
+                    return refined;
+                }
+                String name = byNumber(value.substring(1, close));
+                return name != null ? name : value;
+            }
+        }
+        String name = byNumber(value);
+        return name != null ? name : value;
+    }
+
+    private static String byNumber(String value) {
+        if (value.isEmpty() || value.length() > 3) {
+            return null;
+        }
+        for (int i = 0; i < value.length(); i++) {
+            if (!Character.isDigit(value.charAt(i))) {
+                return null;
+            }
+        }
+        return byIndex(Integer.parseInt(value));
+    }
+}
@@ -0,0 +1,473 @@
+package com.musicplayer.utils.tags;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads ID3v2.2/2.3/2.4 and ID3v1 tags plus the MPEG audio stream properties of MP3 files.
+ */
+final class Id3Parser {
+
+    static final int ID3V2_HEADER_SIZE = 10;
+    static final int ID3V1_SIZE = 128;
+
+    // Text frames larger than this are skipped; anything bigger is not a title or artist
+    private static final int MAX_TEXT_FRAME = 64 * 1024;
+
+    // Tags with whole-tag unsynchronisation are read into memory up to this size
+    private static final int MAX_UNSYNC_TAG = 4 * 1024 * 1024;
+
+    // How far past the tag to look for the first MPEG frame
+    private static final int MAX_SYNC_SEARCH = 64 * 1024;
+
+    private static final int[][] BITRATES_KBPS = {
+            // MPEG-1 layer I, II, III
+            {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+            {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320},
+            // MPEG-2/2.5 layer I, II and III
+            {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+            {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}
+    };
+
+    private static final int[][] SAMPLE_RATES = {
+            {11025, 12000, 8000},   // MPEG-2.5
+            null,                   // reserved
+            {22050, 24000, 16000},  // MPEG-2
+            {44100, 48000, 32000}   // MPEG-1
+    };
+
+    private Id3Parser() {}
+
+    static boolean hasId3v2(ByteBuffer header) {
+        return header.remaining() >= ID3V2_HEADER_SIZE
+                && header.get(0) == 'I' && header.get(1) == 'D' && header.get(2) == '3';
+    }
+
+    /**
+     * Returns the total size of the ID3v2 tag at the start of the file, or 0 if there is none.
+     */
+    static long id3v2Size(ChannelReader reader) throws IOException {
+        ByteBuffer header = reader.read(0, ID3V2_HEADER_SIZE);
+        if (!hasId3v2(header)) {
+            return 0;
+        }
+        boolean footer = (header.get(5) & 0x10) != 0;
+        return ID3V2_HEADER_SIZE + syncsafe(header, 6) + (footer ? ID3V2_HEADER_SIZE : 0);
+    }
+
+    /**
+     * Parses an MP3 file: ID3v2 at the start, ID3v1 at the end, and the first MPEG frame.
+     */
+    static AudioTags parseMp3(ChannelReader reader) throws IOException {
+        AudioTags tags = new AudioTags();
+        tags.mimeType = "audio/mpeg";
+
+        long audioStart = 0;
+        ByteBuffer header = reader.read(0, ID3V2_HEADER_SIZE);
+        if (hasId3v2(header)) {
+            parseId3v2(reader, header, tags);
+            audioStart = id3v2Size(reader);
+        }
+
+        long audioEnd = reader.size();
+        if (parseId3v1(reader, tags)) {
+            audioEnd -= ID3V1_SIZE;
+        }
+
+        if (!readMpegStream(reader, audioStart, audioEnd, tags)) {
+            return null;
+        }
+        return tags;
+    }
+
+    /**
+     * Looks for an MPEG audio frame near the start of a file that has no ID3v2 tag.
+     */
+    static boolean looksLikeMpeg(ChannelReader reader) throws IOException {
+        ByteBuffer head = reader.read(0, 4);
+        return head.remaining() == 4 && frameLength(head, 0) > 0;
+    }
+
+    // ID3v2
+
+    private static void parseId3v2(ChannelReader reader, ByteBuffer header, AudioTags tags)
+            throws IOException {
+        int major = header.get(3) & 0xFF;
+        int flags = header.get(5) & 0xFF;
+        long tagSize = syncsafe(header, 6);
+        if (major < 2 || major > 4) {
+            return;
+        }
+
+        ChannelReader source = reader;
+        long position = ID3V2_HEADER_SIZE;
+        long end = ID3V2_HEADER_SIZE + tagSize;
+
+        // Pre-2.4 unsynchronisation covers the whole tag, frame headers included
+        if ((flags & 0x80) != 0 && major < 4) {
+            if (tagSize > MAX_UNSYNC_TAG) {
+                return;
+            }
+            ByteBuffer raw = reader.read(ID3V2_HEADER_SIZE, (int) tagSize);
+            byte[] data = removeUnsynchronisation(raw);
+            source = ChannelReader.wrap(data);
+            position = 0;
+            end = data.length;
+        }
+
+        if ((flags & 0x40) != 0 && major >= 3) {
+            ByteBuffer extended = source.readFully(position, 4);
+            if (extended == null) {
+                return;
+            }
+            position += major == 4 ? syncsafe(extended, 0) : 4 + (extended.getInt(0) & 0xFFFFFFFFL);
+        }
+
+        int headerSize = major == 2 ? 6 : 10;
+        while (position + headerSize <= end) {
+            ByteBuffer frameHeader = source.readFully(position, headerSize);
+            if (frameHeader == null || frameHeader.get(0) == 0) {
+                break; // padding
+            }
+
+            String id;
+            long size;
+            int formatFlags = 0;
+            if (major == 2) {
+                id = ascii(frameHeader, 0, 3);
+                size = ((frameHeader.get(3) & 0xFF) << 16)
+                        | ((frameHeader.get(4) & 0xFF) << 8) | (frameHeader.get(5) & 0xFF);
+            } else {
+                id = ascii(frameHeader, 0, 4);
+                size = major == 4 ? syncsafe(frameHeader, 4) : frameHeader.getInt(4) & 0xFFFFFFFFL;
+                formatFlags = frameHeader.get(9) & 0xFF;
+            }
+
+            long body = position + headerSize;
+            position = body + size;
+            if (size <= 0 || position > end) {
+                break;
+            }
+
+            AudioTags.Field field = fieldFor(id);
+            if (field == null || size > MAX_TEXT_FRAME) {
+                continue;
+            }
+
+            ByteBuffer data = source.read(body, (int) size);
+            data = frameData(data, major, formatFlags);
+            if (data != null) {
+                tags.setIfAbsent(field, decodeText(data));
+            }
+        }
+    }
+
+    /**
+     * Strips per-frame extras (grouping byte, data length, unsynchronisation);
+     * returns null for compressed or encrypted frames.
+     */
+    private static ByteBuffer frameData(ByteBuffer data, int major, int formatFlags) {
+        if (major == 3) {
+            if ((formatFlags & 0xC0) != 0) {
+                return null;
+            }
+            if ((formatFlags & 0x20) != 0) {
+                data.position(data.position() + 1);
+            }
+            return data;
+        }
+        if (major == 4) {
+            if ((formatFlags & 0x0C) != 0) {
+                return null;
+            }
+            int skip = 0;
+            if ((formatFlags & 0x40) != 0) skip += 1;
+            if ((formatFlags & 0x01) != 0) skip += 4;
+            if (skip > data.remaining()) {
+                return null;
+            }
+            data.position(data.position() + skip);
+            if ((formatFlags & 0x02) != 0) {
+                return ByteBuffer.wrap(removeUnsynchronisation(data));
+            }
+        }
+        return data;
+    }
+
+    private static AudioTags.Field fieldFor(String id) {
+        switch (id) {
+            case "TIT2":
+            case "TT2":
+                return AudioTags.Field.TITLE;
+            case "TPE1":
+            case "TP1":
+                return AudioTags.Field.ARTIST;
+            case "TALB":
+            case "TAL":
+                return AudioTags.Field.ALBUM;
+            case "TPE2":
+            case "TP2":
+                return AudioTags.Field.ALBUM_ARTIST;
+            case "TCON":
+            case "TCO":
+                return AudioTags.Field.GENRE;
+            case "TCOM":
+            case "TCM":
+                return AudioTags.Field.COMPOSER;
+            case "TRCK":
+            case "TRK":
+                return AudioTags.Field.TRACK_NUMBER;
+            case "TDRC":
+            case "TYER":
+            case "TYE":
+                return AudioTags.Field.YEAR;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * Decodes an ID3 text frame body: an encoding byte followed by the text.
+     * Only the first value of multi-value (null separated) frames is returned.
+     */
+    static String decodeText(ByteBuffer data) {
+        if (!data.hasRemaining()) {
+            return null;
+        }
+        int encoding = data.get() & 0xFF;
+        int start = data.position();
+        int end = data.limit();
+
+        Charset charset;
+        int unit = 1;
+        switch (encoding) {
+            case 1:
+                charset = StandardCharsets.UTF_16; // BOM decides the byte order
+                unit = 2;
+                break;
+            case 2:
+                charset = StandardCharsets.UTF_16BE;
+                unit = 2;
+                break;
+            case 3:
+                charset = StandardCharsets.UTF_8;
+                break;
+            default:
+                charset = StandardCharsets.ISO_8859_1;
+                break;
+        }
+
+        int terminator = end;
+        for (int i = start; i + unit <= end; i += unit) {
+            if (data.get(i) == 0 && (unit == 1 || data.get(i + 1) == 0)) {
+                terminator = i;
+                break;
+            }
+        }
+        if (terminator == start) {
+            return null;
+        }
+
+        byte[] bytes = new byte[terminator - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = data.get(start + i);
+        }
+        return new String(bytes, charset);
+    }
+
+    private static byte[] removeUnsynchronisation(ByteBuffer data) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream(data.remaining());
+        byte previous = 0;
+        while (data.hasRemaining()) {
+            byte b = data.get();
+            if (!(previous == (byte) 0xFF && b == 0)) {
+                out.write(b);
+            }
+            previous = b;
+        }
+        return out.toByteArray();
+    }
+
+    // ID3v1
+
+    private static boolean parseId3v1(ChannelReader reader, AudioTags tags) throws IOException {
+        if (reader.size() < ID3V1_SIZE) {
+            return false;
+        }
+        ByteBuffer tag = reader.readFully(reader.size() - ID3V1_SIZE, ID3V1_SIZE);
+        if (tag == null || tag.get(0) != 'T' || tag.get(1) != 'A' || tag.get(2) != 'G') {
+            return false;
+        }
+
+        tags.setIfAbsent(AudioTags.Field.TITLE, latin1(tag, 3, 30));
+        tags.setIfAbsent(AudioTags.Field.ARTIST, latin1(tag, 33, 30));
+        tags.setIfAbsent(AudioTags.Field.ALBUM, latin1(tag, 63, 30));
+        tags.setIfAbsent(AudioTags.Field.YEAR, latin1(tag, 93, 4));
+        // ID3v1.1 stores the track number in the last byte of the comment
+        if (tag.get(125) == 0 && tag.get(126) != 0 && tags.trackNumber == 0) {
+            tags.trackNumber = tag.get(126) & 0xFF;
+        }
+        if (tags.genre == null) {
+            tags.genre = Genres.byIndex(tag.get(127) & 0xFF);
+        }
+        return true;
+    }
+
+    // MPEG audio
+
+    /**
+     * Finds the first MPEG frame after the tag and derives duration, bitrate and format,
+     * using a Xing/Info or VBRI header when present and a CBR estimate otherwise.
+     */
+    private static boolean readMpegStream(ChannelReader reader, long audioStart, long audioEnd,
+                                          AudioTags tags) throws IOException {
+        ByteBuffer window = reader.read(audioStart, MAX_SYNC_SEARCH);
+        int offset = -1;
+        for (int i = 0; i + 4 <= window.limit(); i++) {
+            int length = frameLength(window, i);
+            if (length <= 0) {
+                continue;
+            }
+            // Confirm with the following frame when it is inside the window
+            if (i + length + 4 <= window.limit() && frameLength(window, i + length) <= 0) {
+                continue;
+            }
+            offset = i;
+            break;
+        }
+        if (offset < 0) {
+            return false;
+        }
+
+        int b1 = window.get(offset + 1) & 0xFF;
+        int b2 = window.get(offset + 2) & 0xFF;
+        int b3 = window.get(offset + 3) & 0xFF;
+        int version = (b1 >> 3) & 0x03;
+        int layer = 4 - ((b1 >> 1) & 0x03);
+        int bitrate = bitrateKbps(version, layer, b2 >> 4) * 1000;
+        int sampleRate = SAMPLE_RATES[version][(b2 >> 2) & 0x03];
+        boolean mono = (b3 >> 6) == 3;
+        int samplesPerFrame = layer == 1 ? 384 : (layer == 3 && version != 3 ? 576 : 1152);
+
+        tags.sampleRate = sampleRate;
+        tags.channels = mono ? 1 : 2;
+
+        long audioBytes = Math.max(0, audioEnd - audioStart - offset);
+        tags.audioOffset = audioStart + offset;
+        tags.audioLength = audioBytes;
+        long frames = 0;
+        long vbrBytes = 0;
+
+        // Xing/Info header sits right after the side information of the first frame
+        int sideInfo = version == 3 ? (mono ? 17 : 32) : (mono ? 9 : 17);
+        int xing = offset + 4 + sideInfo;
+        if (xing + 16 <= window.limit()) {
+            String marker = ascii(window, xing, 4);
+            if ("Xing".equals(marker) || "Info".equals(marker)) {
+                int flags = window.getInt(xing + 4);
+                int field = xing + 8;
+                if ((flags & 0x01) != 0) {
+                    frames = window.getInt(field) & 0xFFFFFFFFL;
+                    field += 4;
+                }
+                if ((flags & 0x02) != 0 && field + 4 <= window.limit()) {
+                    vbrBytes = window.getInt(field) & 0xFFFFFFFFL;
+                }
+            }
+        }
+
+        int vbri = offset + 4 + 32;
+        if (frames == 0 && vbri + 18 <= window.limit() && "VBRI".equals(ascii(window, vbri, 4))) {
+            vbrBytes = window.getInt(vbri + 10) & 0xFFFFFFFFL;
+            frames = window.getInt(vbri + 14) & 0xFFFFFFFFL;
+        }
+
+        if (frames > 0) {
+            tags.durationMs = frames * samplesPerFrame * 1000L / sampleRate;
+            long bytes = vbrBytes > 0 ? vbrBytes : audioBytes;
+            tags.bitrate = tags.durationMs > 0 ? (int) (bytes * 8000L / tags.durationMs) : bitrate;
+        } else {
+            tags.bitrate = bitrate;
+            tags.durationMs = audioBytes * 8000L / bitrate;
+        }
+        return true;
+    }
+
+    /**
+     * Returns the length of the MPEG frame whose header starts at {@code i}, or 0 if the
+     * bytes there are not a valid frame header.
+     */
+    private static int frameLength(ByteBuffer buffer, int i) {
+        if (i + 4 > buffer.limit()) {
+            return 0;
+        }
+        int b0 = buffer.get(i) & 0xFF;
+        int b1 = buffer.get(i + 1) & 0xFF;
+        int b2 = buffer.get(i + 2) & 0xFF;
+        if (b0 != 0xFF || (b1 & 0xE0) != 0xE0) {
+            return 0;
+        }
+
+        int version = (b1 >> 3) & 0x03;
+        int layerBits = (b1 >> 1) & 0x03;
+        int bitrateIndex = b2 >> 4;
+        int rateIndex = (b2 >> 2) & 0x03;
+        if (version == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15 || rateIndex == 3) {
+            return 0;
+        }
+
+        int layer = 4 - layerBits;
+        int bitrate = bitrateKbps(version, layer, bitrateIndex) * 1000;
+        int sampleRate = SAMPLE_RATES[version][rateIndex];
+        int padding = (b2 >> 1) & 0x01;
+
+        if (layer == 1) {
+            return (12 * bitrate / sampleRate + padding) * 4;
+        }
+        int coefficient = layer == 3 && version != 3 ? 72 : 144;
+        return coefficient * bitrate / sampleRate + padding;
+    }
+
+    private static int bitrateKbps(int version, int layer, int index) {
+        if (version == 3) {
+            return BITRATES_KBPS[layer - 1][index];
+        }
+        return BITRATES_KBPS[layer == 1 ? 3 : 4][index];
+    }
+
+    // Helpers
+
+    static long syncsafe(ByteBuffer buffer, int offset) {
+        return ((buffer.get(offset) & 0x7FL) << 21)
+                | ((buffer.get(offset + 1) & 0x7FL) << 14)
+                | ((buffer.get(offset + 2) & 0x7FL) << 7)
+                | (buffer.get(offset + 3) & 0x7FL);
+    }
+
+    static String ascii(ByteBuffer buffer, int offset, int length) {
+        if (offset + length > buffer.limit()) {
+            return "";
+        }
+        char[] chars = new char[length];
+        for (int i = 0; i < length; i++) {
+            chars[i] = (char) (buffer.get(offset + i) & 0xFF);
+        }
+        return new String(chars);
+    }
+
+    private static String latin1(ByteBuffer buffer, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && buffer.get(end) != 0) {
+            end++;
+        }
+        byte[] bytes = new byte[end - offset];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.ISO_8859_1);
+    }
+}
@@ -0,0 +1,254 @@
+package com.musicplayer.utils.tags;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads MP4/M4A files by walking the atom tree with header-sized positioned reads.
+ * Only mvhd, stsd and the iTunes ilst items are read in full; mdat is never touched.
+ */
+final class Mp4Parser {
+
+    // Atoms that only contain other atoms and are descended into
+    private static final int MOOV = fourCc("moov");
+    private static final int TRAK = fourCc("trak");
+    private static final int MDIA = fourCc("mdia");
+    private static final int MINF = fourCc("minf");
+    private static final int STBL = fourCc("stbl");
+    private static final int UDTA = fourCc("udta");
+    private static final int META = fourCc("meta");
+    private static final int ILST = fourCc("ilst");
+
+    private static final int FTYP = fourCc("ftyp");
+    private static final int MDAT = fourCc("mdat");
+    private static final int MVHD = fourCc("mvhd");
+    private static final int STSD = fourCc("stsd");
+    private static final int HDLR = fourCc("hdlr");
+    private static final int DATA = fourCc("data");
+
+    private static final int NAME = 0xA96E616D;      // ©nam
+    private static final int ARTIST = 0xA9415254;    // ©ART
+    private static final int ALBUM = 0xA9616C62;     // ©alb
+    private static final int GENRE = 0xA967656E;     // ©gen
+    private static final int WRITER = 0xA9777274;    // ©wrt
+    private static final int DAY = 0xA9646179;       // ©day
+    private static final int ALBUM_ARTIST = fourCc("aART");
+    private static final int TRACK = fourCc("trkn");
+    private static final int GENRE_ID = fourCc("gnre");
+
+    // Tag values larger than this (e.g. cover art) are not read
+    private static final int MAX_ITEM_SIZE = 64 * 1024;
+
+    private static final int MAX_DEPTH = 8;
+
+    private Mp4Parser() {}
+
+    static boolean isMp4(ByteBuffer header) {
+        return header.limit() >= 8 && header.getInt(4) == FTYP;
+    }
+
+    static AudioTags parse(ChannelReader reader) throws IOException {
+        AudioTags tags = new AudioTags();
+        tags.mimeType = "audio/mp4";
+
+        long mdatSize = 0;
+        long position = 0;
+        boolean sawMoov = false;
+        while (position + 8 <= reader.size()) {
+            Atom atom = Atom.read(reader, position);
+            if (atom == null) {
+                break;
+            }
+            if (atom.type == MOOV) {
+                walk(reader, atom, tags, 0);
+                sawMoov = true;
+            } else if (atom.type == MDAT) {
+                mdatSize += atom.end - atom.dataStart;
+                if (atom.end - atom.dataStart > tags.audioLength) {
+                    tags.audioOffset = atom.dataStart;
+                    tags.audioLength = atom.end - atom.dataStart;
+                }
+            }
+            position = atom.end;
+        }
+        if (!sawMoov) {
+            return null;
+        }
+
+        if (tags.durationMs > 0 && mdatSize > 0) {
+            tags.bitrate = (int) (mdatSize * 8000L / tags.durationMs);
+        }
+        return tags;
+    }
+
+    private static void walk(ChannelReader reader, Atom parent, AudioTags tags, int depth)
+            throws IOException {
+        if (depth > MAX_DEPTH) {
+            return;
+        }
+
+        long position = parent.dataStart;
+        if (parent.type == META && !isHandlerFirst(reader, position)) {
+            position += 4; // full box: version and flags precede the children
+        }
+
+        while (position + 8 <= parent.end) {
+            Atom atom = Atom.read(reader, position);
+            if (atom == null || atom.end > parent.end) {
+                return;
+            }
+
+            if (parent.type == ILST) {
+                readItem(reader, atom, tags);
+            } else if (atom.type == MVHD) {
+                readMovieHeader(reader, atom, tags);
+            } else if (atom.type == STSD) {
+                readSampleDescription(reader, atom, tags);
+            } else if (atom.type == TRAK || atom.type == MDIA || atom.type == MINF
+                    || atom.type == STBL || atom.type == UDTA || atom.type == META
+                    || atom.type == ILST) {
+                walk(reader, atom, tags, depth + 1);
+            }
+            position = atom.end;
+        }
+    }
+
+    /**
+     * QuickTime-style meta atoms are plain containers whose first child is hdlr;
+     * ISO-style ones are full boxes with four bytes of version and flags first.
+     */
+    private static boolean isHandlerFirst(ChannelReader reader, long position) throws IOException {
+        ByteBuffer peek = reader.readFully(position, 8);
+        return peek != null && peek.getInt(4) == HDLR;
+    }
+
+    private static void readMovieHeader(ChannelReader reader, Atom atom, AudioTags tags)
+            throws IOException {
+        ByteBuffer data = reader.readFully(atom.dataStart, 32);
+        if (data == null) {
+            return;
+        }
+        int version = data.get(0) & 0xFF;
+        long timescale;
+        long duration;
+        if (version == 1) {
+            timescale = data.getInt(20) & 0xFFFFFFFFL;
+            duration = data.getLong(24);
+        } else {
+            timescale = data.getInt(12) & 0xFFFFFFFFL;
+            duration = data.getInt(16) & 0xFFFFFFFFL;
+        }
+        if (timescale > 0 && duration > 0) {
+            tags.durationMs = duration * 1000L / timescale;
+        }
+    }
+
+    /**
+     * Reads channel count and sample rate from the first audio sample entry.
+     */
+    private static void readSampleDescription(ChannelReader reader, Atom atom, AudioTags tags)
+            throws IOException {
+        if (tags.sampleRate > 0) {
+            return; // first audio track wins
+        }
+        // version/flags (4) and entry count (4), then the first sample entry
+        ByteBuffer data = reader.readFully(atom.dataStart, 8 + 36);
+        if (data == null) {
+            return;
+        }
+        int entry = 8;
+        int channels = data.getShort(entry + 24) & 0xFFFF;
+        int sampleRate = data.getInt(entry + 32) >>> 16; // 16.16 fixed point
+        if (channels > 0 && channels <= 32 && sampleRate > 0) {
+            tags.channels = channels;
+            tags.sampleRate = sampleRate;
+        }
+    }
+
+    private static void readItem(ChannelReader reader, Atom item, AudioTags tags) throws IOException {
+        AudioTags.Field field;
+        if (item.type == NAME) field = AudioTags.Field.TITLE;
+        else if (item.type == ARTIST) field = AudioTags.Field.ARTIST;
+        else if (item.type == ALBUM) field = AudioTags.Field.ALBUM;
+        else if (item.type == ALBUM_ARTIST) field = AudioTags.Field.ALBUM_ARTIST;
+        else if (item.type == GENRE) field = AudioTags.Field.GENRE;
+        else if (item.type == WRITER) field = AudioTags.Field.COMPOSER;
+        else if (item.type == DAY) field = AudioTags.Field.YEAR;
+        else if (item.type == TRACK || item.type == GENRE_ID) field = null;
+        else return;
+
+        Atom data = Atom.read(reader, item.dataStart);
+        if (data == null || data.type != DATA || data.end > item.end) {
+            return;
+        }
+        long valueSize = data.end - data.dataStart - 8; // type indicator and locale
+        if (valueSize <= 0 || valueSize > MAX_ITEM_SIZE) {
+            return;
+        }
+        ByteBuffer value = reader.readFully(data.dataStart + 8, (int) valueSize);
+        if (value == null) {
+            return;
+        }
+
+        if (item.type == TRACK) {
+            // reserved (2), track (2), total (2)
+            if (valueSize >= 4 && tags.trackNumber == 0) {
+                tags.trackNumber = value.getShort(2) & 0xFFFF;
+            }
+        } else if (item.type == GENRE_ID) {
+            if (valueSize >= 2 && tags.genre == null) {
+                tags.genre = Genres.byIndex((value.getShort(0) & 0xFFFF) - 1);
+            }
+        } else {
+            byte[] bytes = new byte[(int) valueSize];
+            value.get(bytes);
+            tags.setIfAbsent(field, new String(bytes, StandardCharsets.UTF_8));
+        }
+    }
+
+    private static int fourCc(String type) {
+        return (type.charAt(0) << 24) | (type.charAt(1) << 16) | (type.charAt(2) << 8) | type.charAt(3);
+    }
+
+    /**
+     * Atom header: where the payload starts and where the atom ends.
+     */
+    private static final class Atom {
+        final int type;
+        final long dataStart;
+        final long end;
+
+        private Atom(int type, long dataStart, long end) {
+            this.type = type;
+            this.dataStart = dataStart;
+            this.end = end;
+        }
+
+        static Atom read(ChannelReader reader, long position) throws IOException {
+            ByteBuffer header = reader.readFully(position, 8);
+            if (header == null) {
+                return null;
+            }
+            long size = header.getInt(0) & 0xFFFFFFFFL;
+            int type = header.getInt(4);
+            long dataStart = position + 8;
+
+            if (size == 1) {
+                ByteBuffer large = reader.readFully(position + 8, 8);
+                if (large == null) {
+                    return null;
+                }
+                size = large.getLong(0);
+                dataStart += 8;
+            } else if (size == 0) {
+                size = reader.size() - position; // extends to end of file
+            }
+
+            if (size < dataStart - position || position + size > reader.size()) {
+                return null;
+            }
+            return new Atom(type, dataStart, position + size);
+        }
+    }
+}
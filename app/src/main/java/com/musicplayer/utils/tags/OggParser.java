@@ -0,0 +1,156 @@
+package com.musicplayer.utils.tags;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * Reads Ogg Vorbis and Ogg Opus identification and comment headers, and the
+ * duration from the granule position of the last page.
+ */
+final class OggParser {
+
+    private static final int PAGE_HEADER_SIZE = 27;
+
+    // Comment packets are collected up to this size; cover art beyond it is not needed
+    private static final int MAX_COMMENT_PACKET = 256 * 1024;
+
+    // Largest possible Ogg page (header, 255 lacing values, 255 * 255 bytes) plus slack
+    private static final int TAIL_SEARCH = 80 * 1024;
+
+    private static final int OPUS_RATE = 48000;
+
+    private OggParser() {}
+
+    static boolean isOgg(ByteBuffer header) {
+        return header.limit() >= 4 && header.get(0) == 'O' && header.get(1) == 'g'
+                && header.get(2) == 'g' && header.get(3) == 'S';
+    }
+
+    static AudioTags parse(ChannelReader reader) throws IOException {
+        ByteBuffer first = reader.readFully(0, PAGE_HEADER_SIZE);
+        if (first == null) {
+            return null;
+        }
+        first.order(ByteOrder.LITTLE_ENDIAN);
+        int serial = first.getInt(14);
+
+        byte[][] packets = readHeaderPackets(reader, serial);
+        if (packets[0] == null) {
+            return null;
+        }
+
+        AudioTags tags = new AudioTags();
+        tags.mimeType = "audio/ogg";
+        ByteBuffer ident = ByteBuffer.wrap(packets[0]).order(ByteOrder.LITTLE_ENDIAN);
+
+        boolean opus;
+        int preSkip = 0;
+        int commentPrefix;
+        if (ident.limit() >= 16 && ident.get(0) == 1 && "vorbis".equals(Id3Parser.ascii(ident, 1, 6))) {
+            opus = false;
+            tags.channels = ident.get(11) & 0xFF;
+            tags.sampleRate = ident.getInt(12);
+            commentPrefix = 7; // 0x03 "vorbis"
+        } else if (ident.limit() >= 19 && "OpusHead".equals(Id3Parser.ascii(ident, 0, 8))) {
+            opus = true;
+            tags.channels = ident.get(9) & 0xFF;
+            preSkip = ident.getShort(10) & 0xFFFF;
+            int inputRate = ident.getInt(12);
+            tags.sampleRate = inputRate > 0 ? inputRate : OPUS_RATE;
+            commentPrefix = 8; // "OpusTags"
+        } else {
+            return null; // Ogg FLAC, Speex, ... are left to the platform retriever
+        }
+
+        if (packets[1] != null && packets[1].length > commentPrefix) {
+            ByteBuffer comments = ByteBuffer.wrap(packets[1]);
+            comments.position(commentPrefix);
+            VorbisComments.parse(comments, tags);
+        }
+
+        long granule = lastGranule(reader, serial);
+        int granuleRate = opus ? OPUS_RATE : tags.sampleRate;
+        if (granule > preSkip && granuleRate > 0) {
+            tags.durationMs = (granule - preSkip) * 1000L / granuleRate;
+            if (tags.durationMs > 0) {
+                tags.bitrate = (int) (reader.size() * 8000L / tags.durationMs);
+            }
+        }
+        return tags;
+    }
+
+    /**
+     * Reassembles the first two packets (identification and comment header) of the stream.
+     */
+    private static byte[][] readHeaderPackets(ChannelReader reader, int serial) throws IOException {
+        byte[][] packets = new byte[2][];
+        ByteArrayOutputStream packet = new ByteArrayOutputStream();
+        int packetIndex = 0;
+        boolean truncated = false;
+        long position = 0;
+
+        while (packetIndex < 2) {
+            ByteBuffer header = reader.readFully(position, PAGE_HEADER_SIZE);
+            if (header == null || !isOgg(header)) {
+                break;
+            }
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            int segments = header.get(26) & 0xFF;
+            ByteBuffer lacing = reader.readFully(position + PAGE_HEADER_SIZE, segments);
+            if (lacing == null) {
+                break;
+            }
+
+            int bodySize = 0;
+            for (int i = 0; i < segments; i++) {
+                bodySize += lacing.get(i) & 0xFF;
+            }
+            long body = position + PAGE_HEADER_SIZE + segments;
+            position = body + bodySize;
+            if (header.getInt(14) != serial) {
+                continue; // page of another multiplexed stream
+            }
+
+            ByteBuffer data = reader.read(body, bodySize);
+            int offset = 0;
+            for (int i = 0; i < segments && packetIndex < 2; i++) {
+                int length = lacing.get(i) & 0xFF;
+                if (packet.size() + length <= MAX_COMMENT_PACKET) {
+                    for (int j = 0; j < length && offset + j < data.limit(); j++) {
+                        packet.write(data.get(offset + j));
+                    }
+                } else {
+                    truncated = true;
+                }
+                offset += length;
+                if (length < 255) {
+                    packets[packetIndex++] = packet.toByteArray();
+                    packet.reset();
+                }
+            }
+
+            if (packetIndex == 1 && truncated) {
+                packets[1] = packet.toByteArray();
+                break;
+            }
+        }
+        return packets;
+    }
+
+    private static long lastGranule(ChannelReader reader, int serial) throws IOException {
+        long start = Math.max(0, reader.size() - TAIL_SEARCH);
+        ByteBuffer tail = reader.read(start, TAIL_SEARCH).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = tail.limit() - PAGE_HEADER_SIZE; i >= 0; i--) {
+            if (tail.get(i) == 'O' && tail.get(i + 1) == 'g' && tail.get(i + 2) == 'g'
+                    && tail.get(i + 3) == 'S' && tail.getInt(i + 14) == serial) {
+                long granule = tail.getLong(i + 6);
+                if (granule >= 0) {
+                    return granule;
+                }
+            }
+        }
+        return 0;
+    }
+}
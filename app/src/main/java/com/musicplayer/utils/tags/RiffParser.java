@@ -0,0 +1,131 @@
+package com.musicplayer.utils.tags;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads WAV files: the fmt chunk, the size of the data chunk and LIST/INFO tags.
+ */
+final class RiffParser {
+
+    // INFO values larger than this are not tags we use
+    private static final int MAX_INFO_CHUNK = 64 * 1024;
+
+    private RiffParser() {}
+
+    static boolean isWave(ByteBuffer header) {
+        return header.limit() >= 12 && "RIFF".equals(Id3Parser.ascii(header, 0, 4))
+                && "WAVE".equals(Id3Parser.ascii(header, 8, 4));
+    }
+
+    static AudioTags parse(ChannelReader reader) throws IOException {
+        AudioTags tags = new AudioTags();
+        tags.mimeType = "audio/wav";
+
+        int byteRate = 0;
+        long dataSize = 0;
+        boolean sawFormat = false;
+        long position = 12;
+
+        while (position + 8 <= reader.size()) {
+            ByteBuffer header = reader.readFully(position, 8);
+            if (header == null) {
+                break;
+            }
+            header.order(ByteOrder.LITTLE_ENDIAN);
+            String id = Id3Parser.ascii(header, 0, 4);
+            long size = header.getInt(4) & 0xFFFFFFFFL;
+            long body = position + 8;
+
+            if ("fmt ".equals(id)) {
+                ByteBuffer format = reader.readFully(body, 16);
+                if (format == null) {
+                    return null;
+                }
+                format.order(ByteOrder.LITTLE_ENDIAN);
+                tags.channels = format.getShort(2) & 0xFFFF;
+                tags.sampleRate = format.getInt(4);
+                byteRate = format.getInt(8);
+                sawFormat = true;
+            } else if ("data".equals(id)) {
+                // Streaming writers leave the size at 0 or 0xFFFFFFFF; use the rest of the file
+                dataSize = size == 0 || body + size > reader.size() ? reader.size() - body : size;
+                tags.audioOffset = body;
+                tags.audioLength = dataSize;
+            } else if ("LIST".equals(id) && size >= 4 && size <= MAX_INFO_CHUNK) {
+                ByteBuffer list = reader.readFully(body, (int) size);
+                if (list != null && "INFO".equals(Id3Parser.ascii(list, 0, 4))) {
+                    parseInfo(list, tags);
+                }
+            }
+
+            // Chunks are padded to an even size
+            position = body + size + (size & 1);
+        }
+
+        if (!sawFormat) {
+            return null;
+        }
+        if (byteRate > 0) {
+            tags.bitrate = byteRate * 8;
+            tags.durationMs = dataSize * 1000L / byteRate;
+        }
+        return tags;
+    }
+
+    private static void parseInfo(ByteBuffer list, AudioTags tags) {
+        list.order(ByteOrder.LITTLE_ENDIAN);
+        int position = 4;
+        while (position + 8 <= list.limit()) {
+            String id = Id3Parser.ascii(list, position, 4);
+            long size = list.getInt(position + 4) & 0xFFFFFFFFL;
+            int body = position + 8;
+            if (body + size > list.limit()) {
+                return;
+            }
+
+            AudioTags.Field field = fieldFor(id);
+            if (field != null) {
+                tags.setIfAbsent(field, string(list, body, (int) size));
+            }
+            position = body + (int) size + (int) (size & 1);
+        }
+    }
+
+    private static AudioTags.Field fieldFor(String id) {
+        switch (id) {
+            case "INAM":
+                return AudioTags.Field.TITLE;
+            case "IART":
+                return AudioTags.Field.ARTIST;
+            case "IPRD":
+                return AudioTags.Field.ALBUM;
+            case "IGNR":
+                return AudioTags.Field.GENRE;
+            case "ICRD":
+                return AudioTags.Field.YEAR;
+            case "ITRK":
+            case "IPRT":
+                return AudioTags.Field.TRACK_NUMBER;
+            default:
+                return null;
+        }
+    }
+
+    /**
+     * INFO strings are NUL-terminated; most writers use UTF-8 or plain ASCII.
+     */
+    private static String string(ByteBuffer data, int offset, int length) {
+        int end = offset;
+        while (end < offset + length && data.get(end) != 0) {
+            end++;
+        }
+        byte[] bytes = new byte[end - offset];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = data.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
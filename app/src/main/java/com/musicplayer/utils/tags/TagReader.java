@@ -0,0 +1,63 @@
+package com.musicplayer.utils.tags;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * Reads tags and stream properties directly from audio file headers.
+ * Supports MP3 (ID3v2/ID3v1 + MPEG frames), FLAC, Ogg Vorbis/Opus, MP4/M4A and WAV.
+ *
+ * Only container headers and tag frames are read, never audio data, so this is much
+ * cheaper than MediaMetadataRetriever. Callers fall back to the retriever when
+ * {@link #read(File)} returns null.
+ */
+public final class TagReader {
+
+    private static final int MAGIC_SIZE = 12;
+
+    private TagReader() {}
+
+    /**
+     * Returns the tags of {@code file}, or null if the format is not recognised
+     * or the file is malformed.
+     */
+    public static AudioTags read(File file) {
+        try (ChannelReader reader = new ChannelReader(file)) {
+            return read(reader);
+        } catch (IOException | RuntimeException e) {
+            // Malformed headers are treated like unknown formats
+            return null;
+        }
+    }
+
+    static AudioTags read(ChannelReader reader) throws IOException {
+        ByteBuffer header = reader.read(0, MAGIC_SIZE);
+
+        if (FlacParser.isFlac(header, 0)) {
+            return FlacParser.parse(reader, 0);
+        }
+        if (OggParser.isOgg(header)) {
+            return OggParser.parse(reader);
+        }
+        if (Mp4Parser.isMp4(header)) {
+            return Mp4Parser.parse(reader);
+        }
+        if (RiffParser.isWave(header)) {
+            return RiffParser.parse(reader);
+        }
+
+        if (Id3Parser.hasId3v2(header)) {
+            // Some taggers put an ID3v2 tag in front of FLAC streams
+            long tagSize = Id3Parser.id3v2Size(reader);
+            if (FlacParser.isFlac(reader.read(tagSize, 4), 0)) {
+                return FlacParser.parse(reader, tagSize);
+            }
+            return Id3Parser.parseMp3(reader);
+        }
+        if (Id3Parser.looksLikeMpeg(reader)) {
+            return Id3Parser.parseMp3(reader);
+        }
+        return null;
+    }
+}
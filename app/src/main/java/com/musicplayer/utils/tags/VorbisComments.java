@@ -0,0 +1,90 @@
+package com.musicplayer.utils.tags;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+
+/**
+ * Parses Vorbis comment blocks as used by FLAC, Ogg Vorbis and Opus.
+ */
+final class VorbisComments {
+
+    private VorbisComments() {}
+
+    /**
+     * Reads comments from {@code data}, starting at its current position.
+     * A truncated block is parsed up to the last complete comment.
+     */
+    static void parse(ByteBuffer data, AudioTags tags) {
+        data.order(ByteOrder.LITTLE_ENDIAN);
+        if (data.remaining() < 4) {
+            return;
+        }
+        long vendorLength = data.getInt() & 0xFFFFFFFFL;
+        if (vendorLength > data.remaining() - 4) {
+            return;
+        }
+        data.position(data.position() + (int) vendorLength);
+
+        long count = data.getInt() & 0xFFFFFFFFL;
+        for (long i = 0; i < count && data.remaining() >= 4; i++) {
+            long length = data.getInt() & 0xFFFFFFFFL;
+            if (length > data.remaining()) {
+                return;
+            }
+
+            int start = data.position();
+            int separator = -1;
+            for (int j = start; j < start + length; j++) {
+                if (data.get(j) == '=') {
+                    separator = j;
+                    break;
+                }
+            }
+            data.position(start + (int) length);
+            if (separator < 0) {
+                continue;
+            }
+
+            AudioTags.Field field = fieldFor(string(data, start, separator - start)
+                    .toUpperCase(Locale.ROOT));
+            if (field != null) {
+                tags.setIfAbsent(field, string(data, separator + 1, start + (int) length - separator - 1));
+            }
+        }
+    }
+
+    private static AudioTags.Field fieldFor(String key) {
+        switch (key) {
+            case "TITLE":
+                return AudioTags.Field.TITLE;
+            case "ARTIST":
+                return AudioTags.Field.ARTIST;
+            case "ALBUM":
+                return AudioTags.Field.ALBUM;
+            case "ALBUMARTIST":
+            case "ALBUM ARTIST":
+                return AudioTags.Field.ALBUM_ARTIST;
+            case "GENRE":
+                return AudioTags.Field.GENRE;
+            case "COMPOSER":
+                return AudioTags.Field.COMPOSER;
+            case "TRACKNUMBER":
+                return AudioTags.Field.TRACK_NUMBER;
+            case "DATE":
+            case "YEAR":
+                return AudioTags.Field.YEAR;
+            default:
+                return null;
+        }
+    }
+
+    private static String string(ByteBuffer data, int offset, int length) {
+        byte[] bytes = new byte[length];
+        for (int i = 0; i < length; i++) {
+            bytes[i] = data.get(offset + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,68 @@
+package com.musicplayer.worker;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.musicplayer.data.artwork.AlbumArtworkUpdater;
+import com.musicplayer.data.artwork.ArtworkCache;
+import com.musicplayer.data.artwork.ArtworkSource;
+import com.musicplayer.data.artwork.EmbeddedArtworkSource;
+import com.musicplayer.data.artwork.FolderArtworkSource;
+import com.musicplayer.data.local.AppDatabase;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Finds artwork for albums that have none, after a library scan: embedded
+ * pictures first, then cover images next to the files.
+ */
+public class ArtworkWorker extends Worker {
+
+    private static final String TAG = "ArtworkWorker";
+
+    // Output
+    public static final String KEY_FOUND = "found";
+
+    private final CancellationSignal cancellationSignal = new CancellationSignal();
+
+    public ArtworkWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        ArtworkCache cache = new ArtworkCache(context);
+        EmbeddedArtworkSource embedded = new EmbeddedArtworkSource(cache);
+        // Embedded pictures belong to the file itself, so they win over folder images
+        List<ArtworkSource> sources = Arrays.asList(embedded, new FolderArtworkSource(cache));
+
+        try {
+            int found = new AlbumArtworkUpdater(AppDatabase.getInstance(context), cache, sources)
+                    .update(cancellationSignal);
+            return Result.success(new Data.Builder().putInt(KEY_FOUND, found).build());
+        } catch (OperationCanceledException e) {
+            // Albums already written keep their artwork; the rest are looked up on retry
+            return Result.retry();
+        } catch (Exception e) {
+            Log.e(TAG, "Artwork extraction failed", e);
+            return Result.retry();
+        } finally {
+            embedded.release();
+        }
+    }
+
+    @Override
+    public void onStopped() {
+        cancellationSignal.cancel();
+    }
+}
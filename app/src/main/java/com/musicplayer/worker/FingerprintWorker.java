@@ -0,0 +1,53 @@
+package com.musicplayer.worker;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.musicplayer.data.fingerprint.FingerprintIndexer;
+import com.musicplayer.data.local.AppDatabase;
+
+/**
+ * Decodes tracks without a fingerprint and stores their fingerprints.
+ * Decoding is the most expensive library job, so it only runs while charging.
+ */
+public class FingerprintWorker extends Worker {
+
+    private static final String TAG = "FingerprintWorker";
+
+    // Output
+    public static final String KEY_INDEXED = "indexed";
+
+    private final CancellationSignal cancellationSignal = new CancellationSignal();
+
+    public FingerprintWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        FingerprintIndexer indexer = new FingerprintIndexer(AppDatabase.getInstance(getApplicationContext()));
+        try {
+            int indexed = indexer.indexMissing(cancellationSignal);
+            return Result.success(new Data.Builder().putInt(KEY_INDEXED, indexed).build());
+        } catch (OperationCanceledException e) {
+            // Pages already written are kept; the rest is fingerprinted on retry
+            return Result.retry();
+        } catch (Exception e) {
+            Log.e(TAG, "Fingerprinting failed", e);
+            return Result.retry();
+        }
+    }
+
+    @Override
+    public void onStopped() {
+        cancellationSignal.cancel();
+    }
+}
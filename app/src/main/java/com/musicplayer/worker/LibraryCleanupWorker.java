@@ -0,0 +1,69 @@
+package com.musicplayer.worker;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.scanner.MissingTrackCleaner;
+import com.musicplayer.data.waveform.WaveformBatchGenerator;
+import com.musicplayer.data.waveform.WaveformCache;
+
+/**
+ * Removes tracks whose file no longer exists, and the cached waveforms of
+ * removed tracks, as a WorkManager job.
+ * Touches every file in the library, so it is scheduled with stricter
+ * constraints than the MediaStore sync.
+ */
+public class LibraryCleanupWorker extends Worker {
+
+    private static final String TAG = "LibraryCleanupWorker";
+
+    // Output
+    public static final String KEY_REMOVED = "removed";
+
+    // WorkManager does not interrupt a stopped worker; the cleaner checks this between pages
+    private final CancellationSignal cancellationSignal = new CancellationSignal();
+
+    public LibraryCleanupWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Context context = getApplicationContext();
+        AppDatabase database = AppDatabase.getInstance(context);
+        MissingTrackCleaner cleaner = new MissingTrackCleaner(database);
+        try {
+            int removed = cleaner.removeMissingTracks(cancellationSignal);
+            if (isStopped()) {
+                return Result.retry();
+            }
+            // Also catches waveforms of tracks deleted by the MediaStore sync
+            new WaveformBatchGenerator(database, WaveformCache.getInstance(context)).removeOrphans();
+            return Result.success(new Data.Builder().putInt(KEY_REMOVED, removed).build());
+        } catch (OperationCanceledException e) {
+            // Stopped by WorkManager; deletions already made are kept
+            Log.d(TAG, "Library cleanup stopped");
+            return Result.retry();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return Result.retry();
+        } catch (Exception e) {
+            Log.e(TAG, "Library cleanup failed", e);
+            return Result.retry();
+        }
+    }
+
+    @Override
+    public void onStopped() {
+        cancellationSignal.cancel();
+    }
+}
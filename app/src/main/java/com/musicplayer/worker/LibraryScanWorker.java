@@ -0,0 +1,91 @@
+package com.musicplayer.worker;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.scanner.ContentHashIndexer;
+import com.musicplayer.data.scanner.MediaStoreScanner;
+import com.musicplayer.data.scanner.ScanResult;
+
+/**
+ * Syncs the library with MediaStore as a WorkManager job.
+ *
+ * The scan stores a checkpoint after every committed batch, so when the
+ * process is killed or the work is stopped, the retried job continues from
+ * the last checkpoint instead of reading the whole library again. Progress
+ * is published through {@link androidx.work.WorkInfo#getProgress()}.
+ */
+public class LibraryScanWorker extends Worker {
+
+    private static final String TAG = "LibraryScanWorker";
+
+    // Input: whether to ignore the stored watermarks
+    public static final String KEY_FULL = "full";
+
+    // Progress
+    public static final String KEY_PROCESSED = "processed";
+    public static final String KEY_TOTAL = "total";
+
+    // Output
+    public static final String KEY_ADDED = "added";
+    public static final String KEY_UPDATED = "updated";
+    public static final String KEY_DELETED = "deleted";
+    public static final String KEY_MOVED = "moved";
+
+    private final CancellationSignal cancellationSignal = new CancellationSignal();
+
+    public LibraryScanWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        boolean full = getInputData().getBoolean(KEY_FULL, false);
+        MediaStoreScanner scanner = new MediaStoreScanner(getApplicationContext());
+
+        try {
+            ScanResult result = scanner.resumableSync(full, this::publishProgress, cancellationSignal);
+            // Tracks from before content hashes existed get one, so their later moves are recognised
+            new ContentHashIndexer(AppDatabase.getInstance(getApplicationContext()))
+                    .hashMissing(cancellationSignal);
+            return Result.success(new Data.Builder()
+                    .putInt(KEY_ADDED, result.added)
+                    .putInt(KEY_UPDATED, result.updated)
+                    .putInt(KEY_DELETED, result.deleted)
+                    .putInt(KEY_MOVED, result.moved)
+                    .build());
+        } catch (OperationCanceledException e) {
+            // The checkpoint is kept; a rescheduled run resumes from it
+            Log.d(TAG, "Library scan stopped at checkpoint");
+            return Result.retry();
+        } catch (SecurityException e) {
+            // Retrying cannot help until the audio permission is granted
+            Log.e(TAG, "No permission to read MediaStore", e);
+            return Result.failure();
+        } catch (Exception e) {
+            Log.e(TAG, "Library scan failed", e);
+            return Result.retry();
+        }
+    }
+
+    @Override
+    public void onStopped() {
+        cancellationSignal.cancel();
+    }
+
+    private void publishProgress(int processed, int total) {
+        setProgressAsync(new Data.Builder()
+                .putInt(KEY_PROCESSED, processed)
+                .putInt(KEY_TOTAL, total)
+                .build());
+    }
+}
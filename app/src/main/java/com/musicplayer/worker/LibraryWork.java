@@ -0,0 +1,158 @@
+package com.musicplayer.worker;
+
+import android.content.Context;
+
+import androidx.lifecycle.LiveData;
+import androidx.work.BackoffPolicy;
+import androidx.work.Constraints;
+import androidx.work.Data;
+import androidx.work.ExistingWorkPolicy;
+import androidx.work.OneTimeWorkRequest;
+import androidx.work.WorkInfo;
+import androidx.work.WorkManager;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schedules the library background jobs as unique work, so at most one scan
+ * and one cleanup are queued at a time.
+ */
+public final class LibraryWork {
+
+    public static final String SCAN_WORK_NAME = "library_scan";
+    public static final String CLEANUP_WORK_NAME = "library_cleanup";
+    public static final String FINGERPRINT_WORK_NAME = "library_fingerprint";
+    public static final String LOUDNESS_WORK_NAME = "library_loudness";
+    public static final String WAVEFORM_WORK_NAME = "library_waveform";
+
+    private static final long BACKOFF_SECONDS = 30;
+
+    // Gap between waveform batches, so generation never runs for long at a time
+    private static final long WAVEFORM_BATCH_DELAY_MINUTES = 5;
+
+    private LibraryWork() {
+    }
+
+    /**
+     * Queues a library scan, followed by artwork extraction for new albums.
+     * A full scan replaces one already queued, while an incremental one is
+     * dropped if any scan is pending.
+     */
+    public static void enqueueScan(Context context, boolean full) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresStorageNotLow(true)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(LibraryScanWorker.class)
+                .setInputData(new Data.Builder().putBoolean(LibraryScanWorker.KEY_FULL, full).build())
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.LINEAR, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+
+        OneTimeWorkRequest artworkRequest = new OneTimeWorkRequest.Builder(ArtworkWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.LINEAR, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+
+        WorkManager.getInstance(context)
+                .beginUniqueWork(SCAN_WORK_NAME,
+                        full ? ExistingWorkPolicy.REPLACE : ExistingWorkPolicy.KEEP, request)
+                .then(artworkRequest)
+                .enqueue();
+    }
+
+    /**
+     * Queues the missing-file cleanup to run while charging.
+     */
+    public static void enqueueCleanup(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresCharging(true)
+                .setRequiresStorageNotLow(true)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(LibraryCleanupWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.LINEAR, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(CLEANUP_WORK_NAME,
+                ExistingWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * Queues fingerprinting of new tracks to run while charging and idle.
+     */
+    public static void enqueueFingerprinting(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresCharging(true)
+                .setRequiresDeviceIdle(true)
+                .setRequiresStorageNotLow(true)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(FingerprintWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.LINEAR, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(FINGERPRINT_WORK_NAME,
+                ExistingWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * Queues loudness analysis of new tracks to run while charging and idle.
+     */
+    public static void enqueueLoudnessAnalysis(Context context) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresCharging(true)
+                .setRequiresDeviceIdle(true)
+                .build();
+
+        OneTimeWorkRequest request = new OneTimeWorkRequest.Builder(LoudnessWorker.class)
+                .setConstraints(constraints)
+                .setBackoffCriteria(BackoffPolicy.LINEAR, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+
+        WorkManager.getInstance(context).enqueueUniqueWork(LOUDNESS_WORK_NAME,
+                ExistingWorkPolicy.KEEP, request);
+    }
+
+    /**
+     * Queues waveform generation for tracks without one, unless it is pending.
+     */
+    public static void enqueueWaveforms(Context context) {
+        WorkManager.getInstance(context).enqueueUniqueWork(WAVEFORM_WORK_NAME,
+                ExistingWorkPolicy.KEEP, waveformRequest(0, 0));
+    }
+
+    /**
+     * Queues the next waveform batch, continuing after the given track id, after
+     * a delay; called by the running batch, so the request is appended rather
+     * than dropped.
+     */
+    static void enqueueNextWaveformBatch(Context context, long afterId) {
+        WorkManager.getInstance(context).enqueueUniqueWork(WAVEFORM_WORK_NAME,
+                ExistingWorkPolicy.APPEND_OR_REPLACE, waveformRequest(afterId, WAVEFORM_BATCH_DELAY_MINUTES));
+    }
+
+    private static OneTimeWorkRequest waveformRequest(long afterId, long delayMinutes) {
+        Constraints constraints = new Constraints.Builder()
+                .setRequiresBatteryNotLow(true)
+                .setRequiresStorageNotLow(true)
+                .build();
+
+        return new OneTimeWorkRequest.Builder(WaveformWorker.class)
+                .setInputData(new Data.Builder().putLong(WaveformWorker.KEY_AFTER_ID, afterId).build())
+                .setConstraints(constraints)
+                .setInitialDelay(delayMinutes, TimeUnit.MINUTES)
+                .setBackoffCriteria(BackoffPolicy.LINEAR, BACKOFF_SECONDS, TimeUnit.SECONDS)
+                .build();
+    }
+
+    /**
+     * State and progress of the queued or running library scan.
+     */
+    public static LiveData<List<WorkInfo>> getScanWorkInfo(Context context) {
+        return WorkManager.getInstance(context).getWorkInfosForUniqueWorkLiveData(SCAN_WORK_NAME);
+    }
+}
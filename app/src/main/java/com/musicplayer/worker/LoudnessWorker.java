@@ -0,0 +1,54 @@
+package com.musicplayer.worker;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.loudness.LoudnessAnalyzer;
+
+/**
+ * Measures the loudness of tracks not analysed yet and stores their
+ * ReplayGain values. Every file is decoded in full, so it only runs while
+ * charging.
+ */
+public class LoudnessWorker extends Worker {
+
+    private static final String TAG = "LoudnessWorker";
+
+    // Output
+    public static final String KEY_ANALYZED = "analyzed";
+
+    private final CancellationSignal cancellationSignal = new CancellationSignal();
+
+    public LoudnessWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        LoudnessAnalyzer analyzer = new LoudnessAnalyzer(AppDatabase.getInstance(getApplicationContext()));
+        try {
+            int analyzed = analyzer.analyzeMissing(cancellationSignal);
+            return Result.success(new Data.Builder().putInt(KEY_ANALYZED, analyzed).build());
+        } catch (OperationCanceledException e) {
+            // Pages already written are kept; the rest is analysed on retry
+            return Result.retry();
+        } catch (Exception e) {
+            Log.e(TAG, "Loudness analysis failed", e);
+            return Result.retry();
+        }
+    }
+
+    @Override
+    public void onStopped() {
+        cancellationSignal.cancel();
+    }
+}
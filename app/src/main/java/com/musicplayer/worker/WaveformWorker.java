@@ -0,0 +1,69 @@
+package com.musicplayer.worker;
+
+import android.content.Context;
+import android.os.CancellationSignal;
+import android.os.OperationCanceledException;
+import android.os.Process;
+import android.util.Log;
+
+import androidx.annotation.NonNull;
+import androidx.work.Data;
+import androidx.work.Worker;
+import androidx.work.WorkerParameters;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.waveform.WaveformBatchGenerator;
+import com.musicplayer.data.waveform.WaveformCache;
+
+/**
+ * Generates waveforms for a small batch of tracks at background priority,
+ * then queues the next batch, starting after the last track of this one, if
+ * tracks are left.
+ */
+public class WaveformWorker extends Worker {
+
+    private static final String TAG = "WaveformWorker";
+
+    // Input: the batch continues after this track id
+    public static final String KEY_AFTER_ID = "after_id";
+
+    // Output
+    public static final String KEY_GENERATED = "generated";
+
+    private static final int BATCH_SIZE = 25;
+    private static final long PAUSE_MILLIS = 250;
+
+    private final CancellationSignal cancellationSignal = new CancellationSignal();
+
+    public WaveformWorker(@NonNull Context context, @NonNull WorkerParameters params) {
+        super(context, params);
+    }
+
+    @NonNull
+    @Override
+    public Result doWork() {
+        Process.setThreadPriority(Process.THREAD_PRIORITY_BACKGROUND);
+        Context context = getApplicationContext();
+        WaveformBatchGenerator generator = new WaveformBatchGenerator(
+                AppDatabase.getInstance(context), WaveformCache.getInstance(context));
+        try {
+            WaveformBatchGenerator.Batch batch = generator.generateMissing(
+                    getInputData().getLong(KEY_AFTER_ID, 0), BATCH_SIZE, PAUSE_MILLIS, cancellationSignal);
+            if (!batch.complete) {
+                LibraryWork.enqueueNextWaveformBatch(context, batch.lastTrackId);
+            }
+            return Result.success(new Data.Builder().putInt(KEY_GENERATED, batch.generated).build());
+        } catch (OperationCanceledException e) {
+            // Waveforms already written are kept; the rest are generated on retry
+            return Result.retry();
+        } catch (Exception e) {
+            Log.e(TAG, "Waveform generation failed", e);
+            return Result.retry();
+        }
+    }
+
+    @Override
+    public void onStopped() {
+        cancellationSignal.cancel();
+    }
+}
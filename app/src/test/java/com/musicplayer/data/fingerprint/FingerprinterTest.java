@@ -0,0 +1,106 @@
+package com.musicplayer.data.fingerprint;
+
+import org.junit.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for Fingerprinter and FingerprintMatcher on synthetic melodies.
+ */
+public class FingerprinterTest {
+
+    private static final int SECONDS = 20;
+
+    @Test
+    public void testReencodedCopyMatches() {
+        int[] original = fingerprint(melody(1, 44100, 1.0, 0), 44100, 2);
+        // Other sample rate, lower level, added noise and leading silence
+        int[] copy = fingerprint(withSilence(melody(1, 48000, 0.5, 0.01), 48000 / 2), 48000, 2);
+
+        assertTrue(original.length > FingerprintMatcher.MIN_OVERLAP);
+        assertTrue(FingerprintMatcher.bitErrorRate(original, copy) < FingerprintMatcher.MAX_BIT_ERROR_RATE);
+        assertTrue(sharesKey(original, copy));
+    }
+
+    @Test
+    public void testDifferentRecordingsDoNotMatch() {
+        int[] first = fingerprint(melody(1, 44100, 1.0, 0), 44100, 2);
+        int[] second = fingerprint(melody(2, 44100, 1.0, 0), 44100, 2);
+
+        assertFalse(FingerprintMatcher.isMatch(first, second));
+        assertFalse(sharesKey(first, second));
+    }
+
+    @Test
+    public void testBytesRoundTrip() {
+        int[] fingerprint = {0, -1, 0x12345678, Integer.MIN_VALUE};
+        assertArrayEquals(fingerprint, FingerprintMatcher.fromBytes(FingerprintMatcher.toBytes(fingerprint)));
+    }
+
+    private static boolean sharesKey(int[] first, int[] second) {
+        Set<Integer> keys = new HashSet<>();
+        for (int key : FingerprintMatcher.keys(first)) {
+            keys.add(key);
+        }
+        for (int key : FingerprintMatcher.keys(second)) {
+            if (keys.contains(key)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int[] fingerprint(short[] stereo, int sampleRate, int channels) {
+        Fingerprinter fingerprinter = new Fingerprinter();
+        fingerprinter.onFormat(sampleRate, channels);
+        // Fed in codec-sized buffers
+        short[] buffer = new short[4096];
+        for (int start = 0; start < stereo.length; start += buffer.length) {
+            int count = Math.min(buffer.length, stereo.length - start);
+            System.arraycopy(stereo, start, buffer, 0, count);
+            if (!fingerprinter.onSamples(buffer, count)) {
+                break;
+            }
+        }
+        return fingerprinter.getFingerprint();
+    }
+
+    /**
+     * Stereo chords of three random notes that change every quarter second.
+     */
+    private static short[] melody(long seed, int sampleRate, double gain, double noise) {
+        Random notes = new Random(seed);
+        Random hiss = new Random(seed + 100);
+        int frames = SECONDS * sampleRate;
+        int noteLength = sampleRate / 4;
+        short[] samples = new short[frames * 2];
+        double[] frequencies = new double[3];
+        for (int i = 0; i < frames; i++) {
+            if (i % noteLength == 0) {
+                for (int n = 0; n < frequencies.length; n++) {
+                    frequencies[n] = 220 * Math.pow(2, notes.nextInt(36) / 12.0);
+                }
+            }
+            double t = (double) i / sampleRate;
+            double value = 0;
+            for (double frequency : frequencies) {
+                value += Math.sin(2 * Math.PI * frequency * t) / frequencies.length;
+            }
+            value = value * 0.5 * gain + noise * hiss.nextGaussian();
+            short sample = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, value * 32767));
+            samples[2 * i] = sample;
+            samples[2 * i + 1] = sample;
+        }
+        return samples;
+    }
+
+    private static short[] withSilence(short[] stereo, int frames) {
+        short[] result = new short[stereo.length + frames * 2];
+        System.arraycopy(stereo, 0, result, frames * 2, stereo.length);
+        return result;
+    }
+}
@@ -0,0 +1,166 @@
+package com.musicplayer.data.local;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.musicplayer.data.local.dao.AlbumDao;
+import com.musicplayer.data.local.dao.ArtistDao;
+import com.musicplayer.data.local.entities.Album;
+import com.musicplayer.data.local.entities.Artist;
+import com.musicplayer.data.local.entities.Track;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class LibraryStatsTriggersTest {
+
+    private AppDatabase database;
+    private SupportSQLiteDatabase db;
+    private long artistId;
+    private long firstAlbumId;
+    private long secondAlbumId;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        db = database.getOpenHelper().getWritableDatabase();
+        LibraryStatsTriggers.create(db);
+
+        artistId = database.artistDao().insert(new Artist("Artist"));
+        firstAlbumId = insertAlbum("First");
+        secondAlbumId = insertAlbum("Second");
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void testInsertsAddToAlbumAndArtist() {
+        insertTrack("One", firstAlbumId, 1000);
+        insertTrack("Two", firstAlbumId, 2000);
+        insertTrack("Three", secondAlbumId, 500);
+
+        AlbumDao.AlbumWithStats first = albumStats(firstAlbumId);
+        assertEquals(2, first.trackCount);
+        assertEquals(3000, first.totalDuration);
+        assertEquals(1, albumStats(secondAlbumId).trackCount);
+
+        ArtistDao.ArtistWithStats artist = database.artistDao().getArtistsWithStats().get(0);
+        assertEquals(2, artist.albumCount);
+        assertEquals(3, artist.trackCount);
+        assertEquals(3500, artist.totalDuration);
+    }
+
+    @Test
+    public void testPlaysMovesAndDeletesKeepTotalsExact() {
+        long one = insertTrack("One", firstAlbumId, 1000);
+        long two = insertTrack("Two", firstAlbumId, 2000);
+        insertTrack("Three", secondAlbumId, 500);
+
+        Date played = new Date(1_000_000L);
+        database.trackDao().incrementPlayCount(one, played);
+        database.trackDao().incrementPlayCount(one, played);
+        assertEquals(2, albumStats(firstAlbumId).totalPlayCount);
+        assertEquals(played, albumStats(firstAlbumId).albumLastPlayed);
+
+        // Moving the played track takes its plays and last played date along
+        Track moved = database.trackDao().getById(one);
+        moved.setAlbumId(secondAlbumId);
+        database.trackDao().update(moved);
+        AlbumDao.AlbumWithStats first = albumStats(firstAlbumId);
+        assertEquals(1, first.trackCount);
+        assertEquals(0, first.totalPlayCount);
+        assertNull(first.albumLastPlayed);
+        AlbumDao.AlbumWithStats second = albumStats(secondAlbumId);
+        assertEquals(2, second.trackCount);
+        assertEquals(1500, second.totalDuration);
+        assertEquals(played, second.albumLastPlayed);
+
+        // An album without tracks drops out of the stats, its artist keeps counting it
+        database.trackDao().deleteById(two);
+        assertNull(albumStats(firstAlbumId));
+        ArtistDao.ArtistWithStats artist = database.artistDao().getArtistsWithStats().get(0);
+        assertEquals(2, artist.albumCount);
+        assertEquals(2, artist.trackCount);
+        assertEquals(2, artist.totalPlayCount);
+
+        assertEquals(1, database.albumDao().getMostPlayedAlbums(10).size());
+        assertEquals(artistId, database.artistDao().getMostPlayedArtists(10).get(0).getId());
+    }
+
+    @Test
+    public void testTriggersMatchRebuild() {
+        List<Long> trackIds = new ArrayList<>();
+        for (int i = 0; i < 30; i++) {
+            trackIds.add(insertTrack("Track " + i, i % 3 == 0 ? secondAlbumId : firstAlbumId, 100 * i));
+        }
+        for (int i = 0; i < trackIds.size(); i += 4) {
+            database.trackDao().incrementPlayCount(trackIds.get(i), new Date(1000L * i));
+        }
+        for (int i = 0; i < trackIds.size(); i += 5) {
+            database.trackDao().deleteById(trackIds.get(i));
+        }
+        database.albumDao().deleteById(insertAlbum("Empty"));
+
+        String albums = dump("SELECT * FROM album_stats ORDER BY albumId");
+        String artists = dump("SELECT * FROM artist_stats ORDER BY artistId");
+        LibraryStatsTriggers.rebuild(db);
+        assertEquals(albums, dump("SELECT * FROM album_stats ORDER BY albumId"));
+        assertEquals(artists, dump("SELECT * FROM artist_stats ORDER BY artistId"));
+    }
+
+    private long insertAlbum(String title) {
+        Album album = new Album(title, "Artist");
+        album.setArtistId(artistId);
+        return database.albumDao().insert(album);
+    }
+
+    private long insertTrack(String title, long albumId, long duration) {
+        Track track = new Track(title, "Artist", "Album", "/music/" + title + ".mp3");
+        track.setAlbumId(albumId);
+        track.setArtistId(artistId);
+        track.setDuration(duration);
+        return database.trackDao().insert(track);
+    }
+
+    private AlbumDao.AlbumWithStats albumStats(long albumId) {
+        for (AlbumDao.AlbumWithStats album : database.albumDao().getAlbumsWithStats()) {
+            if (album.id == albumId) {
+                return album;
+            }
+        }
+        return null;
+    }
+
+    private String dump(String sql) {
+        StringBuilder rows = new StringBuilder();
+        try (Cursor cursor = db.query(sql)) {
+            while (cursor.moveToNext()) {
+                for (int i = 0; i < cursor.getColumnCount(); i++) {
+                    rows.append(cursor.isNull(i) ? "null" : cursor.getString(i)).append(',');
+                }
+                rows.append('\n');
+            }
+        }
+        return rows.toString();
+    }
+}
@@ -0,0 +1,261 @@
+package com.musicplayer.data.local;
+
+import android.content.Context;
+import android.database.Cursor;
+
+import androidx.room.Room;
+import androidx.sqlite.db.SimpleSQLiteQuery;
+import androidx.sqlite.db.SupportSQLiteDatabase;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.musicplayer.data.local.entities.Album;
+import com.musicplayer.data.local.entities.Artist;
+import com.musicplayer.data.local.entities.Playlist;
+import com.musicplayer.data.local.entities.Track;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static org.junit.Assert.*;
+
+/**
+ * Runs EXPLAIN QUERY PLAN for every @Query of the DAOs against a seeded
+ * database and fails on full scans and temporary sorts that are not listed
+ * in {@link #ALLOWED}, so a missing or dropped index shows up here first.
+ * Allowances name the plan step, index included, so a query allowed to walk
+ * one index still fails when that index goes and it falls back to a plain
+ * scan or a temporary sort.
+ *
+ * The queries are read from the DAO sources, so new queries are checked
+ * without being added to this test.
+ */
+@RunWith(AndroidJUnit4.class)
+public class QueryPlanTest {
+
+    private static final File DAO_SOURCES = new File("src/main/java/com/musicplayer/data/local/dao");
+
+    // "Dao.method" to the plan steps it may take although they scan or sort
+    private static final Map<String, List<Pattern>> ALLOWED = new HashMap<>();
+
+    static {
+        // Whole-table reads in index order
+        allow("TrackDao", "SCAN tracks USING INDEX index_tracks_title", "getAll", "getAllFlowable", "getAllSingle");
+        allow("AlbumDao", "SCAN albums USING INDEX index_albums_title", "getAll", "getAllFlowable", "getAllSingle",
+                "getAlbumsWithStats");
+        allow("ArtistDao", "SCAN artists USING INDEX index_artists_name", "getAll", "getAllFlowable", "getAllSingle",
+                "getArtistsWithTracks", "getArtistsWithStats");
+        allow("PlaylistDao", "SCAN playlists USING INDEX index_playlists_name", "getAll", "getAllFlowable",
+                "getAllSingle");
+
+        // Counts read the smallest index, whichever the planner picks
+        allowCount("TrackDao", "tracks");
+        allowCount("AlbumDao", "albums");
+        allowCount("ArtistDao", "artists");
+        allowCount("PlaylistDao", "playlists");
+        allowCount("MetadataCacheDao", "metadata_cache");
+        allowCount("FingerprintDao", "track_fingerprints");
+
+        // Walk an index in order and stop at the limit
+        allow("TrackDao", "SCAN tracks USING INDEX index_tracks_dateAdded", "getRecent");
+        allow("TrackDao", "SCAN tracks USING INDEX index_tracks_playCount", "getMostPlayed");
+        allow("AlbumDao", "SCAN album_stats USING COVERING INDEX index_album_stats_playCount", "getMostPlayedAlbums");
+        allow("ArtistDao", "SCAN artist_stats USING COVERING INDEX index_artist_stats_playCount",
+                "getMostPlayedArtists");
+
+        // LIKE with a leading wildcard; the in-memory search index replaces these
+        allow("TrackDao", "SCAN tracks USING INDEX index_tracks_title", "search", "searchFlowable", "searchByTitle",
+                "getByTag");
+        allow("TrackDao", "SCAN tracks", "searchByArtist", "searchByAlbum");
+        allow("TrackDao", "USE TEMP B-TREE FOR ORDER BY", "searchByArtist", "searchByAlbum");
+        allow("AlbumDao", "SCAN albums USING INDEX index_albums_title", "search", "searchFlowable", "searchByTitle");
+        allow("AlbumDao", "SCAN albums USING INDEX index_albums_artist", "searchByArtist");
+        allow("AlbumDao", "USE TEMP B-TREE FOR RIGHT PART OF ORDER BY", "searchByArtist");
+        allow("ArtistDao", "SCAN artists USING INDEX index_artists_name", "search", "searchFlowable");
+        allow("PlaylistDao", "SCAN playlists", "searchAllPlaylists");
+
+        // Library-wide statistics
+        allow("TrackDao", "SCAN tracks USING COVERING INDEX index_tracks_playCount", "getTotalPlayCount");
+        allow("TrackDao", "SCAN tracks", "getTotalDuration", "getAverageRating");
+        allow("TrackDao", "USE TEMP B-TREE FOR ORDER BY", "getGenreDistribution");
+        allow("AlbumDao", "USE TEMP B-TREE FOR ORDER BY", "getGenreDistribution");
+        allow("AlbumDao", "USE TEMP B-TREE FOR DISTINCT", "getRecentAlbums");
+        allow("ArtistDao", "USE TEMP B-TREE FOR ORDER BY", "getGenreDistribution");
+        allow("ArtistDao", "USE TEMP B-TREE FOR DISTINCT", "getRecentlyPlayedArtists");
+        allow("ArtistDao", "SCAN tracks USING COVERING INDEX index_tracks_artistId_album_trackNumber",
+                "getArtistCountWithTracks");
+        allow("ArtistDao", "USE TEMP B-TREE FOR count(DISTINCT)", "getArtistCountWithTracks");
+        allow("ArtistDao", "SCAN artists", "getTotalTrackCount", "getTotalAlbumCount", "getTotalDuration");
+
+        // Maintenance passes over whole tables
+        allow("TrackDao", "SCAN tracks", "deleteMissingTracks", "clearAlbumArtPaths");
+        allow("TrackDao", "SCAN albums", "fillAlbumArtPathsFromAlbums");
+        allow("AlbumDao", "SCAN albums", "deleteEmptyAlbums", "clearArtPaths");
+        allow("ArtistDao", "SCAN artists", "deleteEmptyArtists");
+        allow("FingerprintDao", "SCAN fingerprint_keys USING COVERING INDEX sqlite_autoindex_fingerprint_keys_1",
+                "getCandidatePairs");
+        allow("FingerprintDao", "USE TEMP B-TREE FOR DISTINCT", "getCandidatePairs");
+        allow("FingerprintDao", "USE TEMP B-TREE FOR ORDER BY", "getCandidatePairs");
+    }
+
+    private static final Pattern QUERY = Pattern.compile(
+            "@Query\\(((?:\\s*\"(?:[^\"\\\\]|\\\\.)*\"\\s*\\+?)+)\\)"
+                    + "(?:\\s*@\\w+(?:\\([^)]*\\))?)*\\s*[\\w<>,.\\[\\]\\s]+?\\s(\\w+)\\s*\\(");
+    private static final Pattern STRING_LITERAL = Pattern.compile("\"((?:[^\"\\\\]|\\\\.)*)\"");
+    private static final Pattern PARAMETER = Pattern.compile(":\\w+");
+
+    private AppDatabase database;
+
+    private static void allow(String dao, String step, String... methods) {
+        for (String method : methods) {
+            allowPattern(dao + "." + method, Pattern.compile(Pattern.quote(step)));
+        }
+    }
+
+    private static void allowCount(String dao, String table) {
+        allowPattern(dao + ".getCount", Pattern.compile("SCAN " + table + "( USING COVERING INDEX \\w+)?"));
+    }
+
+    private static void allowPattern(String name, Pattern step) {
+        List<Pattern> steps = ALLOWED.get(name);
+        if (steps == null) {
+            steps = new ArrayList<>();
+            ALLOWED.put(name, steps);
+        }
+        steps.add(step);
+    }
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        seed();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void testDaoQueriesUseIndexes() throws IOException {
+        SupportSQLiteDatabase db = database.getOpenHelper().getWritableDatabase();
+        List<String> violations = new ArrayList<>();
+        Set<String> checked = new HashSet<>();
+
+        File[] sources = DAO_SOURCES.listFiles((dir, name) -> name.endsWith("Dao.java"));
+        assertNotNull("DAO sources not found from " + new File("").getAbsolutePath(), sources);
+        for (File source : sources) {
+            String dao = source.getName().replace(".java", "");
+            String code = new String(Files.readAllBytes(source.toPath()), StandardCharsets.UTF_8);
+            Matcher query = QUERY.matcher(code);
+            while (query.find()) {
+                String sql = sql(query.group(1));
+                String name = dao + "." + query.group(2);
+                if (!sql.matches("(?is)\\s*(SELECT|UPDATE|DELETE|WITH)\\b.*")) {
+                    continue;
+                }
+                checked.add(name);
+                String problem = problem(plan(db, sql), ALLOWED.get(name));
+                if (problem != null) {
+                    violations.add(name + ": " + problem);
+                }
+            }
+        }
+
+        assertTrue("No queries found", checked.size() > 50);
+        assertTrue("Unindexed queries:\n" + String.join("\n", violations), violations.isEmpty());
+    }
+
+    // Joined string literals of an annotation
+    private static String sql(String literals) {
+        StringBuilder sql = new StringBuilder();
+        Matcher literal = STRING_LITERAL.matcher(literals);
+        while (literal.find()) {
+            sql.append(literal.group(1).replace("\\\"", "\""));
+        }
+        return sql.toString();
+    }
+
+    private static List<String> plan(SupportSQLiteDatabase db, String sql) {
+        Matcher parameter = PARAMETER.matcher(sql);
+        int count = 0;
+        while (parameter.find()) {
+            count++;
+        }
+        // Every parameter bound to NULL, enough for planning
+        String explain = "EXPLAIN QUERY PLAN " + PARAMETER.matcher(sql).replaceAll("?");
+        List<String> details = new ArrayList<>();
+        try (Cursor cursor = db.query(new SimpleSQLiteQuery(explain, new Object[count]))) {
+            int detail = cursor.getColumnIndexOrThrow("detail");
+            while (cursor.moveToNext()) {
+                // Older SQLite versions write "SCAN TABLE tracks" for "SCAN tracks"
+                details.add(cursor.getString(detail).replaceFirst("^(SCAN|SEARCH) TABLE ", "$1 "));
+            }
+        }
+        return details;
+    }
+
+    // First full scan or temporary sort of a plan that is not allowed, or null; full-text
+    // scans use their own index, and a subquery holds only the rows its own, checked, steps produced
+    private static String problem(List<String> plan, List<Pattern> allowed) {
+        for (String step : plan) {
+            boolean scan = step.startsWith("SCAN ") && !step.contains("VIRTUAL TABLE")
+                    && !step.startsWith("SCAN (subquery") && !step.startsWith("SCAN SUBQUERY");
+            if ((scan || step.contains("TEMP B-TREE")) && !isAllowed(step, allowed)) {
+                return step;
+            }
+        }
+        return null;
+    }
+
+    private static boolean isAllowed(String step, List<Pattern> allowed) {
+        if (allowed != null) {
+            for (Pattern pattern : allowed) {
+                if (pattern.matcher(step).matches()) {
+                    return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Some rows in every table. The app never runs ANALYZE, so the planner
+     * works from its defaults here as it does on devices.
+     */
+    private void seed() {
+        List<Track> tracks = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            Track track = new Track("Title " + i, "Artist " + (i % 20), "Album " + (i % 40), "/music/" + i + ".mp3");
+            track.setGenre(i % 2 == 0 ? "Rock" : "Jazz");
+            track.setPlayCount(i % 7);
+            tracks.add(track);
+        }
+        database.trackDao().insertAll(tracks);
+        for (int i = 0; i < 20; i++) {
+            database.artistDao().insert(new Artist("Artist " + i));
+        }
+        for (int i = 0; i < 40; i++) {
+            database.albumDao().insert(new Album("Album " + i, "Artist " + (i % 20)));
+        }
+        database.playlistDao().insert(new Playlist("Playlist"));
+    }
+}
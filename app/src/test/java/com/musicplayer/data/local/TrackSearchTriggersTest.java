@@ -0,0 +1,63 @@
+package com.musicplayer.data.local;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.musicplayer.data.local.dao.TrackDao;
+import com.musicplayer.data.local.entities.Track;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Date;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class TrackSearchTriggersTest {
+
+    private AppDatabase database;
+    private TrackDao trackDao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        TrackSearchTriggers.create(database.getOpenHelper().getWritableDatabase());
+        trackDao = database.trackDao();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void testRecordsOnlySearchableChanges() {
+        long one = trackDao.insert(new Track("One", "Artist", "Album", "/music/one.mp3"));
+        long two = trackDao.insert(new Track("Two", "Artist", "Album", "/music/two.mp3"));
+        long three = trackDao.insert(new Track("Three", "Artist", "Album", "/music/three.mp3"));
+        assertEquals(Arrays.asList(one, two, three), trackDao.getSearchChangesAfter(0, 10));
+        trackDao.clearSearchChanges();
+
+        trackDao.incrementPlayCount(one, new Date());
+        trackDao.incrementPlayCount(one, new Date());
+        trackDao.setFavorite(two, true);
+        trackDao.deleteById(three);
+
+        // Recorded once per track, and not for columns the index does not read
+        assertEquals(Arrays.asList(one, three), trackDao.getSearchChangesAfter(0, 10));
+
+        trackDao.deleteSearchChanges(Arrays.asList(one));
+        assertEquals(Arrays.asList(three), trackDao.getSearchChangesAfter(0, 10));
+        assertEquals(1, trackDao.getSearchFieldsByIds(Arrays.asList(one, three)).size());
+    }
+}
@@ -0,0 +1,131 @@
+package com.musicplayer.data.local.dao;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.entities.MetadataCacheEntry;
+import com.musicplayer.data.local.entities.Track;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Date;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class MetadataCacheDaoTest {
+
+    // File system time of a file written 0.75 s into the second MediaStore reports
+    private static final long FILE_MODIFIED = 1_700_000_000_750L;
+    private static final long MEDIASTORE_MODIFIED = 1_700_000_000L * 1000L;
+
+    private AppDatabase database;
+    private MetadataCacheDao cacheDao;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        cacheDao = database.metadataCacheDao();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void testEntryFromMediaStoreMatchesFileTime() {
+        cacheDao.insert(new MetadataCacheEntry(track("/music/a.mp3", 1000, MEDIASTORE_MODIFIED)));
+
+        MetadataCacheEntry entry = cacheDao.getByPath("/music/a.mp3");
+
+        assertTrue(entry.matches(1000, FILE_MODIFIED));
+        assertTrue(entry.matches(1000, MEDIASTORE_MODIFIED));
+    }
+
+    @Test
+    public void testEntryFromFileMatchesMediaStoreTime() {
+        cacheDao.insert(new MetadataCacheEntry(track("/music/a.mp3", 1000, FILE_MODIFIED)));
+
+        MetadataCacheEntry entry = cacheDao.getByPath("/music/a.mp3");
+
+        assertTrue(entry.matches(1000, MEDIASTORE_MODIFIED));
+        assertEquals(MEDIASTORE_MODIFIED, entry.toTrack().getDateModified().getTime());
+    }
+
+    @Test
+    public void testMissForUnknownPath() {
+        cacheDao.insert(new MetadataCacheEntry(track("/music/a.mp3", 1000, FILE_MODIFIED)));
+
+        assertNull(cacheDao.getByPath("/music/b.mp3"));
+        assertTrue(cacheDao.getByPaths(Collections.singletonList("/music/b.mp3")).isEmpty());
+    }
+
+    @Test
+    public void testChangedFileInvalidatesEntry() {
+        cacheDao.insert(new MetadataCacheEntry(track("/music/a.mp3", 1000, FILE_MODIFIED)));
+
+        MetadataCacheEntry entry = cacheDao.getByPath("/music/a.mp3");
+
+        assertFalse(entry.matches(1001, FILE_MODIFIED));
+        assertFalse(entry.matches(1000, FILE_MODIFIED + 1000));
+    }
+
+    @Test
+    public void testOnlyEntriesReadFromFileServeTags() {
+        Track fromMediaStore = track("/music/a.mp3", 1000, MEDIASTORE_MODIFIED);
+        Track fromFile = track("/music/b.mp3", 1000, FILE_MODIFIED);
+        fromFile.setTagsFromFile(true);
+        fromFile.setBitrate(320000);
+        cacheDao.insertAll(Arrays.asList(new MetadataCacheEntry(fromMediaStore), new MetadataCacheEntry(fromFile)));
+
+        assertFalse(cacheDao.getByPath("/music/a.mp3").isFromFile());
+        MetadataCacheEntry entry = cacheDao.getByPath("/music/b.mp3");
+        assertTrue(entry.isFromFile());
+        assertTrue(entry.toTrack().isTagsFromFile());
+        assertEquals(320000, entry.toTrack().getBitrate());
+    }
+
+    @Test
+    public void testDeletingTracksPrunesTheirEntries() {
+        Track kept = track("/music/kept.mp3", 1000, FILE_MODIFIED);
+        kept.setMediaStoreId(10);
+        Track deleted = track("/music/deleted.mp3", 1000, FILE_MODIFIED);
+        deleted.setMediaStoreId(11);
+        Track missing = track("/music/missing.mp3", 1000, FILE_MODIFIED);
+        missing.setMediaStoreId(12);
+        long missingId = database.trackDao().insert(missing);
+        database.trackDao().insert(kept);
+        database.trackDao().insert(deleted);
+        cacheDao.insertAll(Arrays.asList(new MetadataCacheEntry(kept), new MetadataCacheEntry(deleted),
+                new MetadataCacheEntry(missing)));
+
+        assertEquals(1, cacheDao.deleteByMediaStoreIds(Collections.singletonList(11L)));
+        assertEquals(1, cacheDao.deleteByTrackIds(Collections.singletonList(missingId)));
+
+        List<MetadataCacheDao.CachedMetadata> left = cacheDao.getByPaths(
+                Arrays.asList("/music/kept.mp3", "/music/deleted.mp3", "/music/missing.mp3"));
+        assertEquals(1, left.size());
+        assertEquals("/music/kept.mp3", left.get(0).entry.getFilePath());
+    }
+
+    private static Track track(String filePath, long fileSize, long modifiedMillis) {
+        Track track = new Track("Title", "Artist", "Album", filePath);
+        track.setFileSize(fileSize);
+        track.setDateModified(new Date(modifiedMillis));
+        return track;
+    }
+}
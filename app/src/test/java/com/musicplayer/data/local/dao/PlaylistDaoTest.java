@@ -0,0 +1,187 @@
+package com.musicplayer.data.local.dao;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.entities.Playlist;
+import com.musicplayer.data.local.entities.PlaylistItem;
+import com.musicplayer.data.local.entities.Track;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class PlaylistDaoTest {
+
+    private AppDatabase database;
+    private PlaylistDao playlistDao;
+    private long playlistId;
+    private final List<Long> trackIds = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        playlistDao = database.playlistDao();
+        playlistId = playlistDao.insert(new Playlist("Playlist"));
+        for (int i = 0; i < 5; i++) {
+            long trackId = database.trackDao().insert(new Track("Track " + i, "Artist", "Album", "/music/" + i + ".mp3"));
+            trackIds.add(trackId);
+            playlistDao.addTrackToPlaylist(playlistId, trackId);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void testMoveTrackWritesOnlyTheMovedItem() {
+        Map<Long, Long> before = positions();
+
+        // Track 0 down to index 3, then track 4 up to index 1
+        playlistDao.moveTrack(playlistId, 0, 3);
+        assertEquals(order(1, 2, 3, 0, 4), playlistDao.getTrackIds(playlistId));
+        playlistDao.moveTrack(playlistId, 4, 1);
+        assertEquals(order(1, 4, 2, 3, 0), playlistDao.getTrackIds(playlistId));
+
+        Map<Long, Long> after = positions();
+        int changed = 0;
+        for (Map.Entry<Long, Long> entry : before.entrySet()) {
+            if (!entry.getValue().equals(after.get(entry.getKey()))) {
+                changed++;
+            }
+        }
+        assertEquals(2, changed);
+    }
+
+    @Test
+    public void testRemoveKeepsOtherPositions() {
+        Map<Long, Long> before = positions();
+        playlistDao.removeTrackFromPlaylist(playlistId, trackIds.get(2));
+
+        assertEquals(order(0, 1, 3, 4), playlistDao.getTrackIds(playlistId));
+        for (PlaylistItem item : playlistDao.getItems(playlistId)) {
+            assertEquals(before.get(item.getId()), Long.valueOf(item.getPosition()));
+        }
+    }
+
+    @Test
+    public void testInsertingIntoTheSameGapRebalances() {
+        long first = playlistDao.getItemAt(playlistId, 0).getId();
+        List<Long> expected = new ArrayList<>(playlistDao.getTrackIds(playlistId));
+
+        // Each insert halves the gap after the first item until it runs out
+        for (int i = 0; i < 30; i++) {
+            long trackId = database.trackDao().insert(new Track("Extra " + i, "Artist", "Album", "/extra/" + i + ".mp3"));
+            assertTrue(playlistDao.insertTrackAfter(playlistId, trackId, first) > 0);
+            expected.add(1, trackId);
+        }
+
+        assertEquals(expected, playlistDao.getTrackIds(playlistId));
+        assertEquals(35, playlistDao.getItemCount(playlistId));
+    }
+
+    @Test
+    public void testRebalanceKeepsOrderAndSpreadsPositions() {
+        playlistDao.moveTrack(playlistId, 3, 0);
+        List<Long> expected = playlistDao.getTrackIds(playlistId);
+
+        playlistDao.rebalancePositions(playlistId);
+
+        assertEquals(expected, playlistDao.getTrackIds(playlistId));
+        List<PlaylistItem> items = playlistDao.getItems(playlistId);
+        for (int i = 0; i < items.size(); i++) {
+            assertEquals((i + 1) * PlaylistDao.POSITION_GAP, items.get(i).getPosition());
+        }
+    }
+
+    @Test
+    public void testItemsOfAnotherPlaylistAreRejected() {
+        long otherId = playlistDao.insert(new Playlist("Other"));
+        playlistDao.addTrackToPlaylist(otherId, trackIds.get(0));
+        long otherItem = playlistDao.getItemAt(otherId, 0).getId();
+        long item = playlistDao.getItemAt(playlistId, 1).getId();
+        List<Long> expected = playlistDao.getTrackIds(playlistId);
+
+        try {
+            playlistDao.moveItemAfter(playlistId, item, otherItem);
+            fail("Moved after an item of another playlist");
+        } catch (IllegalArgumentException expectedException) {
+            // Rejected
+        }
+        try {
+            playlistDao.moveItemAfter(playlistId, otherItem, item);
+            fail("Moved an item of another playlist");
+        } catch (IllegalArgumentException expectedException) {
+            // Rejected
+        }
+        try {
+            playlistDao.insertTrackAfter(playlistId, trackIds.get(4), otherItem);
+            fail("Inserted after an item of another playlist");
+        } catch (IllegalArgumentException expectedException) {
+            // Rejected
+        }
+
+        assertEquals(expected, playlistDao.getTrackIds(playlistId));
+        assertEquals(Collections.singletonList(trackIds.get(0)), playlistDao.getTrackIds(otherId));
+    }
+
+    @Test
+    public void testMissingItemsAreIgnored() {
+        long item = playlistDao.getItemAt(playlistId, 1).getId();
+        List<Long> expected = playlistDao.getTrackIds(playlistId);
+
+        playlistDao.moveItemAfter(playlistId, item, Long.MAX_VALUE);
+
+        assertEquals(0, playlistDao.insertTrackAfter(playlistId, trackIds.get(4), Long.MAX_VALUE));
+        assertEquals(expected, playlistDao.getTrackIds(playlistId));
+    }
+
+    @Test
+    public void testTrackPageBeforeMirrorsTrackPage() {
+        List<PlaylistDao.PlaylistTrack> all = playlistDao.getTrackPage(playlistId, Long.MIN_VALUE, 0, 10);
+        PlaylistDao.PlaylistTrack last = all.get(4);
+
+        List<PlaylistDao.PlaylistTrack> before = playlistDao.getTrackPageBefore(
+                playlistId, last.itemPosition, last.itemId, 3);
+
+        assertEquals(3, before.size());
+        assertEquals(trackIds.get(3).longValue(), before.get(0).track.getId());
+        assertEquals(trackIds.get(2).longValue(), before.get(1).track.getId());
+        assertEquals(trackIds.get(1).longValue(), before.get(2).track.getId());
+    }
+
+    private List<Long> order(int... indexes) {
+        List<Long> ids = new ArrayList<>();
+        for (int index : indexes) {
+            ids.add(trackIds.get(index));
+        }
+        return ids;
+    }
+
+    private Map<Long, Long> positions() {
+        Map<Long, Long> positions = new HashMap<>();
+        for (PlaylistItem item : playlistDao.getItems(playlistId)) {
+            positions.put(item.getId(), item.getPosition());
+        }
+        return positions;
+    }
+}
@@ -0,0 +1,95 @@
+package com.musicplayer.data.scanner;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.entities.Album;
+import com.musicplayer.data.local.entities.Track;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+@RunWith(AndroidJUnit4.class)
+public class LibraryNormalizerTest {
+
+    private AppDatabase database;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+    }
+
+    @Test
+    public void testCompilationIsOneAlbum() {
+        List<Track> tracks = Arrays.asList(
+                track("One", "Artist A", "Hits", "Various Artists"),
+                track("Two", "Artist B", "Hits", "Various Artists"),
+                track("Three", "Artist C", "Hits", "Various Artists"));
+
+        new LibraryNormalizer(database).normalize(tracks);
+
+        long albumId = tracks.get(0).getAlbumId();
+        assertTrue(albumId > 0);
+        for (Track track : tracks) {
+            assertEquals(albumId, track.getAlbumId());
+        }
+        assertNotEquals(tracks.get(0).getArtistId(), tracks.get(1).getArtistId());
+
+        Album album = database.albumDao().getById(albumId);
+        assertEquals("Various Artists", album.getArtist());
+        assertEquals("Various Artists", album.getAlbumArtist());
+        assertEquals(1, database.albumDao().getCount());
+    }
+
+    @Test
+    public void testCompilationFoundAgainInLaterBatch() {
+        Track first = track("One", "Artist A", "Hits", "Various Artists");
+        new LibraryNormalizer(database).normalize(Arrays.asList(first));
+
+        Track second = track("Two", "Artist B", "Hits", "Various Artists");
+        new LibraryNormalizer(database).normalize(Arrays.asList(second));
+
+        assertEquals(first.getAlbumId(), second.getAlbumId());
+        assertEquals(1, database.albumDao().getCount());
+    }
+
+    @Test
+    public void testTrackArtistKeysAlbumsWithoutAlbumArtist() {
+        List<Track> tracks = Arrays.asList(
+                track("One", "Artist A", "Greatest Hits", null),
+                track("Two", "Artist B", "Greatest Hits", ""),
+                track("Three", "Artist A", "Greatest Hits", "Artist A"));
+
+        new LibraryNormalizer(database).normalize(tracks);
+
+        assertNotEquals(tracks.get(0).getAlbumId(), tracks.get(1).getAlbumId());
+        assertEquals(tracks.get(0).getAlbumId(), tracks.get(2).getAlbumId());
+        assertEquals(tracks.get(0).getArtistId(),
+                database.albumDao().getById(tracks.get(0).getAlbumId()).getArtistId());
+    }
+
+    private static Track track(String title, String artist, String album, String albumArtist) {
+        Track track = new Track(title, artist, album, "/music/" + title + ".mp3");
+        track.setAlbumArtist(albumArtist);
+        return track;
+    }
+}
@@ -0,0 +1,51 @@
+package com.musicplayer.data.search;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for FtsQuery.
+ */
+public class FtsQueryTest {
+
+    @Test
+    public void testPrefixQuery() {
+        assertEquals("hey* jud*", FtsQuery.prefixQuery("Hey Jud"));
+        // Query syntax is dropped, and lower case words are never operators
+        assertEquals("ac* dc* or*", FtsQuery.prefixQuery("\"AC/DC\" OR -*"));
+        assertEquals("şarkı*", FtsQuery.prefixQuery("şarkı"));
+        // Lower casing leaves a combining dot after the i, which must not split the word
+        assertEquals("istanbul*", FtsQuery.prefixQuery("İstanbul"));
+        assertEquals("istanbul* nights*", FtsQuery.prefixQuery("İSTANBUL NIGHTS"));
+        assertNull(FtsQuery.prefixQuery("  -- "));
+        assertNull(FtsQuery.prefixQuery(null));
+    }
+
+    @Test
+    public void testColumnQuery() {
+        assertEquals("title:hey* title:jud*", FtsQuery.columnQuery("hey* jud*", "title"));
+        assertEquals("title:istanbul*", FtsQuery.columnQuery(FtsQuery.prefixQuery("İstanbul"), "title"));
+    }
+
+    @Test
+    public void testTitleHitOutscoresAlbumHit() {
+        // One phrase, three columns: hits in row, hits in all rows, rows with hits
+        byte[] titleHit = matchInfo(1, 3, 1, 5, 5, 0, 3, 3, 0, 9, 9);
+        byte[] albumHit = matchInfo(1, 3, 0, 5, 5, 0, 3, 3, 1, 9, 9);
+
+        assertTrue(FtsQuery.scoreTrack(titleHit) > FtsQuery.scoreTrack(albumHit));
+        assertEquals(0f, FtsQuery.scoreTrack(new byte[0]), 0);
+    }
+
+    private static byte[] matchInfo(int... values) {
+        ByteBuffer buffer = ByteBuffer.allocate(values.length * 4).order(ByteOrder.nativeOrder());
+        for (int value : values) {
+            buffer.putInt(value);
+        }
+        return buffer.array();
+    }
+}
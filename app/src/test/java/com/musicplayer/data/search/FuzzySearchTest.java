@@ -0,0 +1,92 @@
+package com.musicplayer.data.search;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for fuzzy search in SearchIndex, including its latency on a
+ * synthetic library of 100k tracks.
+ */
+public class FuzzySearchTest {
+
+    // Average per query on the synthetic library; a few times the desktop figure for slow CI machines
+    private static final double LATENCY_BUDGET_MILLIS = 10.0;
+
+    @Test
+    public void testPrefixDistance() {
+        assertEquals(0, FuzzyVocabulary.prefixDistance("metal", "metallica", 1));
+        assertEquals(1, FuzzyVocabulary.prefixDistance("metalica", "metallica", 1));
+        // Swapped letters are one edit
+        assertEquals(1, FuzzyVocabulary.prefixDistance("beatels", "beatles", 2));
+        assertEquals(2, FuzzyVocabulary.prefixDistance("nrivnaa", "nirvana", 1));
+    }
+
+    @Test
+    public void testFindsMistypedWords() {
+        SearchIndex index = trackIndex();
+        index.put(1, "Enter Sandman", "Metallica", "Metallica");
+        index.put(2, "Yesterday", "The Beatles", "Help");
+        index.put(3, "Smells Like Teen Spirit", "Nirvana", "Nevermind");
+
+        assertEquals(Arrays.asList(1L), index.searchFuzzy("metalica", 10));
+        assertEquals(Arrays.asList(2L), index.searchFuzzy("beatels", 10));
+        assertEquals(Arrays.asList(3L), index.searchFuzzy("nirvan smells", 10));
+        // Exact search stays strict
+        assertTrue(index.search("metalica", 10).isEmpty());
+        // Short words are too ambiguous to correct
+        assertTrue(index.searchFuzzy("hlp", 10).isEmpty());
+    }
+
+    @Test
+    public void testRanksByQualityFieldAndPopularity() {
+        SearchIndex index = trackIndex();
+        index.put(1, 0, "Other", "Someone", "Mirage");
+        index.put(2, 0, "Mirrage", "Someone", "Album");
+        index.put(3, 0, "Mirage", "Someone", "Album");
+        index.put(4, 50, "Mirage", "Someone Else", "Album");
+
+        List<Long> results = index.searchFuzzy("mirage", 10);
+        // Exact titles, most played first, then a title one edit away, then an album
+        assertEquals(Arrays.asList(4L, 3L, 2L, 1L), results);
+    }
+
+    @Test
+    public void testLatencyOnLargeLibrary() {
+        SearchIndex index = trackIndex();
+        Random random = new Random(42);
+        String[] words = {"love", "night", "dream", "heart", "fire", "rain", "summer", "shadow",
+                "river", "light", "ocean", "golden", "silver", "thunder", "midnight", "forever"};
+        for (long id = 0; id < 100000; id++) {
+            index.put(id, random.nextInt(100),
+                    words[random.nextInt(words.length)] + " " + words[random.nextInt(words.length)]
+                            + " " + Integer.toString(random.nextInt(1000000), 36),
+                    "Artist " + Integer.toString(random.nextInt(20000), 36),
+                    "Album " + Integer.toString(random.nextInt(30000), 36));
+        }
+        index.compact();
+
+        String[] queries = {"midnigth", "thunderr", "golden shadwo", "sumer", "artst", "forevr rain", "ocaen"};
+        for (String query : queries) {
+            assertFalse(query, index.searchFuzzy(query, 50).isEmpty());
+        }
+
+        int runs = 50;
+        long start = System.nanoTime();
+        for (int run = 0; run < runs; run++) {
+            for (String query : queries) {
+                index.searchFuzzy(query, 50);
+            }
+        }
+        double averageMillis = (System.nanoTime() - start) / 1e6 / (runs * queries.length);
+        assertTrue("Average " + averageMillis + " ms", averageMillis < LATENCY_BUDGET_MILLIS);
+    }
+
+    private static SearchIndex trackIndex() {
+        return new SearchIndex(3f, 2f, 1f);
+    }
+}
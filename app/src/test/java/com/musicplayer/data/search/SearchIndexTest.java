@@ -0,0 +1,119 @@
+package com.musicplayer.data.search;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SearchNormalizer and SearchIndex.
+ */
+public class SearchIndexTest {
+
+    @Test
+    public void testTurkishAndAccentFolding() {
+        assertEquals("istanbul", SearchNormalizer.normalize("İstanbul"));
+        assertEquals("istanbul", SearchNormalizer.normalize("ISTANBUL"));
+        assertEquals("sarki", SearchNormalizer.normalize("Şarkı"));
+        assertEquals("cagri", SearchNormalizer.normalize("Çağrı"));
+        assertEquals("beyonce", SearchNormalizer.normalize("Beyoncé"));
+        assertEquals("strasse", SearchNormalizer.normalize("Straße"));
+        assertEquals(Arrays.asList("ac", "dc", "back", "in", "black"),
+                SearchNormalizer.tokenize("AC/DC – Back in Black"));
+    }
+
+    @Test
+    public void testPrefixMatchesAcrossFoldedForms() {
+        SearchIndex index = trackIndex();
+        index.put(1, "İstanbul Hatırası", "Zeki Müren", "Best Of");
+        index.put(2, "Bir Şarkı", "Sezen Aksu", "Gitme");
+        index.put(3, "Song", "Artist", "Album");
+
+        assertEquals(Arrays.asList(1L), index.search("istanbul", 10));
+        assertEquals(Arrays.asList(1L), index.search("ISTAN", 10));
+        assertEquals(Arrays.asList(2L), index.search("sarki", 10));
+        assertEquals(Arrays.asList(2L), index.search("aksu bir", 10));
+        assertTrue(index.search("sarki zeki", 10).isEmpty());
+        assertTrue(index.search("", 10).isEmpty());
+    }
+
+    @Test
+    public void testRanksTitleAndExactWordsFirst() {
+        SearchIndex index = trackIndex();
+        index.put(1, "Other", "Someone", "Love Songs");
+        index.put(2, "Lovely", "Someone", "Album");
+        index.put(3, "Love", "Someone", "Album");
+
+        assertEquals(Arrays.asList(3L, 2L, 1L), index.search("love", 10));
+        assertEquals(Arrays.asList(3L, 2L), index.search("love", 2));
+    }
+
+    @Test
+    public void testBestMatchFoundAmongManyPrefixMatches() {
+        SearchIndex index = trackIndex();
+        for (long id = 1; id <= 5000; id++) {
+            index.put(id, "Lovely " + id, "Someone", "Album");
+        }
+        index.put(9000, "Love", "Someone", "Album");
+        index.compact();
+        index.put(9001, "Love Me", "Someone", "Album");
+
+        // Exact words after thousands of prefix matches, in the arrays and in the delta
+        assertEquals(Arrays.asList(9000L, 9001L), index.search("love", 2));
+        assertEquals(10, index.search("lovely", 10).size());
+    }
+
+    @Test
+    public void testGroupedSearchKeepsEveryGroup() {
+        SearchIndex index = trackIndex();
+        // Many more tracks starting with "a" than the limit
+        for (long id = 1; id <= 1500; id++) {
+            index.put(SearchIndex.groupedId(1, id), "A" + id, "Artist", "Album");
+        }
+        index.put(SearchIndex.groupedId(0, 1), "Abba");
+        index.compact();
+
+        List<Long> ids = index.searchGrouped("a", 3);
+        assertEquals(4, ids.size());
+        assertTrue(ids.contains(SearchIndex.groupedId(0, 1)));
+        int tracks = 0;
+        for (long id : ids) {
+            if (SearchIndex.groupOf(id) == 1) {
+                tracks++;
+            }
+        }
+        assertEquals(3, tracks);
+        assertEquals(1, SearchIndex.idOf(SearchIndex.groupedId(0, 1)));
+    }
+
+    @Test
+    public void testUpdatesBeforeAndAfterCompaction() {
+        SearchIndex index = trackIndex();
+        for (long id = 0; id < 10000; id++) {
+            index.put(id, "Title " + id, "Artist " + (id % 100), "Album " + (id % 1000));
+        }
+        index.compact();
+        assertEquals(Arrays.asList(4242L), index.search("title 4242", 10));
+
+        // Renamed, removed and added after the arrays were built
+        index.put(4242, "Renamed", "Artist 42", "Album 242");
+        index.remove(17);
+        index.put(20000, "Brand New", "Artist 1", "Album 1");
+
+        assertTrue(index.search("title 4242", 10).isEmpty());
+        assertEquals(Arrays.asList(4242L), index.search("renamed", 10));
+        assertFalse(index.search("title 17", 100).contains(17L));
+        assertEquals(Arrays.asList(20000L), index.search("brand", 10));
+
+        index.retainAll(Arrays.asList(4242L, 20000L));
+        assertEquals(2, index.size());
+        List<Long> artist = index.search("artist", 10);
+        assertEquals(2, artist.size());
+    }
+
+    private static SearchIndex trackIndex() {
+        return new SearchIndex(3f, 2f, 1f);
+    }
+}
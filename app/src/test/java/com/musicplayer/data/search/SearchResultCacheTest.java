@@ -0,0 +1,73 @@
+package com.musicplayer.data.search;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for SearchResultCache.
+ */
+public class SearchResultCacheTest {
+
+    @Test
+    public void testRepeatedQueryIsCachedByFoldedWords() {
+        SearchResultCache<String[]> cache = cache(4);
+        List<String[]> result = Arrays.<String[]>asList(item("Şarkı", "Sezen Aksu"));
+        cache.put("sarki", result, true);
+
+        assertEquals(1, cache.get("  ŞARKI ").size());
+        assertNull(cache.get("other"));
+    }
+
+    @Test
+    public void testExtendedQueryFiltersCompleteResult() {
+        SearchResultCache<String[]> cache = cache(4);
+        cache.put("lo", Arrays.<String[]>asList(item("Love Song", "A"), item("Lonely", "B"), item("Other", "Lou")),
+                true);
+
+        List<String[]> love = cache.get("love");
+        assertEquals(1, love.size());
+        assertEquals("Love Song", love.get(0)[0]);
+
+        List<String[]> twoWords = cache.get("lo b");
+        assertEquals(1, twoWords.size());
+        assertEquals("Lonely", twoWords.get(0)[0]);
+
+        // Derived from a complete result, so complete as well
+        assertEquals(1, cache.get("love s").size());
+    }
+
+    @Test
+    public void testTruncatedResultIsNotFiltered() {
+        // Cut off by the search, so more matches may exist beyond it
+        SearchResultCache<String[]> cache = cache(4);
+        cache.put("lo", Arrays.<String[]>asList(item("Love", "A"), item("Lonely", "B")), false);
+
+        assertNull(cache.get("lov"));
+        assertEquals(2, cache.get("lo").size());
+    }
+
+    @Test
+    public void testEvictsLeastRecentlyUsed() {
+        SearchResultCache<String[]> cache = cache(2);
+        cache.put("alpha", Arrays.<String[]>asList(item("Alpha", "")), true);
+        cache.put("beta", Arrays.<String[]>asList(item("Beta", "")), true);
+        cache.get("alpha");
+        cache.put("gamma", Arrays.<String[]>asList(item("Gamma", "")), true);
+
+        assertNotNull(cache.get("alpha"));
+        assertNull(cache.get("beta"));
+        assertNotNull(cache.get("gamma"));
+    }
+
+    private static SearchResultCache<String[]> cache(int capacity) {
+        return new SearchResultCache<>(capacity, item -> item);
+    }
+
+    private static String[] item(String title, String artist) {
+        return new String[] {title, artist};
+    }
+}
@@ -0,0 +1,101 @@
+package com.musicplayer.data.waveform;
+
+import android.content.Context;
+
+import androidx.room.Room;
+import androidx.test.core.app.ApplicationProvider;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.entities.Track;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+
+import static org.junit.Assert.*;
+
+/**
+ * Tests for the waveform cache records of failed files and the removal of
+ * waveforms of deleted tracks.
+ */
+@RunWith(AndroidJUnit4.class)
+public class WaveformCacheTest {
+
+    private AppDatabase database;
+    private File directory;
+    private WaveformCache cache;
+
+    @Before
+    public void setUp() {
+        Context context = ApplicationProvider.getApplicationContext();
+        database = Room.inMemoryDatabaseBuilder(context, AppDatabase.class)
+                .allowMainThreadQueries()
+                .build();
+        directory = new File(context.getCacheDir(), "waveform-test");
+        cache = new WaveformCache(directory);
+    }
+
+    @After
+    public void tearDown() {
+        database.close();
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    @Test
+    public void testFailureIsRecordedUntilFileChanges() {
+        assertFalse(cache.hasFailed(1, 1000));
+
+        cache.markFailed(1, 1000);
+
+        assertTrue(cache.hasFailed(1, 1000));
+        assertFalse(cache.hasFailed(1, 2000));
+        assertFalse(cache.hasFailed(2, 1000));
+    }
+
+    @Test
+    public void testStoredWaveformClearsFailure() throws Exception {
+        cache.markFailed(1, 1234);
+
+        cache.put(1, waveform());
+
+        assertFalse(cache.hasFailed(1, 1234));
+        assertTrue(cache.contains(1, 1234));
+    }
+
+    @Test
+    public void testRemoveOrphansKeepsLibraryTracks() throws Exception {
+        long kept = database.trackDao().insert(new Track("Kept", "Artist", "Album", "/music/kept.mp3"));
+        long deleted = database.trackDao().insert(new Track("Deleted", "Artist", "Album", "/music/deleted.mp3"));
+        cache.put(kept, waveform());
+        cache.put(deleted, waveform());
+        cache.markFailed(deleted + 1, 1000);
+        database.trackDao().deleteByIds(Collections.singletonList(deleted));
+
+        int removed = new WaveformBatchGenerator(database, cache).removeOrphans();
+
+        assertEquals(2, removed);
+        assertEquals(new HashSet<>(Arrays.asList(kept)), cache.getTrackIds());
+        assertFalse(cache.getFile(deleted).exists());
+        assertTrue(cache.contains(kept, 1234));
+    }
+
+    private static Waveform waveform() {
+        WaveformGenerator generator = new WaveformGenerator(10);
+        generator.onFormat(44100, 1);
+        generator.onSamples(new short[4410], 4410);
+        return generator.getWaveform(1234);
+    }
+}
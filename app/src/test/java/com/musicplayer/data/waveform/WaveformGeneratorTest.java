@@ -0,0 +1,92 @@
+package com.musicplayer.data.waveform;
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for WaveformGenerator and the stored waveform format.
+ */
+public class WaveformGeneratorTest {
+
+    private static final int SAMPLE_RATE = 44100;
+
+    @Test
+    public void testBucketsFollowEnvelope() {
+        // Silence in the first half, a full-scale tone in the second
+        int frames = SAMPLE_RATE * 10;
+        short[] samples = new short[frames * 2];
+        for (int i = frames / 2; i < frames; i++) {
+            short value = (short) Math.round(32767 * Math.sin(2 * Math.PI * 440 * i / SAMPLE_RATE));
+            samples[2 * i] = value;
+            samples[2 * i + 1] = value;
+        }
+
+        Waveform waveform = generate(samples, 2, 100);
+
+        assertEquals(100, waveform.getBucketCount());
+        for (int bucket = 0; bucket < 49; bucket++) {
+            assertEquals(0f, waveform.getMin(bucket), 0.01f);
+            assertEquals(0f, waveform.getMax(bucket), 0.01f);
+        }
+        for (int bucket = 51; bucket < 100; bucket++) {
+            assertEquals(-1f, waveform.getMin(bucket), 0.02f);
+            assertEquals(1f, waveform.getMax(bucket), 0.02f);
+        }
+    }
+
+    @Test
+    public void testBucketCountIndependentOfLength() {
+        assertEquals(1000, generate(new short[500], 1, 1000).getBucketCount());
+        assertEquals(1000, generate(new short[SAMPLE_RATE * 60], 1, 1000).getBucketCount());
+    }
+
+    @Test
+    public void testNoSamplesGivesNoWaveform() {
+        WaveformGenerator generator = new WaveformGenerator(100);
+        generator.onFormat(SAMPLE_RATE, 2);
+        assertNull(generator.getWaveform(0));
+    }
+
+    @Test
+    public void testStoredFormatRoundTrip() throws Exception {
+        short[] samples = new short[SAMPLE_RATE];
+        for (int i = 0; i < samples.length; i++) {
+            samples[i] = (short) (i * 32767 / samples.length);
+        }
+        Waveform waveform = generate(samples, 1, 50);
+
+        ByteBuffer stored = waveform.asByteBuffer();
+        assertEquals(Waveform.HEADER_SIZE + 100, stored.remaining());
+        Waveform read = Waveform.read(stored);
+
+        assertEquals(50, read.getBucketCount());
+        assertEquals(1234, read.getSourceSize());
+        for (int bucket = 0; bucket < 50; bucket++) {
+            assertEquals(waveform.getMin(bucket), read.getMin(bucket), 0);
+            assertEquals(waveform.getMax(bucket), read.getMax(bucket), 0);
+        }
+        // Rising ramp
+        assertTrue(read.getMax(49) > read.getMax(0));
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsOtherData() throws Exception {
+        Waveform.read(ByteBuffer.wrap(new byte[64]));
+    }
+
+    private static Waveform generate(short[] samples, int channels, int bucketCount) {
+        WaveformGenerator generator = new WaveformGenerator(bucketCount);
+        generator.onFormat(SAMPLE_RATE, channels);
+        short[] buffer = new short[4096];
+        for (int start = 0; start < samples.length; start += buffer.length) {
+            int count = Math.min(buffer.length, samples.length - start);
+            System.arraycopy(samples, start, buffer, 0, count);
+            generator.onSamples(buffer, count);
+        }
+        return generator.getWaveform(1234);
+    }
+}
@@ -7,7 +7,11 @@ import androidx.test.core.app.ApplicationProvider;
 import androidx.test.ext.junit.runners.AndroidJUnit4;
 
 import com.musicplayer.data.local.AppDatabase;
+import com.musicplayer.data.local.entities.Album;
+import com.musicplayer.data.local.entities.Artist;
+import com.musicplayer.data.local.entities.Playlist;
 import com.musicplayer.data.local.entities.Track;
+import com.musicplayer.data.search.LibrarySearchResult;
 
 import org.junit.After;
 import org.junit.Before;
@@ -15,6 +19,7 @@ import org.junit.Test;
 import org.junit.runner.RunWith;
 
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import io.reactivex.observers.TestObserver;
@@ -233,4 +238,253 @@ public class TrackRepositoryTest {
         Track updatedTrack = trackRepository.getById(trackId).blockingGet();
         assertEquals(6, updatedTrack.getPlayCount());
     }
-}
\ No newline at end of file
+    
+    @Test
+    public void testUpsertPreservesUserData() {
+        // Insert a track the user has played, rated and marked as favorite
+        Track track = new Track("Old Title", "Old Artist", "Old Album", "/path/to/test.mp3");
+        track.setPlayCount(7);
+        track.setRating(4);
+        track.setFavorite(true);
+        track.setBookmark(42000);
+        trackRepository.insert(track).blockingAwait();
+        long trackId = trackRepository.getAll().first(new ArrayList<>()).blockingGet().get(0).getId();
+        
+        // Re-import the same file with new tags, plus a new file
+        List<Track> rescanned = new ArrayList<>();
+        rescanned.add(new Track("New Title", "New Artist", "New Album", "/path/to/test.mp3"));
+        rescanned.add(new Track("Other Song", "Other Artist", "Other Album", "/path/to/other.mp3"));
+        
+        TestObserver<Void> upsertObserver = new TestObserver<>();
+        trackRepository.upsertAll(rescanned).subscribe(upsertObserver);
+        upsertObserver.awaitTerminalEvent();
+        upsertObserver.assertComplete();
+        upsertObserver.assertNoErrors();
+        
+        // Tags are refreshed in place and user data is kept
+        assertEquals(2, trackRepository.getCount().blockingGet().intValue());
+        Track updatedTrack = trackRepository.getById(trackId).blockingGet();
+        assertEquals("New Title", updatedTrack.getTitle());
+        assertEquals("New Artist", updatedTrack.getArtist());
+        assertEquals(7, updatedTrack.getPlayCount());
+        assertEquals(4, updatedTrack.getRating());
+        assertTrue(updatedTrack.isFavorite());
+        assertEquals(42000, updatedTrack.getBookmark());
+    }
+    
+    @Test
+    public void testMediaStoreUpsertKeepsAudioProperties() {
+        // Imported from the file, which reports its audio properties
+        Track imported = new Track("Song", "Artist", "Album", "/path/to/test.mp3");
+        imported.setTagsFromFile(true);
+        imported.setBitrate(320000);
+        imported.setSampleRate(44100);
+        imported.setChannels(2);
+        List<Track> imports = new ArrayList<>();
+        imports.add(imported);
+        trackRepository.upsertAll(imports).blockingAwait();
+
+        // A MediaStore scan of the same file has no audio properties
+        List<Track> scanned = new ArrayList<>();
+        scanned.add(new Track("Song (Remastered)", "Artist", "Album", "/path/to/test.mp3"));
+        trackRepository.upsertAll(scanned).blockingAwait();
+
+        Track updatedTrack = trackRepository.getById(imported.getId()).blockingGet();
+        assertEquals("Song (Remastered)", updatedTrack.getTitle());
+        assertEquals(320000, updatedTrack.getBitrate());
+        assertEquals(44100, updatedTrack.getSampleRate());
+        assertEquals(2, updatedTrack.getChannels());
+    }
+
+    @Test
+    public void testUpsertClearsContentHashOfEditedFile() {
+        Track track = new Track("Song", "Artist", "Album", "/path/to/test.mp3");
+        track.setContentHash("0123456789abcdef0123456789abcdef01234567");
+        track.setFileSize(1000);
+        track.setDateModified(new Date(1_700_000_000_000L));
+        trackRepository.insert(track).blockingAwait();
+        long trackId = trackRepository.getAll().first(new ArrayList<>()).blockingGet().get(0).getId();
+
+        // Scanned again unchanged: the hash still describes the file
+        Track unchanged = new Track("Song", "Artist", "Album", "/path/to/test.mp3");
+        unchanged.setFileSize(1000);
+        unchanged.setDateModified(new Date(1_700_000_000_000L));
+        List<Track> scanned = new ArrayList<>();
+        scanned.add(unchanged);
+        trackRepository.upsertAll(scanned).blockingAwait();
+        assertEquals("0123456789abcdef0123456789abcdef01234567",
+                trackRepository.getById(trackId).blockingGet().getContentHash());
+
+        // Edited in place: the old hash must not make a copy of the old content look like a move
+        Track edited = new Track("Song", "Artist", "Album", "/path/to/test.mp3");
+        edited.setFileSize(1200);
+        edited.setDateModified(new Date(1_700_000_500_000L));
+        scanned.clear();
+        scanned.add(edited);
+        trackRepository.upsertAll(scanned).blockingAwait();
+        assertNull(trackRepository.getById(trackId).blockingGet().getContentHash());
+    }
+
+    @Test
+    public void testUpsertSetsIdOfEveryCopyOfAPath() {
+        List<Track> tracks = new ArrayList<>();
+        tracks.add(new Track("First", "Artist", "Album", "/path/to/test.mp3"));
+        tracks.add(new Track("Second", "Artist", "Album", "/path/to/test.mp3"));
+        trackRepository.upsertAll(tracks).blockingAwait();
+
+        assertEquals(1, trackRepository.getCount().blockingGet().intValue());
+        assertTrue(tracks.get(0).getId() > 0);
+        assertEquals(tracks.get(1).getId(), tracks.get(0).getId());
+        assertEquals("Second", trackRepository.getById(tracks.get(0).getId()).blockingGet().getTitle());
+    }
+
+    @Test
+    public void testUpsertRecognisesMovedFile() {
+        // Insert a played track whose file has since been moved away
+        Track track = new Track("Song", "Artist", "Album", "/old/folder/song.mp3");
+        track.setContentHash("0123456789abcdef0123456789abcdef01234567");
+        track.setPlayCount(5);
+        track.setFavorite(true);
+        trackRepository.insert(track).blockingAwait();
+        long trackId = trackRepository.getAll().first(new ArrayList<>()).blockingGet().get(0).getId();
+        
+        // The same content shows up at a new path
+        Track moved = new Track("Song", "Artist", "Album", "/new/folder/song.mp3");
+        moved.setContentHash("0123456789abcdef0123456789abcdef01234567");
+        List<Track> rescanned = new ArrayList<>();
+        rescanned.add(moved);
+        trackRepository.upsertAll(rescanned).blockingAwait();
+        
+        // The existing row follows the file instead of a new one being added
+        assertEquals(1, trackRepository.getCount().blockingGet().intValue());
+        Track updatedTrack = trackRepository.getById(trackId).blockingGet();
+        assertEquals("/new/folder/song.mp3", updatedTrack.getFilePath());
+        assertEquals(5, updatedTrack.getPlayCount());
+        assertTrue(updatedTrack.isFavorite());
+    }
+    
+    @Test
+    public void testSearchRankedMatchesPrefixesAndRanksTitleFirst() {
+        List<Track> tracks = new ArrayList<>();
+        tracks.add(new Track("Other Song", "Istanbul Ensemble", "Live", "/music/1.mp3"));
+        tracks.add(new Track("Istanbul Nights", "Someone", "Album", "/music/2.mp3"));
+        tracks.add(new Track("Unrelated", "Nobody", "Nothing", "/music/3.mp3"));
+        trackRepository.insertAll(tracks).blockingAwait();
+        
+        // Unfinished word, different case
+        List<Track> results = trackRepository.searchRanked("ISTAN", 10).blockingGet();
+        
+        assertEquals(2, results.size());
+        assertEquals("Istanbul Nights", results.get(0).getTitle());
+        assertEquals("Other Song", results.get(1).getTitle());
+        assertEquals(2, trackRepository.searchRanked("İstanbul", 10).blockingGet().size());
+        
+        // Index follows updates
+        Track renamed = results.get(1);
+        renamed.setArtist("Ankara Ensemble");
+        trackRepository.update(renamed).blockingAwait();
+        assertEquals(1, trackRepository.searchRanked("istanbul", 10).blockingGet().size());
+    }
+    
+    @Test
+    public void testSearchRankedFindsTitleHitsBeyondCandidateLimit() {
+        // More artist hits than are scored, all indexed before the title hit
+        List<Track> tracks = new ArrayList<>();
+        for (int i = 0; i < 2100; i++) {
+            tracks.add(new Track("Song " + i, "Istanbul Ensemble", "Live", "/music/" + i + ".mp3"));
+        }
+        tracks.add(new Track("Istanbul Nights", "Someone", "Album", "/music/nights.mp3"));
+        trackRepository.insertAll(tracks).blockingAwait();
+        
+        List<Track> results = trackRepository.searchRanked("istan", 10).blockingGet();
+        
+        assertEquals(10, results.size());
+        assertEquals("Istanbul Nights", results.get(0).getTitle());
+    }
+    
+    @Test
+    public void testSearchInstantFoldsTurkishLetters() {
+        List<Track> tracks = new ArrayList<>();
+        tracks.add(new Track("İstanbul Hatırası", "Zeki Müren", "Best Of", "/music/1.mp3"));
+        tracks.add(new Track("Bir Şarkı", "Sezen Aksu", "Gitme", "/music/2.mp3"));
+        trackRepository.insertAll(tracks).blockingAwait();
+        
+        List<Track> results = trackRepository.searchInstant("istanbul", 10).blockingGet();
+        assertEquals(1, results.size());
+        assertEquals("İstanbul Hatırası", results.get(0).getTitle());
+        
+        results = trackRepository.searchInstant("sarki", 10).blockingGet();
+        assertEquals(1, results.size());
+        assertEquals("Bir Şarkı", results.get(0).getTitle());
+    }
+    
+    @Test
+    public void testKeysetPagesVisitEveryTrackOnceInTitleOrder() {
+        List<Track> tracks = new ArrayList<>();
+        tracks.add(new Track("B", "Artist", "Album", "/music/1.mp3"));
+        tracks.add(new Track("A", "Artist", "Album", "/music/2.mp3"));
+        tracks.add(new Track("B", "Artist", "Album", "/music/3.mp3"));
+        tracks.add(new Track("C", "Artist", "Album", "/music/4.mp3"));
+        tracks.add(new Track("B", "Artist", "Album", "/music/5.mp3"));
+        tracks.add(new Track(null, "Artist", "Album", "/music/6.mp3"));
+        tracks.add(new Track("", "Artist", "Album", "/music/7.mp3"));
+        trackRepository.insertAll(tracks).blockingAwait();
+        
+        // The repository works on the app database, not the in-memory one
+        AppDatabase appDatabase = AppDatabase.getInstance(ApplicationProvider.getApplicationContext());
+        List<String> paths = new ArrayList<>();
+        List<Track> page = appDatabase.trackDao().getPageByTitle(null, 0, 2);
+        while (!page.isEmpty()) {
+            for (Track track : page) {
+                paths.add(track.getFilePath());
+            }
+            Track last = page.get(page.size() - 1);
+            page = appDatabase.trackDao().getPageByTitle(last.getTitle(), last.getId(), 2);
+        }
+        
+        // NULL titles first, as ORDER BY title sorts them
+        assertEquals(7, paths.size());
+        assertEquals("/music/6.mp3", paths.get(0));
+        assertEquals("/music/7.mp3", paths.get(1));
+        assertEquals("/music/2.mp3", paths.get(2));
+        assertEquals("/music/4.mp3", paths.get(6));
+        
+        // Paging backwards from the last track visits the rest in reverse
+        List<String> reversed = new ArrayList<>();
+        Track first = appDatabase.trackDao().getPageByTitle("C", 0, 1).get(0);
+        page = appDatabase.trackDao().getPageByTitleBefore(first.getTitle(), first.getId(), 2);
+        while (!page.isEmpty()) {
+            for (Track track : page) {
+                reversed.add(0, track.getFilePath());
+            }
+            Track last = page.get(page.size() - 1);
+            page = appDatabase.trackDao().getPageByTitleBefore(last.getTitle(), last.getId(), 2);
+        }
+        assertEquals(paths.subList(0, 6), reversed);
+    }
+    
+    @Test
+    public void testSearchLibraryGroupsKindsAndRanksArtistFirst() {
+        // The repository works on the app database, not the in-memory one
+        AppDatabase appDatabase = AppDatabase.getInstance(ApplicationProvider.getApplicationContext());
+        appDatabase.artistDao().insert(new Artist("Adele"));
+        appDatabase.albumDao().insert(new Album("Adele Live", "Adele"));
+        appDatabase.playlistDao().insert(new Playlist("Adele favourites"));
+        
+        List<Track> tracks = new ArrayList<>();
+        tracks.add(new Track("Hello", "Adele", "25", "/music/1.mp3"));
+        tracks.add(new Track("Adelaide", "Other", "Songs", "/music/2.mp3"));
+        trackRepository.insertAll(tracks).blockingAwait();
+        
+        LibrarySearchResult result = trackRepository.searchLibrary("adele", 5).blockingGet();
+        assertEquals(1, result.artists.size());
+        assertEquals(1, result.albums.size());
+        assertEquals(1, result.playlists.size());
+        assertEquals(1, result.tracks.size());
+        assertEquals("Hello", result.tracks.get(0).getTitle());
+        assertEquals(LibrarySearchResult.Group.ARTISTS, result.groupOrder.get(0));
+        
+        result = trackRepository.searchLibrary("adel", 1).blockingGet();
+        assertEquals(1, result.tracks.size());
+    }
+}
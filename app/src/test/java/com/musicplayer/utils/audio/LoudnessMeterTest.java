@@ -0,0 +1,73 @@
+package com.musicplayer.utils.audio;
+
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for LoudnessMeter against the EBU Tech 3341 reference signals.
+ */
+public class LoudnessMeterTest {
+
+    private static final int SAMPLE_RATE = 48000;
+
+    @Test
+    public void testSineAtMinus23DbfsMeasuresMinus23Lufs() {
+        LoudnessMeter meter = measure(sine(1000, -23, 0, 20), 2);
+        assertEquals(-23.0, meter.getIntegratedLoudness(), 0.1);
+    }
+
+    @Test
+    public void testRelativeGateIgnoresQuietPassage() {
+        // 10 s at -36 dBFS then 10 s at -16 dBFS; the quiet part is gated out
+        short[] quiet = sine(1000, -36, 0, 10);
+        short[] loud = sine(1000, -16, 0, 10);
+        short[] both = new short[quiet.length + loud.length];
+        System.arraycopy(quiet, 0, both, 0, quiet.length);
+        System.arraycopy(loud, 0, both, quiet.length, loud.length);
+
+        assertEquals(-16.0, measure(both, 2).getIntegratedLoudness(), 0.1);
+    }
+
+    @Test
+    public void testTruePeakFindsInterSamplePeak() {
+        // A quarter of the sample rate at 45 degrees: every sample is 3 dB below the real peak
+        LoudnessMeter meter = measure(sine(SAMPLE_RATE / 4.0, -6, Math.PI / 4, 5), 2);
+        assertEquals(-6.0, meter.getTruePeak(), 0.3);
+    }
+
+    @Test
+    public void testSilence() {
+        LoudnessMeter meter = measure(new short[SAMPLE_RATE * 2 * 2], 2);
+        assertEquals(LoudnessMeter.SILENCE, meter.getIntegratedLoudness(), 0);
+        assertEquals(LoudnessMeter.SILENCE, meter.getTruePeak(), 0);
+    }
+
+    private static LoudnessMeter measure(short[] samples, int channels) {
+        LoudnessMeter meter = new LoudnessMeter();
+        meter.onFormat(SAMPLE_RATE, channels);
+        // Fed in codec-sized buffers
+        short[] buffer = new short[4096];
+        for (int start = 0; start < samples.length; start += buffer.length) {
+            int count = Math.min(buffer.length, samples.length - start);
+            System.arraycopy(samples, start, buffer, 0, count);
+            meter.onSamples(buffer, count);
+        }
+        return meter;
+    }
+
+    /**
+     * Stereo sine with the same signal in both channels, peak level in dBFS.
+     */
+    private static short[] sine(double frequency, double levelDb, double phase, int seconds) {
+        double amplitude = Math.pow(10, levelDb / 20) * 32767;
+        int frames = seconds * SAMPLE_RATE;
+        short[] samples = new short[frames * 2];
+        for (int i = 0; i < frames; i++) {
+            short value = (short) Math.round(amplitude * Math.sin(2 * Math.PI * frequency * i / SAMPLE_RATE + phase));
+            samples[2 * i] = value;
+            samples[2 * i + 1] = value;
+        }
+        return samples;
+    }
+}
@@ -0,0 +1,105 @@
+package com.musicplayer.utils.tags;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for ContentHasher: the hash follows the audio, not the tags or the path.
+ */
+public class ContentHasherTest {
+
+    private final List<File> files = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testRetaggedCopyHasSameHash() throws IOException {
+        byte[] audio = mpegFrames(200, 1);
+        String original = ContentHasher.hash(write(mp3("Song", audio)));
+        String retagged = ContentHasher.hash(write(mp3("A much longer title than before", audio)));
+
+        assertNotNull(original);
+        assertEquals(original, retagged);
+    }
+
+    @Test
+    public void testDifferentAudioHasDifferentHash() throws IOException {
+        String first = ContentHasher.hash(write(mp3("Song", mpegFrames(200, 1))));
+        String second = ContentHasher.hash(write(mp3("Song", mpegFrames(200, 2))));
+
+        assertNotEquals(first, second);
+    }
+
+    @Test
+    public void testPayloadBoundsExcludeTags() throws IOException {
+        byte[] audio = mpegFrames(10, 1);
+        byte[] file = mp3("Song", audio);
+
+        AudioTags tags = TagReader.read(write(file));
+
+        assertNotNull(tags);
+        assertEquals(file.length - audio.length, tags.audioOffset);
+        assertEquals(audio.length, tags.audioLength);
+    }
+
+    /**
+     * MPEG-1 layer III, 128 kbps, 44.1 kHz frames whose bodies are filled with {@code seed}.
+     */
+    private static byte[] mpegFrames(int count, int seed) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (int i = 0; i < count; i++) {
+            byte[] frame = new byte[417];
+            for (int j = 4; j < frame.length; j++) {
+                frame[j] = (byte) (seed * (i + j));
+            }
+            frame[0] = (byte) 0xFF;
+            frame[1] = (byte) 0xFB;
+            frame[2] = (byte) 0x90;
+            frame[3] = (byte) 0x00;
+            out.write(frame, 0, frame.length);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] mp3(String title, byte[] audio) throws IOException {
+        byte[] text = title.getBytes(StandardCharsets.ISO_8859_1);
+        ByteArrayOutputStream frame = new ByteArrayOutputStream();
+        frame.write("TIT2".getBytes(StandardCharsets.ISO_8859_1));
+        int size = text.length + 1;
+        frame.write(new byte[] {(byte) (size >> 24), (byte) (size >> 16), (byte) (size >> 8), (byte) size, 0, 0, 0});
+        frame.write(text);
+
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        out.write(new byte[] {'I', 'D', '3', 3, 0, 0});
+        int tagSize = frame.size();
+        out.write(new byte[] {(byte) ((tagSize >> 21) & 0x7F), (byte) ((tagSize >> 14) & 0x7F),
+                (byte) ((tagSize >> 7) & 0x7F), (byte) (tagSize & 0x7F)});
+        frame.writeTo(out);
+        out.write(audio);
+        return out.toByteArray();
+    }
+
+    private File write(byte[] data) throws IOException {
+        File file = File.createTempFile("contenthasher", ".mp3");
+        files.add(file);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        return file;
+    }
+}
@@ -0,0 +1,271 @@
+package com.musicplayer.utils.tags;
+
+import org.junit.After;
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Unit tests for TagReader using small synthetic files of each supported format.
+ */
+public class TagReaderTest {
+
+    private final List<File> files = new ArrayList<>();
+
+    @After
+    public void tearDown() {
+        for (File file : files) {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testReadMp3WithId3v23() throws IOException {
+        ByteArrayOutputStream frames = new ByteArrayOutputStream();
+        writeId3Frame(frames, "TIT2", "Song");
+        writeId3Frame(frames, "TPE1", "Singer");
+        writeId3Frame(frames, "TALB", "Record");
+        writeId3Frame(frames, "TRCK", "3/10");
+        writeId3Frame(frames, "TYER", "1999");
+        writeId3Frame(frames, "TCON", "(17)");
+
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write(new byte[] {'I', 'D', '3', 3, 0, 0});
+        writeSyncsafe(file, frames.size());
+        frames.writeTo(file);
+
+        // MPEG-1 layer III, 128 kbps, 44.1 kHz, stereo: 417 byte frames
+        for (int i = 0; i < 100; i++) {
+            byte[] frame = new byte[417];
+            frame[0] = (byte) 0xFF;
+            frame[1] = (byte) 0xFB;
+            frame[2] = (byte) 0x90;
+            frame[3] = (byte) 0x00;
+            file.write(frame);
+        }
+
+        AudioTags tags = TagReader.read(write("mp3", file.toByteArray()));
+
+        assertNotNull(tags);
+        assertEquals("audio/mpeg", tags.mimeType);
+        assertEquals("Song", tags.title);
+        assertEquals("Singer", tags.artist);
+        assertEquals("Record", tags.album);
+        assertEquals(3, tags.trackNumber);
+        assertEquals(1999, tags.year);
+        assertEquals("Rock", tags.genre);
+        assertEquals(44100, tags.sampleRate);
+        assertEquals(2, tags.channels);
+        assertEquals(128000, tags.bitrate);
+        assertEquals(100 * 417 * 8 / 128, tags.durationMs, 5);
+    }
+
+    @Test
+    public void testReadFlac() throws IOException {
+        ByteArrayOutputStream file = new ByteArrayOutputStream();
+        file.write("fLaC".getBytes(StandardCharsets.US_ASCII));
+
+        // STREAMINFO: 48 kHz, 2 channels, 16 bits, 96000 samples
+        ByteBuffer info = ByteBuffer.allocate(34);
+        info.putShort(0, (short) 4096);
+        info.putShort(2, (short) 4096);
+        long packed = (48000L << 44) | (1L << 41) | (15L << 36) | 96000L;
+        info.putLong(10, packed);
+        writeFlacBlock(file, 0, false, info.array());
+
+        writeFlacBlock(file, 4, true, vorbisComments(
+                "TITLE=Flac Song", "ARTIST=Flac Artist", "ALBUM=Flac Album",
+                "TRACKNUMBER=7", "DATE=2004-05-01", "GENRE=Jazz"));
+        file.write(new byte[1000]);
+
+        AudioTags tags = TagReader.read(write("flac", file.toByteArray()));
+
+        assertNotNull(tags);
+        assertEquals("audio/flac", tags.mimeType);
+        assertEquals("Flac Song", tags.title);
+        assertEquals("Flac Artist", tags.artist);
+        assertEquals("Flac Album", tags.album);
+        assertEquals(7, tags.trackNumber);
+        assertEquals(2004, tags.year);
+        assertEquals("Jazz", tags.genre);
+        assertEquals(48000, tags.sampleRate);
+        assertEquals(2, tags.channels);
+        assertEquals(2000, tags.durationMs);
+    }
+
+    @Test
+    public void testReadMp4() throws IOException {
+        ByteBuffer mvhd = ByteBuffer.allocate(100);
+        mvhd.putInt(12, 1000);      // timescale
+        mvhd.putInt(16, 180000);    // duration: 3 minutes
+
+        ByteBuffer stsd = ByteBuffer.allocate(8 + 36);
+        stsd.putInt(4, 1);          // entry count
+        stsd.putInt(8, 36);         // entry size
+        stsd.put(12, (byte) 'm').put(13, (byte) 'p').put(14, (byte) '4').put(15, (byte) 'a');
+        stsd.putShort(8 + 24, (short) 2);           // channels
+        stsd.putInt(8 + 32, 44100 << 16);           // 16.16 sample rate
+
+        byte[] trkn = new byte[8];
+        trkn[3] = 5;
+        byte[] ilst = concat(
+                item("©nam", text("Mp4 Song")),
+                item("©ART", text("Mp4 Artist")),
+                item("©alb", text("Mp4 Album")),
+                item("©day", text("2010")),
+                item("trkn", trkn));
+        byte[] meta = concat(new byte[4], atom("hdlr", new byte[25]), atom("ilst", ilst));
+
+        byte[] moov = atom("moov", concat(
+                atom("mvhd", mvhd.array()),
+                atom("trak", atom("mdia", atom("minf", atom("stbl", atom("stsd", stsd.array()))))),
+                atom("udta", atom("meta", meta))));
+        byte[] ftyp = atom("ftyp", "M4A \u0000\u0000\u0000\u0000".getBytes(StandardCharsets.ISO_8859_1));
+        byte[] mdat = atom("mdat", new byte[18000]);
+
+        AudioTags tags = TagReader.read(write("m4a", concat(ftyp, moov, mdat)));
+
+        assertNotNull(tags);
+        assertEquals("audio/mp4", tags.mimeType);
+        assertEquals("Mp4 Song", tags.title);
+        assertEquals("Mp4 Artist", tags.artist);
+        assertEquals("Mp4 Album", tags.album);
+        assertEquals(2010, tags.year);
+        assertEquals(5, tags.trackNumber);
+        assertEquals(180000, tags.durationMs);
+        assertEquals(44100, tags.sampleRate);
+        assertEquals(2, tags.channels);
+        assertEquals(800, tags.bitrate);
+    }
+
+    @Test
+    public void testReadWav() throws IOException {
+        ByteBuffer fmt = ByteBuffer.allocate(16).order(ByteOrder.LITTLE_ENDIAN);
+        fmt.putShort(0, (short) 1);         // PCM
+        fmt.putShort(2, (short) 1);         // mono
+        fmt.putInt(4, 8000);
+        fmt.putInt(8, 16000);               // byte rate
+        fmt.putShort(12, (short) 2);
+        fmt.putShort(14, (short) 16);
+
+        byte[] info = concat("INFO".getBytes(StandardCharsets.US_ASCII),
+                chunk("INAM", "Wav Song\u0000".getBytes(StandardCharsets.UTF_8)),
+                chunk("IART", "Wav Artist\u0000".getBytes(StandardCharsets.UTF_8)));
+        byte[] body = concat("WAVE".getBytes(StandardCharsets.US_ASCII),
+                chunk("fmt ", fmt.array()), chunk("LIST", info), chunk("data", new byte[32000]));
+
+        AudioTags tags = TagReader.read(write("wav", chunk("RIFF", body)));
+
+        assertNotNull(tags);
+        assertEquals("audio/wav", tags.mimeType);
+        assertEquals("Wav Song", tags.title);
+        assertEquals("Wav Artist", tags.artist);
+        assertEquals(8000, tags.sampleRate);
+        assertEquals(1, tags.channels);
+        assertEquals(128000, tags.bitrate);
+        assertEquals(2000, tags.durationMs);
+    }
+
+    @Test
+    public void testUnknownFormatReturnsNull() throws IOException {
+        assertNull(TagReader.read(write("txt", "not an audio file".getBytes(StandardCharsets.US_ASCII))));
+        assertNull(TagReader.read(new File("/nonexistent/file.mp3")));
+    }
+
+    // Helpers
+
+    private File write(String extension, byte[] data) throws IOException {
+        File file = File.createTempFile("tagreader", "." + extension);
+        files.add(file);
+        try (FileOutputStream out = new FileOutputStream(file)) {
+            out.write(data);
+        }
+        return file;
+    }
+
+    private static void writeId3Frame(ByteArrayOutputStream out, String id, String value) throws IOException {
+        byte[] text = value.getBytes(StandardCharsets.ISO_8859_1);
+        out.write(id.getBytes(StandardCharsets.US_ASCII));
+        out.write(ByteBuffer.allocate(4).putInt(text.length + 1).array());
+        out.write(new byte[] {0, 0, 0});    // flags, ISO-8859-1 encoding
+        out.write(text);
+    }
+
+    private static void writeSyncsafe(ByteArrayOutputStream out, int value) {
+        out.write((value >> 21) & 0x7F);
+        out.write((value >> 14) & 0x7F);
+        out.write((value >> 7) & 0x7F);
+        out.write(value & 0x7F);
+    }
+
+    private static void writeFlacBlock(ByteArrayOutputStream out, int type, boolean last, byte[] data)
+            throws IOException {
+        out.write((last ? 0x80 : 0) | type);
+        out.write((data.length >> 16) & 0xFF);
+        out.write((data.length >> 8) & 0xFF);
+        out.write(data.length & 0xFF);
+        out.write(data);
+    }
+
+    private static byte[] vorbisComments(String... comments) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        byte[] vendor = "test".getBytes(StandardCharsets.UTF_8);
+        out.write(littleEndian(vendor.length));
+        out.write(vendor);
+        out.write(littleEndian(comments.length));
+        for (String comment : comments) {
+            byte[] bytes = comment.getBytes(StandardCharsets.UTF_8);
+            out.write(littleEndian(bytes.length));
+            out.write(bytes);
+        }
+        return out.toByteArray();
+    }
+
+    private static byte[] littleEndian(int value) {
+        return ByteBuffer.allocate(4).order(ByteOrder.LITTLE_ENDIAN).putInt(value).array();
+    }
+
+    private static byte[] atom(String type, byte[] data) {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + data.length);
+        buffer.putInt(8 + data.length);
+        buffer.put(type.getBytes(StandardCharsets.ISO_8859_1));
+        buffer.put(data);
+        return buffer.array();
+    }
+
+    private static byte[] item(String type, byte[] value) {
+        byte[] data = concat(new byte[8], value);   // type indicator and locale
+        return atom(type, atom("data", data));
+    }
+
+    private static byte[] text(String value) {
+        return value.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static byte[] chunk(String id, byte[] data) {
+        ByteBuffer buffer = ByteBuffer.allocate(8 + data.length + (data.length & 1))
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(id.getBytes(StandardCharsets.US_ASCII));
+        buffer.putInt(data.length);
+        buffer.put(data);
+        return buffer.array();
+    }
+
+    private static byte[] concat(byte[]... parts) {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        for (byte[] part : parts) {
+            out.write(part, 0, part.length);
+        }
+        return out.toByteArray();
+    }
+}